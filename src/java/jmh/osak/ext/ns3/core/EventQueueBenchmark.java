@@ -0,0 +1,136 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.core;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compare the EventQueue implementations under the classic hold model.
+ * <p>
+ * The queue is filled with {@link #size} events, then each operation is one
+ * "hold": the earliest event is removed and inserted back at its time stamp plus
+ * an increment drawn from {@link #distribution}. The size of the queue stays
+ * constant, so the result is the steady state cost of a RemoveNext/Insert pair.
+ * <ul>
+ * <li>exponential: mean 1 ms, the usual reference distribution;</li>
+ * <li>uniform: between 0 and 2 ms;</li>
+ * <li>bimodal: 90% of the increments near 0 and 10% near 10 ms, as with
+ * protocol timers mixed with packet transmissions;</li>
+ * <li>triangular: sum of two uniforms, between 0 and 2 ms.</li>
+ * </ul>
+ * The cancel benchmark models protocol timers instead: a timer is scheduled
+ * and removed before it expires, on top of the same queue of pending events.
+ * <p>
+ * The project has no build file, so the benchmark is compiled by hand together
+ * with the main sources. With jmh-core 1.37, jmh-generator-annprocess 1.37 and
+ * their dependencies jopt-simple 5.0.4 and commons-math3 3.6.1 in {@code lib/},
+ * plus the osak.ext.communication classes, from the repository root:
+ *
+ * <pre>
+ * CP="lib/*:path/to/osak-ext-communication"
+ * javac -encoding UTF-8 -cp "$CP" -d build/jmh \
+ *     -processor org.openjdk.jmh.generators.BenchmarkProcessor \
+ *     $(find src/java/main src/java/jmh -name '*.java')
+ * java -cp "build/jmh:$CP" org.openjdk.jmh.Main EventQueueBenchmark
+ * </pre>
+ *
+ * The processor writes the generated harness and META-INF/BenchmarkList into
+ * build/jmh. JMH options go after the class name, e.g.
+ * {@code -p type=heap,wheel -p size=10000} to narrow the parameter grid.
+ *
+ * @author zhangrui
+ * @since 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventQueueBenchmark {
+    private static final long MEAN = 1_000_000;
+
+    @Param({ "heap", "calendar", "ladder", "wheel" })
+    public String type;
+
+    @Param({ "100", "10000", "1000000" })
+    public int size;
+
+    @Param({ "exponential", "uniform", "bimodal", "triangular" })
+    public String distribution;
+
+    private EventQueue m_queue;
+    private Random m_random;
+    private long m_uid;
+
+    @Setup
+    public void setup() {
+	m_queue = EventQueue.Create(type);
+	m_random = new Random(42);
+	m_uid = 4;
+	for (int i = 0; i < size; i++) {
+	    m_queue.Insert(new EventId(EventImpl.MakeEvent(() -> {
+	    }), NextIncrement(), Simulator.NO_CONTEXT, m_uid++));
+	}
+    }
+
+    private long NextIncrement() {
+	switch (distribution) {
+	case "exponential":
+	    return (long) (-MEAN * Math.log(1 - m_random.nextDouble()));
+	case "uniform":
+	    return (long) (2 * MEAN * m_random.nextDouble());
+	case "bimodal":
+	    return m_random.nextInt(10) == 0 ? (long) (MEAN * (9.5 + m_random.nextDouble()))
+		    : (long) (MEAN * 0.1 * m_random.nextDouble());
+	case "triangular":
+	    return (long) (MEAN * (m_random.nextDouble() + m_random.nextDouble()));
+	default:
+	    throw new IllegalArgumentException("Unknown distribution: " + distribution);
+	}
+    }
+
+    @Benchmark
+    public EventId cancel() {
+	EventId head = m_queue.PeekNext();
+	EventId ev = new EventId(head.m_eventImpl, head.m_ts + NextIncrement(), Simulator.NO_CONTEXT, m_uid++);
+	m_queue.Insert(ev);
+	m_queue.Remove(ev);
+	return ev;
+    }
+
+    @Benchmark
+    public EventId hold() {
+	EventId ev = m_queue.RemoveNext();
+	ev.m_ts += NextIncrement();
+	ev.m_uid = m_uid++;
+	m_queue.Insert(ev);
+	return ev;
+    }
+}
@@ -15,61 +15,66 @@
  */
 package osak.ext.ns3.aodv;
 
+import osak.ext.communication.MyLog;
 import osak.ext.ns3.network.Tag;
 import osak.ext.ns3.network.TagBuffer;
 
 /**
- * TODO DeferredRouteOutputTag
+ * Tag used by AODV implementation: marks a packet routed to the loopback while
+ * its route request is deferred, with the interface it must go out of.
  * 
  * @author zhangrui
  * @since   1.0
  */
 public class DeferredRouteOutputTag implements Tag {
+    private int m_oif; // !< Positive if output device is fixed in RouteOutput
 
     /**
-     * @param iif
+     * @param oif the output interface, or -1 if any
      */
-    public DeferredRouteOutputTag(int iif) {
-	// TODO Auto-generated constructor stub
+    public DeferredRouteOutputTag(int oif) {
+	m_oif = oif;
     }
 
     /**
-     * 
+     * Constructor: any output interface.
      */
     public DeferredRouteOutputTag() {
-	// TODO Auto-generated constructor stub
+	this(-1);
     }
 
     /**
-     * @return
+     * @return the output interface, or -1 if any
      */
     public int GetInterface() {
-	// TODO Auto-generated method stub
-	return 0;
+	return m_oif;
+    }
+
+    /**
+     * @param oif the output interface, or -1 if any
+     */
+    public void SetInterface(int oif) {
+	m_oif = oif;
     }
 
     @Override
     public int GetSerializedSize() {
-	// TODO Auto-generated method stub
-	return 0;
+	return 4;
     }
 
     @Override
     public void Serialize(TagBuffer i) {
-	// TODO Auto-generated method stub
-
+	i.WriteU32(m_oif);
     }
 
     @Override
     public void Deserialize(TagBuffer i) {
-	// TODO Auto-generated method stub
-
+	m_oif = i.ReadU32();
     }
 
     @Override
     public void Print() {
-	// TODO Auto-generated method stub
-
+	MyLog.logInfo("DeferredRouteOutputTag::Print", "output interface = " + m_oif);
     }
 
 }
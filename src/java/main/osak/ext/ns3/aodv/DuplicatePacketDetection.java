@@ -45,7 +45,7 @@ public final class DuplicatePacketDetection {
      * @returns true if duplicate
      */
     public boolean IsDuplicate(Packet p, Ipv4Header header) {
-	return m_idCache.IsDuplicate(header.GetSource(), p.GetUid());
+	return m_idCache.IsDuplicate(header.GetSource().Get(), p.GetUid());
     }
 
     /**
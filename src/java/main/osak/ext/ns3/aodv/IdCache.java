@@ -15,10 +15,9 @@
  */
 package osak.ext.ns3.aodv;
 
-import java.util.LinkedList;
-import java.util.List;
-import java.util.UUID;
-
+import osak.ext.ns3.core.IntObjectMap;
+import osak.ext.ns3.core.LongLongMap;
+import osak.ext.ns3.core.Simulator;
 import osak.ext.ns3.network.utils.Ipv4Address;
 
 /**
@@ -28,42 +27,19 @@ import osak.ext.ns3.network.utils.Ipv4Address;
  * @since   1.0
  */
 public final class IdCache {
-    class UniqueId {
-	/// ID is supposed to be unique in single address context (e.g. sender address)
-	Ipv4Address m_context;
-	/// The id
-	UUID m_uuid;
-	int m_id;
-	/// When record will expire
-	long m_expire;
-
-	UniqueId(Ipv4Address m_context, UUID m_id, long m_expire) {
-	    this.m_context = m_context;
-	    this.m_uuid = m_id;
-	    this.m_expire = m_expire;
-	}
-
-	UniqueId(Ipv4Address m_context, int m_id, long m_expire) {
-	    this.m_context = m_context;
-	    this.m_id = m_id;
-	    this.m_expire = m_expire;
-	}
-    };
-
-    /**
-     * \brief Check if the entry is expired
-     *
-     * @param u UniqueId entry
-     * @return true if expired, false otherwise
-     */
-    boolean IsExpired(UniqueId u) {
-	return (u.m_expire < System.currentTimeMillis());
-    }
-
-    /// Already seen IDs
-    List<UniqueId> m_idCache = new LinkedList<>();
+    /// Already seen IDs: for each context address (e.g. sender address), the expire time of each ID
+    IntObjectMap<LongLongMap> m_idCache = new IntObjectMap<>();
     /// Default lifetime for ID records
     long m_lifetime;
+    /// Current time while purging, in milliseconds
+    private long m_now;
+    /// Purge() filter of the IDs of a context
+    private final LongLongMap.Filter m_expired = (id, expire) -> expire < m_now;
+    /// Purge() filter of the contexts
+    private final IntObjectMap.Filter<LongLongMap> m_purge = (context, ids) -> {
+	ids.RemoveIf(m_expired);
+	return ids.IsEmpty();
+    };
 
     // ----public----
     /**
@@ -79,28 +55,37 @@ public final class IdCache {
      * Check that entry (addr, id) exists in cache. Add entry, if it doesn't exist.
      * 
      * @param addr the IP address
-     * @param id   the cache entry ID
+     * @param id   the cache entry ID: a RREQ id or a packet uid
      * @returns true if the pair exists
      */
-    public boolean IsDuplicate(Ipv4Address addr, UUID id) {
+    public boolean IsDuplicate(Ipv4Address addr, long id) {
+	return IsDuplicate(addr.Get(), id);
+    }
+
+    /**
+     * Check that entry (addr, id) exists in cache. Add entry, if it doesn't exist.
+     * 
+     * @param addr the IP address
+     * @param id   the cache entry ID: a RREQ id or a packet uid
+     * @returns true if the pair exists
+     */
+    public boolean IsDuplicate(int addr, long id) {
 	Purge();
-	for (UniqueId i : m_idCache) {
-	    if (i.m_context.equals(addr) && i.m_uuid == id) {
-		return true;
-	    }
+	LongLongMap ids = m_idCache.Get(addr);
+	if (ids == null) {
+	    ids = new LongLongMap();
+	    m_idCache.Put(addr, ids);
+	} else if (ids.ContainsKey(id)) {
+	    return true;
 	}
-	UniqueId uniqueId = new UniqueId(addr, id, m_lifetime + System.currentTimeMillis());
-	m_idCache.add(uniqueId);
+	ids.Put(id, m_lifetime + Simulator.NowNs() / 1_000_000);
 	return false;
     }
 
     /// Remove all expired entries
     public void Purge() {
-	for (UniqueId i : m_idCache) {
-	    if (IsExpired(i)) {
-		m_idCache.remove(i);
-	    }
-	}
+	m_now = Simulator.NowNs() / 1_000_000;
+	m_idCache.RemoveIf(m_purge);
     }
 
     /**
@@ -108,8 +93,9 @@ public final class IdCache {
      */
     public int GetSize() {
 	Purge();
-	return m_idCache.size();
-
+	int[] size = { 0 };
+	m_idCache.ForEach((context, ids) -> size[0] += ids.GetSize());
+	return size[0];
     }
 
     /**
@@ -129,21 +115,4 @@ public final class IdCache {
     long GetLifeTime() {
 	return m_lifetime;
     }
-
-    /**
-     * @param origin
-     * @param id
-     * @return
-     */
-    public boolean IsDuplicate(Ipv4Address addr, int id) {
-	Purge();
-	for (UniqueId i : m_idCache) {
-	    if (i.m_context.equals(addr) && i.m_id == id) {
-		return true;
-	    }
-	}
-	UniqueId uniqueId = new UniqueId(addr, id, m_lifetime + System.currentTimeMillis());
-	m_idCache.add(uniqueId);
-	return false;
-    }
 }
@@ -20,6 +20,8 @@ import java.util.List;
 
 import osak.ext.communication.MyLog;
 import osak.ext.ns3.callback.Callback1;
+import osak.ext.ns3.core.Rollbackable;
+import osak.ext.ns3.core.Simulator;
 import osak.ext.ns3.core.Time;
 import osak.ext.ns3.core.Timer;
 import osak.ext.ns3.internet.ArpCache;
@@ -34,7 +36,7 @@ import osak.ext.ns3.network.utils.Mac48Address;
  * @author zhangrui
  * @since 1.0
  */
-public final class Neighbors {
+public final class Neighbors implements Rollbackable {
     public Neighbors(Time delay) {
 	m_ntimer.SetDelay(delay);
 	m_ntimer.SetFunction(() -> this.Purge());
@@ -47,7 +49,7 @@ public final class Neighbors {
 
 	public Mac48Address m_hardwareAddress;/// Neighbor MAC address
 
-	public Time m_expireTime;/// Neighbor expire time
+	public long m_expireTime;/// Neighbor expire time, in nanoseconds
 
 	public boolean close;/// Neighbor close indicator
 
@@ -56,9 +58,9 @@ public final class Neighbors {
 	 *
 	 * @param ip  Ipv4Address entry
 	 * @param mac Mac48Address entry
-	 * @param t   Time expire time
+	 * @param t   expire time, in nanoseconds
 	 */
-	public Neighbor(Ipv4Address ip, Mac48Address mac, Time t) {
+	public Neighbor(Ipv4Address ip, Mac48Address mac, long t) {
 	    m_neighborAddress = ip;
 	    m_hardwareAddress = mac;
 	    m_expireTime = t;
@@ -74,13 +76,29 @@ public final class Neighbors {
      * @returns the expire time for the neighbor node
      */
     public Time GetExpireTime(Ipv4Address addr) {
+	return Time.FromNs(GetExpireTimeNs(addr));
+    }
+
+    /**
+     * @param addr the IP address of the neighbor node
+     * @returns the expire time for the neighbor node, in nanoseconds
+     */
+    public long GetExpireTimeNs(Ipv4Address addr) {
+	return GetExpireTimeNs(addr.Get());
+    }
+
+    /**
+     * @param addr the IP address of the neighbor node
+     * @returns the expire time for the neighbor node, in nanoseconds
+     */
+    public long GetExpireTimeNs(int addr) {
 	Purge();
 	for (Neighbor i : m_nb) {
-	    if (i.m_neighborAddress == addr) {
-		return Time.sub(i.m_expireTime, Time.Now());
+	    if (i.m_neighborAddress.Get() == addr) {
+		return Time.Sub(i.m_expireTime, Simulator.NowNs());
 	    }
 	}
-	return new Time(0);
+	return 0;
     }
 
     /**
@@ -90,9 +108,19 @@ public final class Neighbors {
      * @returns true if the node with IP address is a neighbor
      */
     public boolean IsNeighbor(Ipv4Address addr) {
+	return IsNeighbor(addr.Get());
+    }
+
+    /**
+     * Check that node with address addr is neighbor
+     * 
+     * @param addr the IP address to check
+     * @returns true if the node with IP address is a neighbor
+     */
+    public boolean IsNeighbor(int addr) {
 	Purge();
 	for (Neighbor i : m_nb) {
-	    if (i.m_neighborAddress == addr) {
+	    if (i.m_neighborAddress.Get() == addr) {
 		return true;
 	    }
 	}
@@ -107,28 +135,54 @@ public final class Neighbors {
      * @param expire the expire time for the address
      */
     public void Update(Ipv4Address addr, Time expire) {
+	Update(addr, expire.getNanoSeconds());
+    }
+
+    /**
+     * Update expire time for entry with address addr, if it exists, else add new
+     * entry
+     * 
+     * @param addr   the IP address to check
+     * @param expire the expire time for the address, in nanoseconds
+     */
+    public void Update(Ipv4Address addr, long expire) {
+	Update(addr.Get(), expire);
+    }
+
+    /**
+     * Update expire time for entry with address addr, if it exists, else add new
+     * entry
+     * 
+     * @param addr   the IP address to check
+     * @param expire the expire time for the address, in nanoseconds
+     */
+    public void Update(int addr, long expire) {
+	Simulator.SaveState(this);
+	long expireTime = Time.Add(expire, Simulator.NowNs());
 	for (Neighbor i : m_nb) {
-	    if (i.m_neighborAddress == addr) {
-		i.m_expireTime = Time.MAX(Time.add(expire, Time.Now()), i.m_expireTime);
+	    if (i.m_neighborAddress.Get() == addr) {
+		i.m_expireTime = Math.max(expireTime, i.m_expireTime);
 		if (i.m_hardwareAddress.equals(new Mac48Address())) {
 		    i.m_hardwareAddress = LookupMacAddress(i.m_neighborAddress);
 		}
 		return;
 	    }
 	}
-	MyLog.logInfo("Neighbors::Update", "Open link to" + addr);
-	Neighbor neighbor = new Neighbor(addr, LookupMacAddress(addr), Time.add(expire, Time.Now()));
+	Ipv4Address address = Ipv4Address.Intern(addr);
+	MyLog.logInfo("Neighbors::Update", "Open link to" + address);
+	Neighbor neighbor = new Neighbor(address, LookupMacAddress(address), expireTime);
 	m_nb.add(neighbor);
 	Purge();
     }
 
     // Check if the entry is expired
     private boolean CloseNeighbor(final Neighbor nb) {
-	return ((nb.m_expireTime.getMillSeconds() < System.currentTimeMillis()) || nb.close);
+	return ((nb.m_expireTime < Simulator.NowNs()) || nb.close);
     }
 
     /// Remove all expired entries
     public void Purge() {
+	Simulator.SaveState(this);
 	if (m_nb.isEmpty()) {
 	    return;
 	}
@@ -141,11 +195,7 @@ public final class Neighbors {
 	    }
 	}
 
-	for (Neighbor i : m_nb) {
-	    if (CloseNeighbor(i)) {
-		m_nb.remove(i);
-	    }
-	}
+	m_nb.removeIf(i -> CloseNeighbor(i));
 	m_ntimer.Cancel();
 	m_ntimer.Schedule();
     }
@@ -158,6 +208,7 @@ public final class Neighbors {
 
     /// Remove all entries
     public void Clear() {
+	Simulator.SaveState(this);
 	m_nb.clear();
     }
 
@@ -244,6 +295,7 @@ public final class Neighbors {
 	// TODO: need to check if addr1 == srcmac
 	Mac48Address addr = new Mac48Address();
 	addr.CopyFrom(hdr.GetDstMac());
+	Simulator.SaveState(this);
 	for (Neighbor i : m_nb) {
 	    if (i.m_hardwareAddress.equals(addr)) {
 		i.close = true;
@@ -252,4 +304,20 @@ public final class Neighbors {
 	Purge();
     }
 
+    @Override
+    public Object SaveState() {
+	List<Neighbor> state = new ArrayList<>(m_nb.size());
+	for (Neighbor i : m_nb) {
+	    Neighbor n = new Neighbor(i.m_neighborAddress, i.m_hardwareAddress, i.m_expireTime);
+	    n.close = i.close;
+	    state.add(n);
+	}
+	return state;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void RestoreState(Object state) {
+	m_nb = (List<Neighbor>) state;
+    }
 }
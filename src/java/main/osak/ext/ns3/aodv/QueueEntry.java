@@ -17,6 +17,7 @@ package osak.ext.ns3.aodv;
 
 import osak.ext.ns3.callback.ErrorCallback;
 import osak.ext.ns3.callback.UnicastForwardCallback;
+import osak.ext.ns3.core.Simulator;
 import osak.ext.ns3.core.Time;
 import osak.ext.ns3.internet.*;
 import osak.ext.ns3.network.Packet;
@@ -32,14 +33,14 @@ public final class QueueEntry {
     Ipv4Header m_header = null;/// IP header
     UnicastForwardCallback m_ucb = null;/// Unicast forward callback
     ErrorCallback m_ecb = null;/// Error callback
-    Time m_expire = Time.Now();/// Expire time for queue entry
+    long m_expire = Simulator.NowNs();/// Expire time for queue entry, in nanoseconds
 
     public QueueEntry(Packet pa, Ipv4Header h, UnicastForwardCallback ucb, ErrorCallback ecb, Time exp) {
 	m_packet = pa;
 	m_header = h;
 	m_ucb = ucb;
 	m_ecb = ecb;
-	m_expire = exp.add(Time.Now());
+	m_expire = Time.Add(exp.getNanoSeconds(), Simulator.NowNs());
     }
 
     /**
@@ -50,14 +51,14 @@ public final class QueueEntry {
 	m_header = null;
 	m_ucb = null;
 	m_ecb = null;
-	m_expire = Time.Now();
+	m_expire = Simulator.NowNs();
     }
 
     @Override
     public boolean equals(Object obj) {
 	if (obj instanceof QueueEntry) {
 	    QueueEntry o = (QueueEntry) obj;
-	    return ((m_packet == o.m_packet) && (m_header.GetDestination() == o.m_header.GetDestination())
+	    return ((m_packet == o.m_packet) && m_header.GetDestination().equals(o.m_header.GetDestination())
 		    && (m_expire == o.m_expire));
 	}
 	return false;
@@ -142,7 +143,16 @@ public final class QueueEntry {
      * @param exp The expiration time
      */
     public void SetExpireTime(Time exp) {
-	m_expire = exp.add(Time.Now());
+	SetExpireTime(exp.getNanoSeconds());
+    }
+
+    /**
+     * Set expire time
+     * 
+     * @param exp The expiration time, in nanoseconds
+     */
+    public void SetExpireTime(long exp) {
+	m_expire = Time.Add(exp, Simulator.NowNs());
     }
 
     /**
@@ -151,7 +161,16 @@ public final class QueueEntry {
      * @returns the expiration time
      */
     public Time GetExpireTime() {
-	return Time.sub(m_expire, Time.Now());
+	return Time.FromNs(GetExpireTimeNs());
+    }
+
+    /**
+     * Get expire time
+     * 
+     * @returns the expiration time, in nanoseconds
+     */
+    public long GetExpireTimeNs() {
+	return Time.Sub(m_expire, Simulator.NowNs());
     }
 
 
@@ -14,9 +14,12 @@
    limitations under the License.
  */
 package osak.ext.ns3.aodv;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 
+import osak.ext.ns3.core.Rollbackable;
+import osak.ext.ns3.core.Simulator;
 import osak.ext.ns3.core.Time;
 import osak.ext.ns3.network.SocketErrno;
 import osak.ext.ns3.network.utils.Ipv4Address;
@@ -29,7 +32,7 @@ import osak.ext.ns3.network.utils.Ipv4Address;
  * @author zhangrui
  * @since 1.0
  */
-public final class RequestQueue {
+public final class RequestQueue implements Rollbackable {
     /// The queue
     List<QueueEntry> m_queue = new LinkedList<>();
     /// The maximum number of packets that we allow a routing protocol to buffer.
@@ -40,10 +43,12 @@ public final class RequestQueue {
     Time m_queueTimeout;
     /// Remove all expired entries
     void Purge() {
-	for (QueueEntry i : m_queue) {
-	    if (i.GetExpireTime().getLong() < 0) {
+	Simulator.SaveState(this);
+	for (Iterator<QueueEntry> it = m_queue.iterator(); it.hasNext();) {
+	    QueueEntry i = it.next();
+	    if (i.GetExpireTimeNs() < 0) {
 		Drop(i, "Drop outdated packet ");
-		m_queue.remove(i);
+		it.remove();
 	    }
 	}
     }
@@ -80,7 +85,7 @@ public final class RequestQueue {
 	Purge();
 	for (QueueEntry i : m_queue) {
 	    if ((i.GetPacket().GetUid() == entry.GetPacket().GetUid())
-		    && i.GetIpv4Header().GetDestination() == entry.GetIpv4Header().GetDestination()) {
+		    && i.GetIpv4Header().GetDestination().equals(entry.GetIpv4Header().GetDestination())) {
 		return false;
 	    }
 	}
@@ -101,10 +106,15 @@ public final class RequestQueue {
      */
     public boolean Dequeue(Ipv4Address dst, QueueEntry entry) {
 	Purge();
-	for (QueueEntry i : m_queue) {
+	for (Iterator<QueueEntry> it = m_queue.iterator(); it.hasNext();) {
+	    QueueEntry i = it.next();
 	    if (i.GetIpv4Header().GetDestination().equals(dst)) {
-		entry = i;
-		m_queue.remove(i);
+		entry.m_packet = i.m_packet;
+		entry.m_header = i.m_header;
+		entry.m_ucb = i.m_ucb;
+		entry.m_ecb = i.m_ecb;
+		entry.m_expire = i.m_expire;
+		it.remove();
 		return true;
 	    }
 	}
@@ -118,10 +128,11 @@ public final class RequestQueue {
      */
     public void DropPacketWithDst(Ipv4Address dst) {
 	Purge();
-	for (QueueEntry i : m_queue) {
+	for (Iterator<QueueEntry> it = m_queue.iterator(); it.hasNext();) {
+	    QueueEntry i = it.next();
 	    if (i.GetIpv4Header().GetDestination().equals(dst)) {
 		Drop(i, "DropPacketWithDst");
-		m_queue.remove(i);
+		it.remove();
 	    }
 	}
 
@@ -158,7 +169,7 @@ public final class RequestQueue {
      */
     public int GetMaxQueueLen()
     {
-        return m_maxLen;
+	return m_maxLen;
     }
 
     /**
@@ -168,7 +179,7 @@ public final class RequestQueue {
      */
     public void SetMaxQueueLen(int len)
     {
-        m_maxLen = len;
+	m_maxLen = len;
     }
 
     /**
@@ -178,7 +189,7 @@ public final class RequestQueue {
      */
     public Time GetQueueTimeout()
     {
-        return m_queueTimeout;
+	return m_queueTimeout;
     }
 
     /**
@@ -188,6 +199,17 @@ public final class RequestQueue {
      */
     public void SetQueueTimeout(Time t)
     {
-        m_queueTimeout = t;
+	m_queueTimeout = t;
+    }
+
+    @Override
+    public Object SaveState() {
+	return new LinkedList<>(m_queue);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void RestoreState(Object state) {
+	m_queue = (List<QueueEntry>) state;
     }
 }
@@ -82,7 +82,7 @@ public final class RerrHeader implements Header {
 	byte[] addr = new byte[4];
 	for (byte k = 0; k < dest; ++k) {
 	    buffer.get(addr);
-	    address = new Ipv4Address(Helper.byte2int(addr));
+	    address = Ipv4Address.Intern(Helper.byte2int(addr));
 	    seqNo = buffer.getInt();
 	    m_unreachableDstSeqNo.put(address, seqNo);
 	}
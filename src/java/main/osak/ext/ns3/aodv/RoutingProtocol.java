@@ -20,10 +20,15 @@ import java.util.*;
 import java.util.concurrent.TimeUnit;
 
 import osak.ext.communication.MyLog;
+import osak.ext.ns3.callback.Callback1;
+import osak.ext.ns3.callback.Callback3;
 import osak.ext.ns3.callback.ErrorCallback;
 import osak.ext.ns3.callback.LocalDeliverCallback;
 import osak.ext.ns3.callback.MulticastForwardCallback;
 import osak.ext.ns3.callback.UnicastForwardCallback;
+import osak.ext.ns3.core.IntObjectMap;
+import osak.ext.ns3.core.RngSeedManager;
+import osak.ext.ns3.core.Simulator;
 import osak.ext.ns3.core.Time;
 import osak.ext.ns3.core.Timer;
 import osak.ext.ns3.internet.*;
@@ -112,6 +117,12 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
     private int m_seqNo;
     /// Handle duplicated RREQ
     private IdCache m_rreqIdCache;
+    /// Log every received control packet. Off by default: MyLog has no level
+    /// query, and the message would be built for each packet whatever the level.
+    static boolean s_logReceived = false;
+    /// Views reading the received control messages in place
+    private final TypeView m_typeView = new TypeView();
+    private final RreqView m_rreqView = new RreqView();
     /// Handle duplicated broadcast/multicast packets
     private DuplicatePacketDetection m_dpd;
     /// Handle neighbors
@@ -221,12 +232,13 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
      */
     void ScheduleRreqRetry(Ipv4Address dst) {
 	// TODO: need to check
-	if (!m_addressReqTimer.containsKey(dst)) {
-	    Timer timer = new Timer();
-	    m_addressReqTimer.put(dst, timer);
+	Timer timer = m_addressReqTimer.Get(dst.Get());
+	if (timer == null) {
+	    timer = new Timer();
+	    m_addressReqTimer.Put(dst.Get(), timer);
 	}
-	m_addressReqTimer.get(dst).SetFunction(() -> RouteRequestTimerExpire(dst));
-	m_addressReqTimer.get(dst).Cancel();
+	timer.SetFunction(() -> RouteRequestTimerExpire(dst));
+	timer.Cancel();
 
 	RoutingTableEntry rt = new RoutingTableEntry();
 	m_routingTable.LookupRoute(dst, rt);
@@ -239,7 +251,7 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
 	    MyLog.logInfo("ScheduleRreqRetry", "Applying binary exponential backoff factor " + backoffFactor);
 	    retry = m_netTraversalTime.getMillSeconds() * (1 << backoffFactor);
 	}
-	m_addressReqTimer.get(dst).Schedule(new Time(retry));
+	timer.Schedule(new Time(retry));
 	MyLog.logInfo("Scheduled RREQ retry in " + retry / 1000 + "s");
     }
 
@@ -253,12 +265,24 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
      * @return true if route to destination address addr exist
      */
     boolean UpdateRouteLifeTime(Ipv4Address addr, Time lt) {
+	return UpdateRouteLifeTime(addr, lt.getNanoSeconds());
+    }
+
+    /**
+     * Set lifetime field in routing table entry to the maximum of existing
+     * lifetime and lt, if the entry exists
+     * 
+     * @param addr destination address
+     * @param lt   proposed lifetime, in nanoseconds
+     * @return true if route to destination address addr exist
+     */
+    boolean UpdateRouteLifeTime(Ipv4Address addr, long lt) {
 	RoutingTableEntry rt = new RoutingTableEntry();
 	if (m_routingTable.LookupRoute(addr, rt)) {
 	    if (rt.GetFlag() == RouteFlags.VALID) {
 		MyLog.logOut("UpdateRouteLifeTime", "Updating VALID route", 2);
 		rt.SetRreqCnt((byte) 0);
-		rt.SetLifeTime(Time.MAX(lt, rt.GetLifeTime()));
+		rt.SetLifeTime(Math.max(lt, rt.GetLifeTimeNs()));
 		m_routingTable.Update(rt);
 		return true;
 	    }
@@ -290,7 +314,7 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
 	else {
 	    NetDevice dev = m_ipv4.GetNetDevice(m_ipv4.GetInterfaceForAddress(receiver));
 	    if(toNeighbor.GetValidSeqNo() && (toNeighbor.GetHop()==1) && (toNeighbor.GetOutputDevice()==dev)) {
-		toNeighbor.SetLifeTime(Time.MAX(m_activeRouteTimeout, toNeighbor.GetLifeTime()));
+		toNeighbor.SetLifeTime(Math.max(m_activeRouteTimeout.getNanoSeconds(), toNeighbor.GetLifeTimeNs()));
 	    }
 	    else {
 		RoutingTableEntry newEntry = new RoutingTableEntry(
@@ -301,7 +325,7 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
 			/* iface= */m_ipv4.GetAddress(m_ipv4.GetInterfaceForAddress(receiver), 0),
 			    /* hops= */(short) 1,
 			    /* nextHop= */sender,
-			    /* lifetime= */Time.MAX(m_activeRouteTimeout, toNeighbor.GetLifeTime()));
+			    /* lifetime= */Math.max(m_activeRouteTimeout.getNanoSeconds(), toNeighbor.GetLifeTimeNs()));
 		m_routingTable.Update(newEntry);
 	    }
 	}
@@ -314,8 +338,18 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
      * @returns true if the IP address is the node's IP address
      */
     boolean IsMyOwnAddress(Ipv4Address src) {
+	return IsMyOwnAddress(src.Get());
+    }
+
+    /**
+     * Test whether the provided address is assigned to an interface on this node
+     * 
+     * @param src the source IP address, as an int
+     * @returns true if the IP address is the node's IP address
+     */
+    boolean IsMyOwnAddress(int src) {
 	for (Map.Entry<Socket, Ipv4InterfaceAddress> i : m_socketAddresses.entrySet()) {
-	    if (src == i.getValue().GetLocal()) {
+	    if (src == i.getValue().GetLocal().Get()) {
 		return true;
 	    }
 	}
@@ -371,17 +405,17 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
 	    NetDevice dev = m_ipv4.GetNetDevice(m_ipv4.GetInterfaceForAddress(receiverIfaceAddr));
 	    RoutingTableEntry newEntry = new RoutingTableEntry(
 		    /*dev=*/dev,
-	            /*dst=*/rrepHeader.GetDst(),
-	            /*vSeqNo=*/true,
-	            /*seqNo=*/rrepHeader.GetDstSeqno(),
-	            /*iface=*/m_ipv4.GetAddress(m_ipv4.GetInterfaceForAddress(receiverIfaceAddr), 0),
-	            (short) /*hops=*/1,
-	            /*nextHop=*/rrepHeader.GetDst(),
-	            /*lifetime=*/new Time(rrepHeader.GetLifeTime()));
+		    /*dst=*/rrepHeader.GetDst(),
+		    /*vSeqNo=*/true,
+		    /*seqNo=*/rrepHeader.GetDstSeqno(),
+		    /*iface=*/m_ipv4.GetAddress(m_ipv4.GetInterfaceForAddress(receiverIfaceAddr), 0),
+		    (short) /*hops=*/1,
+		    /*nextHop=*/rrepHeader.GetDst(),
+		    /*lifetime=*/new Time(rrepHeader.GetLifeTime()));
 	    m_routingTable.AddRoute(newEntry);
 	}
 	else {
-	    toNeighbor.SetLifeTime(Time.MAX(Time.multiply(m_allowedHelloLoss, m_helloInterval), toNeighbor.GetLifeTime()));
+	    toNeighbor.SetLifeTime(Math.max(Time.Mul(m_allowedHelloLoss, m_helloInterval.getNanoSeconds()), toNeighbor.GetLifeTimeNs()));
 	    toNeighbor.SetSeqNo(rrepHeader.GetDstSeqno());
 	    toNeighbor.SetValidSeqNo(true);
 	    toNeighbor.SetFlag(RouteFlags.VALID);
@@ -392,7 +426,7 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
 	    m_routingTable.Update(toNeighbor);
 	}
 	if (m_enableHello) {
-	    m_nb.Update((Ipv4Address) rrepHeader.GetDst(), Time.multiply(m_allowedHelloLoss, m_helloInterval));
+	    m_nb.Update((Ipv4Address) rrepHeader.GetDst(), Time.Mul(m_allowedHelloLoss, m_helloInterval.getNanoSeconds()));
 	}
     }
 
@@ -462,29 +496,31 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
 	// TODO: InetSocketAddress
 	osak.ext.ns3.network.utils.InetSocketAddress inetSourceAddr = osak.ext.ns3.network.utils.InetSocketAddress.ConvertFrom(sourceAddress);
 	Ipv4Address sender = inetSourceAddr.GetIpv4();
-	Ipv4Address receiver = new Ipv4Address();
 
-	if (m_socketAddresses.containsKey(socket)) {
-	    // TODO: ipv4
-	    receiver = m_socketAddresses.get(socket).GetLocal();
-	} else if (m_socketSubnetBroadcastAddresses.containsKey(socket)) {
-	    receiver = m_socketSubnetBroadcastAddresses.get(socket).GetLocal();
+	// TODO: ipv4
+	Ipv4InterfaceAddress iface = m_socketAddresses.get(socket);
+	if (iface == null) {
+	    iface = m_socketSubnetBroadcastAddresses.get(socket);
 	}
-	else {
+	if (iface == null) {
 	    MyLog.logOut("RoutingProtocol::RecvAodv", "Received a packet from an unknown socket", 4);
 	    assert (false);
+	    return;
+	}
+	Ipv4Address receiver = iface.GetLocal();
+	if (s_logReceived) {
+	    MyLog.logOut("RoutingProtocol::RecvAodv",
+		    "AODV node " + this + " received a AODV packet from " + sender + " to " + receiver, 2);
 	}
-	MyLog.logOut("RoutingProtocol::RecvAodv",
-		"AODV node " + this + " received a AODV packet from " + sender + " to " + receiver, 2);
 	// TODO:ipv4
 	UpdateRouteToNeighbor(sender, receiver);
-	TypeHeader tHeader = new TypeHeader(MessageType.AODVTYPE_RREQ);
-	packet.RemoveHeader(tHeader);
-	if (!tHeader.IsValid()) {
-	    // TODO:log_debug
+	if (!packet.PeekHeader(m_typeView) || m_typeView.Get() == null) {
+	    MyLog.logOut("AODV message " + packet.GetUid() + " with unknown type received. Drop", MyLog.DEBUG);
 	    return; // drop
 	}
-	switch (tHeader.Get()) {
+	MessageType type = m_typeView.Get();
+	packet.RemoveAtStart(m_typeView.GetSerializedSize());
+	switch (type) {
 	case AODVTYPE_RREQ: {
 	    RecvRequest(packet, receiver, sender);
 	    break;
@@ -512,8 +548,11 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
      * @param src      sender address
      */
     void RecvRequest(Packet p, Ipv4Address receiver, Ipv4Address src) {
-	RreqHeader rreqHeader = new RreqHeader();
-	p.RemoveHeader(rreqHeader);
+	// The RREQ is read in place; a RreqHeader is only built to reply or forward.
+	RreqView rreq = m_rreqView;
+	if (!p.PeekHeader(rreq)) {
+	    return;
+	}
 
 	// A node ignores all RREQs received from any node in its blacklist
 	RoutingTableEntry toPrev = new RoutingTableEntry();
@@ -524,24 +563,21 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
 	    }
 	}
 
-	int id = rreqHeader.GetId();
-	// TODO: Ipv4Address origin = new Ipv4Address((Inet4Address)
-	// rreqHeader.GetOrigin());
-	Ipv4Address origin = rreqHeader.GetOrigin();
+	int id = rreq.GetId();
+	Ipv4Address origin = Ipv4Address.Intern(rreq.GetOrigin());
 
 	/*
 	 * Node checks to determine whether it has received a RREQ with the same
 	 * Originator IP Address and RREQ ID. If such a RREQ has been received, the node
 	 * silently discards the newly received RREQ.
 	 */
-	if (m_rreqIdCache.IsDuplicate(origin, id)) {
+	if (m_rreqIdCache.IsDuplicate(rreq.GetOrigin(), id)) {
 	    MyLog.logOut(this.getClass().getName() + "RecvRequest", "Ignoring RREQ due to duplicate", 2);
 	    return;
 	}
 
 	// Increment RREQ hop count
-	byte hop = (byte) (rreqHeader.GetHopCount() + 1);
-	rreqHeader.SetHopCount(hop);
+	byte hop = (byte) (rreq.GetHopCount() + 1);
 
 	/*
 	 *  When the reverse route is created or updated, the following actions on the route are also
@@ -562,7 +598,7 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
 		    /*dev=*/dev,
 		    /*dst=*/origin,
 		    /*vSeqNo=*/true,
-		    /*seqNo=*/rreqHeader.GetOriginSeqno(),
+		    /*seqNo=*/rreq.GetOriginSeqno(),
 		    /*iface=*/m_ipv4.GetAddress(m_ipv4.GetInterfaceForAddress(receiver), 0),
 		    /*hops=*/hop,
 		    /*nextHop=*/src,
@@ -573,14 +609,14 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
 	{
 	    if (toOrigin.GetValidSeqNo())
 	    {
-		if ((int)(rreqHeader.GetOriginSeqno()) - (int)(toOrigin.GetSeqNo()) > 0)
+		if ((int)(rreq.GetOriginSeqno()) - (int)(toOrigin.GetSeqNo()) > 0)
 		{
-		    toOrigin.SetSeqNo(rreqHeader.GetOriginSeqno());
+		    toOrigin.SetSeqNo(rreq.GetOriginSeqno());
 		}
 	    }
 	    else
 	    {
-		toOrigin.SetSeqNo(rreqHeader.GetOriginSeqno());
+		toOrigin.SetSeqNo(rreq.GetOriginSeqno());
 	    }
 	    toOrigin.SetValidSeqNo(true);
 	    toOrigin.SetNextHop(src);
@@ -588,8 +624,8 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
 	    toOrigin.SetInterface(m_ipv4.GetAddress(m_ipv4.GetInterfaceForAddress(receiver), 0));
 	    toOrigin.SetHop(hop);
 	    toOrigin.SetLifeTime(
-		    Time.MAX(Time.sub(Time.multiply(2 , m_netTraversalTime) , Time.multiply(2*hop, m_nodeTraversalTime)),
-			    toOrigin.GetLifeTime()));
+		    Math.max(Time.Sub(Time.Mul(2 , m_netTraversalTime.getNanoSeconds()) , Time.Mul(2*hop, m_nodeTraversalTime.getNanoSeconds())),
+			    toOrigin.GetLifeTimeNs()));
 	    m_routingTable.Update(toOrigin);
 	    // m_nb.Update (src, Time (AllowedHelloLoss * HelloInterval));
 	}
@@ -602,7 +638,7 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
 	    RoutingTableEntry newEntry = new RoutingTableEntry(dev,
 		    src,
 		    false,
-		    rreqHeader.GetOriginSeqno(),
+		    rreq.GetOriginSeqno(),
 		    m_ipv4.GetAddress(m_ipv4.GetInterfaceForAddress(receiver), 0),
 		    (short) 1,
 		    src,
@@ -613,7 +649,7 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
 	{
 	    toNeighbor.SetLifeTime(m_activeRouteTimeout);
 	    toNeighbor.SetValidSeqNo(false);
-	    toNeighbor.SetSeqNo(rreqHeader.GetOriginSeqno());
+	    toNeighbor.SetSeqNo(rreq.GetOriginSeqno());
 	    toNeighbor.SetFlag(RouteFlags.VALID);
 	    toNeighbor.SetOutputDevice(m_ipv4.GetNetDevice(m_ipv4.GetInterfaceForAddress(receiver)));
 	    toNeighbor.SetInterface(m_ipv4.GetAddress(m_ipv4.GetInterfaceForAddress(receiver), 0));
@@ -621,20 +657,23 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
 	    toNeighbor.SetNextHop(src);
 	    m_routingTable.Update(toNeighbor);
 	}
-	m_nb.Update(src, Time.multiply(m_allowedHelloLoss , m_helloInterval));
+	m_nb.Update(src, Time.Mul(m_allowedHelloLoss , m_helloInterval.getNanoSeconds()));
 
-	MyLog.logInfo(this.getClass().getName() + "RecvRequest", 
-		receiver + " receive RREQ with hop count "
-			+ rreqHeader.GetHopCount() + " ID "
-			+ rreqHeader.GetId() + " to destination " + rreqHeader.GetDst());
+	if (s_logReceived) {
+	    MyLog.logInfo(this.getClass().getName() + "RecvRequest",
+		    receiver + " receive RREQ with hop count "
+			    + hop + " ID "
+			    + id + " to destination " + Ipv4Address.Intern(rreq.GetDst()));
+	}
 
 	//  A node generates a RREP if either:
 	//  (i)  it is itself the destination,
-	if (IsMyOwnAddress(rreqHeader.GetDst()))
+	Ipv4Address dst = Ipv4Address.Intern(rreq.GetDst());
+	if (IsMyOwnAddress(dst.Get()))
 	{
 	    m_routingTable.LookupRoute(origin, toOrigin);
 	    MyLog.logOut(this.getClass().getName() + "RecvRequest", "Send reply since I am the destination", 2);
-	    SendReply(rreqHeader, toOrigin);
+	    SendReply(ToRreqHeader(rreq, hop), toOrigin);
 	    return;
 	}
 
@@ -644,13 +683,13 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
 	 * the Destination Sequence Number of the RREQ, and the "destination only" flag is NOT set.
 	 */
 	RoutingTableEntry toDst = new RoutingTableEntry();
-	Ipv4Address dst = rreqHeader.GetDst();
+	RreqHeader rreqHeader = null;
 	if (m_routingTable.LookupRoute(dst, toDst))
 	{
 	    /*
 	     * Drop RREQ, This node RREP will make a loop.
 	     */
-	    if (toDst.GetNextHop() == src)
+	    if (toDst.GetNextHop().equals(src))
 	    {
 		MyLog.logOut(this.getClass().getName() + "RecvRequest",
 			"Drop RREQ from " + src + ", dest next hop " + toDst.GetNextHop(), 2);
@@ -664,16 +703,17 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
 	     * the value received in the incoming RREQ is larger than the value currently maintained by
 	     * the forwarding node.
 	     */
-	    if ((rreqHeader.GetUnknownSeqno() ||
-		    (toDst.GetSeqNo() - rreqHeader.GetDstSeqno() >= 0)) &&
+	    if ((rreq.GetUnknownSeqno() ||
+		    (toDst.GetSeqNo() - rreq.GetDstSeqno() >= 0)) &&
 		    toDst.GetValidSeqNo())
 	    {
-		if (!rreqHeader.GetDestinationOnly() && toDst.GetFlag() == RouteFlags.VALID)
+		if (!rreq.GetDestinationOnly() && toDst.GetFlag() == RouteFlags.VALID)
 		{
 		    m_routingTable.LookupRoute(origin, toOrigin);
-		    SendReplyByIntermediateNode(toDst, toOrigin, rreqHeader.GetGratuitousRrep());
+		    SendReplyByIntermediateNode(toDst, toOrigin, rreq.GetGratuitousRrep());
 		    return;
 		}
+		rreqHeader = ToRreqHeader(rreq, hop);
 		rreqHeader.SetDstSeqno(toDst.GetSeqNo());
 		rreqHeader.SetUnknownSeqno(false);
 	    }
@@ -683,20 +723,24 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
 	    p->RemovePacketTag(tag);
 	    if (tag.GetTtl() < 2)
 	    {
-	        NS_LOG_DEBUG("TTL exceeded. Drop RREQ origin " << src << " destination " << dst);
-	        return;
+		NS_LOG_DEBUG("TTL exceeded. Drop RREQ origin " << src << " destination " << dst);
+		return;
 	    }
 	 */
+	if (rreqHeader == null)
+	{
+	    rreqHeader = ToRreqHeader(rreq, hop);
+	}
 	for (Map.Entry<Socket, Ipv4InterfaceAddress> j:m_socketAddresses.entrySet())
 	{
 	    Socket socket = j.getKey();
 	    Ipv4InterfaceAddress iface = j.getValue();
-	    Packet packet = new Packet();
+	    Packet packet = PacketPool.Obtain();
 	    
 	    /* TODO: tagttl
-	        SocketIpTtlTag ttl;
-	        ttl.SetTtl(tag.GetTtl() - 1);
-	        packet->AddPacketTag(ttl);
+		SocketIpTtlTag ttl;
+		ttl.SetTtl(tag.GetTtl() - 1);
+		packet->AddPacketTag(ttl);
 	     */
 	    
 	    packet.AddHeader(rreqHeader);
@@ -706,27 +750,40 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
 	    Ipv4Address destination = new Ipv4Address();
 	    if (iface.GetMask() == Ipv4Mask.GetOnes())
 	    {
-		destination = new Ipv4Address("255.255.255.255");
+		destination = Ipv4Address.GetBroadcast();
 	    }
 	    else
 	    {
-		destination = new Ipv4Address(iface.GetBroadcast());
+		destination = iface.GetBroadcast();
 	    }
-	    m_lastBcastTime = Time.Now();
+	    m_lastBcastTime = Simulator.NowNs();
 
-	    final Ipv4Address dest = destination;
-	    Timer.Schedules(new Time(m_uniformRandomVariable.nextInt(10)),
-		    ()->this.SendTo(socket,packet,dest));
+	    Timer.Schedules(Time.ToNs(m_uniformRandomVariable.nextInt(10), TimeUnit.MILLISECONDS), m_sendTo, socket,
+		    packet, destination);
 	    /*
-	        Simulator::Schedule(Time(MilliSeconds(m_uniformRandomVariable->GetInteger(0, 10))),
-	                            &RoutingProtocol::SendTo,
-	                            this,
-	                            socket,
-	                            packet,
-	                            destination);*/
+		Simulator::Schedule(Time(MilliSeconds(m_uniformRandomVariable->GetInteger(0, 10))),
+				    &RoutingProtocol::SendTo,
+				    this,
+				    socket,
+				    packet,
+				    destination);*/
 	}
     }
 
+    /**
+     * Build the RREQ to reply to or forward from a received one.
+     * 
+     * @param rreq the received RREQ
+     * @param hop  the incremented hop count
+     * @return the RREQ header
+     */
+    private static RreqHeader ToRreqHeader(RreqView rreq, byte hop) {
+	RreqHeader rreqHeader = new RreqHeader();
+	rreq.Deserialize(rreqHeader);
+	rreqHeader.SetHopCount(hop);
+	return rreqHeader;
+    }
+
     /**
      * Receive RREP
      * 
@@ -777,7 +834,6 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
     void SendPacketFromQueue(Ipv4Address dst, Ipv4Route route) {
 	QueueEntry queueEntry = new QueueEntry();
 	while (m_queue.Dequeue(dst, queueEntry)) {
-	    // TODO: tag
 	    DeferredRouteOutputTag tag = new DeferredRouteOutputTag();
 	    Packet p = queueEntry.GetPacket();
 	    if (p.RemovePacketTag(tag) && tag.GetInterface() != -1
@@ -806,12 +862,12 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
 	    Ipv4InterfaceAddress iface = j.getValue();
 	    RrepHeader helloHeader = new RrepHeader(
 		    /* prefixSize= */(byte) 0,
-                    /*hopCount=*/(byte)0,
-                    /*dst=*/iface.GetLocal(),
-                    /*dstSeqNo=*/m_seqNo,
-                    /*origin=*/iface.GetLocal(),
-                    /*lifetime=*/(int)Time.multiply(m_allowedHelloLoss , m_helloInterval).getMillSeconds());
-	    Packet packet = new Packet();
+		    /*hopCount=*/(byte)0,
+		    /*dst=*/iface.GetLocal(),
+		    /*dstSeqNo=*/m_seqNo,
+		    /*origin=*/iface.GetLocal(),
+		    /*lifetime=*/(int)Time.multiply(m_allowedHelloLoss , m_helloInterval).getMillSeconds());
+	    Packet packet = PacketPool.Obtain();
 	    /*
 	     * TODO: tag 
 	     * SocketIpTtlTag tag; 
@@ -824,13 +880,12 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
 	    // Send to all-hosts broadcast if on /32 addr, subnet-directed otherwise
 	    Ipv4Address destination = new Ipv4Address();
 	    if (iface.GetMask() == Ipv4Mask.GetOnes()) {
-		destination = new Ipv4Address("255.255.255.255");
+		destination = Ipv4Address.GetBroadcast();
 	    } else {
-		destination = new Ipv4Address(iface.GetBroadcast());
+		destination = iface.GetBroadcast();
 	    }
-	    Time jitter = new Time(m_uniformRandomVariable.nextInt(10));
-	    final Ipv4Address dest = destination;
-	    Timer.Schedules(jitter, () -> this.SendTo(socket, packet, dest));
+	    long jitter = Time.ToNs(m_uniformRandomVariable.nextInt(10), TimeUnit.MILLISECONDS);
+	    Timer.Schedules(jitter, m_sendTo, socket, packet, destination);
 	}
     }
 
@@ -843,8 +898,8 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
 	// A node SHOULD NOT originate more than RREQ_RATELIMIT RREQ messages per
 	// second.
 	if (m_rreqCount == m_rreqRateLimit) {
-	    Timer.Schedules(Time.add(m_rreqRateLimitTimer.GetDelayLeft(), new Time(100, TimeUnit.MICROSECONDS)),
-		    () -> this.SendRequest(dst));
+	    Timer.Schedules(Time.Add(m_rreqRateLimitTimer.GetDelayLeftNs(), Time.ToNs(100, TimeUnit.MICROSECONDS)),
+		    m_sendRequest, dst);
 	    return;
 	} else {
 	    m_rreqCount++;
@@ -918,7 +973,7 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
 	    rreqHeader.SetOrigin(iface.GetLocal());
 	    m_rreqIdCache.IsDuplicate(iface.GetLocal(), m_requestId);
 	    
-	    Packet packet = new Packet();
+	    Packet packet = PacketPool.Obtain();
 	    // TODO: Tag
 	    /*
 	     * <pre>
@@ -934,19 +989,18 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
 	    Ipv4Address destination;
 	    if (iface.GetMask() == Ipv4Mask.GetOnes())
 	    {
-		destination = new Ipv4Address("255.255.255.255");
+		destination = Ipv4Address.GetBroadcast();
 	    }
 	    else
 	    {
-		destination = new Ipv4Address(iface.GetBroadcast());
+		destination = iface.GetBroadcast();
 	    }
 	    MyLog.logOut("RoutingProtocol::SendRequest", "Send RREQ with id " + rreqHeader.GetId() + " to socket", 2);
-	    m_lastBcastTime = Time.Now();
-	    final Ipv4Address dest = destination;
-	    Timer.Schedules(new Time(m_uniformRandomVariable.nextInt(10)), 
-		    ()->this.SendTo(socket, packet, dest));
+	    m_lastBcastTime = Simulator.NowNs();
+	    Timer.Schedules(Time.ToNs(m_uniformRandomVariable.nextInt(10), TimeUnit.MILLISECONDS), m_sendTo, socket,
+		    packet, destination);
 	}
-	ScheduleRreqRetry(new Ipv4Address(dst));
+	ScheduleRreqRetry(dst);
     }
 
     /**
@@ -971,7 +1025,7 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
 		/*dstSeqNo=*/m_seqNo,
 		/*origin=*/toOrigin.GetDestination(),
 		/*lifetime=*/(int) m_myRouteTimeout.getMillSeconds());
-	Packet packet = new Packet();
+	Packet packet = PacketPool.Obtain();
 	/*
 	SocketIpTtlTag tag;
 	tag.SetTtl(toOrigin.GetHop());
@@ -982,8 +1036,7 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
 	packet.AddHeader(tHeader);
 	Socket socket = FindSocketWithInterfaceAddress(toOrigin.GetInterface());
 	assert (socket != null);
-	// TODO: need to write
-	// socket.SendTo(packet, 0, InetSocketAddress(toOrigin.GetNextHop(), AODV_PORT));
+	SendTo(socket, packet, toOrigin.GetNextHop());
     }
 
     /**
@@ -1018,7 +1071,7 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
 	m_routingTable.Update(toDst);
 	m_routingTable.Update(toOrigin);
 
-	Packet packet = new Packet();
+	Packet packet = PacketPool.Obtain();
 	/* TODO: tag
 	SocketIpTtlTag tag;
 	tag.SetTtl(toOrigin.GetHop());
@@ -1029,8 +1082,7 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
 	packet.AddHeader(tHeader);
 	Socket socket = FindSocketWithInterfaceAddress(toOrigin.GetInterface());
 	assert(socket!=null);
-	// TODO: socket
-	// socket.SendTo(packet, 0, InetSocketAddress(toOrigin.GetNextHop(), AODV_PORT));
+	SendTo(socket, packet, toOrigin.GetNextHop());
 
 	// Generating gratuitous RREPs
 	if (gratRep)
@@ -1041,7 +1093,7 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
 		    /*dstSeqNo=*/toOrigin.GetSeqNo(),
 		    /*origin=*/toDst.GetDestination(),
 		    /*lifetime=*/(int) toOrigin.GetLifeTime().getMillSeconds());
-	    Packet packetToDst = new Packet();
+	    Packet packetToDst = PacketPool.Obtain();
 	    /*
 	    SocketIpTtlTag gratTag;
 	    gratTag.SetTtl(toDst.GetHop());
@@ -1052,9 +1104,8 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
 	    packetToDst.AddHeader(type);
 	    Socket socket1 = FindSocketWithInterfaceAddress(toDst.GetInterface());
 	    assert(socket1!=null);
-	    MyLog.logInfo("RoutingProtocol::SendReplyByIntermediateNode","Send gratuitous RREP " + packet.GetUid());
-	    // TODO: socket
-	    // socket1.SendTo(packetToDst, 0, osak.ext.ns3.network.InetSocketAddress(toDst.GetNextHop(), AODV_PORT));
+	    MyLog.logInfo("RoutingProtocol::SendReplyByIntermediateNode","Send gratuitous RREP " + packetToDst.GetUid());
+	    SendTo(socket1, packetToDst, toDst.GetNextHop());
 	}
     }
 
@@ -1066,7 +1117,7 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
     void SendReplyAck(Ipv4Address neighbor) {
 	RrepAckHeader h = new RrepAckHeader();
 	TypeHeader typeHeader = new TypeHeader(MessageType.AODVTYPE_RREP_ACK);
-	Packet packet = new Packet();
+	Packet packet = PacketPool.Obtain();
 	/* TODO: Tag
 	SocketIpTtlTag tag;
 	tag.SetTtl(1);
@@ -1078,8 +1129,7 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
 	m_routingTable.LookupRoute(neighbor, toNeighbor);
 	Socket socket = FindSocketWithInterfaceAddress(toNeighbor.GetInterface());
 	assert(socket!=null);
-	// TODO: socket
-	// socket->SendTo(packet, 0, InetSocketAddress(neighbor, AODV_PORT));
+	SendTo(socket, packet, neighbor);
     }
 
     /**
@@ -1104,11 +1154,11 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
 	    if(!rerrHeader.AddUnDestination(i.getKey(), i.getValue())) {
 		MyLog.logInfo("SendRerrWhenBreaksLinkToNextHop", "Send RERR message with maximum size.");
 		TypeHeader typeHeader = new TypeHeader(MessageType.AODVTYPE_RERR);
-		Packet packet = new Packet();
+		Packet packet = PacketPool.Obtain();
 		/* TODO: tag
 		 * SocketIpTtlTag tag;
-            	   tag.SetTtl(1);
-            	   packet->AddPacketTag(tag);
+		   tag.SetTtl(1);
+		   packet->AddPacketTag(tag);
 		 */
 		packet.AddHeader(rerrHeader);
 		packet.AddHeader(typeHeader);
@@ -1124,7 +1174,7 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
 	}
 	if(rerrHeader.GetDestCount() != 0) {
 	    TypeHeader typeHeader = new TypeHeader(MessageType.AODVTYPE_RERR);
-	    Packet packet = new Packet();
+	    Packet packet = PacketPool.Obtain();
 	    /*TODO: tag
 	    SocketIpTtlTag tag;
 	    tag.SetTtl(1);
@@ -1148,6 +1198,7 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
 	if (precursors.isEmpty())
 	{
 	    MyLog.logInfo("No precursors");
+	    packet.Release();
 	    return;
 	}
 	// A node SHOULD NOT originate more than RERR_RATELIMIT RERR messages per second.
@@ -1159,6 +1210,7 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
 	    MyLog.logInfo("RerrRateLimit reached at "
 		    + Time.Now() + " with timer delay left "
 		    + m_rerrRateLimitTimer.GetDelayLeft() + "; suppressing RERR");
+	    packet.Release();
 	    return;
 	}
 	// If there is only one precursor, RERR SHOULD be unicast toward that precursor
@@ -1172,9 +1224,11 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
 		MyLog.logInfo("one precursor => unicast RERR to "
 			+ toPrecursor.GetDestination() + " from "
 			+ toPrecursor.GetInterface().GetLocal());
-		Time jitter  = new Time(m_uniformRandomVariable.nextInt(10));
-		Timer.Schedules(jitter, () -> this.SendTo(socket, packet, precursors.get(0)));
+		long jitter = Time.ToNs(m_uniformRandomVariable.nextInt(10), TimeUnit.MILLISECONDS);
+		Timer.Schedules(jitter, m_sendTo, socket, packet, precursors.get(0));
 		m_rerrCount++;
+	    } else {
+		packet.Release();
 	    }
 	    return;
 	}
@@ -1202,16 +1256,16 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
 	    Ipv4Address destination=new Ipv4Address();
 	    if (i.GetMask() == Ipv4Mask.GetOnes())
 	    {
-		destination = new Ipv4Address("255.255.255.255");
+		destination = Ipv4Address.GetBroadcast();
 	    }
 	    else
 	    {
-		destination = new Ipv4Address(i.GetBroadcast());
+		destination = i.GetBroadcast();
 	    }
-	    Time jitter = new Time(m_uniformRandomVariable.nextInt(10));
-	    final Ipv4Address dest = destination;
-	    Timer.Schedules(jitter, ()->this.SendTo(socket, p, dest));
+	    long jitter = Time.ToNs(m_uniformRandomVariable.nextInt(10), TimeUnit.MILLISECONDS);
+	    Timer.Schedules(jitter, m_sendTo, socket, p, destination);
 	}
+	packet.Release();
     }
 
     /**
@@ -1237,7 +1291,7 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
 	RerrHeader rerrHeader = new RerrHeader();
 	rerrHeader.AddUnDestination(dst, dstSeqNo);
 	RoutingTableEntry toOrigin = new RoutingTableEntry();
-	Packet packet = new Packet();
+	Packet packet = PacketPool.Obtain();
 	/* TODO:tag
 	    SocketIpTtlTag tag;
 	    tag.SetTtl(1);
@@ -1250,8 +1304,7 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
 	    Socket socket = FindSocketWithInterfaceAddress(toOrigin.GetInterface());
 	    assert(socket!=null);
 	    MyLog.logInfo("Unicast RERR to the source of the data transmission");
-	    // TODO:socket
-	    // socket->SendTo(packet, 0, InetSocketAddress(toOrigin.GetNextHop(), AODV_PORT));
+	    SendTo(socket, packet, toOrigin.GetNextHop());
 	}
 	else
 	{
@@ -1265,15 +1318,15 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
 		Ipv4Address destination = new Ipv4Address();
 		if (iface.GetMask() == Ipv4Mask.GetOnes())
 		{
-		    destination = new Ipv4Address("255.255.255.255");
+		    destination = Ipv4Address.GetBroadcast();
 		}
 		else
 		{
 		    destination = iface.GetBroadcast();
 		}
-		// TODO:socket
-		// socket->SendTo(packet->Copy(), 0, InetSocketAddress(destination, AODV_PORT));
+		SendTo(socket, packet.Copy(), destination);
 	    }
+	    packet.Release();
 	}
     }
 
@@ -1287,7 +1340,10 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
      * @param destination destination node IP address
      */
     private void SendTo(Socket socket, Packet packet, Ipv4Address destination) {
-
+	// TODO: socket
+	// socket->SendTo(packet, 0, InetSocketAddress(destination, AODV_PORT));
+	// The socket sends a copy of the packet.
+	packet.Release();
     }
 
     /// Hello timer
@@ -1295,17 +1351,16 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
 
     /// Schedule next send of hello message
     private void HelloTimerExpire() {
-	Time offset = new Time(0);
-	if (m_lastBcastTime.getMillSeconds() > 0) {
-	    offset = Time.sub(Time.Now(), m_lastBcastTime);
-	    MyLog.logOut("Hello deferred due to last bcast at: " + m_lastBcastTime, MyLog.DEBUG);
+	long offset = 0;
+	if (m_lastBcastTime > 0) {
+	    offset = Time.Sub(Simulator.NowNs(), m_lastBcastTime);
+	    MyLog.logOut("Hello deferred due to last bcast at: " + m_lastBcastTime + " ns", MyLog.DEBUG);
 	} else {
 	    SendHello();
 	}
 	m_htimer.Cancel();
-	Time diff = Time.sub(m_helloInterval, offset);
-	m_htimer.Schedule(Time.MAX(new Time(0), diff));
-	m_lastBcastTime = new Time(0);
+	m_htimer.Schedule(Math.max(0, Time.Sub(m_helloInterval.getNanoSeconds(), offset)));
+	m_lastBcastTime = 0;
     }
 
     /// RREQ rate limit timer
@@ -1327,7 +1382,7 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
     }
 
     /// Map IP address + RREQ timer.
-    private Map<Ipv4Address, Timer> m_addressReqTimer = new HashMap<>();
+    private IntObjectMap<Timer> m_addressReqTimer = new IntObjectMap<>();
 
     /**
      * Handle route discovery process
@@ -1350,7 +1405,7 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
 	if (toDst.GetRreqCnt() == m_rreqRetries) {
 	    MyLog.logInfo("route discovery to " + dst + " has been attempted RreqRetries (" + m_rreqRetries
 		    + ") times with ttl " + m_netDiameter);
-	    m_addressReqTimer.remove(dst);
+	    m_addressReqTimer.Remove(dst.Get());
 	    m_routingTable.DeleteRoute(dst);
 	    MyLog.logOut("Route not found. Drop all packets with dst " + dst, MyLog.DEBUG);
 	    m_queue.DropPacketWithDst(dst);
@@ -1362,7 +1417,7 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
 	    SendRequest(dst);
 	} else {
 	    MyLog.logInfo("Route down. Stop search. Drop packet with destination " + dst);
-	    m_addressReqTimer.remove(dst);
+	    m_addressReqTimer.Remove(dst.Get());
 	    m_routingTable.DeleteRoute(dst);
 	    m_queue.DropPacketWithDst(dst);
 	}
@@ -1379,9 +1434,13 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
     }
 
     /// Provides uniform random variables.
-    Random m_uniformRandomVariable = new Random();
-    /// Keep track of the last bcast time
-    Time m_lastBcastTime;
+    Random m_uniformRandomVariable = RngSeedManager.CreateRandom();
+    /// Keep track of the last bcast time, in nanoseconds
+    long m_lastBcastTime;
+    /// SendTo bound once, so that jittered sends do not allocate a lambda
+    private final Callback3<Socket, Packet, Ipv4Address> m_sendTo = this::SendTo;
+    /// SendRequest bound once, for the rate limited retries
+    private final Callback1<Ipv4Address> m_sendRequest = this::SendRequest;
     
     /// constructor
     public RoutingProtocol() {
@@ -1421,7 +1480,7 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
 	m_htimer = new Timer();
 	m_rreqRateLimitTimer = new Timer();
 	m_rerrRateLimitTimer = new Timer();
-	m_lastBcastTime = new Time(0);
+	m_lastBcastTime = 0;
     }
 
     public void DoDispose() {
@@ -1444,7 +1503,7 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
 	}
 	sockerr = SocketErrno.ERROR_NOTERROR;
 	Ipv4Route route = new Ipv4Route();
-	Ipv4Address dst = new Ipv4Address(header.GetDestination());
+	Ipv4Address dst = header.GetDestination();
 	RoutingTableEntry rt = new RoutingTableEntry();
 	if (m_routingTable.LookupValidRoute(dst, rt))
 	{
@@ -1491,21 +1550,18 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
 	assert(m_ipv4.GetInterfaceForDevice(idev) >= 0);
 	int iif = m_ipv4.GetInterfaceForDevice(idev);
 
-	Ipv4Address dst = new Ipv4Address(header.GetDestination());
-	Ipv4Address origin = new Ipv4Address(header.GetSource());
+	Ipv4Address dst = header.GetDestination();
+	Ipv4Address origin = header.GetSource();
 	
 	// Deferred route request
 	if (idev == m_lo)
 	{
-	    // TODO: tag
-	    /*
-	    DeferredRouteOutputTag tag;
-	    if (p->PeekPacketTag(tag))
+	    DeferredRouteOutputTag tag = new DeferredRouteOutputTag();
+	    if (p.PeekPacketTag(tag))
 	    {
 		DeferredRouteOutput(p, header, ucb, ecb);
 		return true;
 	    }
-	    */
 	}
 	// Duplicate of own packet
 	if (IsMyOwnAddress(origin))
@@ -1639,7 +1695,7 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
 
 	// Create lo route. It is asserted that the only one interface up for now is loopback
 	assert(m_ipv4.GetNInterfaces() == 1 &&
-		m_ipv4.GetAddress(0, 0).GetLocal().equals(new Ipv4Address("127.0.0.1")));
+		m_ipv4.GetAddress(0, 0).GetLocal().equals(Ipv4Address.GetLoopback()));
 	m_lo = m_ipv4.GetNetDevice(0);
 	assert(m_lo!=null);
 	// Remember lo route
@@ -1776,8 +1832,8 @@ public final class RoutingProtocol implements Ipv4RoutingProtocol {
      * @return the number of stream indices assigned by this model
      */
     public long AssignStreams(long stream) {
-	// TODO: how to use
-	return 0;
+	m_uniformRandomVariable = RngSeedManager.CreateRandom(stream);
+	return 1;
     }
 
     private void DoInitialize() {
@@ -14,10 +14,13 @@
    limitations under the License.
  */
 package osak.ext.ns3.aodv;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.Map;
 
 import osak.ext.communication.MyLog;
+import osak.ext.ns3.core.IntObjectMap;
+import osak.ext.ns3.core.Rollbackable;
+import osak.ext.ns3.core.Simulator;
 import osak.ext.ns3.core.Time;
 import osak.ext.ns3.internet.Ipv4InterfaceAddress;
 import osak.ext.ns3.network.utils.Ipv4Address;
@@ -28,12 +31,46 @@ import osak.ext.ns3.network.utils.Ipv4Address;
  * @author zhangrui
  * @since   1.0
  */
-public final class RoutingTable {
-    /// The routing table
-    private Map<Ipv4Address, RoutingTableEntry> m_ipv4AddressEntry = new HashMap<>();
+public final class RoutingTable implements Rollbackable {
+    /**
+     * The entries changed by one event, each with its value before the change,
+     * null if it was absent. Undone in reverse order on rollback.
+     */
+    static final class UndoLog {
+	int[] m_keys = new int[4]; // !< destination of each change
+	RoutingTableEntry[] m_entries = new RoutingTableEntry[4]; // !< copy of the entry before each change
+	int m_size = 0; // !< number of changes
+
+	void Add(int key, RoutingTableEntry old) {
+	    if (m_size == m_keys.length) {
+		m_keys = Arrays.copyOf(m_keys, m_size * 2);
+		m_entries = Arrays.copyOf(m_entries, m_size * 2);
+	    }
+	    m_keys[m_size] = key;
+	    m_entries[m_size] = old;
+	    m_size++;
+	}
+    }
+
+    /// The routing table, by destination address
+    private final IntObjectMap<RoutingTableEntry> m_ipv4AddressEntry = new IntObjectMap<>();
     // TODO:Time
     /// Deletion time for invalid routes
     private Time m_badLinkLifetime;
+    /// Purge() filter: select the expired invalid routes, invalidate the expired valid ones
+    private final IntObjectMap.Filter<RoutingTableEntry> m_purgeFilter = (k, value) -> {
+	if (value.GetLifeTimeNs() < 0) {
+	    if (value.GetFlag() == RouteFlags.INVALID) {
+		SaveEntry(k, value);
+		return true;
+	    } else if (value.GetFlag() == RouteFlags.VALID) {
+		MyLog.logInfo("Purge", "Invalidate route with destination address " + value.GetDestination());
+		SaveEntry(k, value);
+		value.Invalidate(m_badLinkLifetime);
+	    }
+	}
+	return false;
+    };
 
     /**
      * constructor
@@ -65,6 +102,21 @@ public final class RoutingTable {
     }
 
     // \}
+    /**
+     * Declare that the entry of a destination is about to change, so that the
+     * running event can be rolled back.
+     * 
+     * @param dst the destination address
+     * @param old the current entry of dst, null if there is none
+     */
+    private void SaveEntry(int dst, RoutingTableEntry old) {
+	// null outside of the events of an optimistic simulator: nothing to undo.
+	UndoLog undo = (UndoLog) Simulator.SaveState(this);
+	if (undo != null) {
+	    undo.Add(dst, old == null ? null : old.DeepCopy());
+	}
+    }
+
     /**
      * Add routing table entry if it doesn't yet exist in routing table
      * 
@@ -73,10 +125,12 @@ public final class RoutingTable {
      */
     public boolean AddRoute(RoutingTableEntry r) {
 	Purge();
+	int dst = r.GetDestination().Get();
+	SaveEntry(dst, m_ipv4AddressEntry.Get(dst));
 	if (r.GetFlag() != RouteFlags.IN_SEARCH) {
 	    r.SetRreqCnt((byte) 0);
 	}
-	m_ipv4AddressEntry.put(r.GetDestination(), r);
+	m_ipv4AddressEntry.Put(dst, r);
 	return true;
     }
 
@@ -86,16 +140,29 @@ public final class RoutingTable {
      * @param dst destination address
      * @return true on success
      */
-    public boolean DeleteRoute(Ipv4Address dst) {
+    public boolean DeleteRoute(int dst) {
 	Purge();
-	if (m_ipv4AddressEntry.remove(dst) != null) {
-	    MyLog.logInfo("DeleteRoute", "Route deletion to " + dst + " successful");
+	RoutingTableEntry old = m_ipv4AddressEntry.Get(dst);
+	if (old != null) {
+	    SaveEntry(dst, old);
+	    m_ipv4AddressEntry.Remove(dst);
+	    MyLog.logInfo("DeleteRoute", "Route deletion to " + Ipv4Address.Intern(dst) + " successful");
 	    return true;
 	}
-	MyLog.logInfo("DeleteRoute", "Route deletion to " + dst + " not successful");
+	MyLog.logInfo("DeleteRoute", "Route deletion to " + Ipv4Address.Intern(dst) + " not successful");
 	return false;
     }
 
+    /**
+     * Delete routing table entry with destination address dst, if it exists.
+     * 
+     * @param dst destination address
+     * @return true on success
+     */
+    public boolean DeleteRoute(Ipv4Address dst) {
+	return DeleteRoute(dst.Get());
+    }
+
     /**
      * Lookup routing table entry with destination address dst
      * 
@@ -103,21 +170,33 @@ public final class RoutingTable {
      * @param rt  entry with destination address dst, if exists
      * @return true on success
      */
-    public boolean LookupRoute(Ipv4Address dst, RoutingTableEntry rt) {
+    public boolean LookupRoute(int dst, RoutingTableEntry rt) {
 	Purge();
-	if (m_ipv4AddressEntry.isEmpty()) {
-	    MyLog.logInfo("LookupRoute", "Route to " + dst + " not found; m_ipv4AddressEntry is empty");
+	if (m_ipv4AddressEntry.IsEmpty()) {
+	    MyLog.logInfo("LookupRoute", "Route to " + Ipv4Address.Intern(dst) + " not found; m_ipv4AddressEntry is empty");
 	    return false;
 	}
-	if (!m_ipv4AddressEntry.containsKey(dst)) {
-	    MyLog.logInfo("LookupRoute", "Route to " + dst + " not found");
+	RoutingTableEntry entry = m_ipv4AddressEntry.Get(dst);
+	if (entry == null) {
+	    MyLog.logInfo("LookupRoute", "Route to " + Ipv4Address.Intern(dst) + " not found");
 	    return false;
 	}
-	rt.Copy(m_ipv4AddressEntry.get(dst));
-	MyLog.logInfo("LookupRoute", "Route to " + dst + " found");
+	rt.Copy(entry);
+	MyLog.logInfo("LookupRoute", "Route to " + Ipv4Address.Intern(dst) + " found");
 	return true;
     }
 
+    /**
+     * Lookup routing table entry with destination address dst
+     * 
+     * @param dst destination address
+     * @param rt  entry with destination address dst, if exists
+     * @return true on success
+     */
+    public boolean LookupRoute(Ipv4Address dst, RoutingTableEntry rt) {
+	return LookupRoute(dst.Get(), rt);
+    }
+
     /**
      * Lookup route in VALID state
      * 
@@ -125,15 +204,26 @@ public final class RoutingTable {
      * @param rt  entry with destination address dst, if exists
      * @return true on success
      */
-    public boolean LookupValidRoute(Ipv4Address dst, RoutingTableEntry rt) {
+    public boolean LookupValidRoute(int dst, RoutingTableEntry rt) {
 	if (!LookupRoute(dst, rt)) {
-	    MyLog.logInfo("LookupValidRoute", "Route to " + dst + " not found");
+	    MyLog.logInfo("LookupValidRoute", "Route to " + Ipv4Address.Intern(dst) + " not found");
 	    return false;
 	}
-	MyLog.logInfo("LookupValidRoute", "Route to " + dst + " flag is " + rt.GetFlag());
+	MyLog.logInfo("LookupValidRoute", "Route to " + Ipv4Address.Intern(dst) + " flag is " + rt.GetFlag());
 	return (rt.GetFlag() == RouteFlags.VALID);
     }
 
+    /**
+     * Lookup route in VALID state
+     * 
+     * @param dst destination address
+     * @param rt  entry with destination address dst, if exists
+     * @return true on success
+     */
+    public boolean LookupValidRoute(Ipv4Address dst, RoutingTableEntry rt) {
+	return LookupValidRoute(dst.Get(), rt);
+    }
+
     /**
      * Update routing table
      * 
@@ -141,16 +231,19 @@ public final class RoutingTable {
      * @return true on success
      */
     public boolean Update(RoutingTableEntry rt) {
-	if (!m_ipv4AddressEntry.containsKey(rt.GetDestination())) {
+	int dst = rt.GetDestination().Get();
+	RoutingTableEntry old = m_ipv4AddressEntry.Get(dst);
+	if (old == null) {
 	    MyLog.logInfo("Update", "Route update to " + rt.GetDestination() + " fails; not found");
 	    return false;
 	}
+	SaveEntry(dst, old);
 	// TODO:need to check
 	if (rt.GetFlag() != RouteFlags.IN_SEARCH) {
 	    MyLog.logInfo("Update", "Route update to " + rt.GetDestination() + " set RreqCnt to 0");
 	    rt.SetRreqCnt((byte) 0);
 	}
-	m_ipv4AddressEntry.put(rt.GetDestination(), rt);
+	m_ipv4AddressEntry.Put(dst, rt);
 	return true;
     }
 
@@ -162,11 +255,12 @@ public final class RoutingTable {
      * @return true on success
      */
     public boolean SetEntryState(Ipv4Address dst, RouteFlags state) {
-	if (!m_ipv4AddressEntry.containsKey(dst)) {
+	RoutingTableEntry rt = m_ipv4AddressEntry.Get(dst.Get());
+	if (rt == null) {
 	    MyLog.logInfo("SetEntryState", "Route set entry state to " + dst + " fails; not found");
 	    return false;
 	}
-	RoutingTableEntry rt = m_ipv4AddressEntry.get(dst);
+	SaveEntry(dst.Get(), rt);
 	rt.SetFlag(state);
 	rt.SetRreqCnt((byte) 0);
 	MyLog.logInfo("SetEntryState", "Route set entry state to " + dst + ": new state is " + state);
@@ -181,15 +275,25 @@ public final class RoutingTable {
      * @param unreachable
      */
     public void GetListOfDestinationWithNextHop(Ipv4Address nextHop, Map<Ipv4Address, Integer> unreachable) {
+	GetListOfDestinationWithNextHop(nextHop.Get(), unreachable);
+    }
+
+    /**
+     * Lookup routing entries with next hop Address dst and not empty list of
+     * precursors.
+     *
+     * @param nextHop     the next hop IP address
+     * @param unreachable
+     */
+    public void GetListOfDestinationWithNextHop(int nextHop, Map<Ipv4Address, Integer> unreachable) {
 	Purge();
-	for (Ipv4Address i : m_ipv4AddressEntry.keySet()) {
-	    RoutingTableEntry rt = m_ipv4AddressEntry.get(i);
-	    if (rt.GetNextHop() == nextHop) {
+	m_ipv4AddressEntry.ForEach((i, rt) -> {
+	    if (rt.GetNextHop().Get() == nextHop) {
 		MyLog.logInfo("GetListOfDestinationWithNextHop",
 			"Unreachable insert " + rt.GetDestination() + " " + rt.GetSeqNo());
-		unreachable.put(i, rt.GetSeqNo());
+		unreachable.put(rt.GetDestination(), rt.GetSeqNo());
 	    }
-	}
+	});
     }
 
     /**
@@ -202,12 +306,12 @@ public final class RoutingTable {
      */
     public void InvalidateRoutesWithDst(Map<Ipv4Address, Integer> unreachable) {
 	Purge();
-	for (Ipv4Address k : m_ipv4AddressEntry.keySet()) {
-	    RoutingTableEntry v = m_ipv4AddressEntry.get(k);
-	    if (unreachable.containsKey(k) && v.GetFlag() == RouteFlags.VALID) {
+	for (Ipv4Address k : unreachable.keySet()) {
+	    RoutingTableEntry v = m_ipv4AddressEntry.Get(k.Get());
+	    if (v != null && v.GetFlag() == RouteFlags.VALID) {
 		MyLog.logInfo("InvalidateRoutesWithDst", "Invalidate route with destination address " + k);
+		SaveEntry(k.Get(), v);
 		v.Invalidate(m_badLinkLifetime);
-		m_ipv4AddressEntry.put(k, v);
 	    }
 	}
     }
@@ -218,42 +322,28 @@ public final class RoutingTable {
      * @param iface the interface IP address
      */
     public void DeleteAllRoutesFromInterface(Ipv4InterfaceAddress iface) {
-	if (m_ipv4AddressEntry.isEmpty()) {
-	    return;
-	}
-	for (Ipv4Address k : m_ipv4AddressEntry.keySet()) {
-	    RoutingTableEntry v = m_ipv4AddressEntry.get(k);
-	    if (v.GetInterface() == iface) {
-		m_ipv4AddressEntry.remove(k);
+	m_ipv4AddressEntry.RemoveIf((k, v) -> {
+	    if (v.GetInterface() != iface) {
+		return false;
 	    }
-	}
+	    SaveEntry(k, v);
+	    return true;
+	});
     }
 
     /// Delete all entries from routing table
     public void Clear() {
-	m_ipv4AddressEntry.clear();
+	m_ipv4AddressEntry.ForEach(this::SaveEntry);
+	m_ipv4AddressEntry.Clear();
     }
 
     /// Delete all outdated entries and invalidate valid entry if Lifetime is
     /// expired
     public void Purge() {
-	if (m_ipv4AddressEntry.isEmpty()) {
+	if (m_ipv4AddressEntry.IsEmpty()) {
 	    return;
 	}
-	for (Ipv4Address key : m_ipv4AddressEntry.keySet()) {
-	    RoutingTableEntry value = m_ipv4AddressEntry.get(key);
-	    if (value.GetLifeTime().getLong() < 0) {
-		if (value.GetFlag() == RouteFlags.INVALID) {
-		    m_ipv4AddressEntry.remove(key);
-		} else if (value.GetFlag() == RouteFlags.VALID) {
-		    MyLog.logInfo("Purge", "Invalidate route with destination address " + key);
-		    value.Invalidate(m_badLinkLifetime);
-		    m_ipv4AddressEntry.replace(key, value);
-		} else
-		    continue;
-	    }
-	}
-
+	m_ipv4AddressEntry.RemoveIf(m_purgeFilter);
     }
 
     /**
@@ -267,18 +357,40 @@ public final class RoutingTable {
      * @return true on success
      */
     public boolean MarkLinkAsUnidirectional(Ipv4Address neighbor, Time blacklistTimeout) {
-	if (!m_ipv4AddressEntry.containsKey(neighbor)) {
+	RoutingTableEntry val = m_ipv4AddressEntry.Get(neighbor.Get());
+	if (val == null) {
 	    MyLog.logInfo("MarkLinkAsUnidirectional", "Mark link unidirectional to  " + neighbor + " fails; not found");
 	    return false;
 	}
-	RoutingTableEntry val = m_ipv4AddressEntry.get(neighbor);
+	SaveEntry(neighbor.Get(), val);
 	val.SetUnidirectional(true);
 	val.SetBlacklistTimeout(blacklistTimeout);
 	val.SetRreqCnt((byte) 0);
 	MyLog.logInfo("MarkLinkAsUnidirectional", "Set link to " + neighbor + " to unidirectional");
-	m_ipv4AddressEntry.replace(neighbor, val);
 	return true;
     }
 
     // TODO:print routing table
+
+    /**
+     * Start the undo log of the running event: the table saves each entry as it
+     * changes instead of being copied as a whole. Simulator::SaveState hands the
+     * log back on each change made by the event.
+     */
+    @Override
+    public Object SaveState() {
+	return new UndoLog();
+    }
+
+    @Override
+    public void RestoreState(Object state) {
+	UndoLog log = (UndoLog) state;
+	for (int i = log.m_size - 1; i >= 0; i--) {
+	    if (log.m_entries[i] == null) {
+		m_ipv4AddressEntry.Remove(log.m_keys[i]);
+	    } else {
+		m_ipv4AddressEntry.Put(log.m_keys[i], log.m_entries[i]);
+	    }
+	}
+    }
 }
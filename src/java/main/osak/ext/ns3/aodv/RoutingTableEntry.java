@@ -14,9 +14,10 @@
    limitations under the License.
  */
 package osak.ext.ns3.aodv;
-import java.util.LinkedList;
 import java.util.List;
 
+import osak.ext.ns3.core.IntSet;
+import osak.ext.ns3.core.Simulator;
 import osak.ext.ns3.core.Time;
 import osak.ext.ns3.core.Timer;
 import osak.ext.ns3.internet.*;
@@ -42,7 +43,7 @@ public final class RoutingTableEntry {
      * Lifetime field in the routing table plays dual role: for an active route it
      * is the expiration time, and for an invalid route it is the deletion time.
      */
-    private Time m_lifeTime;
+    private long m_lifeTime; // in nanoseconds, absolute
     /**
      * Ip route, include<p>
      *   - destination address<p>
@@ -56,8 +57,8 @@ public final class RoutingTableEntry {
     /// Routing flags: valid, invalid or in search
     private RouteFlags m_flag = RouteFlags.VALID;
 
-    /// List of precursors
-    private List<Ipv4Address> m_precursorList = new LinkedList<>();
+    /// Set of precursors
+    private IntSet m_precursorList = new IntSet();
     /// When I can send another request
     private Time m_routeRequestTimout;
     /// Number of route requests
@@ -86,6 +87,28 @@ public final class RoutingTableEntry {
 	m_validSeqNo = o.m_validSeqNo;
     }
 
+    /**
+     * Copy this entry without sharing the mutable route and precursor list, so
+     * the copy can be kept as a rollback snapshot.
+     *
+     * @return the copy
+     */
+    RoutingTableEntry DeepCopy() {
+	RoutingTableEntry rt = new RoutingTableEntry();
+	rt.Copy(this);
+	if (m_ipv4Route != null) {
+	    rt.m_ipv4Route = new Ipv4Route();
+	    rt.m_ipv4Route.SetDestination(m_ipv4Route.GetDestination());
+	    rt.m_ipv4Route.SetGateway(m_ipv4Route.GetGateway());
+	    rt.m_ipv4Route.SetSource(m_ipv4Route.GetSource());
+	    rt.m_ipv4Route.SetOutputDevice(m_ipv4Route.GetOutputDevice());
+	} else {
+	    rt.m_ipv4Route = null;
+	}
+	rt.m_precursorList = new IntSet(m_precursorList);
+	return rt;
+    }
+
     /**
      * constructor
      *
@@ -100,10 +123,27 @@ public final class RoutingTableEntry {
      */
     public RoutingTableEntry(NetDevice dev, Ipv4Address dst, boolean vSeqNo, int seqNo, Ipv4InterfaceAddress iface,
 	    short hops, Ipv4Address nextHop, Time lifetime) {
+	this(dev, dst, vSeqNo, seqNo, iface, hops, nextHop, lifetime.getNanoSeconds());
+    }
+
+    /**
+     * constructor
+     *
+     * @param dev      the device
+     * @param dst      the destination IP address
+     * @param vSeqNo   verify sequence number flag
+     * @param seqNo    the sequence number
+     * @param iface    the interface
+     * @param hops     the number of hops
+     * @param nextHop  the IP address of the next hop
+     * @param lifetime the lifetime of the entry, in nanoseconds
+     */
+    public RoutingTableEntry(NetDevice dev, Ipv4Address dst, boolean vSeqNo, int seqNo, Ipv4InterfaceAddress iface,
+	    short hops, Ipv4Address nextHop, long lifetime) {
 	m_validSeqNo = vSeqNo;
 	m_seqNo = seqNo;
 	m_hops = hops;
-	m_lifeTime = Time.add(lifetime, Time.Now());
+	m_lifeTime = Time.Add(lifetime, Simulator.NowNs());
 	m_iface = iface;
 
 	m_ipv4Route = new Ipv4Route();
@@ -117,7 +157,7 @@ public final class RoutingTableEntry {
 	this.m_validSeqNo = false;
 	this.m_seqNo = 0;
 	this.m_iface = new Ipv4InterfaceAddress();
-	this.m_lifeTime = Time.Now();
+	this.m_lifeTime = Simulator.NowNs();
 
 	m_ipv4Route = new Ipv4Route();
 	m_ipv4Route.SetDestination(null);
@@ -135,12 +175,7 @@ public final class RoutingTableEntry {
      * @return true on success
      */
     public boolean InsertPrecursor(Ipv4Address id) {
-	if (!LookupPrecursor(id)) {
-	    m_precursorList.add(id);
-	    return true;
-	} else {
-	    return false;
-	}
+	return m_precursorList.Add(id.Get());
     }
 
     /**
@@ -150,7 +185,7 @@ public final class RoutingTableEntry {
      * @return true on success
      */
     public boolean LookupPrecursor(Ipv4Address id) {
-	return m_precursorList.contains(id);
+	return m_precursorList.Contains(id.Get());
     }
 
     /**
@@ -160,16 +195,12 @@ public final class RoutingTableEntry {
      * @return true on success
      */
     public boolean DeletePrecursor(Ipv4Address id) {
-	if (m_precursorList.contains(id)) {
-	    m_precursorList.remove(id);
-	    return true;
-	}
-	return false;
+	return m_precursorList.Remove(id.Get());
     }
 
     /// Delete all precursors
     public void DeleteAllPrecursors() {
-	m_precursorList.clear();
+	m_precursorList.Clear();
     }
 
     /**
@@ -177,7 +208,7 @@ public final class RoutingTableEntry {
      * @return true if precursor list is empty
      */
     public boolean IsPrecursorListEmpty() {
-	return m_precursorList.isEmpty();
+	return m_precursorList.IsEmpty();
     }
 
     /**
@@ -188,12 +219,12 @@ public final class RoutingTableEntry {
 	if (IsPrecursorListEmpty()) {
 	    return;
 	}
-	for (Ipv4Address i : m_precursorList) {
-	    if (!prec.contains(i)) {
-		prec.add(i);
+	m_precursorList.ForEach(i -> {
+	    Ipv4Address address = Ipv4Address.Intern(i);
+	    if (!prec.contains(address)) {
+		prec.add(address);
 	    }
-	}
-	// TODO: check for right
+	});
     }
     //\}
 
@@ -202,14 +233,23 @@ public final class RoutingTableEntry {
      * 
      * @param badLinkLifetime duration to keep entry marked as invalid
      */
-    // TODO:fix Time
     public void Invalidate(Time badLinkLifetime) {
+	Invalidate(badLinkLifetime.getNanoSeconds());
+    }
+
+    /**
+     * Mark entry as "down" (i.e. disable it)
+     * 
+     * @param badLinkLifetime duration to keep entry marked as invalid, in
+     *                        nanoseconds
+     */
+    public void Invalidate(long badLinkLifetime) {
 	if (m_flag == RouteFlags.INVALID) {
 	    return;
 	}
 	m_flag = RouteFlags.INVALID;
 	m_reqCount = 0;
-	m_lifeTime = Time.add(badLinkLifetime, Time.Now());
+	m_lifeTime = Time.Add(badLinkLifetime, Simulator.NowNs());
     }
 
     // Fields
@@ -352,10 +392,18 @@ public final class RoutingTableEntry {
      * Set the lifetime
      * @param lt The lifetime
      */
-    // TODO:fix Time
     public void SetLifeTime(Time lt)
     {
-	m_lifeTime = Time.add(lt, Time.Now());
+	SetLifeTime(lt.getNanoSeconds());
+    }
+
+    /**
+     * Set the lifetime
+     * @param lt The lifetime, in nanoseconds
+     */
+    public void SetLifeTime(long lt)
+    {
+	m_lifeTime = Time.Add(lt, Simulator.NowNs());
     }
 
     /**
@@ -364,7 +412,16 @@ public final class RoutingTableEntry {
      */
     public Time GetLifeTime()
     {
-	return Time.sub(m_lifeTime, Time.Now());
+	return Time.FromNs(GetLifeTimeNs());
+    }
+
+    /**
+     * Get the lifetime
+     * @returns the lifetime, in nanoseconds
+     */
+    public long GetLifeTimeNs()
+    {
+	return Time.Sub(m_lifeTime, Simulator.NowNs());
     }
 
     /**
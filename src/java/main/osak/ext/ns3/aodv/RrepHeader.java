@@ -114,10 +114,10 @@ public final class RrepHeader implements Header {
 	m_hopCount = buffer.get();
 	byte[] dst = new byte[4];
 	buffer.get(dst);
-	m_dst = new Ipv4Address(Helper.byte2int(dst));
+	m_dst = Ipv4Address.Intern(Helper.byte2int(dst));
 	m_dstSeqNo = buffer.getInt();
 	buffer.get(dst);
-	m_origin = new Ipv4Address(Helper.byte2int(dst));
+	m_origin = Ipv4Address.Intern(Helper.byte2int(dst));
 	m_lifeTime = buffer.getInt();
 
 	return buffer.position() - start;
@@ -95,10 +95,10 @@ public final class RreqHeader implements Header {
 	m_requestID = buffer.getInt();
 	byte[] dst = new byte[4];
 	buffer.get(dst);
-	m_dst = new Ipv4Address(Helper.byte2int(dst));
+	m_dst = Ipv4Address.Intern(Helper.byte2int(dst));
 	m_dstSeqNo = buffer.getInt();
 	buffer.get(dst);
-	m_origin = new Ipv4Address(Helper.byte2int(dst));
+	m_origin = Ipv4Address.Intern(Helper.byte2int(dst));
 	m_originSeqNo = buffer.getInt();
 	return buffer.position() - start;
     }
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.aodv;
+
+import osak.ext.ns3.network.HeaderView;
+
+/**
+ * A view of a Route Request (RREQ) message, reading its fields in place; see
+ * RreqHeader for the format. Addresses are returned as int, as by
+ * Ipv4Address.Get().
+ * 
+ * @author zhangrui
+ * @since 1.0
+ */
+public final class RreqView extends HeaderView {
+    @Override
+    public int GetSerializedSize() {
+	return 23;
+    }
+
+    /**
+     * @return the hop count
+     */
+    public byte GetHopCount() {
+	return GetU8(2);
+    }
+
+    /**
+     * @return the request ID
+     */
+    public int GetId() {
+	return GetU32(3);
+    }
+
+    /**
+     * @return the destination IP address
+     */
+    public int GetDst() {
+	return GetU32(7);
+    }
+
+    /**
+     * @return the destination sequence number
+     */
+    public int GetDstSeqno() {
+	return GetU32(11);
+    }
+
+    /**
+     * @return the origin IP address
+     */
+    public int GetOrigin() {
+	return GetU32(15);
+    }
+
+    /**
+     * @return the origin sequence number
+     */
+    public int GetOriginSeqno() {
+	return GetU32(19);
+    }
+
+    /**
+     * @return the gratuitous RREP flag
+     */
+    public boolean GetGratuitousRrep() {
+	return (GetU8(0) & (1 << 5)) != 0;
+    }
+
+    /**
+     * @return the Destination only flag
+     */
+    public boolean GetDestinationOnly() {
+	return (GetU8(0) & (1 << 4)) != 0;
+    }
+
+    /**
+     * @return the unknown sequence number flag
+     */
+    public boolean GetUnknownSeqno() {
+	return (GetU8(0) & (1 << 3)) != 0;
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.aodv;
+
+import osak.ext.ns3.network.HeaderView;
+
+/**
+ * A view of the type of an AODV message, reading it in place; see TypeHeader.
+ * 
+ * @author zhangrui
+ * @since 1.0
+ */
+public final class TypeView extends HeaderView {
+    @Override
+    public int GetSerializedSize() {
+	return 1;
+    }
+
+    /**
+     * @return the type of the message, or null if it is not a valid type
+     */
+    public MessageType Get() {
+	switch (GetU8(0)) {
+	case 1:
+	    return MessageType.AODVTYPE_RREQ;
+	case 2:
+	    return MessageType.AODVTYPE_RREP;
+	case 3:
+	    return MessageType.AODVTYPE_RERR;
+	case 4:
+	    return MessageType.AODVTYPE_RREP_ACK;
+	default:
+	    return null;
+	}
+    }
+}
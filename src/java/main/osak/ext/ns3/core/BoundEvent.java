@@ -0,0 +1,99 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.core;
+
+import java.util.ArrayDeque;
+
+import osak.ext.ns3.callback.Callback1;
+import osak.ext.ns3.callback.Callback2;
+import osak.ext.ns3.callback.Callback3;
+
+/**
+ * An event binding a function to up to three arguments, the equivalent of the
+ * events made by MakeEvent() in ns-3.
+ * <p>
+ * Bound events are recycled: once the simulation engine has run one it calls
+ * Release(), which clears the bindings and returns the object to a per thread
+ * pool the next MakeEvent() takes it from. Together with a function bound once,
+ * for example a method reference kept in a field, scheduling an event then
+ * allocates nothing but its EventId.
+ * 
+ * @author zhangrui
+ * @since 1.0
+ */
+final class BoundEvent extends EventImpl {
+    /** Maximum number of free events kept by each thread. */
+    private static final int POOL_SIZE = 1024;
+    private static final ThreadLocal<ArrayDeque<BoundEvent>> s_pool = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private int m_arity; // !< number of bound arguments
+    private Object m_func; // !< the function to invoke
+    private Object m_arg1; // !< first argument
+    private Object m_arg2; // !< second argument
+    private Object m_arg3; // !< third argument
+
+    private BoundEvent() {
+    }
+
+    /**
+     * @return a free event, taken from the pool of the calling thread if it has
+     *         one
+     */
+    static BoundEvent Obtain(int arity, Object func, Object arg1, Object arg2, Object arg3) {
+	BoundEvent ev = s_pool.get().pollLast();
+	if (ev == null) {
+	    ev = new BoundEvent();
+	}
+	ev.m_arity = arity;
+	ev.m_func = func;
+	ev.m_arg1 = arg1;
+	ev.m_arg2 = arg2;
+	ev.m_arg3 = arg3;
+	return ev;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    protected void Notify() {
+	switch (m_arity) {
+	case 0:
+	    ((Runnable) m_func).run();
+	    break;
+	case 1:
+	    ((Callback1<Object>) m_func).callback(m_arg1);
+	    break;
+	case 2:
+	    ((Callback2<Object, Object>) m_func).callback(m_arg1, m_arg2);
+	    break;
+	default:
+	    ((Callback3<Object, Object, Object>) m_func).callback(m_arg1, m_arg2, m_arg3);
+	    break;
+	}
+    }
+
+    @Override
+    public void Release() {
+	m_func = null;
+	m_arg1 = null;
+	m_arg2 = null;
+	m_arg3 = null;
+	ResetCancel();
+	ArrayDeque<BoundEvent> pool = s_pool.get();
+	if (pool.size() < POOL_SIZE) {
+	    pool.addLast(this);
+	}
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.core;
+
+/**
+ * A calendar queue event scheduler.
+ * <p>
+ * This event scheduler is a direct implementation of the algorithm known as a
+ * calendar queue, first published in 1988 in "Calendar Queues: A Fast O(1)
+ * Priority Queue Implementation for the Simulation Event Set Problem" by Randy
+ * Brown. The events are hashed by time stamp into an array of buckets, each
+ * bucket being a sorted list of the events of one "day" of the calendar year.
+ * <p>
+ * The number of buckets doubles when the queue holds more than twice as many
+ * events as buckets, and halves when it holds less than half as many. On each
+ * resize the bucket width is recomputed from the average separation of the
+ * events at the head of the queue.
+ * 
+ * @author zhangrui
+ * @since 1.0
+ */
+public final class CalendarEventQueue implements EventQueue {
+    private static final int MIN_BUCKETS = 2;
+    private static final int MAX_BUCKETS = 1 << 20;
+
+    private EventList[] m_buckets; // !< Array of buckets.
+    private int m_nBuckets; // !< Number of buckets in the array.
+    private long m_width; // !< Duration of a bucket, in ns.
+    private int m_lastBucket; // !< Bucket index from which the last event was dequeued.
+    private long m_bucketTop; // !< Priority at the top of the bucket from which last event was dequeued.
+    private long m_lastPrio; // !< The priority of the last event removed.
+    private int m_qSize = 0; // !< Size of the event list.
+
+    public CalendarEventQueue() {
+	Init(MIN_BUCKETS, 1, 0);
+    }
+
+    @Override
+    public EventQueue NewInstance() {
+	return new CalendarEventQueue();
+    }
+
+    @Override
+    public void Insert(final EventId ev) {
+	DoInsert(ev);
+	m_qSize++;
+	ResizeUp();
+    }
+
+    @Override
+    public boolean IsEmpty() {
+	return m_qSize == 0;
+    }
+
+    @Override
+    public EventId PeekNext() {
+	if (m_qSize == 0) {
+	    return null;
+	}
+	int i = m_lastBucket;
+	long bucketTop = m_bucketTop;
+	do {
+	    EventId next = m_buckets[i].PeekFirst();
+	    if (next != null && next.m_ts < bucketTop) {
+		return next;
+	    }
+	    i = (i + 1) % m_nBuckets;
+	    bucketTop = DefaultSimulatorImpl.SaturatedAdd(bucketTop, m_width);
+	} while (i != m_lastBucket);
+
+	return m_buckets[DirectSearch()].PeekFirst();
+    }
+
+    @Override
+    public EventId RemoveNext() {
+	EventId ev = DoRemoveNext();
+	ResizeDown();
+	return ev;
+    }
+
+    @Override
+    public void Remove(final EventId ev) {
+	ev.m_list.Unlink(ev);
+	m_qSize--;
+	ResizeDown();
+    }
+
+    /**
+     * Initialize the calendar queue.
+     * 
+     * @param nBuckets  The number of buckets.
+     * @param width     The bucket size, in ns.
+     * @param startPrio The starting time.
+     */
+    private void Init(int nBuckets, long width, long startPrio) {
+	m_buckets = new EventList[nBuckets];
+	for (int i = 0; i < nBuckets; i++) {
+	    m_buckets[i] = new EventList();
+	}
+	m_nBuckets = nBuckets;
+	m_width = width;
+	m_lastPrio = startPrio;
+	m_lastBucket = Hash(startPrio);
+	m_bucketTop = BucketTop(startPrio);
+    }
+
+    private int Hash(long ts) {
+	return (int) ((ts / m_width) % m_nBuckets);
+    }
+
+    /**
+     * @return the end of the "day" holding the time stamp ts
+     */
+    private long BucketTop(long ts) {
+	return DefaultSimulatorImpl.SaturatedAdd(ts - ts % m_width, m_width);
+    }
+
+    private void DoInsert(final EventId ev) {
+	m_buckets[Hash(ev.m_ts)].InsertSorted(ev);
+    }
+
+    /**
+     * Scan the head of every bucket for the earliest event, used when a whole
+     * year passes without an event.
+     * 
+     * @return the index of the bucket holding the earliest event
+     */
+    private int DirectSearch() {
+	int minBucket = -1;
+	EventId min = null;
+	for (int i = 0; i < m_nBuckets; i++) {
+	    EventId head = m_buckets[i].PeekFirst();
+	    if (head != null && (min == null || head.compareTo(min) < 0)) {
+		min = head;
+		minBucket = i;
+	    }
+	}
+	return minBucket;
+    }
+
+    private EventId DoRemoveNext() {
+	if (m_qSize == 0) {
+	    return null;
+	}
+	int i = m_lastBucket;
+	long bucketTop = m_bucketTop;
+	do {
+	    EventId next = m_buckets[i].PeekFirst();
+	    if (next != null && next.m_ts < bucketTop) {
+		m_lastBucket = i;
+		m_lastPrio = next.m_ts;
+		m_bucketTop = bucketTop;
+		m_qSize--;
+		return m_buckets[i].RemoveFirst();
+	    }
+	    i = (i + 1) % m_nBuckets;
+	    bucketTop = DefaultSimulatorImpl.SaturatedAdd(bucketTop, m_width);
+	} while (i != m_lastBucket);
+
+	m_lastBucket = DirectSearch();
+	EventId next = m_buckets[m_lastBucket].RemoveFirst();
+	m_lastPrio = next.m_ts;
+	m_bucketTop = BucketTop(m_lastPrio);
+	m_qSize--;
+	return next;
+    }
+
+    private void ResizeUp() {
+	if (m_qSize > m_nBuckets * 2 && m_nBuckets < MAX_BUCKETS) {
+	    Resize(m_nBuckets * 2);
+	}
+    }
+
+    private void ResizeDown() {
+	if (m_qSize < m_nBuckets / 2 && m_nBuckets > MIN_BUCKETS) {
+	    Resize(m_nBuckets / 2);
+	}
+    }
+
+    /**
+     * Resize the number of buckets and width.
+     * 
+     * @param newSize The number of buckets.
+     */
+    private void Resize(int newSize) {
+	long newWidth = CalculateNewWidth();
+	EventList[] oldBuckets = m_buckets;
+	Init(newSize, newWidth, m_lastPrio);
+	for (EventList bucket : oldBuckets) {
+	    EventId ev;
+	    while ((ev = bucket.RemoveFirst()) != null) {
+		DoInsert(ev);
+	    }
+	}
+    }
+
+    /**
+     * Compute the new bucket size, based on up to the first 25 entries.
+     * <p>
+     * The sampled events are removed and inserted back, so the queue is unchanged
+     * on return.
+     * 
+     * @return The new width.
+     */
+    private long CalculateNewWidth() {
+	if (m_qSize < 2) {
+	    return 1;
+	}
+	int nSamples = m_qSize <= 5 ? m_qSize : Math.min(5 + m_qSize / 10, 25);
+	EventId[] samples = new EventId[nSamples];
+	long lastPrio = m_lastPrio;
+	int lastBucket = m_lastBucket;
+	long bucketTop = m_bucketTop;
+	for (int i = 0; i < nSamples; i++) {
+	    samples[i] = DoRemoveNext();
+	}
+	for (EventId ev : samples) {
+	    DoInsert(ev);
+	    m_qSize++;
+	}
+	m_lastPrio = lastPrio;
+	m_lastBucket = lastBucket;
+	m_bucketTop = bucketTop;
+
+	long totalSeparation = 0;
+	for (int i = 1; i < nSamples; i++) {
+	    totalSeparation = DefaultSimulatorImpl.SaturatedAdd(totalSeparation,
+		    samples[i].m_ts - samples[i - 1].m_ts);
+	}
+	long twiceAvg = totalSeparation / (nSamples - 1) * 2;
+	totalSeparation = 0;
+	int n = 0;
+	for (int i = 1; i < nSamples; i++) {
+	    long diff = samples[i].m_ts - samples[i - 1].m_ts;
+	    if (diff <= twiceAvg) {
+		totalSeparation = DefaultSimulatorImpl.SaturatedAdd(totalSeparation, diff);
+		n++;
+	    }
+	}
+	if (n == 0) {
+	    return Math.max(1, twiceAvg);
+	}
+	return Math.max(1, totalSeparation / n * 3);
+    }
+}
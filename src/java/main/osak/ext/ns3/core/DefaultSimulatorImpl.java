@@ -0,0 +1,237 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.core;
+
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * The default single process simulator implementation.
+ * <p>
+ * Time is purely virtual: Run() pops the earliest event from the event list,
+ * advances the clock to its time stamp and invokes it, so idle periods are
+ * skipped and a run takes only as long as the CPU needs to process the events.
+ * Events with equal time stamps are executed in the order they were scheduled.
+ * 
+ * @author zhangrui
+ * @since 1.0
+ */
+public final class DefaultSimulatorImpl implements SimulatorImpl {
+    /** The event list, of the type named by the EventQueue system property. */
+    private EventQueue m_events = EventQueue.CreateDefault();
+    /** The event list for events executed at the end of the simulation. */
+    private List<EventId> m_destroyEvents = new LinkedList<>();
+    /** Flag calling for the end of the simulation. */
+    private boolean m_stop = false;
+    /** Next event unique id. */
+    private long m_uid = 4;
+    /** Unique id of the current event. */
+    private long m_currentUid = 4;
+    /** Timestamp of the current event, in nanoseconds. */
+    private long m_currentTs = 0;
+    /** Execution context of the current event. */
+    private int m_currentContext = Simulator.NO_CONTEXT;
+    /** The event count. */
+    private long m_eventCount = 0;
+    /** Number of events that have been inserted but not yet scheduled. */
+    private int m_unscheduledEvents = 0;
+
+    @Override
+    public void Destroy() {
+	while (!m_destroyEvents.isEmpty()) {
+	    EventId id = m_destroyEvents.remove(0);
+	    EventImpl ev = id.PeekEventImpl();
+	    if (!ev.IsCancelled()) {
+		ev.Invoke();
+	    }
+	}
+    }
+
+    @Override
+    public boolean IsFinished() {
+	return m_events.IsEmpty() || m_stop;
+    }
+
+    /** Process the next event. */
+    private void ProcessOneEvent() {
+	EventId next = m_events.RemoveNext();
+	assert (next.m_ts >= m_currentTs);
+	m_unscheduledEvents--;
+	m_eventCount++;
+
+	m_currentTs = next.m_ts;
+	m_currentContext = next.m_context;
+	m_currentUid = next.m_uid;
+	EventImpl event = next.m_eventImpl;
+	event.Invoke();
+	event.Release();
+    }
+
+    @Override
+    public void Run() {
+	m_stop = false;
+	while (!m_events.IsEmpty() && !m_stop) {
+	    ProcessOneEvent();
+	}
+	// If the simulator stopped naturally by lack of events, make a
+	// consistency test to check that we didn't lose any events along the way.
+	assert (!m_events.IsEmpty() || m_unscheduledEvents == 0);
+    }
+
+    @Override
+    public void Stop() {
+	m_stop = true;
+    }
+
+    @Override
+    public EventId Stop(long delay) {
+	return Schedule(delay, EventImpl.MakeEvent(() -> Simulator.Stop()));
+    }
+
+    @Override
+    public EventId Schedule(long delay, EventImpl event) {
+	assert (delay >= 0) : "DefaultSimulatorImpl::Schedule(): Negative delay";
+	return Insert(SaturatedAdd(m_currentTs, delay), m_currentContext, event);
+    }
+
+    @Override
+    public void ScheduleWithContext(int context, long delay, EventImpl event) {
+	assert (delay >= 0) : "DefaultSimulatorImpl::ScheduleWithContext(): Negative delay";
+	Insert(SaturatedAdd(m_currentTs, delay), context, event);
+    }
+
+    @Override
+    public EventId ScheduleNow(EventImpl event) {
+	return Insert(m_currentTs, m_currentContext, event);
+    }
+
+    @Override
+    public EventId ScheduleDestroy(EventImpl event) {
+	EventId id = new EventId(event, m_currentTs, Simulator.NO_CONTEXT, 2);
+	m_destroyEvents.add(id);
+	m_uid++;
+	return id;
+    }
+
+    /**
+     * Insert a new event in the event list. The time stamp is rounded up to the
+     * resolution of the event list.
+     * 
+     * @param ts      the absolute time stamp, in nanoseconds
+     * @param context the event context
+     * @param event   the event
+     * @return the id of the new event
+     */
+    private EventId Insert(long ts, int context, EventImpl event) {
+	long resolution = m_events.GetResolution();
+	if (resolution > 1 && ts % resolution != 0) {
+	    ts = SaturatedAdd(ts - ts % resolution, resolution);
+	}
+	EventId ev = new EventId(event, ts, context, m_uid);
+	m_uid++;
+	m_unscheduledEvents++;
+	m_events.Insert(ev);
+	return ev;
+    }
+
+    @Override
+    public void Remove(EventId id) {
+	if (id.GetUid() == 2) {
+	    // destroy events.
+	    m_destroyEvents.remove(id);
+	    return;
+	}
+	if (IsExpired(id)) {
+	    return;
+	}
+	m_events.Remove(id);
+	id.PeekEventImpl().Cancel();
+	m_unscheduledEvents--;
+    }
+
+    @Override
+    public void Cancel(EventId id) {
+	if (!IsExpired(id)) {
+	    id.PeekEventImpl().Cancel();
+	}
+    }
+
+    @Override
+    public boolean IsExpired(EventId id) {
+	if (id.GetUid() == 2) {
+	    if (id.PeekEventImpl() == null || id.PeekEventImpl().IsCancelled()) {
+		return true;
+	    }
+	    // destroy events.
+	    return !m_destroyEvents.contains(id);
+	}
+	return id.PeekEventImpl() == null || id.GetTs() < m_currentTs
+		|| (id.GetTs() == m_currentTs && id.GetUid() <= m_currentUid) || id.PeekEventImpl().IsCancelled();
+    }
+
+    @Override
+    public void SetScheduler(EventQueue queue) {
+	while (!m_events.IsEmpty()) {
+	    queue.Insert(m_events.RemoveNext());
+	}
+	m_events = queue;
+    }
+
+    @Override
+    public long GetResolution() {
+	return m_events.GetResolution();
+    }
+
+    @Override
+    public long Now() {
+	return m_currentTs;
+    }
+
+    @Override
+    public long GetDelayLeft(EventId id) {
+	if (IsExpired(id)) {
+	    return 0;
+	}
+	return id.GetTs() - m_currentTs;
+    }
+
+    @Override
+    public long GetMaximumSimulationTime() {
+	return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int GetContext() {
+	return m_currentContext;
+    }
+
+    @Override
+    public long GetEventCount() {
+	return m_eventCount;
+    }
+
+    /**
+     * @return a + b, clamped to Long.MAX_VALUE so that "forever" delays such as
+     *         Time.Max() do not wrap around
+     */
+    static long SaturatedAdd(long a, long b) {
+	long r = a + b;
+	if (((a ^ r) & (b ^ r)) < 0) {
+	    return Long.MAX_VALUE;
+	}
+	return r;
+    }
+}
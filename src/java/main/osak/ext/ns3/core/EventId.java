@@ -0,0 +1,152 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.core;
+
+/**
+ * An identifier for simulation events.
+ * <p>
+ * Each EventId identifies a unique event scheduled with one of the many
+ * Simulator::Schedule() methods. This EventId can be used to cancel or remove
+ * events after they are scheduled with Simulator::Cancel() or
+ * Simulator::Remove().
+ * <p>
+ * The important thing to remember about this class is that every variable of
+ * this type can be used to refer to a single scheduled event. The same object
+ * is also the entry kept in the simulator's event list, so no extra allocation
+ * is needed per scheduled event.
+ * 
+ * @author zhangrui
+ * @since 1.0
+ */
+public final class EventId implements Comparable<EventId> {
+    EventImpl m_eventImpl; // !< The underlying event implementation.
+    long m_ts; // !< The virtual time stamp, in nanoseconds.
+    int m_context; // !< The context.
+    long m_uid; // !< The unique id.
+
+    /*
+     * Bookkeeping owned by the EventQueue holding this event, so that queues can
+     * locate and unlink an event without extra allocation.
+     */
+    int m_index = -1; // !< position in an array based queue
+    EventList m_list = null; // !< the list holding this event, if any
+    EventId m_prev = null; // !< previous event in m_list
+    EventId m_next = null; // !< next event in m_list
+
+    /** Default constructor. This EventId does nothing. */
+    public EventId() {
+	m_eventImpl = null;
+	m_ts = 0;
+	m_context = 0;
+	m_uid = 0;
+    }
+
+    /**
+     * Construct a real event.
+     *
+     * @param impl    The implementation of this event.
+     * @param ts      The virtual time stamp this event should occur, in
+     *                nanoseconds.
+     * @param context The execution context for this event.
+     * @param uid     The unique id for this EventId.
+     */
+    public EventId(EventImpl impl, long ts, int context, long uid) {
+	m_eventImpl = impl;
+	m_ts = ts;
+	m_context = context;
+	m_uid = uid;
+    }
+
+    /**
+     * This method is syntactic sugar for the osak.ext.ns3::Simulator::Cancel
+     * method.
+     */
+    public void Cancel() {
+	Simulator.Cancel(this);
+    }
+
+    /**
+     * This method is syntactic sugar for the osak.ext.ns3::Simulator::Remove
+     * method.
+     */
+    public void Remove() {
+	Simulator.Remove(this);
+    }
+
+    /**
+     * This method is syntactic sugar for the osak.ext.ns3::Simulator::IsExpired
+     * method.
+     * 
+     * @returns true if the event has expired, false otherwise.
+     */
+    public boolean IsExpired() {
+	return Simulator.IsExpired(this);
+    }
+
+    /**
+     * This method is syntactic sugar for !IsExpired().
+     * 
+     * @returns true if the event has not expired, false otherwise.
+     */
+    public boolean IsRunning() {
+	return !IsExpired();
+    }
+
+    /**
+     * @returns the event implementation.
+     */
+    public EventImpl PeekEventImpl() {
+	return m_eventImpl;
+    }
+
+    /**
+     * @returns the virtual time stamp, in nanoseconds.
+     */
+    public long GetTs() {
+	return m_ts;
+    }
+
+    /**
+     * @returns the event context.
+     */
+    public int GetContext() {
+	return m_context;
+    }
+
+    /**
+     * @returns the unique id.
+     */
+    public long GetUid() {
+	return m_uid;
+    }
+
+    /**
+     * Events are ordered by time stamp, ties are broken by insertion order (the
+     * unique id), which makes the simulation deterministic.
+     */
+    @Override
+    public int compareTo(EventId o) {
+	if (m_ts != o.m_ts) {
+	    return (m_ts < o.m_ts) ? -1 : 1;
+	}
+	return Long.compare(m_uid, o.m_uid);
+    }
+
+    @Override
+    public String toString() {
+	return "EventId [ts=" + m_ts + ", context=" + m_context + ", uid=" + m_uid + "]";
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.core;
+
+import osak.ext.ns3.callback.Callback1;
+import osak.ext.ns3.callback.Callback2;
+import osak.ext.ns3.callback.Callback3;
+
+/**
+ * A simulation event.
+ * <p>
+ * Each subclass of this base class represents a simulation event. The Invoke()
+ * method will be called by the simulation engine when it reaches the time
+ * associated to this event. Most subclasses are usually created by one of the
+ * Simulator::Schedule methods.
+ * 
+ * @author zhangrui
+ * @since 1.0
+ */
+public abstract class EventImpl {
+    private boolean m_cancel = false; // !< Has this event been cancelled.
+
+    /**
+     * Called by the simulation engine to notify the event that it is time to
+     * execute.
+     */
+    public final void Invoke() {
+	if (!m_cancel) {
+	    Notify();
+	}
+    }
+
+    /**
+     * Marks the event as 'canceled'. The event is not removed from the event list
+     * but the simulation engine will check its canceled status before calling
+     * Invoke().
+     */
+    public final void Cancel() {
+	m_cancel = true;
+    }
+
+    /**
+     * @returns true if the event has been canceled.
+     */
+    public final boolean IsCancelled() {
+	return m_cancel;
+    }
+
+    /** Clear the cancel flag of an event about to be reused. */
+    final void ResetCancel() {
+	m_cancel = false;
+    }
+
+    /**
+     * Called by the simulation engine once the event has run and will never run
+     * again, after which the event must not be scheduled again. Events made by
+     * MakeEvent() go back to a pool; other events are left alone.
+     */
+    public void Release() {
+    }
+
+    /**
+     * Implementation for Invoke().
+     * <p>
+     * This typically calls a method or function pointer with the arguments bound
+     * by a call to one of the MakeEvent() functions.
+     */
+    protected abstract void Notify();
+
+    /**
+     * Make an EventImpl from a Runnable. The event is recycled once it has run.
+     * 
+     * @param func the function to invoke when the event expires
+     * @return the EventImpl
+     */
+    public static EventImpl MakeEvent(Runnable func) {
+	return BoundEvent.Obtain(0, func, null, null, null);
+    }
+
+    /**
+     * Make an EventImpl binding a function to one argument. The event is recycled
+     * once it has run.
+     * 
+     * @param func the function to invoke when the event expires
+     * @param a1   the argument of the function
+     * @return the EventImpl
+     */
+    public static <T1> EventImpl MakeEvent(Callback1<T1> func, T1 a1) {
+	return BoundEvent.Obtain(1, func, a1, null, null);
+    }
+
+    /**
+     * Make an EventImpl binding a function to two arguments. The event is
+     * recycled once it has run.
+     * 
+     * @param func the function to invoke when the event expires
+     * @param a1   the first argument of the function
+     * @param a2   the second argument of the function
+     * @return the EventImpl
+     */
+    public static <T1, T2> EventImpl MakeEvent(Callback2<T1, T2> func, T1 a1, T2 a2) {
+	return BoundEvent.Obtain(2, func, a1, a2, null);
+    }
+
+    /**
+     * Make an EventImpl binding a function to three arguments. The event is
+     * recycled once it has run.
+     * 
+     * @param func the function to invoke when the event expires
+     * @param a1   the first argument of the function
+     * @param a2   the second argument of the function
+     * @param a3   the third argument of the function
+     * @return the EventImpl
+     */
+    public static <T1, T2, T3> EventImpl MakeEvent(Callback3<T1, T2, T3> func, T1 a1, T2 a2, T3 a3) {
+	return BoundEvent.Obtain(3, func, a1, a2, a3);
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.core;
+
+/**
+ * An intrusive doubly linked list of events.
+ * <p>
+ * The links are stored in the EventId itself, so adding, unlinking and moving
+ * events between lists never allocates. It is the building block of the bucket
+ * based event queues.
+ * 
+ * @author zhangrui
+ * @since 1.0
+ */
+final class EventList {
+    EventId m_head = null; // !< first event
+    EventId m_tail = null; // !< last event
+    int m_size = 0; // !< number of events
+
+    boolean IsEmpty() {
+	return m_size == 0;
+    }
+
+    int Size() {
+	return m_size;
+    }
+
+    EventId PeekFirst() {
+	return m_head;
+    }
+
+    /**
+     * Append an event, without any ordering.
+     * 
+     * @param ev the event
+     */
+    void AddLast(EventId ev) {
+	ev.m_list = this;
+	ev.m_next = null;
+	ev.m_prev = m_tail;
+	if (m_tail == null) {
+	    m_head = ev;
+	} else {
+	    m_tail.m_next = ev;
+	}
+	m_tail = ev;
+	m_size++;
+    }
+
+    /**
+     * Insert an event keeping the list sorted. The search starts from the tail
+     * because new events are usually later than the events already queued.
+     * 
+     * @param ev the event
+     */
+    void InsertSorted(EventId ev) {
+	EventId after = m_tail;
+	while (after != null && after.compareTo(ev) > 0) {
+	    after = after.m_prev;
+	}
+	ev.m_list = this;
+	ev.m_prev = after;
+	if (after == null) {
+	    ev.m_next = m_head;
+	    m_head = ev;
+	} else {
+	    ev.m_next = after.m_next;
+	    after.m_next = ev;
+	}
+	if (ev.m_next == null) {
+	    m_tail = ev;
+	} else {
+	    ev.m_next.m_prev = ev;
+	}
+	m_size++;
+    }
+
+    /**
+     * @return the removed first event, or null if the list is empty
+     */
+    EventId RemoveFirst() {
+	EventId ev = m_head;
+	if (ev != null) {
+	    Unlink(ev);
+	}
+	return ev;
+    }
+
+    /**
+     * Remove an event held by this list.
+     * 
+     * @param ev the event
+     */
+    void Unlink(EventId ev) {
+	assert (ev.m_list == this);
+	if (ev.m_prev == null) {
+	    m_head = ev.m_next;
+	} else {
+	    ev.m_prev.m_next = ev.m_next;
+	}
+	if (ev.m_next == null) {
+	    m_tail = ev.m_prev;
+	} else {
+	    ev.m_next.m_prev = ev.m_prev;
+	}
+	ev.m_list = null;
+	ev.m_prev = null;
+	ev.m_next = null;
+	m_size--;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.core;
+
+/**
+ * Maintain the event list.
+ * <p>
+ * The event list is the ordered set of events waiting to be executed by the
+ * simulator. Events are ordered by time stamp and, for equal time stamps, by
+ * their unique id, which gives FIFO order to simultaneous events.
+ * <p>
+ * Implementations are interchangeable and selected once at startup, either with
+ * Simulator::SetScheduler() or with the {@value #SCHEDULER_TYPE_PROPERTY}
+ * system property, which accepts "heap", "calendar", "ladder" and "wheel".
+ * 
+ * @author zhangrui
+ * @since 1.0
+ */
+public interface EventQueue {
+    /** System property selecting the default event queue. */
+    String SCHEDULER_TYPE_PROPERTY = "osak.ext.ns3.SchedulerType";
+
+    /**
+     * Insert a new Event in the schedule.
+     *
+     * @param ev Event to store in the event list
+     */
+    void Insert(final EventId ev);
+
+    /**
+     * Test if the schedule is empty.
+     *
+     * @returns true if the event list is empty and false otherwise.
+     */
+    boolean IsEmpty();
+
+    /**
+     * Get a pointer to the next event.
+     * <p>
+     * This method cannot be invoked if the list is empty.
+     *
+     * @returns A pointer to the next earliest event. The caller takes ownership of
+     *          the returned pointer.
+     */
+    EventId PeekNext();
+
+    /**
+     * Remove the earliest event from the event list.
+     * <p>
+     * This method cannot be invoked if the list is empty.
+     *
+     * @return The Event.
+     */
+    EventId RemoveNext();
+
+    /**
+     * Remove a specific event from the event list.
+     * <p>
+     * This method cannot be invoked if the list is empty.
+     *
+     * @param ev The event to remove
+     */
+    void Remove(final EventId ev);
+
+    /**
+     * Get the granularity of the time stamps, which the simulator rounds up to.
+     * 
+     * @return the resolution in nanoseconds, 1 unless the queue works in coarser
+     *         ticks
+     */
+    default long GetResolution() {
+	return 1;
+    }
+
+    /**
+     * Create a new, empty event queue of the same type and with the same
+     * settings, such as the resolution of a timing wheel.
+     * 
+     * @return a new, empty event queue
+     */
+    EventQueue NewInstance();
+
+    /**
+     * Create an event queue by name.
+     * 
+     * @param type "heap", "calendar", "ladder" or "wheel", or the simple class
+     *             name of the implementation
+     * @return a new, empty event queue
+     */
+    static EventQueue Create(String type) {
+	switch (type) {
+	case "heap":
+	case "HeapEventQueue":
+	    return new HeapEventQueue();
+	case "calendar":
+	case "CalendarEventQueue":
+	    return new CalendarEventQueue();
+	case "ladder":
+	case "LadderEventQueue":
+	    return new LadderEventQueue();
+	case "wheel":
+	case "TimingWheelEventQueue":
+	    return new TimingWheelEventQueue();
+	default:
+	    throw new IllegalArgumentException("Unknown event queue type: " + type);
+	}
+    }
+
+    /**
+     * @return a new event queue of the type named by the
+     *         {@value #SCHEDULER_TYPE_PROPERTY} system property, "heap" by default.
+     */
+    static EventQueue CreateDefault() {
+	return Create(System.getProperty(SCHEDULER_TYPE_PROPERTY, "heap"));
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.core;
+
+import java.util.Arrays;
+
+/**
+ * An event queue implemented as a 4-ary heap.
+ * <p>
+ * A 4-ary heap is half as deep as a binary heap and each sift-down looks at
+ * adjacent children, which is friendlier to caches. The position of each event
+ * is recorded in EventId::m_index, so Remove() is O(log n) rather than a linear
+ * search.
+ * 
+ * @author zhangrui
+ * @since 1.0
+ */
+public final class HeapEventQueue implements EventQueue {
+    private static final int ARITY = 4;
+
+    private EventId[] m_heap = new EventId[64]; // !< the heap
+    private int m_size = 0; // !< number of events in the heap
+
+    @Override
+    public EventQueue NewInstance() {
+	return new HeapEventQueue();
+    }
+
+    @Override
+    public void Insert(final EventId ev) {
+	if (m_size == m_heap.length) {
+	    m_heap = Arrays.copyOf(m_heap, m_size * 2);
+	}
+	SiftUp(m_size++, ev);
+    }
+
+    @Override
+    public boolean IsEmpty() {
+	return m_size == 0;
+    }
+
+    @Override
+    public EventId PeekNext() {
+	return m_heap[0];
+    }
+
+    @Override
+    public EventId RemoveNext() {
+	EventId ev = m_heap[0];
+	RemoveAt(0);
+	return ev;
+    }
+
+    @Override
+    public void Remove(final EventId ev) {
+	assert (ev.m_index >= 0 && m_heap[ev.m_index] == ev);
+	RemoveAt(ev.m_index);
+    }
+
+    private void RemoveAt(int i) {
+	m_heap[i].m_index = -1;
+	EventId last = m_heap[--m_size];
+	m_heap[m_size] = null;
+	if (i == m_size) {
+	    return;
+	}
+	SiftDown(i, last);
+	if (m_heap[i] == last) {
+	    SiftUp(i, last);
+	}
+    }
+
+    private void SiftUp(int i, EventId ev) {
+	while (i > 0) {
+	    int parent = (i - 1) / ARITY;
+	    EventId p = m_heap[parent];
+	    if (p.compareTo(ev) <= 0) {
+		break;
+	    }
+	    m_heap[i] = p;
+	    p.m_index = i;
+	    i = parent;
+	}
+	m_heap[i] = ev;
+	ev.m_index = i;
+    }
+
+    private void SiftDown(int i, EventId ev) {
+	while (true) {
+	    int first = i * ARITY + 1;
+	    if (first >= m_size) {
+		break;
+	    }
+	    int last = Math.min(first + ARITY, m_size);
+	    int min = first;
+	    for (int c = first + 1; c < last; c++) {
+		if (m_heap[c].compareTo(m_heap[min]) < 0) {
+		    min = c;
+		}
+	    }
+	    EventId child = m_heap[min];
+	    if (ev.compareTo(child) <= 0) {
+		break;
+	    }
+	    m_heap[i] = child;
+	    child.m_index = i;
+	    i = min;
+	}
+	m_heap[i] = ev;
+	ev.m_index = i;
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.core;
+
+import java.util.Arrays;
+
+/**
+ * A map from int keys, such as the host order value of an Ipv4Address, to
+ * objects.
+ * <p>
+ * The keys and values are kept in two parallel arrays searched with linear
+ * probing, so an entry costs two array slots instead of a HashMap node and a
+ * boxed key. A slot is free when its value is null: null values are not
+ * allowed. Removal shifts the following entries back instead of leaving
+ * tombstones.
+ * 
+ * @param <V> the type of the values
+ * @author zhangrui
+ * @since 1.0
+ */
+public final class IntObjectMap<V> {
+    /**
+     * Visit the entries of a map.
+     * 
+     * @param <V> the type of the values
+     */
+    public interface Visitor<V> {
+	void Visit(int key, V value);
+    }
+
+    /**
+     * Select entries of a map.
+     * 
+     * @param <V> the type of the values
+     */
+    public interface Filter<V> {
+	boolean Test(int key, V value);
+    }
+
+    private static final int MIN_CAPACITY = 8;
+
+    private int[] m_keys; // !< the keys
+    private Object[] m_values; // !< the values, null in free slots
+    private int m_size; // !< number of entries
+
+    public IntObjectMap() {
+	m_keys = new int[MIN_CAPACITY];
+	m_values = new Object[MIN_CAPACITY];
+    }
+
+    /**
+     * @param o the map to copy
+     */
+    public IntObjectMap(final IntObjectMap<V> o) {
+	m_keys = o.m_keys.clone();
+	m_values = o.m_values.clone();
+	m_size = o.m_size;
+    }
+
+    /**
+     * Spread the bits of a key over the low bits used as slot index.
+     * 
+     * @param key the key
+     * @return the hash of the key
+     */
+    static int Mix(int key) {
+	int h = key * 0x9e3779b9;
+	return h ^ (h >>> 16);
+    }
+
+    /**
+     * @param key the key
+     * @return the slot of the key, or -1 if absent
+     */
+    private int Find(int key) {
+	int mask = m_keys.length - 1;
+	for (int i = Mix(key) & mask;; i = (i + 1) & mask) {
+	    if (m_values[i] == null) {
+		return -1;
+	    }
+	    if (m_keys[i] == key) {
+		return i;
+	    }
+	}
+    }
+
+    /**
+     * @param key the key
+     * @return the value of the key, or null if absent
+     */
+    @SuppressWarnings("unchecked")
+    public V Get(int key) {
+	int i = Find(key);
+	return i < 0 ? null : (V) m_values[i];
+    }
+
+    /**
+     * @param key the key
+     * @return true if the map holds the key
+     */
+    public boolean ContainsKey(int key) {
+	return Find(key) >= 0;
+    }
+
+    /**
+     * Associate a value with a key.
+     * 
+     * @param key   the key
+     * @param value the value, not null
+     * @return the previous value of the key, or null
+     */
+    @SuppressWarnings("unchecked")
+    public V Put(int key, V value) {
+	assert (value != null) : "IntObjectMap::Put(): null value";
+	int mask = m_keys.length - 1;
+	int i = Mix(key) & mask;
+	for (; m_values[i] != null; i = (i + 1) & mask) {
+	    if (m_keys[i] == key) {
+		V old = (V) m_values[i];
+		m_values[i] = value;
+		return old;
+	    }
+	}
+	m_keys[i] = key;
+	m_values[i] = value;
+	// keep the load factor at most 1/2
+	if (++m_size * 2 > m_keys.length) {
+	    Rehash(m_keys.length * 2);
+	}
+	return null;
+    }
+
+    /**
+     * @param key the key
+     * @return the removed value, or null if absent
+     */
+    @SuppressWarnings("unchecked")
+    public V Remove(int key) {
+	int i = Find(key);
+	if (i < 0) {
+	    return null;
+	}
+	V old = (V) m_values[i];
+	RemoveAt(i);
+	return old;
+    }
+
+    /**
+     * Remove the entries selected by a filter. The filter may modify the values
+     * but not the map.
+     * 
+     * @param filter the filter
+     * @return true if an entry was removed
+     */
+    @SuppressWarnings("unchecked")
+    public boolean RemoveIf(Filter<? super V> filter) {
+	if (m_size == 0) {
+	    return false;
+	}
+	int mask = m_keys.length - 1;
+	// Start after a free slot: removals shift entries back to the slot just
+	// visited, never over the start, so each entry is tested once.
+	int start = 0;
+	while (m_values[start] != null) {
+	    start++;
+	}
+	boolean removed = false;
+	for (int n = 1; n <= mask; n++) {
+	    int i = (start + n) & mask;
+	    while (m_values[i] != null && filter.Test(m_keys[i], (V) m_values[i])) {
+		RemoveAt(i);
+		removed = true;
+	    }
+	}
+	return removed;
+    }
+
+    /**
+     * Visit every entry, in no particular order. The visitor may modify the
+     * values but not the map.
+     * 
+     * @param visitor the visitor
+     */
+    @SuppressWarnings("unchecked")
+    public void ForEach(Visitor<? super V> visitor) {
+	for (int i = 0; i < m_keys.length; i++) {
+	    if (m_values[i] != null) {
+		visitor.Visit(m_keys[i], (V) m_values[i]);
+	    }
+	}
+    }
+
+    /**
+     * @return the number of entries
+     */
+    public int GetSize() {
+	return m_size;
+    }
+
+    /**
+     * @return true if the map has no entry
+     */
+    public boolean IsEmpty() {
+	return m_size == 0;
+    }
+
+    /**
+     * Remove all the entries.
+     */
+    public void Clear() {
+	Arrays.fill(m_values, null);
+	m_size = 0;
+    }
+
+    /**
+     * Free a slot and shift back the entries probed past it.
+     * 
+     * @param hole the slot to free
+     */
+    private void RemoveAt(int hole) {
+	int mask = m_keys.length - 1;
+	for (int j = (hole + 1) & mask; m_values[j] != null; j = (j + 1) & mask) {
+	    int home = Mix(m_keys[j]) & mask;
+	    // move the entry unless its home lies between the hole and itself
+	    if (((j - home) & mask) >= ((j - hole) & mask)) {
+		m_keys[hole] = m_keys[j];
+		m_values[hole] = m_values[j];
+		hole = j;
+	    }
+	}
+	m_values[hole] = null;
+	m_size--;
+    }
+
+    /**
+     * @param capacity the new number of slots, a power of two
+     */
+    private void Rehash(int capacity) {
+	int[] keys = m_keys;
+	Object[] values = m_values;
+	m_keys = new int[capacity];
+	m_values = new Object[capacity];
+	int mask = capacity - 1;
+	for (int j = 0; j < keys.length; j++) {
+	    if (values[j] != null) {
+		int i = Mix(keys[j]) & mask;
+		while (m_values[i] != null) {
+		    i = (i + 1) & mask;
+		}
+		m_keys[i] = keys[j];
+		m_values[i] = values[j];
+	    }
+	}
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.core;
+
+import java.util.Arrays;
+
+/**
+ * A set of int values, such as the host order values of Ipv4Address.
+ * <p>
+ * The values are kept in one array searched with linear probing, like the keys
+ * of an IntObjectMap. Free slots hold 0, so the value 0 itself is recorded
+ * apart.
+ * 
+ * @author zhangrui
+ * @since 1.0
+ */
+public final class IntSet {
+    /**
+     * Visit the values of a set.
+     */
+    public interface Visitor {
+	void Visit(int value);
+    }
+
+    private static final int MIN_CAPACITY = 8;
+
+    private int[] m_values; // !< the values, 0 in free slots
+    private boolean m_hasZero; // !< whether 0 is in the set
+    private int m_size; // !< number of values, 0 included
+
+    public IntSet() {
+	m_values = new int[MIN_CAPACITY];
+    }
+
+    /**
+     * @param o the set to copy
+     */
+    public IntSet(final IntSet o) {
+	m_values = o.m_values.clone();
+	m_hasZero = o.m_hasZero;
+	m_size = o.m_size;
+    }
+
+    /**
+     * @param value the value
+     * @return true if the set holds the value
+     */
+    public boolean Contains(int value) {
+	if (value == 0) {
+	    return m_hasZero;
+	}
+	int mask = m_values.length - 1;
+	for (int i = IntObjectMap.Mix(value) & mask; m_values[i] != 0; i = (i + 1) & mask) {
+	    if (m_values[i] == value) {
+		return true;
+	    }
+	}
+	return false;
+    }
+
+    /**
+     * @param value the value
+     * @return true if the value was not yet in the set
+     */
+    public boolean Add(int value) {
+	if (value == 0) {
+	    if (m_hasZero) {
+		return false;
+	    }
+	    m_hasZero = true;
+	    m_size++;
+	    return true;
+	}
+	int mask = m_values.length - 1;
+	int i = IntObjectMap.Mix(value) & mask;
+	for (; m_values[i] != 0; i = (i + 1) & mask) {
+	    if (m_values[i] == value) {
+		return false;
+	    }
+	}
+	m_values[i] = value;
+	if (++m_size * 2 > m_values.length) {
+	    Rehash(m_values.length * 2);
+	}
+	return true;
+    }
+
+    /**
+     * @param value the value
+     * @return true if the value was in the set
+     */
+    public boolean Remove(int value) {
+	if (value == 0) {
+	    if (!m_hasZero) {
+		return false;
+	    }
+	    m_hasZero = false;
+	    m_size--;
+	    return true;
+	}
+	int mask = m_values.length - 1;
+	for (int i = IntObjectMap.Mix(value) & mask; m_values[i] != 0; i = (i + 1) & mask) {
+	    if (m_values[i] == value) {
+		RemoveAt(i);
+		return true;
+	    }
+	}
+	return false;
+    }
+
+    /**
+     * Visit every value, in no particular order. The visitor must not modify the
+     * set.
+     * 
+     * @param visitor the visitor
+     */
+    public void ForEach(Visitor visitor) {
+	if (m_hasZero) {
+	    visitor.Visit(0);
+	}
+	for (int v : m_values) {
+	    if (v != 0) {
+		visitor.Visit(v);
+	    }
+	}
+    }
+
+    /**
+     * @return the number of values
+     */
+    public int GetSize() {
+	return m_size;
+    }
+
+    /**
+     * @return true if the set is empty
+     */
+    public boolean IsEmpty() {
+	return m_size == 0;
+    }
+
+    /**
+     * Remove all the values.
+     */
+    public void Clear() {
+	Arrays.fill(m_values, 0);
+	m_hasZero = false;
+	m_size = 0;
+    }
+
+    /**
+     * Free a slot and shift back the values probed past it.
+     * 
+     * @param hole the slot to free
+     */
+    private void RemoveAt(int hole) {
+	int mask = m_values.length - 1;
+	for (int j = (hole + 1) & mask; m_values[j] != 0; j = (j + 1) & mask) {
+	    int home = IntObjectMap.Mix(m_values[j]) & mask;
+	    if (((j - home) & mask) >= ((j - hole) & mask)) {
+		m_values[hole] = m_values[j];
+		hole = j;
+	    }
+	}
+	m_values[hole] = 0;
+	m_size--;
+    }
+
+    /**
+     * @param capacity the new number of slots, a power of two
+     */
+    private void Rehash(int capacity) {
+	int[] values = m_values;
+	m_values = new int[capacity];
+	int mask = capacity - 1;
+	for (int v : values) {
+	    if (v != 0) {
+		int i = IntObjectMap.Mix(v) & mask;
+		while (m_values[i] != 0) {
+		    i = (i + 1) & mask;
+		}
+		m_values[i] = v;
+	    }
+	}
+    }
+}
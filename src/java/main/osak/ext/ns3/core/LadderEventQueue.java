@@ -0,0 +1,244 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.core;
+
+/**
+ * A ladder queue event scheduler.
+ * <p>
+ * This is the algorithm of W. T. Tang, R. S. M. Goh and I. L.-J. Thng, "Ladder
+ * Queue: An O(1) Priority Queue Structure for Large-Scale Discrete Event
+ * Simulation", ACM TOMACS 15(3), 2005. Events live in one of three tiers:
+ * <ul>
+ * <li>Top: an unsorted list of far-future events, at or after m_topStart;</li>
+ * <li>Rungs: up to {@link #MAX_RUNGS} arrays of unsorted buckets, each rung
+ * splitting one bucket of the rung above it into finer buckets;</li>
+ * <li>Bottom: a short sorted list of the most imminent events.</li>
+ * </ul>
+ * Events are only sorted once they reach Bottom, and a bucket is only sorted
+ * once it holds fewer than {@link #THRES} events, so the amortized cost of an
+ * operation does not depend on the number of queued events.
+ * 
+ * @author zhangrui
+ * @since 1.0
+ */
+public final class LadderEventQueue implements EventQueue {
+    /** Largest bucket sorted into Bottom rather than split into a new rung. */
+    private static final int THRES = 50;
+    private static final int MAX_RUNGS = 8;
+    private static final int MAX_BUCKETS = 1 << 20;
+
+    /**
+     * One rung of the ladder.
+     */
+    private static final class Rung {
+	long m_start; // !< time stamp of the first bucket, in ns
+	long m_width; // !< duration of a bucket, in ns
+	int m_cur; // !< index of the next bucket to be dequeued
+	EventList[] m_buckets; // !< the buckets
+
+	Rung(long start, long width, int nBuckets) {
+	    m_start = start;
+	    m_width = width;
+	    m_cur = 0;
+	    m_buckets = new EventList[nBuckets];
+	    for (int i = 0; i < nBuckets; i++) {
+		m_buckets[i] = new EventList();
+	    }
+	}
+
+	/**
+	 * @return the time stamp of the start of the current bucket. Earlier events
+	 *         do not belong to this rung any more.
+	 */
+	long CurStart() {
+	    return End(m_start, m_width, m_cur);
+	}
+
+	void Add(final EventId ev) {
+	    m_buckets[(int) ((ev.m_ts - m_start) / m_width)].AddLast(ev);
+	}
+    }
+
+    private final EventList m_top = new EventList(); // !< Top
+    private long m_topStart = 0; // !< lower bound of the time stamps held by Top
+    private final Rung[] m_rungs = new Rung[MAX_RUNGS]; // !< the rungs, from coarsest to finest
+    private int m_nRungs = 0; // !< number of rungs in use
+    private final EventList m_bottom = new EventList(); // !< Bottom
+    private int m_size = 0; // !< number of events in the queue
+
+    @Override
+    public EventQueue NewInstance() {
+	return new LadderEventQueue();
+    }
+
+    @Override
+    public void Insert(final EventId ev) {
+	m_size++;
+	if (ev.m_ts >= m_topStart) {
+	    m_top.AddLast(ev);
+	    return;
+	}
+	for (int i = 0; i < m_nRungs; i++) {
+	    if (ev.m_ts >= m_rungs[i].CurStart()) {
+		m_rungs[i].Add(ev);
+		return;
+	    }
+	}
+	m_bottom.InsertSorted(ev);
+	if (m_bottom.Size() > THRES && m_nRungs < MAX_RUNGS
+		&& m_bottom.PeekFirst().m_ts != m_bottom.m_tail.m_ts) {
+	    SpawnRungFromBottom();
+	}
+    }
+
+    @Override
+    public boolean IsEmpty() {
+	return m_size == 0;
+    }
+
+    @Override
+    public EventId PeekNext() {
+	return FillBottom() ? m_bottom.PeekFirst() : null;
+    }
+
+    @Override
+    public EventId RemoveNext() {
+	if (!FillBottom()) {
+	    return null;
+	}
+	EventId ev = m_bottom.RemoveFirst();
+	if (--m_size == 0) {
+	    // start a new epoch, so that the next events go through Top again.
+	    while (m_nRungs > 0) {
+		m_rungs[--m_nRungs] = null;
+	    }
+	    m_topStart = 0;
+	}
+	return ev;
+    }
+
+    @Override
+    public void Remove(final EventId ev) {
+	ev.m_list.Unlink(ev);
+	m_size--;
+    }
+
+    /**
+     * Make sure Bottom holds the earliest events, moving events down the ladder
+     * as needed.
+     * 
+     * @return false if the queue is empty
+     */
+    private boolean FillBottom() {
+	while (m_bottom.IsEmpty()) {
+	    if (m_nRungs == 0) {
+		if (m_top.IsEmpty()) {
+		    return false;
+		}
+		SpawnRungFromTop();
+	    }
+	    Rung rung = m_rungs[m_nRungs - 1];
+	    while (rung.m_cur < rung.m_buckets.length && rung.m_buckets[rung.m_cur].IsEmpty()) {
+		rung.m_cur++;
+	    }
+	    if (rung.m_cur == rung.m_buckets.length) {
+		m_rungs[--m_nRungs] = null;
+		continue;
+	    }
+	    EventList bucket = rung.m_buckets[rung.m_cur];
+	    if (bucket.Size() > THRES && m_nRungs < MAX_RUNGS && rung.m_width > 1) {
+		SpawnRungFromBucket(rung, bucket);
+	    } else {
+		EventId ev;
+		while ((ev = bucket.RemoveFirst()) != null) {
+		    m_bottom.InsertSorted(ev);
+		}
+	    }
+	    rung.m_cur++;
+	}
+	return true;
+    }
+
+    /**
+     * Move every event of Top into a new first rung, sized so that each bucket
+     * receives one event on average.
+     */
+    private void SpawnRungFromTop() {
+	long min = Long.MAX_VALUE;
+	long max = Long.MIN_VALUE;
+	for (EventId ev = m_top.PeekFirst(); ev != null; ev = ev.m_next) {
+	    min = Math.min(min, ev.m_ts);
+	    max = Math.max(max, ev.m_ts);
+	}
+	int nBuckets = Math.min(m_top.Size(), MAX_BUCKETS);
+	long width = (max - min) / nBuckets + 1;
+	Rung rung = new Rung(min, width, nBuckets);
+	m_topStart = End(min, width, nBuckets);
+	EventId ev;
+	while ((ev = m_top.RemoveFirst()) != null) {
+	    rung.Add(ev);
+	}
+	m_rungs[m_nRungs++] = rung;
+    }
+
+    /**
+     * Move every event of an overgrown Bottom into a new, finest rung. The rung
+     * spans from the earliest event of Bottom to the current bucket of the rung
+     * above it, or to m_topStart.
+     */
+    private void SpawnRungFromBottom() {
+	long start = m_bottom.PeekFirst().m_ts;
+	long end = m_nRungs > 0 ? m_rungs[m_nRungs - 1].CurStart() : m_topStart;
+	int nBuckets = Math.min(m_bottom.Size(), MAX_BUCKETS);
+	long width = (end - start - 1) / nBuckets + 1;
+	Rung rung = new Rung(start, width, nBuckets);
+	EventId ev;
+	while ((ev = m_bottom.RemoveFirst()) != null) {
+	    rung.Add(ev);
+	}
+	m_rungs[m_nRungs++] = rung;
+    }
+
+    /**
+     * Split the current bucket of a rung into a new, finer rung.
+     * 
+     * @param parent the rung holding the bucket
+     * @param bucket the bucket to split
+     */
+    private void SpawnRungFromBucket(Rung parent, EventList bucket) {
+	int nBuckets = (int) Math.min(bucket.Size(), parent.m_width);
+	long width = (parent.m_width + nBuckets - 1) / nBuckets;
+	Rung rung = new Rung(parent.CurStart(), width, nBuckets);
+	EventId ev;
+	while ((ev = bucket.RemoveFirst()) != null) {
+	    rung.Add(ev);
+	}
+	m_rungs[m_nRungs++] = rung;
+    }
+
+    /**
+     * @return start + nBuckets * width, saturated at Long.MAX_VALUE
+     */
+    private static long End(long start, long width, int nBuckets) {
+	if (nBuckets == 0) {
+	    return start;
+	}
+	if (width > (Long.MAX_VALUE - start) / nBuckets) {
+	    return Long.MAX_VALUE;
+	}
+	return start + width * nBuckets;
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.core;
+
+import java.util.Arrays;
+
+/**
+ * A map from long keys, such as packet uids, to long values, such as times in
+ * nanoseconds.
+ * <p>
+ * The keys and values are kept in two parallel arrays searched with linear
+ * probing, like those of an IntObjectMap. Free slots hold the key 0, so the
+ * entry of the key 0 itself is recorded apart.
+ * 
+ * @author zhangrui
+ * @since 1.0
+ */
+public final class LongLongMap {
+    /**
+     * Select entries of a map.
+     */
+    public interface Filter {
+	boolean Test(long key, long value);
+    }
+
+    private static final int MIN_CAPACITY = 8;
+
+    private long[] m_keys; // !< the keys, 0 in free slots
+    private long[] m_values; // !< the values
+    private boolean m_hasZero; // !< whether the key 0 is in the map
+    private long m_zeroValue; // !< the value of the key 0
+    private int m_size; // !< number of entries, the key 0 included
+
+    public LongLongMap() {
+	m_keys = new long[MIN_CAPACITY];
+	m_values = new long[MIN_CAPACITY];
+    }
+
+    /**
+     * @param o the map to copy
+     */
+    public LongLongMap(final LongLongMap o) {
+	m_keys = o.m_keys.clone();
+	m_values = o.m_values.clone();
+	m_hasZero = o.m_hasZero;
+	m_zeroValue = o.m_zeroValue;
+	m_size = o.m_size;
+    }
+
+    /**
+     * @param key the key
+     * @return the hash of the key
+     */
+    private static int Mix(long key) {
+	return IntObjectMap.Mix((int) (key ^ (key >>> 32)));
+    }
+
+    /**
+     * @param key the key, not 0
+     * @return the slot of the key, or -1 if absent
+     */
+    private int Find(long key) {
+	int mask = m_keys.length - 1;
+	for (int i = Mix(key) & mask; m_keys[i] != 0; i = (i + 1) & mask) {
+	    if (m_keys[i] == key) {
+		return i;
+	    }
+	}
+	return -1;
+    }
+
+    /**
+     * @param key the key
+     * @return true if the map holds the key
+     */
+    public boolean ContainsKey(long key) {
+	return key == 0 ? m_hasZero : Find(key) >= 0;
+    }
+
+    /**
+     * @param key          the key
+     * @param defaultValue the value to return if the key is absent
+     * @return the value of the key, or defaultValue
+     */
+    public long Get(long key, long defaultValue) {
+	if (key == 0) {
+	    return m_hasZero ? m_zeroValue : defaultValue;
+	}
+	int i = Find(key);
+	return i < 0 ? defaultValue : m_values[i];
+    }
+
+    /**
+     * Associate a value with a key.
+     * 
+     * @param key   the key
+     * @param value the value
+     */
+    public void Put(long key, long value) {
+	if (key == 0) {
+	    if (!m_hasZero) {
+		m_hasZero = true;
+		m_size++;
+	    }
+	    m_zeroValue = value;
+	    return;
+	}
+	int mask = m_keys.length - 1;
+	int i = Mix(key) & mask;
+	for (; m_keys[i] != 0; i = (i + 1) & mask) {
+	    if (m_keys[i] == key) {
+		m_values[i] = value;
+		return;
+	    }
+	}
+	m_keys[i] = key;
+	m_values[i] = value;
+	if (++m_size * 2 > m_keys.length) {
+	    Rehash(m_keys.length * 2);
+	}
+    }
+
+    /**
+     * @param key the key
+     * @return true if the key was in the map
+     */
+    public boolean Remove(long key) {
+	if (key == 0) {
+	    if (!m_hasZero) {
+		return false;
+	    }
+	    m_hasZero = false;
+	    m_size--;
+	    return true;
+	}
+	int i = Find(key);
+	if (i < 0) {
+	    return false;
+	}
+	RemoveAt(i);
+	return true;
+    }
+
+    /**
+     * Remove the entries selected by a filter.
+     * 
+     * @param filter the filter
+     * @return true if an entry was removed
+     */
+    public boolean RemoveIf(Filter filter) {
+	boolean removed = false;
+	if (m_hasZero && filter.Test(0, m_zeroValue)) {
+	    m_hasZero = false;
+	    m_size--;
+	    removed = true;
+	}
+	int mask = m_keys.length - 1;
+	// Start after a free slot: removals shift entries back to the slot just
+	// visited, never over the start, so each entry is tested once.
+	int start = 0;
+	while (m_keys[start] != 0) {
+	    start++;
+	}
+	for (int n = 1; n <= mask; n++) {
+	    int i = (start + n) & mask;
+	    while (m_keys[i] != 0 && filter.Test(m_keys[i], m_values[i])) {
+		RemoveAt(i);
+		removed = true;
+	    }
+	}
+	return removed;
+    }
+
+    /**
+     * @return the number of entries
+     */
+    public int GetSize() {
+	return m_size;
+    }
+
+    /**
+     * @return true if the map has no entry
+     */
+    public boolean IsEmpty() {
+	return m_size == 0;
+    }
+
+    /**
+     * Remove all the entries.
+     */
+    public void Clear() {
+	Arrays.fill(m_keys, 0);
+	m_hasZero = false;
+	m_size = 0;
+    }
+
+    /**
+     * Free a slot and shift back the entries probed past it.
+     * 
+     * @param hole the slot to free
+     */
+    private void RemoveAt(int hole) {
+	int mask = m_keys.length - 1;
+	for (int j = (hole + 1) & mask; m_keys[j] != 0; j = (j + 1) & mask) {
+	    int home = Mix(m_keys[j]) & mask;
+	    if (((j - home) & mask) >= ((j - hole) & mask)) {
+		m_keys[hole] = m_keys[j];
+		m_values[hole] = m_values[j];
+		hole = j;
+	    }
+	}
+	m_keys[hole] = 0;
+	m_size--;
+    }
+
+    /**
+     * @param capacity the new number of slots, a power of two
+     */
+    private void Rehash(int capacity) {
+	long[] keys = m_keys;
+	long[] values = m_values;
+	m_keys = new long[capacity];
+	m_values = new long[capacity];
+	int mask = capacity - 1;
+	for (int j = 0; j < keys.length; j++) {
+	    if (keys[j] != 0) {
+		int i = Mix(keys[j]) & mask;
+		while (m_keys[i] != 0) {
+		    i = (i + 1) & mask;
+		}
+		m_keys[i] = keys[j];
+		m_values[i] = values[j];
+	    }
+	}
+    }
+}
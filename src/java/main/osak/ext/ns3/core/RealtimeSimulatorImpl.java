@@ -0,0 +1,420 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.core;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A real-time simulator implementation.
+ * <p>
+ * Events are run in time stamp order as with DefaultSimulatorImpl, but the
+ * virtual clock is kept in step with the wall clock: Run() waits until the wall
+ * clock reaches the time stamp of the next event before invoking it. Waiting
+ * parks the thread until shortly before the deadline, then spins for the last
+ * stretch, since parking alone overshoots by tens of microseconds.
+ * <p>
+ * When the events take longer to run than the virtual time they span, the
+ * simulation falls behind. In SYNC_BEST_EFFORT mode it catches up as fast as it
+ * can; in SYNC_HARD_LIMIT mode Run() fails once an event is dispatched later
+ * than the hard limit. The lateness of every event is measured either way.
+ * <p>
+ * Other threads, for instance the ones reading real devices, may call
+ * ScheduleWithContext() and Stop() while the simulation runs; their delays are
+ * counted from the real-time clock rather than from the current event.
+ * 
+ * @author zhangrui
+ * @since 1.0
+ */
+public final class RealtimeSimulatorImpl implements SimulatorImpl {
+    /**
+     * What to do when the simulation falls behind the wall clock.
+     */
+    public enum SynchronizationMode {
+	/** Run late events as soon as possible. */
+	SYNC_BEST_EFFORT,
+	/** Fail when an event is dispatched later than the hard limit. */
+	SYNC_HARD_LIMIT
+    }
+
+    /** Guards the event list and the clock against the other threads. */
+    private final Object m_lock = new Object();
+    /** The event list, of the type named by the EventQueue system property. */
+    private EventQueue m_events = EventQueue.CreateDefault();
+    /** The event list for events executed at the end of the simulation. */
+    private List<EventId> m_destroyEvents = new LinkedList<>();
+    /** Flag calling for the end of the simulation. */
+    private volatile boolean m_stop = false;
+    /** Set by the other threads when the next event may have changed. */
+    private volatile boolean m_wakeup = false;
+    /** The thread in Run(), null when not running. */
+    private volatile Thread m_runThread = null;
+    /** Next event unique id. */
+    private long m_uid = 4;
+    /** Unique id of the current event. */
+    private long m_currentUid = 4;
+    /** Timestamp of the current event, in nanoseconds. */
+    private long m_currentTs = 0;
+    /** Execution context of the current event. */
+    private int m_currentContext = Simulator.NO_CONTEXT;
+    /** The event count. */
+    private long m_eventCount = 0;
+    /** System.nanoTime() matching virtual time 0, while running. */
+    private long m_origin = 0;
+
+    private SynchronizationMode m_synchronizationMode = SynchronizationMode.SYNC_BEST_EFFORT; // !< policy when late
+    private long m_hardLimit = Time.ToNs(100, TimeUnit.MILLISECONDS); // !< maximum lateness in SYNC_HARD_LIMIT mode
+    private long m_spinThreshold = Time.ToNs(200, TimeUnit.MICROSECONDS); // !< last stretch of a wait spent spinning
+    private long m_tolerance = Time.ToNs(50, TimeUnit.MICROSECONDS); // !< lateness counted as late
+
+    private long m_lateEvents = 0; // !< number of events dispatched later than the tolerance
+    private long m_maxLateness = 0; // !< largest lateness, in ns
+    private long m_totalLateness = 0; // !< sum of the lateness of all events, in ns
+
+    /**
+     * @param mode the policy when the simulation falls behind the wall clock
+     */
+    public void SetSynchronizationMode(SynchronizationMode mode) {
+	m_synchronizationMode = mode;
+    }
+
+    /**
+     * @return the policy when the simulation falls behind the wall clock
+     */
+    public SynchronizationMode GetSynchronizationMode() {
+	return m_synchronizationMode;
+    }
+
+    /**
+     * @param limit the maximum lateness of an event in SYNC_HARD_LIMIT mode
+     */
+    public void SetHardLimit(Time limit) {
+	m_hardLimit = limit.getNanoSeconds();
+    }
+
+    /**
+     * @return the maximum lateness of an event in SYNC_HARD_LIMIT mode
+     */
+    public Time GetHardLimit() {
+	return Time.FromNs(m_hardLimit);
+    }
+
+    /**
+     * @param threshold how long before a deadline waiting switches from parking
+     *                  to spinning: larger values cut jitter and burn more CPU
+     */
+    public void SetSpinThreshold(Time threshold) {
+	m_spinThreshold = threshold.getNanoSeconds();
+    }
+
+    /**
+     * @param tolerance the lateness above which an event is counted as late
+     */
+    public void SetLatenessTolerance(Time tolerance) {
+	m_tolerance = tolerance.getNanoSeconds();
+    }
+
+    /**
+     * @return the number of events dispatched later than the tolerance
+     */
+    public long GetLateEventCount() {
+	return m_lateEvents;
+    }
+
+    /**
+     * @return the largest lateness of an event
+     */
+    public Time GetMaxLateness() {
+	return Time.FromNs(m_maxLateness);
+    }
+
+    /**
+     * @return the mean lateness of the events
+     */
+    public Time GetMeanLateness() {
+	return Time.FromNs(m_eventCount == 0 ? 0 : m_totalLateness / m_eventCount);
+    }
+
+    /**
+     * @return the wall clock time elapsed since the start of the simulation, in
+     *         virtual nanoseconds; the current event time stamp when not running
+     */
+    public long RealtimeNow() {
+	return m_runThread == null ? m_currentTs : System.nanoTime() - m_origin;
+    }
+
+    @Override
+    public void Destroy() {
+	while (!m_destroyEvents.isEmpty()) {
+	    EventId id = m_destroyEvents.remove(0);
+	    EventImpl ev = id.PeekEventImpl();
+	    if (!ev.IsCancelled()) {
+		ev.Invoke();
+	    }
+	}
+    }
+
+    @Override
+    public boolean IsFinished() {
+	synchronized (m_lock) {
+	    return m_events.IsEmpty() || m_stop;
+	}
+    }
+
+    /**
+     * Wait until the wall clock reaches ts.
+     * 
+     * @return false if woken up earlier by another thread or by Stop()
+     */
+    private boolean WaitUntil(long ts) {
+	while (true) {
+	    if (m_stop) {
+		return false;
+	    }
+	    if (m_wakeup) {
+		m_wakeup = false;
+		return false;
+	    }
+	    long remaining = ts - (System.nanoTime() - m_origin);
+	    if (remaining <= 0) {
+		return true;
+	    }
+	    if (remaining > m_spinThreshold) {
+		LockSupport.parkNanos(this, remaining - m_spinThreshold);
+	    } else {
+		Thread.onSpinWait();
+	    }
+	}
+    }
+
+    @Override
+    public void Run() {
+	m_stop = false;
+	m_wakeup = false;
+	m_origin = System.nanoTime() - m_currentTs;
+	m_runThread = Thread.currentThread();
+	try {
+	    while (!m_stop) {
+		EventId next;
+		synchronized (m_lock) {
+		    if (m_events.IsEmpty()) {
+			break;
+		    }
+		    next = m_events.PeekNext();
+		}
+		if (!WaitUntil(next.m_ts)) {
+		    continue;
+		}
+		synchronized (m_lock) {
+		    if (m_events.IsEmpty() || m_events.PeekNext() != next) {
+			continue;
+		    }
+		    m_events.RemoveNext();
+		    m_eventCount++;
+		    m_currentTs = next.m_ts;
+		    m_currentContext = next.m_context;
+		    m_currentUid = next.m_uid;
+		}
+		long lateness = System.nanoTime() - m_origin - next.m_ts;
+		m_totalLateness += lateness;
+		m_maxLateness = Math.max(m_maxLateness, lateness);
+		if (lateness > m_tolerance) {
+		    m_lateEvents++;
+		}
+		if (m_synchronizationMode == SynchronizationMode.SYNC_HARD_LIMIT && lateness > m_hardLimit) {
+		    throw new IllegalStateException("RealtimeSimulatorImpl: event at " + next.m_ts + " ns ran " + lateness
+			    + " ns late, over the hard limit of " + m_hardLimit + " ns");
+		}
+		EventImpl event = next.m_eventImpl;
+		event.Invoke();
+		event.Release();
+	    }
+	} finally {
+	    m_runThread = null;
+	}
+    }
+
+    /** Wake Run() up if called from another thread. */
+    private void Wakeup() {
+	Thread run = m_runThread;
+	if (run != null && run != Thread.currentThread()) {
+	    m_wakeup = true;
+	    LockSupport.unpark(run);
+	}
+    }
+
+    @Override
+    public void Stop() {
+	m_stop = true;
+	Thread run = m_runThread;
+	if (run != null) {
+	    LockSupport.unpark(run);
+	}
+    }
+
+    @Override
+    public EventId Stop(long delay) {
+	return Schedule(delay, EventImpl.MakeEvent(() -> Simulator.Stop()));
+    }
+
+    /**
+     * @return the time delays are counted from: the current event for the thread
+     *         running the simulation, the real-time clock for the others
+     */
+    private long Base() {
+	Thread run = m_runThread;
+	if (run == null || run == Thread.currentThread()) {
+	    return m_currentTs;
+	}
+	return Math.max(m_currentTs, System.nanoTime() - m_origin);
+    }
+
+    @Override
+    public EventId Schedule(long delay, EventImpl event) {
+	assert (delay >= 0) : "RealtimeSimulatorImpl::Schedule(): Negative delay";
+	synchronized (m_lock) {
+	    EventId id = Insert(Time.Add(Base(), delay), m_currentContext, event);
+	    Wakeup();
+	    return id;
+	}
+    }
+
+    @Override
+    public void ScheduleWithContext(int context, long delay, EventImpl event) {
+	assert (delay >= 0) : "RealtimeSimulatorImpl::ScheduleWithContext(): Negative delay";
+	synchronized (m_lock) {
+	    Insert(Time.Add(Base(), delay), context, event);
+	    Wakeup();
+	}
+    }
+
+    @Override
+    public EventId ScheduleNow(EventImpl event) {
+	return Schedule(0, event);
+    }
+
+    @Override
+    public EventId ScheduleDestroy(EventImpl event) {
+	synchronized (m_lock) {
+	    EventId id = new EventId(event, m_currentTs, Simulator.NO_CONTEXT, 2);
+	    m_destroyEvents.add(id);
+	    m_uid++;
+	    return id;
+	}
+    }
+
+    /**
+     * Insert a new event in the event list, with m_lock held. The time stamp is
+     * rounded up to the resolution of the event list.
+     */
+    private EventId Insert(long ts, int context, EventImpl event) {
+	long resolution = m_events.GetResolution();
+	if (resolution > 1 && ts % resolution != 0) {
+	    ts = Time.Add(ts - ts % resolution, resolution);
+	}
+	EventId ev = new EventId(event, ts, context, m_uid);
+	m_uid++;
+	m_events.Insert(ev);
+	return ev;
+    }
+
+    @Override
+    public void Remove(EventId id) {
+	synchronized (m_lock) {
+	    if (id.GetUid() == 2) {
+		// destroy events.
+		m_destroyEvents.remove(id);
+		return;
+	    }
+	    if (IsExpired(id)) {
+		return;
+	    }
+	    m_events.Remove(id);
+	    id.PeekEventImpl().Cancel();
+	}
+    }
+
+    @Override
+    public void Cancel(EventId id) {
+	synchronized (m_lock) {
+	    if (!IsExpired(id)) {
+		id.PeekEventImpl().Cancel();
+	    }
+	}
+    }
+
+    @Override
+    public boolean IsExpired(EventId id) {
+	synchronized (m_lock) {
+	    if (id.GetUid() == 2) {
+		if (id.PeekEventImpl() == null || id.PeekEventImpl().IsCancelled()) {
+		    return true;
+		}
+		// destroy events.
+		return !m_destroyEvents.contains(id);
+	    }
+	    return id.PeekEventImpl() == null || id.GetTs() < m_currentTs
+		    || (id.GetTs() == m_currentTs && id.GetUid() <= m_currentUid) || id.PeekEventImpl().IsCancelled();
+	}
+    }
+
+    @Override
+    public void SetScheduler(EventQueue queue) {
+	synchronized (m_lock) {
+	    while (!m_events.IsEmpty()) {
+		queue.Insert(m_events.RemoveNext());
+	    }
+	    m_events = queue;
+	}
+    }
+
+    @Override
+    public long GetResolution() {
+	return m_events.GetResolution();
+    }
+
+    @Override
+    public long Now() {
+	return m_currentTs;
+    }
+
+    @Override
+    public long GetDelayLeft(EventId id) {
+	synchronized (m_lock) {
+	    if (IsExpired(id)) {
+		return 0;
+	    }
+	    return id.GetTs() - m_currentTs;
+	}
+    }
+
+    @Override
+    public long GetMaximumSimulationTime() {
+	return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int GetContext() {
+	return m_currentContext;
+    }
+
+    @Override
+    public long GetEventCount() {
+	return m_eventCount;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.core;
+
+import java.util.Random;
+
+/**
+ * Manage the seed and run number of the random number streams.
+ * <p>
+ * Every model that needs random numbers should get its generator from
+ * CreateRandom() instead of using an unseeded java.util.Random: each generator
+ * is then derived from the global seed, the run number and its own stream
+ * index, so two runs of the same scenario produce identical results.
+ * 
+ * @author zhangrui
+ * @since 1.0
+ */
+public final class RngSeedManager {
+    private static long s_seed = 1; // !< the global seed
+    private static long s_run = 1; // !< the run number
+    private static long s_nextStream = 0; // !< the next automatically assigned stream index
+
+    private RngSeedManager() {
+    }
+
+    /**
+     * Get the current seed value which will be used by all subsequently
+     * instantiated random number generators.
+     *
+     * @return The seed value.
+     */
+    public static long GetSeed() {
+	return s_seed;
+    }
+
+    /**
+     * Set the seed.
+     *
+     * @param seed The seed value to use.
+     */
+    public static void SetSeed(long seed) {
+	s_seed = seed;
+    }
+
+    /**
+     * Set the run number of simulation.
+     *
+     * @param run The run number.
+     */
+    public static void SetRun(long run) {
+	s_run = run;
+    }
+
+    /**
+     * Get the current run number.
+     * 
+     * @returns The current run number
+     */
+    public static long GetRun() {
+	return s_run;
+    }
+
+    /**
+     * Get the next automatically assigned stream index.
+     * 
+     * @returns The next stream index.
+     */
+    public static long GetNextStreamIndex() {
+	return s_nextStream++;
+    }
+
+    /**
+     * Reset the next automatically assigned stream index, so that a new
+     * simulation in the same process sees the same streams as the first one.
+     */
+    public static void ResetNextStreamIndex() {
+	s_nextStream = 0;
+    }
+
+    /**
+     * @return a generator on the next automatically assigned stream.
+     */
+    public static Random CreateRandom() {
+	return CreateRandom(GetNextStreamIndex());
+    }
+
+    /**
+     * @param stream the stream index
+     * @return a generator on the given stream for the current seed and run.
+     */
+    public static Random CreateRandom(long stream) {
+	long seed = s_seed;
+	seed = seed * 0x9E3779B97F4A7C15L + s_run;
+	seed = seed * 0x9E3779B97F4A7C15L + stream;
+	return new Random(seed);
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.core;
+
+/**
+ * An object whose state can be rolled back by an optimistic simulator.
+ * <p>
+ * Before changing its state during an event, the object calls
+ * Simulator::SaveState(this). A sequential or conservative simulator ignores the
+ * call. An optimistic simulator calls SaveState() the first time an event
+ * touches the object, and RestoreState() if the event is rolled back, so only
+ * the objects actually modified by an event are saved. Simulator::SaveState
+ * returns the state saved for the running event, which lets an object keeping
+ * an undo log append to it, and null when no event can be rolled back.
+ * 
+ * @author zhangrui
+ * @since 1.0
+ */
+public interface Rollbackable {
+    /**
+     * @return a copy of the state of the object, not affected by later changes,
+     *         or an undo log that the object fills as the event changes it
+     */
+    Object SaveState();
+
+    /**
+     * Put the object back in a state returned by SaveState(). The state is not
+     * used afterwards.
+     * 
+     * @param state the saved state
+     */
+    void RestoreState(Object state);
+}
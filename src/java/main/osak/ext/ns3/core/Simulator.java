@@ -0,0 +1,469 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.core;
+
+import java.util.concurrent.TimeUnit;
+
+import osak.ext.ns3.callback.Callback1;
+import osak.ext.ns3.callback.Callback2;
+import osak.ext.ns3.callback.Callback3;
+
+/**
+ * Control the scheduling of simulation events.
+ * <p>
+ * The internal simulation clock is maintained as a 64-bit integer in
+ * nanoseconds. It is virtual: it only advances when the next event of the
+ * event list is executed, so a run is as fast as the CPU allows and a given
+ * scenario always produces the same sequence of events.
+ * <p>
+ * The simulation engine itself is a {@link SimulatorImpl}; this class is a
+ * static facade over the active implementation, which defaults to a
+ * {@link DefaultSimulatorImpl}.
+ * 
+ * @author zhangrui
+ * @since 1.0
+ */
+public final class Simulator {
+    /** Context value for events that are not associated with a node. */
+    public static final int NO_CONTEXT = 0xffffffff;
+
+    private static SimulatorImpl s_impl = null; // !< the active simulator implementation
+
+    private Simulator() {
+    }
+
+    /**
+     * @return the active simulator implementation, creating the default one if
+     *         none was set.
+     */
+    static SimulatorImpl GetImpl() {
+	if (s_impl == null) {
+	    s_impl = new DefaultSimulatorImpl();
+	}
+	return s_impl;
+    }
+
+    /**
+     * Set the simulator implementation to use.
+     * <p>
+     * Must be called before any event is scheduled: the events held by a previous
+     * implementation are discarded.
+     * 
+     * @param impl the new simulator implementation
+     */
+    public static void SetImplementation(SimulatorImpl impl) {
+	s_impl = impl;
+    }
+
+    /**
+     * Set the scheduler type.
+     * <p>
+     * The pending events are moved to the new event queue, so this may be called
+     * at any time, though it is usually done once at startup. The default event
+     * queue can also be chosen without code changes with the
+     * {@value EventQueue#SCHEDULER_TYPE_PROPERTY} system property.
+     * 
+     * @param queue the new, empty event queue
+     */
+    public static void SetScheduler(EventQueue queue) {
+	GetImpl().SetScheduler(queue);
+    }
+
+    /**
+     * Declare that the current event is about to modify an object.
+     * <p>
+     * This does nothing unless the simulator runs events speculatively, in which
+     * case the state of the object is saved so that the event can be rolled back.
+     * 
+     * @param obj the object about to be modified
+     * @return the state of obj saved for the current event, the same for every
+     *         call during the event, or null if nothing is saved
+     */
+    public static Object SaveState(Rollbackable obj) {
+	SimulatorImpl impl = s_impl;
+	return impl == null ? null : impl.SaveState(obj);
+    }
+
+    /**
+     * Execute the events scheduled with ScheduleDestroy().
+     * <p>
+     * This method is typically invoked at the end of a simulation to avoid false
+     * positive reports by a leak checker. After this method has been invoked, it
+     * is actually possible to restart a new simulation with a set of calls to
+     * Simulator::Run, Simulator::Schedule and Simulator::ScheduleWithContext.
+     */
+    public static void Destroy() {
+	if (s_impl == null) {
+	    return;
+	}
+	s_impl.Destroy();
+	s_impl = null;
+    }
+
+    /**
+     * Check if the simulation should finish.
+     * <p>
+     * Reasons to finish are because there are no more events lefts to be
+     * scheduled, or if simulation time has already reached the "stop time" that
+     * is defined by Simulator::Stop(Time).
+     *
+     * @return true if no more events or stop time reached.
+     */
+    public static boolean IsFinished() {
+	return GetImpl().IsFinished();
+    }
+
+    /**
+     * Run the simulation.
+     * <p>
+     * The simulation will run until one of:
+     * <ul>
+     * <li>No events are present anymore</li>
+     * <li>The user called Simulator::Stop</li>
+     * <li>The user called Simulator::Stop with a stop time and the expiration
+     * time of the next event to be processed is greater than or equal to the stop
+     * time.</li>
+     * </ul>
+     */
+    public static void Run() {
+	GetImpl().Run();
+    }
+
+    /**
+     * Tell the Simulator the calling event should be the last one executed.
+     * <p>
+     * If a running event invokes this method, it will be the last event executed
+     * by the Simulator::Run method before returning to the caller.
+     */
+    public static void Stop() {
+	GetImpl().Stop();
+    }
+
+    /**
+     * Schedule the time delay until the Simulator should stop.
+     * <p>
+     * Force the Simulator::Run method to return to the caller when the expiration
+     * time of the next event to be processed is greater than or equal to the stop
+     * time. The stop time is relative to the current simulation time.
+     * 
+     * @param delay The stop time, relative to the current time.
+     * @return The stop EventId.
+     */
+    public static EventId Stop(final Time delay) {
+	return GetImpl().Stop(delay.getNanoSeconds());
+    }
+
+    /**
+     * Schedule an event to expire after delay. This can be thought of as
+     * scheduling an event for the current simulation time plus the delay passed
+     * as a parameter.
+     * <p>
+     * When the event expires (when it becomes due to be run), the input method
+     * will be invoked. The event inherits the context of the caller.
+     *
+     * @param delay the relative expiration time of the event.
+     * @param func  the function to invoke
+     * @returns an id for the scheduled event.
+     */
+    public static EventId Schedule(final Time delay, Runnable func) {
+	return DoSchedule(delay, EventImpl.MakeEvent(func));
+    }
+
+    /**
+     * Schedule a future event execution (in the same context).
+     *
+     * @param delay delay until the event expires
+     * @param event the event to schedule
+     * @returns a unique identifier for the newly-scheduled event.
+     */
+    public static EventId Schedule(final Time delay, EventImpl event) {
+	return DoSchedule(delay, event);
+    }
+
+    /**
+     * Schedule an event to expire after a delay in nanoseconds, without building
+     * a Time.
+     *
+     * @param delay the relative expiration time of the event, in nanoseconds.
+     * @param func  the function to invoke
+     * @returns an id for the scheduled event.
+     */
+    public static EventId Schedule(long delay, Runnable func) {
+	return GetImpl().Schedule(delay, EventImpl.MakeEvent(func));
+    }
+
+    /**
+     * Schedule a function bound to one argument, without capturing it in a lambda:
+     * with the function kept in a field, nothing but the EventId is allocated.
+     *
+     * @param delay the relative expiration time of the event, in nanoseconds.
+     * @param func  the function to invoke
+     * @param a1    the argument of the function
+     * @returns an id for the scheduled event.
+     */
+    public static <T1> EventId Schedule(long delay, Callback1<T1> func, T1 a1) {
+	return GetImpl().Schedule(delay, EventImpl.MakeEvent(func, a1));
+    }
+
+    /**
+     * Schedule a function bound to two arguments.
+     *
+     * @param delay the relative expiration time of the event, in nanoseconds.
+     * @param func  the function to invoke
+     * @param a1    the first argument of the function
+     * @param a2    the second argument of the function
+     * @returns an id for the scheduled event.
+     */
+    public static <T1, T2> EventId Schedule(long delay, Callback2<T1, T2> func, T1 a1, T2 a2) {
+	return GetImpl().Schedule(delay, EventImpl.MakeEvent(func, a1, a2));
+    }
+
+    /**
+     * Schedule a function bound to three arguments.
+     *
+     * @param delay the relative expiration time of the event, in nanoseconds.
+     * @param func  the function to invoke
+     * @param a1    the first argument of the function
+     * @param a2    the second argument of the function
+     * @param a3    the third argument of the function
+     * @returns an id for the scheduled event.
+     */
+    public static <T1, T2, T3> EventId Schedule(long delay, Callback3<T1, T2, T3> func, T1 a1, T2 a2, T3 a3) {
+	return GetImpl().Schedule(delay, EventImpl.MakeEvent(func, a1, a2, a3));
+    }
+
+    /**
+     * Schedule an event with the given context. A context of 0xffffffff means no
+     * context is specified.
+     *
+     * @param context user-specified context parameter
+     * @param delay   the relative expiration time of the event.
+     * @param func    the function to invoke
+     */
+    public static void ScheduleWithContext(int context, final Time delay, Runnable func) {
+	GetImpl().ScheduleWithContext(context, delay.getNanoSeconds(), EventImpl.MakeEvent(func));
+    }
+
+    /**
+     * Schedule a function bound to one argument with the given context.
+     *
+     * @param context user-specified context parameter
+     * @param delay   the relative expiration time of the event, in nanoseconds.
+     * @param func    the function to invoke
+     * @param a1      the argument of the function
+     */
+    public static <T1> void ScheduleWithContext(int context, long delay, Callback1<T1> func, T1 a1) {
+	GetImpl().ScheduleWithContext(context, delay, EventImpl.MakeEvent(func, a1));
+    }
+
+    /**
+     * Schedule a function bound to two arguments with the given context.
+     *
+     * @param context user-specified context parameter
+     * @param delay   the relative expiration time of the event, in nanoseconds.
+     * @param func    the function to invoke
+     * @param a1      the first argument of the function
+     * @param a2      the second argument of the function
+     */
+    public static <T1, T2> void ScheduleWithContext(int context, long delay, Callback2<T1, T2> func, T1 a1, T2 a2) {
+	GetImpl().ScheduleWithContext(context, delay, EventImpl.MakeEvent(func, a1, a2));
+    }
+
+    /**
+     * Schedule a function bound to three arguments with the given context.
+     *
+     * @param context user-specified context parameter
+     * @param delay   the relative expiration time of the event, in nanoseconds.
+     * @param func    the function to invoke
+     * @param a1      the first argument of the function
+     * @param a2      the second argument of the function
+     * @param a3      the third argument of the function
+     */
+    public static <T1, T2, T3> void ScheduleWithContext(int context, long delay, Callback3<T1, T2, T3> func, T1 a1, T2 a2, T3 a3) {
+	GetImpl().ScheduleWithContext(context, delay, EventImpl.MakeEvent(func, a1, a2, a3));
+    }
+
+    /**
+     * Schedule an event to expire Now. All events scheduled to to expire "Now"
+     * are scheduled FIFO, after all normal events have expired.
+     *
+     * @param func the function to invoke
+     * @return The EventId of the scheduled event.
+     */
+    public static EventId ScheduleNow(Runnable func) {
+	return GetImpl().ScheduleNow(EventImpl.MakeEvent(func));
+    }
+
+    /**
+     * Schedule an event to run at the end of the simulation, when
+     * Simulator::Destroy() is called.
+     *
+     * @param func the function to invoke
+     * @return The EventId of the scheduled event.
+     */
+    public static EventId ScheduleDestroy(Runnable func) {
+	return GetImpl().ScheduleDestroy(EventImpl.MakeEvent(func));
+    }
+
+    /**
+     * Remove an event from the event list.
+     * <p>
+     * This method has the same visible effect as the osak.ext.ns3::EventId::Cancel
+     * method but its algorithmic complexity is much higher: it has often O(log(n))
+     * complexity, sometimes O(n), sometimes worse. Note that it is not possible to
+     * remove events which were scheduled for the "destroy" time. Doing so will
+     * result in a program error (crash).
+     *
+     * @param id the event to remove from the list of scheduled events.
+     */
+    public static void Remove(final EventId id) {
+	if (s_impl == null) {
+	    return;
+	}
+	s_impl.Remove(id);
+    }
+
+    /**
+     * Set the cancel bit on this event: the event's associated function will not
+     * be invoked when it expires.
+     * <p>
+     * This method has the same visible effect as the osak.ext.ns3::Simulator::Remove
+     * method but its algorithmic complexity is much lower: it has O(1) complexity.
+     * This method has the exact same semantics as osak.ext.ns3::EventId::Cancel.
+     * Note that it is not possible to cancel events which were scheduled for the
+     * "destroy" time. Doing so will result in a program error (crash).
+     *
+     * @param id the event to cancel
+     */
+    public static void Cancel(final EventId id) {
+	if (s_impl == null) {
+	    return;
+	}
+	s_impl.Cancel(id);
+    }
+
+    /**
+     * Check if an event has already run or been cancelled.
+     * <p>
+     * This method has O(1) complexity. Note that it is not possible to test for
+     * the expiration of events which were scheduled for the "destroy" time. Doing
+     * so will result in a program error (crash). An event is said to "expire" when
+     * it starts being scheduled which means that if the code executed by the
+     * event calls this function, it will get true.
+     *
+     * @param id the event to test for expiration
+     * @returns true if the event has expired, false otherwise.
+     */
+    public static boolean IsExpired(final EventId id) {
+	if (s_impl == null) {
+	    // Simulator::IsExpired called before ::Run() or after ::Destroy().
+	    return id.PeekEventImpl() == null || id.PeekEventImpl().IsCancelled();
+	}
+	return s_impl.IsExpired(id);
+    }
+
+    /**
+     * Return the current simulation virtual time.
+     *
+     * @returns The current virtual time.
+     */
+    public static Time Now() {
+	return Time.FromNs(GetImpl().Now());
+    }
+
+    /**
+     * Return the current simulation virtual time without allocating.
+     *
+     * @returns The current virtual time, in nanoseconds.
+     */
+    public static long NowNs() {
+	return GetImpl().Now();
+    }
+
+    /**
+     * Get the remaining time until this event will execute.
+     *
+     * @param id The event id to analyse.
+     * @return The delay left until the input event id expires. if the event is
+     *         not running, this method returns zero.
+     */
+    public static Time GetDelayLeft(final EventId id) {
+	return Time.FromNs(GetImpl().GetDelayLeft(id));
+    }
+
+    /**
+     * @param id The event id to analyse.
+     * @return The delay left until the input event id expires, in nanoseconds.
+     */
+    public static long GetDelayLeftNs(final EventId id) {
+	return GetImpl().GetDelayLeft(id);
+    }
+
+    /**
+     * Get the time stamp resolution.
+     * <p>
+     * Events are scheduled at a multiple of the resolution, the delays being
+     * rounded up. It is 1 ns except with a coarser event queue such as the
+     * TimingWheelEventQueue.
+     *
+     * @return the resolution
+     */
+    public static Time GetResolution() {
+	return new Time(GetImpl().GetResolution(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Get the maximum representable simulation time.
+     *
+     * @return The maximum simulation time at which an event can be scheduled.
+     */
+    public static Time GetMaximumSimulationTime() {
+	return new Time(GetImpl().GetMaximumSimulationTime(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Get the current simulation context.
+     * <p>
+     * The simulation context is the ns-3 notion of a Node ID, so this returns the
+     * Node ID of the event currently being executed, or NO_CONTEXT if the event
+     * is not associated with a node.
+     *
+     * @return The current simulation context
+     */
+    public static int GetContext() {
+	return GetImpl().GetContext();
+    }
+
+    /**
+     * Get the number of events executed.
+     * 
+     * @returns The total number of events executed.
+     */
+    public static long GetEventCount() {
+	return GetImpl().GetEventCount();
+    }
+
+    /**
+     * Implementation of the various Schedule methods.
+     * 
+     * @param delay Delay until the event expires.
+     * @param event The event to schedule.
+     * @return The EventId.
+     */
+    private static EventId DoSchedule(final Time delay, EventImpl event) {
+	return GetImpl().Schedule(delay.getNanoSeconds(), event);
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.core;
+
+/**
+ * The SimulatorImpl base class.
+ * <p>
+ * This is the interface implemented by every simulation engine. The static
+ * {@link Simulator} facade forwards each call to the active implementation.
+ * All times are expressed as nanoseconds of virtual time.
+ * 
+ * @author zhangrui
+ * @since 1.0
+ */
+public interface SimulatorImpl {
+    /** Execute the events scheduled with ScheduleDestroy(). */
+    void Destroy();
+
+    /** @copydoc Simulator::IsFinished */
+    boolean IsFinished();
+
+    /** @copydoc Simulator::Stop() */
+    void Stop();
+
+    /**
+     * Schedule the time delay until the Simulator should stop.
+     * 
+     * @param delay the delay, in nanoseconds
+     * @return the stop event
+     */
+    EventId Stop(long delay);
+
+    /**
+     * Schedule a future event execution (in the same context).
+     * 
+     * @param delay delay until the event expires, in nanoseconds
+     * @param event the event
+     * @return the id of the scheduled event
+     */
+    EventId Schedule(long delay, EventImpl event);
+
+    /**
+     * Schedule a future event execution (in a different context).
+     * 
+     * @param context the event context
+     * @param delay   delay until the event expires, in nanoseconds
+     * @param event   the event
+     */
+    void ScheduleWithContext(int context, long delay, EventImpl event);
+
+    /** @copydoc Simulator::ScheduleNow(Runnable) */
+    EventId ScheduleNow(EventImpl event);
+
+    /** @copydoc Simulator::ScheduleDestroy(Runnable) */
+    EventId ScheduleDestroy(EventImpl event);
+
+    /** @copydoc Simulator::Remove */
+    void Remove(final EventId id);
+
+    /** @copydoc Simulator::Cancel */
+    void Cancel(final EventId id);
+
+    /** @copydoc Simulator::IsExpired */
+    boolean IsExpired(final EventId id);
+
+    /** Run the simulation until one of the stop conditions is met. */
+    void Run();
+
+    /** @return the current simulation time, in nanoseconds */
+    long Now();
+
+    /**
+     * @param id the event id to analyse
+     * @return the delay left until the input event id expires, in nanoseconds
+     */
+    long GetDelayLeft(final EventId id);
+
+    /** @return the maximum simulation time, in nanoseconds */
+    long GetMaximumSimulationTime();
+
+    /** @copydoc Simulator::GetContext */
+    int GetContext();
+
+    /** @copydoc Simulator::GetEventCount */
+    long GetEventCount();
+
+    /**
+     * Set the EventQueue to be used to hold events, moving the pending events to
+     * it.
+     * 
+     * @param queue the new, empty event queue
+     */
+    void SetScheduler(EventQueue queue);
+
+    /** @return the time stamp resolution of the event queue, in nanoseconds */
+    long GetResolution();
+
+    /**
+     * Save the state of an object about to be modified by the current event. Only
+     * optimistic implementations need it.
+     * 
+     * @param obj the object
+     * @return the state of obj saved for the current event, or null if nothing is
+     *         saved
+     */
+    default Object SaveState(Rollbackable obj) {
+	return null;
+    }
+}
@@ -18,120 +18,194 @@ package osak.ext.ns3.core;
 import java.util.concurrent.TimeUnit;
 
 /**
- * TODO Time
+ * Simulation virtual time values.
+ * <p>
+ * A Time is an immutable count of nanoseconds, the unit of the simulator clock.
+ * Values built from other units are converted once, in the constructor, and the
+ * arithmetic saturates at Max() instead of wrapping around, so that adding a
+ * delay to an "infinite" lifetime stays infinite.
+ * <p>
+ * Hot paths can avoid the Time objects altogether: the static methods taking
+ * and returning long work on raw nanosecond counts, as returned by
+ * getNanoSeconds() and Simulator::NowNs().
  * 
  * @author zhangrui
  * @since   1.0
  */
-public final class Time {
-    private long value;
-    private TimeUnit unit;
+public final class Time implements Comparable<Time> {
+    private static final Time ZERO = new Time(0, TimeUnit.NANOSECONDS);
+    private static final Time MAX = new Time(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
 
-    public Time() {
+    private final long m_ns;
 
+    public Time() {
+	m_ns = 0;
     }
 
     public Time(long val, TimeUnit unit) {
-	this.value = val;
-	this.unit = unit;
+	m_ns = unit.toNanos(val);
     }
 
     public Time(long val) {
-	this.value = val;
-	this.unit = TimeUnit.MILLISECONDS;
+	this(val, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param ns the value in nanoseconds
+     * @return a Time, shared for the common values
+     */
+    public static Time FromNs(long ns) {
+	if (ns == 0) {
+	    return ZERO;
+	}
+	if (ns == Long.MAX_VALUE) {
+	    return MAX;
+	}
+	return new Time(ns, TimeUnit.NANOSECONDS);
     }
 
+    /**
+     * @return the value in the unit returned by getUnit()
+     */
     public long getLong() {
-	return this.value;
+	return m_ns;
     }
 
+    /**
+     * @return the unit of getLong(), always nanoseconds
+     */
     public TimeUnit getUnit() {
-	return this.unit;
+	return TimeUnit.NANOSECONDS;
     }
 
     public long getMillSeconds() {
-	return TimeUnit.MILLISECONDS.convert(value, unit);
+	return m_ns / 1_000_000;
+    }
+
+    public long getNanoSeconds() {
+	return m_ns;
+    }
+
+    public boolean IsNegative() {
+	return m_ns < 0;
+    }
+
+    public boolean IsZero() {
+	return m_ns == 0;
     }
 
     @Override
     public String toString() {
-	return value + " " + unit;
+	return m_ns + " " + TimeUnit.NANOSECONDS;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+	return (obj instanceof Time) && ((Time) obj).m_ns == m_ns;
+    }
+
+    @Override
+    public int hashCode() {
+	return Long.hashCode(m_ns);
+    }
+
+    @Override
+    public int compareTo(Time o) {
+	return Long.compare(m_ns, o.m_ns);
     }
 
     // @return the biggest value of Time
     public static Time Max() {
-	return new Time(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+	return MAX;
     }
 
+    // @return the current virtual time of the Simulator
     public static Time Now() {
-	return new Time(System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+	return Simulator.Now();
     }
 
-    // equals to '+='
+    // @return this+t, this is unchanged
     public Time add(Time t) {
-	if (this.unit == t.unit) {
-	    this.value += t.value;
-	    return this;
-	}
-	this.value += this.unit.convert(t.value, t.unit);
-	return this;
+	return FromNs(Add(m_ns, t.m_ns));
     }
 
-    // equals to '-='
+    // @return this-t, this is unchanged
     public Time sub(Time t) {
-	if (this.unit == t.unit) {
-	    this.value -= t.value;
-	    return this;
-	}
-	this.value -= this.unit.convert(t.value, t.unit);
-	return this;
+	return FromNs(Sub(m_ns, t.m_ns));
     }
 
     // return t1+t2
     public static Time add(Time t1, Time t2) {
-	if (t1.unit == t2.unit) {
-	    return new Time(t1.value += t2.value, t1.unit);
-	}
-	long val1 = TimeUnit.MILLISECONDS.convert(t1.value, t1.unit);
-	long val2 = TimeUnit.MILLISECONDS.convert(t2.value, t2.unit);
-	return new Time(val1 + val2);
+	return FromNs(Add(t1.m_ns, t2.m_ns));
     }
 
     // return t1-t2
     public static Time sub(Time t1, Time t2) {
-	if (t1.unit == t2.unit) {
-	    return new Time(t1.value -= t2.value, t1.unit);
-	}
-	long val1 = TimeUnit.MILLISECONDS.convert(t1.value, t1.unit);
-	long val2 = TimeUnit.MILLISECONDS.convert(t2.value, t2.unit);
-	return new Time(val1 - val2);
+	return FromNs(Sub(t1.m_ns, t2.m_ns));
     }
 
     public static Time multiply(int a, Time b) {
-	return new Time(b.value * a, b.unit);
+	return FromNs(Mul(a, b.m_ns));
     }
 
     /*
      * @return the bigger one between t1 and t2
      */
     public static Time MAX(Time t1, Time t2) {
-	if (t1.unit == t2.unit) {
-	    return (t1.value > t2.value) ? t1 : t2;
-	}
-	long val1 = TimeUnit.MILLISECONDS.convert(t1.value, t1.unit);
-	long val2 = TimeUnit.MILLISECONDS.convert(t2.value, t2.unit);
-	return (val1 > val2) ? t1 : t2;
+	return (t1.m_ns > t2.m_ns) ? t1 : t2;
     }
 
     /*
      * @return the smaller one between t1 and t2
      */
     public static Time MIN(Time t1, Time t2) {
-	if (t1.unit == t2.unit) {
-	    return (t1.value < t2.value) ? t1 : t2;
+	return (t1.m_ns < t2.m_ns) ? t1 : t2;
+    }
+
+    /*
+     * Arithmetic on raw nanosecond counts. They saturate at Long.MAX_VALUE and
+     * Long.MIN_VALUE like the Time methods above, and allocate nothing.
+     */
+
+    /**
+     * @return the value converted to nanoseconds
+     */
+    public static long ToNs(long value, TimeUnit unit) {
+	return unit.toNanos(value);
+    }
+
+    /**
+     * @return a+b
+     */
+    public static long Add(long a, long b) {
+	long r = a + b;
+	// overflow iff both arguments have the opposite sign of the result.
+	if (((a ^ r) & (b ^ r)) < 0) {
+	    return a < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+	}
+	return r;
+    }
+
+    /**
+     * @return a-b
+     */
+    public static long Sub(long a, long b) {
+	long r = a - b;
+	if (((a ^ b) & (a ^ r)) < 0) {
+	    return a < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+	}
+	return r;
+    }
+
+    /**
+     * @return a*b
+     */
+    public static long Mul(long a, long b) {
+	long hi = Math.multiplyHigh(a, b);
+	long lo = a * b;
+	if ((hi == 0 && lo >= 0) || (hi == -1 && lo < 0)) {
+	    return lo;
 	}
-	long val1 = TimeUnit.MILLISECONDS.convert(t1.value, t1.unit);
-	long val2 = TimeUnit.MILLISECONDS.convert(t2.value, t2.unit);
-	return (val1 < val2) ? t1 : t2;
+	return ((a ^ b) < 0) ? Long.MIN_VALUE : Long.MAX_VALUE;
     }
 }
@@ -15,79 +15,141 @@
  */
 package osak.ext.ns3.core;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import osak.ext.ns3.callback.Callback1;
+import osak.ext.ns3.callback.Callback2;
+import osak.ext.ns3.callback.Callback3;
 
 /**
- * TODO Timer
+ * A simple virtual Timer class
+ * <p>
+ * A timer is used to hold together a delay, a function to invoke when the delay
+ * expires, and a set of arguments to pass to the function when the delay
+ * expires. Expirations are scheduled on the {@link Simulator}, so the delay is
+ * measured in virtual time.
+ * <p>
+ * A timer is Rollbackable, so that an optimistic simulator can undo the
+ * scheduling done by a rolled back event.
  * 
  * @author zhangrui
  * @since   1.0
  */
-public final class Timer {
-    private static final ScheduledThreadPoolExecutor executor = TimerPool.getInstance();
+public final class Timer implements Rollbackable {
     private Runnable task = null;
-    private Time delay = new Time(0, TimeUnit.SECONDS);
-    private ScheduledFuture<?> res = null;
+    private long delay = 0; // !< in nanoseconds
+    private EventId m_event = new EventId();
 
     public Timer() {
     }
 
     public void SetFunction(Runnable func) {
+	Simulator.SaveState(this);
 	task = func;
     }
 
     public void SetDelay(Time delay) {
+	SetDelay(delay.getNanoSeconds());
+    }
+
+    /**
+     * @param delay the delay, in nanoseconds
+     */
+    public void SetDelay(long delay) {
+	Simulator.SaveState(this);
 	this.delay = delay;
     }
 
+    /**
+     * Cancel the currently-running event if there is one. Do nothing otherwise.
+     * <p>
+     * Protocol timers are mostly cancelled before they expire, so the event is
+     * taken out of the event list rather than left there until its expiry: every
+     * EventQueue removes in O(1) or O(log n).
+     */
     public void Cancel() {
-	if (res.isCancelled()) {
-	    return;
-	} else {
-	    res.cancel(true);
-	}
+	Simulator.Remove(m_event);
+    }
+
+    /**
+     * Remove from the simulation event-list the currently-running event if there
+     * is one. Do nothing otherwise.
+     */
+    public void Remove() {
+	Simulator.Remove(m_event);
     }
 
+    /**
+     * Schedule a new event using the currently-configured delay, function, and
+     * arguments.
+     */
     public void Schedule() {
-	res = executor.schedule(task, delay.getLong(), delay.getUnit());
+	Simulator.SaveState(this);
+	m_event = Simulator.Schedule(delay, task);
     }
 
+    /**
+     * @returns true if there is no currently-running event, false otherwise.
+     */
     public boolean IsExpired() {
-	return GetDelayLeft().getLong() < 0;
+	return m_event.IsExpired();
     }
 
     public void Schedule(Time delay) {
+	Schedule(delay.getNanoSeconds());
+    }
+
+    /**
+     * @param delay the delay, in nanoseconds
+     */
+    public void Schedule(long delay) {
+	Simulator.SaveState(this);
 	this.delay = delay;
 	Schedule();
     }
 
     public void Schedule(Time delay, Runnable func) {
+	Simulator.SaveState(this);
+	this.task = func;
+	Schedule(delay);
+    }
+
+    public void Schedule(long delay, Runnable func) {
+	Simulator.SaveState(this);
 	this.task = func;
 	Schedule(delay);
     }
 
     public static void Schedules(Time delay, Runnable func) {
-	executor.schedule(func, delay.getLong(), delay.getUnit());
+	Simulator.Schedule(delay, func);
+    }
+
+    public static void Schedules(long delay, Runnable func) {
+	Simulator.Schedule(delay, func);
+    }
+
+    public static <T1> void Schedules(long delay, Callback1<T1> func, T1 a1) {
+	Simulator.Schedule(delay, func, a1);
+    }
+
+    public static <T1, T2> void Schedules(long delay, Callback2<T1, T2> func, T1 a1, T2 a2) {
+	Simulator.Schedule(delay, func, a1, a2);
+    }
+
+    public static <T1, T2, T3> void Schedules(long delay, Callback3<T1, T2, T3> func, T1 a1, T2 a2, T3 a3) {
+	Simulator.Schedule(delay, func, a1, a2, a3);
     }
 
     /**
      * @returns The currently-configured delay for the next Schedule.
      */
     public Time GetDelay() {
-	return this.delay;
+	return Time.FromNs(this.delay);
     }
 
+    /**
+     * @returns true if there is a currently-running event, false otherwise.
+     */
     public boolean IsRunning() {
-	if (res.isCancelled()) {
-	    return false;
-	}
-	if (GetDelayLeft().getLong() <= 0L && !res.isDone()) {
-	    return true;
-	}
-	return false;
+	return !m_event.IsExpired();
     }
 
     /**
@@ -96,12 +158,30 @@ public final class Timer {
      *          This method returns zero if the timer is in EXPIRED state.
      */
     public Time GetDelayLeft() {
-	return new Time(res.getDelay(TimeUnit.MILLISECONDS), TimeUnit.MILLISECONDS);
+	return Simulator.GetDelayLeft(m_event);
     }
 
-    public BlockingQueue<Runnable> getQueue() {
-	return executor.getQueue();
+    /**
+     * @returns The amount of time left until this timer expires, in nanoseconds.
+     */
+    public long GetDelayLeftNs() {
+	return Simulator.GetDelayLeftNs(m_event);
     }
 
+    @Override
+    public Object SaveState() {
+	Timer state = new Timer();
+	state.task = task;
+	state.delay = delay;
+	state.m_event = m_event;
+	return state;
+    }
 
+    @Override
+    public void RestoreState(Object state) {
+	Timer t = (Timer) state;
+	task = t.task;
+	delay = t.delay;
+	m_event = t.m_event;
+    }
 }
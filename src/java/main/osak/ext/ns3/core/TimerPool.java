@@ -15,31 +15,138 @@
  */
 package osak.ext.ns3.core;
 
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * TimerPool: use to construct a global ScheduledThreadPoolExecutor
+ * TimerPool: a sharded wall clock timer service.
+ * <p>
+ * Simulation timers run on the Simulator; this pool is for the tasks that must
+ * fire in real time. Instead of one executor whose delay queue every timer
+ * contends on, the pool has one single threaded shard per core, each with its
+ * own delay queue. Timers are assigned to a shard by key, normally the node id,
+ * so the timers of a node fire in deadline order on one thread and nodes on
+ * different shards never contend. The number of shards is read from the
+ * {@value #SHARDS_PROPERTY} system property, the number of cores by default.
  * 
  * @author zhangrui
  * @since 1.0
  */
 public final class TimerPool {
-    private ScheduledThreadPoolExecutor timerPoolExecutor = null;
+    /** The system property holding the number of shards. */
+    public static final String SHARDS_PROPERTY = "osak.ext.ns3.TimerShards";
 
-    private TimerPool() {
-	timerPoolExecutor = new ScheduledThreadPoolExecutor(4);
-	timerPoolExecutor.setRemoveOnCancelPolicy(true);
+    /**
+     * One shard: a single thread firing its timers in deadline order.
+     */
+    public static final class Shard {
+	private final ScheduledThreadPoolExecutor m_executor; // !< the thread and its delay queue
+	private final AtomicLong m_dispatched = new AtomicLong(); // !< number of timers fired
+	private final AtomicLong m_totalLatency = new AtomicLong(); // !< sum of the dispatch latencies, in ns
+	private final AtomicLong m_maxLatency = new AtomicLong(); // !< largest dispatch latency, in ns
+
+	private Shard(int index) {
+	    m_executor = new ScheduledThreadPoolExecutor(1, r -> {
+		Thread t = new Thread(r, "TimerPool-" + index);
+		t.setDaemon(true);
+		return t;
+	    });
+	    m_executor.setRemoveOnCancelPolicy(true);
+	}
+
+	/**
+	 * Fire a task after a wall clock delay.
+	 * 
+	 * @param delay the delay, in nanoseconds
+	 * @param task  the task
+	 * @return the handle to cancel the task
+	 */
+	public ScheduledFuture<?> Schedule(long delay, Runnable task) {
+	    long deadline = System.nanoTime() + delay;
+	    return m_executor.schedule(() -> {
+		long latency = Math.max(0, System.nanoTime() - deadline);
+		m_dispatched.incrementAndGet();
+		m_totalLatency.addAndGet(latency);
+		m_maxLatency.accumulateAndGet(latency, Math::max);
+		task.run();
+	    }, delay, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @return the executor of the shard
+	 */
+	public ScheduledThreadPoolExecutor GetExecutor() {
+	    return m_executor;
+	}
+
+	/**
+	 * @return the number of timers waiting to fire
+	 */
+	public int GetQueueDepth() {
+	    return m_executor.getQueue().size();
+	}
+
+	/**
+	 * @return the number of timers fired
+	 */
+	public long GetDispatchCount() {
+	    return m_dispatched.get();
+	}
+
+	/**
+	 * @return the mean delay between the deadline of a timer and its firing, in
+	 *         nanoseconds
+	 */
+	public long GetMeanDispatchLatency() {
+	    long n = m_dispatched.get();
+	    return n == 0 ? 0 : m_totalLatency.get() / n;
+	}
+
+	/**
+	 * @return the largest delay between the deadline of a timer and its firing,
+	 *         in nanoseconds
+	 */
+	public long GetMaxDispatchLatency() {
+	    return m_maxLatency.get();
+	}
     }
 
-    public ScheduledThreadPoolExecutor getExecutor() {
-	return timerPoolExecutor;
+    private final Shard[] m_shards;
+
+    private TimerPool(int shards) {
+	m_shards = new Shard[shards];
+	for (int i = 0; i < shards; i++) {
+	    m_shards[i] = new Shard(i);
+	}
     }
 
     public static class TimerPoolInstance {
-	private static final TimerPool timerPool = new TimerPool();
+	private static final TimerPool timerPool = new TimerPool(
+		Math.max(1, Integer.getInteger(SHARDS_PROPERTY, Runtime.getRuntime().availableProcessors())));
+    }
+
+    /**
+     * @param key the key of the timer, normally the id of its node
+     * @return the shard firing the timers of that key
+     */
+    public static Shard GetShard(int key) {
+	Shard[] shards = TimerPoolInstance.timerPool.m_shards;
+	return shards[Math.floorMod(key, shards.length)];
+    }
+
+    /**
+     * @return the number of shards
+     */
+    public static int GetShardCount() {
+	return TimerPoolInstance.timerPool.m_shards.length;
     }
 
+    /**
+     * @return the executor of the first shard
+     */
     public static ScheduledThreadPoolExecutor getInstance() {
-	return TimerPoolInstance.timerPool.getExecutor();
+	return GetShard(0).GetExecutor();
     }
 }
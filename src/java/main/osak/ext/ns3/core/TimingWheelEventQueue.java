@@ -0,0 +1,193 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.core;
+
+/**
+ * A hashed hierarchical timing wheel event scheduler.
+ * <p>
+ * This is the scheme 6 of G. Varghese and A. Lauck, "Hashed and Hierarchical
+ * Timing Wheels", SOSP 1987, laid out like the Linux kernel timer wheel. Time is
+ * cut in ticks of {@link #GetResolution()} nanoseconds and a tick count is read
+ * as {@value #LEVELS} digits of {@value #BITS} bits. Level l has one slot per
+ * value of digit l, and an event sits at the highest digit where its tick
+ * differs from the current tick. When the lower levels run dry, the next
+ * occupied slot of the level above is cascaded down, so each event moves at most
+ * {@value #LEVELS} times whatever the distance to its expiry.
+ * <p>
+ * Insert() and Remove() are O(1): slots are unsorted EventList, and the slot of
+ * an event is kept in EventId::m_index. Finding the next occupied slot uses a
+ * bitmap per level, so idle stretches of virtual time cost nothing. The memory
+ * used is a fixed {@value #LEVELS} x {@value #SLOTS} slots plus the pending
+ * events themselves. Events due in the current tick are kept sorted in a
+ * separate list, so the execution order is the same as with the other queues.
+ * <p>
+ * The simulator rounds time stamps up to the resolution when this queue is in
+ * use, which is usually what protocol timers want: a coarser resolution means
+ * fewer distinct ticks and cheaper cascades.
+ * 
+ * @author zhangrui
+ * @since 1.0
+ */
+public final class TimingWheelEventQueue implements EventQueue {
+    /** System property with the default resolution, in nanoseconds. */
+    public static final String RESOLUTION_PROPERTY = "osak.ext.ns3.TimingWheelResolution";
+
+    private static final int BITS = 8;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 8;
+
+    private final long m_resolution; // !< duration of a tick, in ns
+    private final EventList[] m_slots = new EventList[LEVELS * SLOTS]; // !< the wheels, level by level
+    private final long[] m_occupied = new long[LEVELS * SLOTS / 64]; // !< one bit per non empty slot
+    private final EventList m_current = new EventList(); // !< sorted events due at or before m_now
+    private long m_now = 0; // !< the current tick
+    private int m_size = 0; // !< number of events in the queue
+
+    /**
+     * Create a timing wheel with the resolution given by the
+     * {@value #RESOLUTION_PROPERTY} system property, 1 microsecond by default.
+     */
+    public TimingWheelEventQueue() {
+	this(Long.getLong(RESOLUTION_PROPERTY, 1000));
+    }
+
+    /**
+     * @param resolution the duration of a tick, in nanoseconds
+     */
+    public TimingWheelEventQueue(long resolution) {
+	if (resolution <= 0) {
+	    throw new IllegalArgumentException("TimingWheelEventQueue: resolution must be positive, got " + resolution);
+	}
+	m_resolution = resolution;
+	for (int i = 0; i < m_slots.length; i++) {
+	    m_slots[i] = new EventList();
+	}
+    }
+
+    @Override
+    public EventQueue NewInstance() {
+	return new TimingWheelEventQueue(m_resolution);
+    }
+
+    @Override
+    public long GetResolution() {
+	return m_resolution;
+    }
+
+    @Override
+    public void Insert(final EventId ev) {
+	DoInsert(ev);
+	m_size++;
+    }
+
+    @Override
+    public boolean IsEmpty() {
+	return m_size == 0;
+    }
+
+    @Override
+    public EventId PeekNext() {
+	while (m_current.IsEmpty() && Advance()) {
+	}
+	return m_current.PeekFirst();
+    }
+
+    @Override
+    public EventId RemoveNext() {
+	while (m_current.IsEmpty() && Advance()) {
+	}
+	EventId ev = m_current.RemoveFirst();
+	if (ev != null) {
+	    m_size--;
+	}
+	return ev;
+    }
+
+    @Override
+    public void Remove(final EventId ev) {
+	EventList list = ev.m_list;
+	int slot = ev.m_index;
+	list.Unlink(ev);
+	ev.m_index = -1;
+	if (slot >= 0 && list.IsEmpty()) {
+	    m_occupied[slot >>> 6] &= ~(1L << slot);
+	}
+	m_size--;
+    }
+
+    private void DoInsert(final EventId ev) {
+	long tick = ev.m_ts / m_resolution;
+	if (tick <= m_now) {
+	    ev.m_index = -1;
+	    m_current.InsertSorted(ev);
+	    return;
+	}
+	int level = (63 - Long.numberOfLeadingZeros(tick ^ m_now)) / BITS;
+	int slot = level * SLOTS + (int) ((tick >>> (level * BITS)) & MASK);
+	ev.m_index = slot;
+	m_slots[slot].AddLast(ev);
+	m_occupied[slot >>> 6] |= 1L << slot;
+    }
+
+    /**
+     * Move m_now to the next occupied slot and cascade its events down.
+     * 
+     * @return false if the wheels are empty
+     */
+    private boolean Advance() {
+	for (int level = 0; level < LEVELS; level++) {
+	    int shift = level * BITS;
+	    int digit = (int) ((m_now >>> shift) & MASK);
+	    int slot = NextOccupied(level * SLOTS + digit + 1, (level + 1) * SLOTS);
+	    if (slot < 0) {
+		continue;
+	    }
+	    // the lowest tick that may be held by the slot.
+	    long high = shift + BITS >= 64 ? 0 : (m_now >>> (shift + BITS)) << (shift + BITS);
+	    m_now = high | ((long) (slot & MASK) << shift);
+	    m_occupied[slot >>> 6] &= ~(1L << slot);
+	    EventList list = m_slots[slot];
+	    EventId ev;
+	    while ((ev = list.RemoveFirst()) != null) {
+		DoInsert(ev);
+	    }
+	    return true;
+	}
+	return false;
+    }
+
+    /**
+     * @return the first occupied slot in [from, to), or -1
+     */
+    private int NextOccupied(int from, int to) {
+	if (from >= to) {
+	    return -1;
+	}
+	int word = from >>> 6;
+	long bits = m_occupied[word] & (-1L << from);
+	while (true) {
+	    if (bits != 0) {
+		int slot = word * 64 + Long.numberOfTrailingZeros(bits);
+		return slot < to ? slot : -1;
+	    }
+	    if (++word * 64 >= to) {
+		return -1;
+	    }
+	    bits = m_occupied[word];
+	}
+    }
+}
@@ -16,13 +16,16 @@
 package osak.ext.ns3.internet;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
 import osak.ext.communication.MyLog;
 import osak.ext.ns3.callback.Callback2;
+import osak.ext.ns3.core.IntObjectMap;
 import osak.ext.ns3.core.Pair;
+import osak.ext.ns3.core.Rollbackable;
+import osak.ext.ns3.core.Simulator;
 import osak.ext.ns3.core.Time;
 import osak.ext.ns3.core.Timer;
 import osak.ext.ns3.network.Address;
@@ -35,7 +38,7 @@ import osak.ext.ns3.network.utils.Ipv4Address;
  * @author zhangrui
  * @since   1.0
  */
-public final class ArpCache {
+public final class ArpCache implements Rollbackable {
     public ArpCache() {
 
     }
@@ -142,11 +145,22 @@ public final class ArpCache {
     public void StartWaitReplyTimer() {
 	if (!m_waitReplyTimer.IsRunning()) {
 	    MyLog.logInfo("ArpCache::StartWaitReplyTimer",
-		    "Starting WaitReplyTimer at " + System.currentTimeMillis() + " for " + m_waitReplyTimeout);
+		    "Starting WaitReplyTimer at " + Simulator.Now() + " for " + m_waitReplyTimeout);
 	    m_waitReplyTimer.Schedule(m_aliveTimeout, () -> this.HandleWaitReplyTimeout());
 	}
     }
 
+    /**
+     * Do lookup in the ARP cache against an IP address
+     * 
+     * @param destination The destination IPv4 address to lookup the MAC address of
+     * @return An ArpCache::Entry with info about layer 2
+     */
+    public ArpCacheEntry Lookup(int destination) {
+	Simulator.SaveState(this);
+	return m_arpCache.Get(destination);
+    }
+
     /**
      * Do lookup in the ARP cache against an IP address
      * 
@@ -154,10 +168,7 @@ public final class ArpCache {
      * @return An ArpCache::Entry with info about layer 2
      */
     public ArpCacheEntry Lookup(Ipv4Address destination) {
-	if (m_arpCache.containsKey(destination)) {
-	    return m_arpCache.get(destination);
-	}
-	return null;
+	return Lookup(destination.Get());
     }
 
     /**
@@ -167,12 +178,13 @@ public final class ArpCache {
      * @return A std::list of ArpCache::Entry with info about layer 2
      */
     public List<ArpCacheEntry> LookupInverse(Address destination) {
+	Simulator.SaveState(this);
 	List<ArpCacheEntry> entryList = new ArrayList<>();
-	for (ArpCacheEntry i : m_arpCache.values()) {
+	m_arpCache.ForEach((k, i) -> {
 	    if (i.GetMacAddress().equals(destination)) {
 		entryList.add(i);
 	    }
-	}
+	});
 	return entryList;
     }
 
@@ -183,9 +195,10 @@ public final class ArpCache {
      * @returns A pointer to a new ARP Entry.
      */
     public ArpCacheEntry Add(Ipv4Address to) {
-	assert (m_arpCache.containsKey(to));
+	assert (!m_arpCache.ContainsKey(to.Get()));
+	Simulator.SaveState(this);
 	ArpCacheEntry entry = new ArpCacheEntry(this);
-	m_arpCache.put(to, entry);
+	m_arpCache.Put(to.Get(), entry);
 	entry.SetIpv4Address(to);
 	return entry;
     }
@@ -195,13 +208,11 @@ public final class ArpCache {
      * @param entry pointer to delete it from the list
      */
     public void Remove(ArpCacheEntry entry) {
-	for (Map.Entry<Ipv4Address, ArpCacheEntry> i : m_arpCache.entrySet()) {
-	    if (i.getValue() == entry) {
-		m_arpCache.remove(i.getKey());
-		entry.ClearPendingPacket();// clear the pending packets for entry's ipaddress
-		entry = null;
-		return;
-	    }
+	Simulator.SaveState(this);
+	int key = entry.GetIpv4Address().Get();
+	if (m_arpCache.Get(key) == entry) {
+	    m_arpCache.Remove(key);
+	    entry.ClearPendingPacket();// clear the pending packets for entry's ipaddress
 	}
     }
 
@@ -209,12 +220,11 @@ public final class ArpCache {
      * Clear the ArpCache of all entries
      */
     public void Flush() {
-	m_arpCache.clear();
-	while (m_waitReplyTimer.IsRunning()) {
-	    Thread.yield();
-	    continue;
+	Simulator.SaveState(this);
+	m_arpCache.Clear();
+	if (m_waitReplyTimer.IsRunning()) {
+	    m_waitReplyTimer.Cancel();
 	}
-	m_waitReplyTimer.Cancel();
     }
 
     /**
@@ -228,12 +238,14 @@ public final class ArpCache {
      * Clear the ArpCache of all Auto-Generated entries
      */
     public void RemoveAutoGeneratedEntries() {
-	for (Map.Entry<Ipv4Address, ArpCacheEntry> i : m_arpCache.entrySet()) {
-	    if (i.getValue().IsAutoGenerated()) {
-		i.getValue().ClearPendingPacket();// clear the pending packets for entry's ipaddress
-		m_arpCache.remove(i.getKey());
+	Simulator.SaveState(this);
+	m_arpCache.RemoveIf((k, entry) -> {
+	    if (entry.IsAutoGenerated()) {
+		entry.ClearPendingPacket();// clear the pending packets for entry's ipaddress
+		return true;
 	    }
-	}
+	    return false;
+	});
     }
     
     private NetDevice m_device = null; // !< NetDevice associated with the cache
@@ -251,13 +263,13 @@ public final class ArpCache {
      * If there are no Arp requests pending, this event is not scheduled.
      */
     private void HandleWaitReplyTimeout() {
-	boolean restartWaitReplyTimer = false;
-	for (Map.Entry<Ipv4Address, ArpCacheEntry> i : m_arpCache.entrySet()) {
-	    ArpCacheEntry entry = i.getValue();
-	    if (entry != null && entry.IsWaitReply()) {
+	Simulator.SaveState(this);
+	boolean[] restartWaitReplyTimer = { false };
+	m_arpCache.ForEach((k, entry) -> {
+	    if (entry.IsWaitReply()) {
 		if (entry.GetRetries() < m_maxRetries) {
 		    m_arpRequestCallback.callback(this, entry.GetIpv4Address());
-		    restartWaitReplyTimer = true;
+		    restartWaitReplyTimer[0] = true;
 		    entry.IncrementRetries();
 		}
 
@@ -274,13 +286,44 @@ public final class ArpCache {
 		    }
 		}
 	    }
-	}
-	if (restartWaitReplyTimer) {
+	});
+	if (restartWaitReplyTimer[0]) {
 	    m_waitReplyTimer.Schedule(m_waitReplyTimeout, () -> HandleWaitReplyTimeout());
 	}
     }
 
     protected int m_pendingQueueSize; // !< number of packets waiting for a resolution
-    private Map<Ipv4Address, ArpCacheEntry> m_arpCache = new HashMap<>(); // !< the ARP cache
+    private IntObjectMap<ArpCacheEntry> m_arpCache = new IntObjectMap<>(); // !< the ARP cache, by IPv4 address
     // TracedCallback<Ptr<const Packet>> m_dropTrace; //!< trace for packets dropped by the ARP cache queue
+
+    /**
+     * Rollback snapshot: the key set plus a copy of every entry. Entries are
+     * restored in place because callers may still hold them.
+     */
+    private static final class CacheState {
+	IntObjectMap<ArpCacheEntry> cache; // !< the entries in the cache
+	Map<ArpCacheEntry, ArpCacheEntry> copies; // !< the saved copy of each entry
+    }
+
+    @Override
+    public Object SaveState() {
+	CacheState state = new CacheState();
+	state.cache = new IntObjectMap<>(m_arpCache);
+	state.copies = new IdentityHashMap<>();
+	m_arpCache.ForEach((k, i) -> {
+	    ArpCacheEntry copy = new ArpCacheEntry(this);
+	    copy.CopyFrom(i);
+	    state.copies.put(i, copy);
+	});
+	return state;
+    }
+
+    @Override
+    public void RestoreState(Object state) {
+	CacheState s = (CacheState) state;
+	for (Map.Entry<ArpCacheEntry, ArpCacheEntry> i : s.copies.entrySet()) {
+	    i.getKey().CopyFrom(i.getValue());
+	}
+	m_arpCache = s.cache;
+    }
 }
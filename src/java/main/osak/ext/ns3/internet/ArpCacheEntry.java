@@ -19,6 +19,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import osak.ext.ns3.core.Pair;
+import osak.ext.ns3.core.Simulator;
 import osak.ext.ns3.core.Time;
 import osak.ext.ns3.network.Address;
 import osak.ext.ns3.network.Packet;
@@ -209,7 +210,7 @@ public final class ArpCacheEntry {
      */
     public boolean IsExpired() {
 	long timeout = GetTimeout().getMillSeconds();
-	long delta = System.currentTimeMillis() - m_lastSeen;
+	long delta = Simulator.Now().getMillSeconds() - m_lastSeen;
 	if (delta > timeout) {
 	    return true;
 	}
@@ -266,6 +267,22 @@ public final class ArpCacheEntry {
      * Update the entry when seeing a packet
      */
     public void UpdateSeen() {
-	m_lastSeen = System.currentTimeMillis();
+	m_lastSeen = Simulator.Now().getMillSeconds();
+    }
+
+    /**
+     * Overwrite this entry with the state of another entry, used to roll the
+     * owning cache back in place.
+     * 
+     * @param o the entry to copy from
+     */
+    void CopyFrom(ArpCacheEntry o) {
+	m_arp = o.m_arp;
+	m_state = o.m_state;
+	m_lastSeen = o.m_lastSeen;
+	m_macAddress = o.m_macAddress;
+	m_ipv4Address = o.m_ipv4Address;
+	m_pending = new ArrayList<>(o.m_pending);
+	m_retries = o.m_retries;
     }
 }
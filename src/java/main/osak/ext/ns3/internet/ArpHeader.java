@@ -204,7 +204,7 @@ public class ArpHeader implements Header {
 
 	// Read SPA (size PLN == 4)
 	buffer.get(ipdata);
-	m_ipv4Source.Set(Helper.byte2int(ipdata));
+	m_ipv4Source = Ipv4Address.Intern(Helper.byte2int(ipdata));
 
 	// Read THA (size HLN)
 	buffer.get(macdata);
@@ -212,7 +212,7 @@ public class ArpHeader implements Header {
 
 	// Read TPA (size PLN == 4)
 	buffer.get(ipdata);
-	m_ipv4Dest.Set(Helper.byte2int(ipdata));
+	m_ipv4Dest = Ipv4Address.Intern(Helper.byte2int(ipdata));
 
 	return buffer.position() - start;
     }
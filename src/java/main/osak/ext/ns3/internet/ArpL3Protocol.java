@@ -22,6 +22,7 @@ import java.util.concurrent.TimeUnit;
 
 import osak.ext.communication.MyLog;
 import osak.ext.ns3.core.Pair;
+import osak.ext.ns3.core.RngSeedManager;
 import osak.ext.ns3.core.Time;
 import osak.ext.ns3.core.Timer;
 import osak.ext.ns3.network.*;
@@ -39,7 +40,7 @@ public class ArpL3Protocol {
 
     private List<ArpCache> m_cacheList = new ArrayList<>();
     private Node m_node;
-    private Random m_requestJitter = new Random();
+    private Random m_requestJitter = RngSeedManager.CreateRandom();
     private TrafficControlLayer m_tc;
 
     private ArpCache FindCache(NetDevice device) {
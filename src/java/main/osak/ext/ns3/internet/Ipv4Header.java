@@ -20,6 +20,7 @@ import java.nio.ByteBuffer;
 import osak.ext.communication.Helper;
 import osak.ext.communication.MyLog;
 import osak.ext.ns3.network.Header;
+import osak.ext.ns3.network.InternetChecksum;
 import osak.ext.ns3.network.utils.Ipv4Address;
 
 /**
@@ -43,6 +44,9 @@ public class Ipv4Header implements Header {
     short m_checksum = 0; // !< checksum
     boolean m_goodChecksum = true; // !< true if checksum is correct
     short m_headerSize = 5 * 4; // !< IP header size
+    boolean m_checksumValid = false; // !< true if m_checksum is the checksum of the fields
+    int m_checksumSource = 0; // !< the source address m_checksum was computed with
+    int m_checksumDestination = 0; // !< the destination address m_checksum was computed with
 
     /**
      * Construct a null IPv4 header
@@ -61,6 +65,7 @@ public class Ipv4Header implements Header {
      * @param size the size of the payload in bytes
      */
     public void SetPayloadSize(short size) {
+	m_checksumValid = false;
 	m_payloadSize = size;
     }
 
@@ -70,6 +75,7 @@ public class Ipv4Header implements Header {
      *                       By default, set to zero.
      */
     public void SetIdentification(short identification) {
+	m_checksumValid = false;
 	m_identification = identification;
     }
 
@@ -77,6 +83,7 @@ public class Ipv4Header implements Header {
      * @param tos the 8 bits of Ipv4 TOS.
      */
     public void SetTos(byte tos) {
+	m_checksumValid = false;
 	m_tos = tos;
     }
 
@@ -86,6 +93,7 @@ public class Ipv4Header implements Header {
      * @param dscp DSCP value
      */
     public void SetDscp(DscpType dscp) {
+	m_checksumValid = false;
 	m_tos &= 0x3;// Clear out the DSCP part, retain 2 bits of ECN
 	m_tos |= (dscp.value() << 2);
     }
@@ -96,6 +104,7 @@ public class Ipv4Header implements Header {
      * @param ecn ECN Type
      */
     public void SetEcn(EcnType ecn) {
+	m_checksumValid = false;
 	m_tos &= 0xFC;// Clear out the ECN part, retain 6 bits of DSCP
 	m_tos |= ecn.value();
     }
@@ -108,6 +117,7 @@ public class Ipv4Header implements Header {
      * This packet is not the last packet of a fragmented ipv4 packet.
      */
     public void SetMoreFragments() {
+	m_checksumValid = false;
 	m_flags |= MORE_FRAGMENTS;
     }
 
@@ -115,6 +125,7 @@ public class Ipv4Header implements Header {
      * This packet is the last packet of a fragmented ipv4 packet.
      */
     public void SetLastFragment() {
+	m_checksumValid = false;
 	m_flags &= ~MORE_FRAGMENTS;
     }
 
@@ -122,6 +133,7 @@ public class Ipv4Header implements Header {
      * Don't fragment this packet: if you need to anyway, drop it.
      */
     public void SetDontFragment() {
+	m_checksumValid = false;
 	m_flags |= DONT_FRAGMENT;
     }
 
@@ -129,6 +141,7 @@ public class Ipv4Header implements Header {
      * If you need to fragment this packet, you can do it.
      */
     public void SetMayFragment() {
+	m_checksumValid = false;
 	m_flags &= ~DONT_FRAGMENT;
     }
 
@@ -140,6 +153,7 @@ public class Ipv4Header implements Header {
      * @param offsetBytes the ipv4 fragment offset measured in bytes from the start.
      */
     public void SetFragmentOffset(short offsetBytes) {
+	m_checksumValid = false;
 	m_fragmentOffset = offsetBytes;
     }
 
@@ -147,6 +161,13 @@ public class Ipv4Header implements Header {
      * @param ttl the ipv4 TTL
      */
     public void SetTtl(byte ttl) {
+	if (m_checksumValid) {
+	    // RFC 1624: adjust the checksum for the new TTL/protocol word instead of
+	    // summing the header again, as routers do when decrementing the TTL.
+	    short oldWord = (short) (((m_ttl & 0xff) << 8) | (m_protocol & 0xff));
+	    short newWord = (short) (((ttl & 0xff) << 8) | (m_protocol & 0xff));
+	    m_checksum = InternetChecksum.Update(m_checksum, oldWord, newWord);
+	}
 	m_ttl = ttl;
     }
 
@@ -154,6 +175,7 @@ public class Ipv4Header implements Header {
      * @param num the ipv4 protocol field
      */
     public void SetProtocol(byte protocol) {
+	m_checksumValid = false;
 	m_protocol = protocol;
     }
 
@@ -161,6 +183,7 @@ public class Ipv4Header implements Header {
      * @param source the source of this packet
      */
     public void SetSource(Ipv4Address source) {
+	m_checksumValid = false;
 	m_source = source;
     }
 
@@ -168,6 +191,7 @@ public class Ipv4Header implements Header {
      * @param destination the destination of this packet.
      */
     public void SetDestination(Ipv4Address destination) {
+	m_checksumValid = false;
 	m_destination = destination;
     }
 
@@ -347,7 +371,7 @@ public class Ipv4Header implements Header {
 
     @Override
     public void Serialize(ByteBuffer buffer) {
-	// int start = buffer.position();
+	int start = buffer.position();
 	byte verIhl = (4 << 4) | 5;
 	buffer.put(verIhl);
 	buffer.put(m_tos);
@@ -370,14 +394,21 @@ public class Ipv4Header implements Header {
 	buffer.putInt(m_source.Get());
 	buffer.putInt(m_destination.Get());
 
-	// 此处不需要
-	// if (m_calcChecksum) {
-	// int end = buffer.position();
-	// uint16_t checksum = i.CalculateIpChecksum(20);
-	// buffer.position(start+10);
-	// buffer.putShort(checksum);
-	// }
+	if (m_calcChecksum) {
+	    if (!m_checksumValid || m_checksumSource != m_source.Get()
+		    || m_checksumDestination != m_destination.Get()) {
+		m_checksum = InternetChecksum.Checksum(buffer, start, 20);
+		SetChecksumValid();
+	    }
+	    buffer.putShort(start + 10, m_checksum);
+	}
+    }
 
+    /** Record that m_checksum is the checksum of the current fields. */
+    private void SetChecksumValid() {
+	m_checksumValid = true;
+	m_checksumSource = m_source.Get();
+	m_checksumDestination = m_destination.Get();
     }
 
     @Override
@@ -414,12 +445,19 @@ public class Ipv4Header implements Header {
 
 	byte[] dst = new byte[4];
 	buffer.get(dst);
-	m_source = new Ipv4Address(Helper.byte2int(dst));
+	m_source = Ipv4Address.Intern(Helper.byte2int(dst));
 
 	buffer.get(dst);
-	m_destination = new Ipv4Address(Helper.byte2int(dst));
+	m_destination = Ipv4Address.Intern(Helper.byte2int(dst));
 
 	m_headerSize = headerSize;
+	if (m_calcChecksum) {
+	    m_goodChecksum = InternetChecksum.Sum(buffer, start, headerSize, 0) == 0xffff;
+	    m_checksumValid = false;
+	    if (m_goodChecksum && headerSize == 20) {
+		SetChecksumValid();
+	    }
+	}
 	return buffer.position() - start;
     }
 
@@ -162,6 +162,15 @@ public final class Ipv4Interface {
 	m_forwarding = val;
     }
 
+    /**
+     * @param p    packet to send
+     * @param hdr  IPv4 header
+     * @param dest next hop address of packet, in host order.
+     */
+    public void Send(Packet p, final Ipv4Header hdr, int dest) {
+	Send(p, hdr, Ipv4Address.Intern(dest));
+    }
+
     /**
      * @param p    packet to send
      * @param hdr  IPv4 header
@@ -186,8 +195,9 @@ public final class Ipv4Interface {
 	}
 	assert (m_tc != null);
 	// is this packet aimed at a local interface ?
+	int destination = dest.Get();
 	for (Ipv4InterfaceAddress i : m_ifaddrs) {
-	    if (dest.equals(i.GetLocal())) {
+	    if (destination == i.GetLocal().Get()) {
 		p.AddHeader(hdr);
 		m_tc.Receive(m_device, p, Ipv4L3Protocol.PROT_NUMBER, m_device.GetBroadcast(), m_device.GetBroadcast(),
 			PacketType.PACKET_HOST);
@@ -374,8 +384,8 @@ public final class Ipv4Interface {
     private TrafficControlLayer m_tc;      //!< The associated TrafficControlLayer
     private ArpCache m_cache;              //!< ARP cache
     private Callback2<Ipv4Interface, Ipv4InterfaceAddress>
-        m_removeAddressCallback; //!< remove address callback
+	m_removeAddressCallback; //!< remove address callback
     private Callback2<Ipv4Interface, Ipv4InterfaceAddress>
-        m_addAddressCallback; //!< add address callback
+	m_addAddressCallback; //!< add address callback
 
 }
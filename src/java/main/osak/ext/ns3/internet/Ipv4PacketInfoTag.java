@@ -107,14 +107,16 @@ public class Ipv4PacketInfoTag implements Tag {
 
     @Override
     public void Serialize(TagBuffer i) {
-	// TODO Auto-generated method stub
-
+	i.WriteU32(m_addr.Get());
+	i.WriteU32(m_ifindex);
+	i.WriteU8(m_ttl);
     }
 
     @Override
     public void Deserialize(TagBuffer i) {
-	// TODO Auto-generated method stub
-
+	m_addr = Ipv4Address.Intern(i.ReadU32());
+	m_ifindex = i.ReadU32();
+	m_ttl = i.ReadU8();
     }
 
     @Override
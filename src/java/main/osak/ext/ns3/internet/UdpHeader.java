@@ -18,39 +18,139 @@ package osak.ext.ns3.internet;
 import java.nio.ByteBuffer;
 
 import osak.ext.ns3.network.Header;
+import osak.ext.ns3.network.InternetChecksum;
+import osak.ext.ns3.network.Packet;
+import osak.ext.ns3.network.utils.Ipv4Address;
 
 /**
- * TODO UdpHeader
+ * Packet header for UDP packets.
+ * <p>
+ * The checksum covers an IPv4 pseudo-header, this header and the payload. The
+ * bytes given to Serialize() and Deserialize() are those of this header only,
+ * so the sum of the payload is taken beforehand by SetPayload(), without copying
+ * it when it lies in a single segment.
  * 
  * @author zhangrui
  * @since   1.0
  */
 public class UdpHeader implements Header {
+    private short m_sourcePort = (short) 0xfffd; // !< Source port
+    private short m_destinationPort = (short) 0xfffd; // !< Destination port
+    private int m_payloadSize = 0; // !< Payload size
+    private int m_payloadSum = 0; // !< One's complement sum of the payload
+    private int m_pseudoHeaderSum = 0; // !< One's complement sum of the pseudo-header, without the length
+    private short m_checksum = 0; // !< Checksum
+    private boolean m_calcChecksum = false; // !< Flag to calculate checksum
 
-    @Override
-    public int GetSerializedSize() {
-	// TODO Auto-generated method stub
-	return 0;
+    /**
+     * Enable checksum calculation for UDP.
+     */
+    public void EnableChecksums() {
+	m_calcChecksum = true;
     }
 
-    @Override
-    public void Serialize(ByteBuffer buffer) {
-	// TODO Auto-generated method stub
+    /**
+     * @param port the destination port for this UdpHeader
+     */
+    public void SetDestinationPort(int port) {
+	m_destinationPort = (short) port;
+    }
 
+    /**
+     * @param port The source port for this UdpHeader
+     */
+    public void SetSourcePort(int port) {
+	m_sourcePort = (short) port;
     }
 
-    @Override
-    public int Deserialize(ByteBuffer buffer) {
-	// TODO Auto-generated method stub
-	return 0;
+    /**
+     * @return The source port for this UdpHeader
+     */
+    public int GetSourcePort() {
+	return m_sourcePort & 0xffff;
     }
 
     /**
-     * @return
+     * @return the destination port for this UdpHeader
      */
     public int GetDestinationPort() {
-	// TODO Auto-generated method stub
-	return 0;
+	return m_destinationPort & 0xffff;
+    }
+
+    /**
+     * Set the addresses of the IPv4 pseudo-header covered by the checksum.
+     * 
+     * @param source      the source address
+     * @param destination the destination address
+     * @param protocol    the protocol number
+     */
+    public void InitializeChecksum(Ipv4Address source, Ipv4Address destination, byte protocol) {
+	int sum = InternetChecksum.Add(0, source.Get());
+	sum = InternetChecksum.Add(sum, destination.Get());
+	m_pseudoHeaderSum = InternetChecksum.Add(sum, protocol & 0xff);
+    }
+
+    /**
+     * Set the payload covered by the checksum: the packet before the header is
+     * added, or after it is removed.
+     * 
+     * @param payload the payload
+     */
+    public void SetPayload(final Packet payload) {
+	m_payloadSize = payload.GetSize();
+	m_payloadSum = m_calcChecksum ? InternetChecksum.Sum(payload, 0) : 0;
+    }
+
+    /**
+     * @return the sum of the pseudo-header, the payload and the header without its
+     *         checksum
+     */
+    private int Sum() {
+	int length = GetSerializedSize() + m_payloadSize;
+	int sum = InternetChecksum.Add(m_pseudoHeaderSum, length);
+	sum = InternetChecksum.Add(sum, m_payloadSum);
+	sum = InternetChecksum.Add(sum, ((m_sourcePort & 0xffff) << 16) | (m_destinationPort & 0xffff));
+	return InternetChecksum.Add(sum, length);
     }
 
+    /**
+     * @return true if the checksum is correct, or if checksums are not enabled
+     */
+    public boolean IsChecksumOk() {
+	if (!m_calcChecksum || m_checksum == 0) {
+	    // a zero checksum means that the sender did not compute it.
+	    return true;
+	}
+	return InternetChecksum.Add(Sum(), m_checksum & 0xffff) == 0xffff;
+    }
+
+    @Override
+    public int GetSerializedSize() {
+	return 8;
+    }
+
+    @Override
+    public void Serialize(ByteBuffer buffer) {
+	buffer.putShort(m_sourcePort);
+	buffer.putShort(m_destinationPort);
+	buffer.putShort((short) (GetSerializedSize() + m_payloadSize));
+	if (m_calcChecksum) {
+	    m_checksum = InternetChecksum.Checksum(Sum());
+	    if (m_checksum == 0) {
+		m_checksum = (short) 0xffff;
+	    }
+	} else {
+	    m_checksum = 0;
+	}
+	buffer.putShort(m_checksum);
+    }
+
+    @Override
+    public int Deserialize(ByteBuffer buffer) {
+	m_sourcePort = buffer.getShort();
+	m_destinationPort = buffer.getShort();
+	m_payloadSize = (buffer.getShort() & 0xffff) - GetSerializedSize();
+	m_checksum = buffer.getShort();
+	return GetSerializedSize();
+    }
 }
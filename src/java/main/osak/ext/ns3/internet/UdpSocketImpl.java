@@ -700,7 +700,7 @@ public final class UdpSocketImpl extends UdpSocket {
 		// Get the primary address
 		Ipv4InterfaceAddress iaddr = ipv4.GetAddress(i, 0);
 		Ipv4Address addri = iaddr.GetLocal();
-		if (addri.equals(new Ipv4Address("127.0.0.1"))) {
+		if (addri.equals(Ipv4Address.GetLoopback())) {
 		    continue;
 		}
 		// Check if interface-bound socket
@@ -738,7 +738,7 @@ public final class UdpSocketImpl extends UdpSocket {
 		    int ifNAddr = ipv4.GetNAddresses(outputIfIndex);
 		    for (int addrI = 0; addrI < ifNAddr; ++addrI) {
 			Ipv4InterfaceAddress ifAddr = ipv4.GetAddress(outputIfIndex, addrI);
-			if (dest == ifAddr.GetBroadcast()) {
+			if (dest.equals(ifAddr.GetBroadcast())) {
 			    m_errno = SocketErrno.ERROR_OPNOTSUPP;
 			    return -1;
 			}
@@ -15,8 +15,6 @@
  */
 package osak.ext.ns3.network;
 
-import java.nio.ByteBuffer;
-
 /**
  * ingroup: network <p>
  * defgroup: address Address<p>
@@ -299,11 +297,10 @@ public class Address {
      *
      * @param buffer output buffer that gets written with this Address
      */
-    // public void Serialize(TagBuffer buffer) {
-    public void Serialize(ByteBuffer buffer) {
-	buffer.put(m_type);
-	buffer.put(m_len);
-	buffer.put(m_data, 0, m_len);
+    public void Serialize(TagBuffer buffer) {
+	buffer.WriteU8(m_type);
+	buffer.WriteU8(m_len);
+	buffer.Write(m_data, m_len);
     }
 
     /**
@@ -312,11 +309,10 @@ public class Address {
      *               The input address buffer is expected to be in host byte order
      *               format.
      */
-    // public void Deserialize(TagBuffer buffer) {
-    public void Deserialize(ByteBuffer buffer) {
-	m_type = buffer.get();
-	m_len = buffer.get();
-	buffer.get(m_data, 0, m_len);
+    public void Deserialize(TagBuffer buffer) {
+	m_type = buffer.ReadU8();
+	m_len = buffer.ReadU8();
+	buffer.Read(m_data, m_len);
     }
 
     @Override
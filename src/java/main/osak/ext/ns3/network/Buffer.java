@@ -0,0 +1,509 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.network;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The bytes of a packet: a sequence of segments, each a slice of a shared,
+ * reference counted byte array.
+ * <p>
+ * Copying a buffer only copies the (short) list of segments and takes a
+ * reference on each array, whatever the number of bytes. Only writing into
+ * bytes that another buffer shares makes a private copy of the segments written
+ * to: copy-on-write.
+ * <p>
+ * As in ns-3, arrays are allocated with free room before and after the bytes,
+ * so adding a header or a trailer only moves the bounds of the first or last
+ * segment and serializes in place, and removing one only moves them back. Each
+ * array records the zone that is in use by any buffer (the dirty zone): a
+ * buffer may grow into the free room only from the edge of that zone, so
+ * buffers sharing an array never write over each other's headers. When there is
+ * not enough room, the bytes are moved to a new, larger array.
+ * <p>
+ * The reference count of an array is the number of buffers holding a segment of
+ * it. Arrays are taken from the PacketPool and given back to it when the count
+ * drops to zero. Buffers garbage collected without releasing their segments
+ * leave it too high, which may only cause an extra copy and leave the array to
+ * the garbage collector.
+ * <p>
+ * The arrays are heap or direct byte buffers, depending on the storage mode of
+ * the PacketPool when they were allocated; headers serialize into either kind
+ * alike.
+ * 
+ * @author zhangrui
+ * @since 1.0
+ */
+public final class Buffer {
+    /**
+     * A block of bytes shared by the segments of several buffers.
+     */
+    static final class Data {
+	final ByteBuffer m_bytes; // !< the bytes, on or off the heap
+	final AtomicInteger m_refs = new AtomicInteger(1); // !< number of buffers referencing the bytes
+	int m_dirtyStart; // !< offset of the first byte in use
+	int m_dirtyEnd; // !< offset after the last byte in use
+
+	Data(ByteBuffer bytes, int start, int end) {
+	    m_bytes = bytes;
+	    m_dirtyStart = start;
+	    m_dirtyEnd = end;
+	}
+
+	/**
+	 * Claim the free room before a segment of this array.
+	 * 
+	 * @param start the offset of the first byte of the segment
+	 * @param size  the number of bytes to claim
+	 * @return true if the bytes before start were free and are now in use
+	 */
+	synchronized boolean ClaimStart(int start, int size) {
+	    if (start < size || (start != m_dirtyStart && m_refs.get() > 1)) {
+		return false;
+	    }
+	    m_dirtyStart = start - size;
+	    return true;
+	}
+
+	/**
+	 * Claim the free room after a segment of this array.
+	 * 
+	 * @param end  the offset after the last byte of the segment
+	 * @param size the number of bytes to claim
+	 * @return true if the bytes after end were free and are now in use
+	 */
+	synchronized boolean ClaimEnd(int end, int size) {
+	    if (m_bytes.capacity() - end < size || (end != m_dirtyEnd && m_refs.get() > 1)) {
+		return false;
+	    }
+	    m_dirtyEnd = end + size;
+	    return true;
+	}
+    }
+
+    /** The free room reserved before the bytes of a new array. */
+    static final int HEADROOM = 64;
+    /** The free room reserved after the bytes of a new array. */
+    static final int TAILROOM = 16;
+
+    private Data[] m_data; // !< the array of each segment
+    private int[] m_start; // !< offset of the first byte of each segment in its array
+    private int[] m_end; // !< offset after the last byte of each segment in its array
+    private int m_count = 0; // !< number of segments
+    private int m_size = 0; // !< number of bytes
+
+    /**
+     * Create an empty buffer.
+     */
+    public Buffer() {
+	m_data = new Data[4];
+	m_start = new int[4];
+	m_end = new int[4];
+    }
+
+    /**
+     * Create a zero-filled buffer.
+     * 
+     * @param size the number of bytes
+     */
+    public Buffer(int size) {
+	this();
+	Init(size);
+    }
+
+    /**
+     * Create a buffer holding a copy of some bytes.
+     * 
+     * @param bytes the bytes
+     * @param size  the number of bytes to copy
+     */
+    public Buffer(final byte[] bytes, int size) {
+	this();
+	Init(bytes, size);
+    }
+
+    /**
+     * Copy constructor: shares the bytes of o.
+     * 
+     * @param o the buffer to copy
+     */
+    public Buffer(final Buffer o) {
+	this();
+	AddAtEnd(o);
+    }
+
+    /**
+     * @return a copy of this buffer, sharing its bytes
+     */
+    public Buffer Copy() {
+	return new Buffer(this);
+    }
+
+    /**
+     * Make an empty buffer hold size zero bytes.
+     */
+    void Init(int size) {
+	ByteBuffer bytes = PacketPool.ObtainBlock(HEADROOM + size + TAILROOM);
+	Fill(bytes, HEADROOM, size);
+	Insert(0, new Data(bytes, HEADROOM, HEADROOM + size), HEADROOM, HEADROOM + size);
+    }
+
+    /**
+     * Make an empty buffer hold a copy of some bytes.
+     */
+    void Init(final byte[] bytes, int size) {
+	ByteBuffer data = PacketPool.ObtainBlock(HEADROOM + size + TAILROOM);
+	data.put(HEADROOM, bytes, 0, size);
+	Insert(0, new Data(data, HEADROOM, HEADROOM + size), HEADROOM, HEADROOM + size);
+    }
+
+    /**
+     * Release all the segments, leaving the buffer empty. The arrays no other
+     * buffer references go back to the PacketPool.
+     */
+    void Release() {
+	while (m_count > 0) {
+	    Delete(m_count - 1);
+	}
+    }
+
+    /**
+     * @return the number of bytes
+     */
+    public int GetSize() {
+	return m_size;
+    }
+
+    /**
+     * @return the number of segments
+     */
+    int GetSegmentCount() {
+	return m_count;
+    }
+
+    private void Insert(int index, Data data, int start, int end) {
+	if (m_count == m_data.length) {
+	    int capacity = m_count * 2;
+	    m_data = Arrays.copyOf(m_data, capacity);
+	    m_start = Arrays.copyOf(m_start, capacity);
+	    m_end = Arrays.copyOf(m_end, capacity);
+	}
+	System.arraycopy(m_data, index, m_data, index + 1, m_count - index);
+	System.arraycopy(m_start, index, m_start, index + 1, m_count - index);
+	System.arraycopy(m_end, index, m_end, index + 1, m_count - index);
+	m_data[index] = data;
+	m_start[index] = start;
+	m_end[index] = end;
+	m_count++;
+	m_size += end - start;
+    }
+
+    private void Delete(int index) {
+	if (m_data[index].m_refs.decrementAndGet() == 0) {
+	    PacketPool.RecycleBlock(m_data[index].m_bytes);
+	}
+	m_size -= m_end[index] - m_start[index];
+	m_count--;
+	System.arraycopy(m_data, index + 1, m_data, index, m_count - index);
+	System.arraycopy(m_start, index + 1, m_start, index, m_count - index);
+	System.arraycopy(m_end, index + 1, m_end, index, m_count - index);
+	m_data[m_count] = null;
+    }
+
+    /**
+     * Move the bytes to a single new block with the given free room around them.
+     */
+    private void Reallocate(int headroom, int tailroom) {
+	ByteBuffer bytes = PacketPool.ObtainBlock(headroom + m_size + tailroom);
+	int offset = headroom;
+	for (int i = 0; i < m_count; i++) {
+	    bytes.put(offset, m_data[i].m_bytes, m_start[i], m_end[i] - m_start[i]);
+	    offset += m_end[i] - m_start[i];
+	}
+	int size = m_size;
+	Release();
+	Insert(0, new Data(bytes, headroom, headroom + size), headroom, headroom + size);
+    }
+
+    /**
+     * Add bytes at the start of the buffer. The new bytes are zero unless they
+     * are written through the returned buffer.
+     * 
+     * @param size the number of bytes
+     * @return a buffer to write the new bytes into, from position 0
+     */
+    public ByteBuffer AddAtStart(int size) {
+	if (m_count == 0 || !m_data[0].ClaimStart(m_start[0], size)) {
+	    Reallocate(size + HEADROOM, TAILROOM);
+	    m_data[0].ClaimStart(m_start[0], size);
+	}
+	m_start[0] -= size;
+	m_size += size;
+	Fill(m_data[0].m_bytes, m_start[0], size);
+	return m_data[0].m_bytes.slice(m_start[0], size);
+    }
+
+    /**
+     * Add bytes at the end of the buffer. The new bytes are zero unless they are
+     * written through the returned buffer.
+     * 
+     * @param size the number of bytes
+     * @return a buffer to write the new bytes into, from position 0
+     */
+    public ByteBuffer AddAtEnd(int size) {
+	int last = m_count - 1;
+	if (m_count == 0 || !m_data[last].ClaimEnd(m_end[last], size)) {
+	    Reallocate(HEADROOM, size + TAILROOM);
+	    last = 0;
+	    m_data[last].ClaimEnd(m_end[last], size);
+	}
+	int end = m_end[last];
+	m_end[last] += size;
+	m_size += size;
+	Fill(m_data[last].m_bytes, end, size);
+	return m_data[last].m_bytes.slice(end, size);
+    }
+
+    /**
+     * Append the bytes of another buffer, sharing them.
+     * 
+     * @param o the buffer to append
+     */
+    public void AddAtEnd(final Buffer o) {
+	for (int i = 0; i < o.m_count; i++) {
+	    o.m_data[i].m_refs.incrementAndGet();
+	    Insert(m_count, o.m_data[i], o.m_start[i], o.m_end[i]);
+	}
+    }
+
+    /**
+     * Remove bytes from the start of the buffer. It is safe to remove more bytes
+     * than there are.
+     * 
+     * @param size the number of bytes
+     */
+    public void RemoveAtStart(int size) {
+	while (size > 0 && m_count > 0) {
+	    int length = m_end[0] - m_start[0];
+	    if (size >= length) {
+		Delete(0);
+		size -= length;
+	    } else {
+		m_start[0] += size;
+		m_size -= size;
+		size = 0;
+	    }
+	}
+    }
+
+    /**
+     * Remove bytes from the end of the buffer. It is safe to remove more bytes
+     * than there are.
+     * 
+     * @param size the number of bytes
+     */
+    public void RemoveAtEnd(int size) {
+	while (size > 0 && m_count > 0) {
+	    int last = m_count - 1;
+	    int length = m_end[last] - m_start[last];
+	    if (size >= length) {
+		Delete(last);
+		size -= length;
+	    } else {
+		m_end[last] -= size;
+		m_size -= size;
+		size = 0;
+	    }
+	}
+    }
+
+    /**
+     * Read bytes without copying them when they lie in a single segment.
+     * 
+     * @param offset the offset of the first byte
+     * @param size   the number of bytes
+     * @return a read-only buffer holding the bytes, from position 0
+     */
+    public ByteBuffer Read(int offset, int size) {
+	if (offset < 0 || size < 0 || offset + size > m_size) {
+	    throw new IndexOutOfBoundsException("Buffer: read of " + size + " bytes at " + offset + " in " + m_size);
+	}
+	int i = 0;
+	while (i < m_count && offset >= m_end[i] - m_start[i]) {
+	    offset -= m_end[i] - m_start[i];
+	    i++;
+	}
+	if (i == m_count) {
+	    return ByteBuffer.allocate(0).asReadOnlyBuffer();
+	}
+	if (offset + size <= m_end[i] - m_start[i]) {
+	    return m_data[i].m_bytes.slice(m_start[i] + offset, size).asReadOnlyBuffer();
+	}
+	byte[] gathered = new byte[size];
+	Gather(i, offset, gathered, 0, size);
+	return ByteBuffer.wrap(gathered).asReadOnlyBuffer();
+    }
+
+    /**
+     * Point a view to the first size bytes, in place when they lie in the first
+     * segment and otherwise copied into the array of the view.
+     * 
+     * @param view the view
+     * @param size the number of bytes
+     */
+    void View(HeaderView view, int size) {
+	if (size < 0 || size > m_size) {
+	    throw new IndexOutOfBoundsException("Buffer: view of " + size + " bytes in " + m_size);
+	}
+	if (m_count > 0 && size <= m_end[0] - m_start[0]) {
+	    view.Wrap(m_data[0].m_bytes, m_start[0]);
+	} else {
+	    Gather(0, 0, view.WrapScratch(size), 0, size);
+	}
+    }
+
+    private static final byte[] ZEROS = new byte[256];
+
+    /**
+     * Zero size bytes of a block, from offset.
+     */
+    private static void Fill(ByteBuffer bytes, int offset, int size) {
+	while (size > 0) {
+	    int n = Math.min(size, ZEROS.length);
+	    bytes.put(offset, ZEROS, 0, n);
+	    offset += n;
+	    size -= n;
+	}
+    }
+
+    /**
+     * @return a read-only buffer holding the bytes of the first segment, from
+     *         position 0, without copying them
+     */
+    ByteBuffer ReadFirstSegment() {
+	if (m_count == 0) {
+	    return ByteBuffer.allocate(0).asReadOnlyBuffer();
+	}
+	return m_data[0].m_bytes.slice(m_start[0], m_end[0] - m_start[0]).asReadOnlyBuffer();
+    }
+
+    /**
+     * Create a buffer holding some of the bytes of this one, sharing them.
+     * 
+     * @param start  the offset of the first byte of the fragment
+     * @param length the number of bytes of the fragment
+     * @return the fragment
+     */
+    public Buffer CreateFragment(int start, int length) {
+	Buffer fragment = new Buffer();
+	fragment.AddAtEnd(this, start, length);
+	return fragment;
+    }
+
+    /**
+     * Append some of the bytes of another buffer, sharing them.
+     * 
+     * @param o      the buffer to append from
+     * @param start  the offset of the first byte to append in o
+     * @param length the number of bytes to append
+     */
+    void AddAtEnd(final Buffer o, int start, int length) {
+	if (start < 0 || length < 0 || start + length > o.m_size) {
+	    throw new IndexOutOfBoundsException(
+		    "Buffer: fragment of " + length + " bytes at " + start + " in " + o.m_size);
+	}
+	int offset = 0;
+	for (int i = 0; i < o.m_count && length > 0; i++) {
+	    int size = o.m_end[i] - o.m_start[i];
+	    if (offset + size > start) {
+		int from = Math.max(0, start - offset);
+		int n = Math.min(size - from, length);
+		o.m_data[i].m_refs.incrementAndGet();
+		Insert(m_count, o.m_data[i], o.m_start[i] + from, o.m_start[i] + from + n);
+		length -= n;
+		start += n;
+	    }
+	    offset += size;
+	}
+    }
+
+    /**
+     * Copy bytes out of the segments, starting at segment i.
+     */
+    private void Gather(int i, int offset, byte[] dst, int dstOffset, int size) {
+	while (size > 0) {
+	    int n = Math.min(size, m_end[i] - m_start[i] - offset);
+	    m_data[i].m_bytes.get(m_start[i] + offset, dst, dstOffset, n);
+	    dstOffset += n;
+	    size -= n;
+	    offset = 0;
+	    i++;
+	}
+    }
+
+    /**
+     * Copy the bytes to an array.
+     * 
+     * @param dst  the array
+     * @param size the maximum number of bytes to copy
+     * @return the number of bytes copied
+     */
+    public int CopyData(byte[] dst, int size) {
+	size = Math.min(Math.min(size, m_size), dst.length);
+	if (size > 0) {
+	    Gather(0, 0, dst, 0, size);
+	}
+	return size;
+    }
+
+    /**
+     * Overwrite bytes, first making a private copy of the segments written to if
+     * they are shared.
+     * 
+     * @param offset    the offset of the first byte to write
+     * @param src       the bytes to write
+     * @param srcOffset the offset of the first byte in src
+     * @param size      the number of bytes
+     */
+    public void Write(int offset, final byte[] src, int srcOffset, int size) {
+	if (offset < 0 || size < 0 || offset + size > m_size) {
+	    throw new IndexOutOfBoundsException("Buffer: write of " + size + " bytes at " + offset + " in " + m_size);
+	}
+	for (int i = 0; i < m_count && size > 0; i++) {
+	    int length = m_end[i] - m_start[i];
+	    if (offset >= length) {
+		offset -= length;
+		continue;
+	    }
+	    if (m_data[i].m_refs.get() > 1) {
+		// copy-on-write, keeping the free room around the segment.
+		ByteBuffer bytes = PacketPool.ObtainBlock(m_data[i].m_bytes.capacity());
+		bytes.put(m_start[i], m_data[i].m_bytes, m_start[i], length);
+		if (m_data[i].m_refs.decrementAndGet() == 0) {
+		    PacketPool.RecycleBlock(m_data[i].m_bytes);
+		}
+		m_data[i] = new Data(bytes, m_start[i], m_end[i]);
+	    }
+	    int n = Math.min(size, length - offset);
+	    m_data[i].m_bytes.put(m_start[i] + offset, src, srcOffset, n);
+	    srcOffset += n;
+	    size -= n;
+	    offset = 0;
+	}
+    }
+}
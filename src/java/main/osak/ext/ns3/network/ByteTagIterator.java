@@ -16,11 +16,129 @@
 package osak.ext.ns3.network;
 
 /**
- * TODO ByteTagIterator
+ * An iterator over the byte tags of a range of bytes of a packet.
+ * <p>
+ * The iterator walks the packed records of the ByteTagList and returns the same
+ * Item for every tag, so that iterating allocates nothing: an Item is only valid
+ * until the next call to Next().
  * 
  * @author zhangrui
  * @since   1.0
  */
 public class ByteTagIterator {
+    /**
+     * A byte tag.
+     */
+    public static class Item {
+	private byte[] m_bytes; // !< the packed tags
+	private int m_typeId; // !< the id of the class of the tag
+	private int m_start; // !< offset of the first byte covered
+	private int m_end; // !< offset after the last byte covered
+	private int m_value; // !< offset of the value of the tag in m_bytes
+	private int m_size; // !< size of the value of the tag
+	private final TagBuffer m_cursor = new TagBuffer(); // !< the cursor reading the value
 
+	/**
+	 * @return the class of the tag
+	 */
+	@SuppressWarnings("unchecked")
+	public Class<? extends Tag> GetTypeId() {
+	    return (Class<? extends Tag>) ClassId.TypeOf(m_typeId);
+	}
+
+	/**
+	 * @return the offset of the first byte covered by the tag, from the start of
+	 *         the iterated range
+	 */
+	public int GetStart() {
+	    return m_start;
+	}
+
+	/**
+	 * @return the offset after the last byte covered by the tag, from the start of
+	 *         the iterated range
+	 */
+	public int GetEnd() {
+	    return m_end;
+	}
+
+	/**
+	 * Read the value of the tag. The class of tag must be the one returned by
+	 * GetTypeId().
+	 * 
+	 * @param tag the tag to read the value into
+	 */
+	public void GetTag(Tag tag) {
+	    assert (ClassId.Of(tag) == m_typeId) : "ByteTagIterator::Item::GetTag(): wrong tag type";
+	    tag.Deserialize(m_cursor.Reset(m_bytes, m_value, m_value + m_size));
+	}
+
+	/**
+	 * @return the id of the class of the tag
+	 */
+	int GetTypeIndex() {
+	    return m_typeId;
+	}
+    }
+
+    private final Item m_item = new Item(); // !< the item returned by Next()
+    private final byte[] m_bytes; // !< the packed tags
+    private final int m_used; // !< end of the records
+    private final int m_adjustment; // !< offset added to the stored ranges
+    private final int m_offsetStart; // !< start of the iterated range
+    private final int m_offsetEnd; // !< end of the iterated range
+    private int m_next = 0; // !< offset of the next record in the range
+
+    /**
+     * @param bytes       the packed tags, or null
+     * @param used        end of the records
+     * @param adjustment  offset added to the stored ranges
+     * @param offsetStart start of the iterated range
+     * @param offsetEnd   end of the iterated range
+     */
+    ByteTagIterator(byte[] bytes, int used, int adjustment, int offsetStart, int offsetEnd) {
+	m_bytes = bytes;
+	m_used = used;
+	m_adjustment = adjustment;
+	m_offsetStart = offsetStart;
+	m_offsetEnd = offsetEnd;
+	m_item.m_bytes = bytes;
+	Skip();
+    }
+
+    /** Move m_next to the next record which covers bytes of the range. */
+    private void Skip() {
+	while (m_next < m_used) {
+	    int start = ByteTagList.GetInt(m_bytes, m_next + 8) + m_adjustment;
+	    int end = ByteTagList.GetInt(m_bytes, m_next + 12) + m_adjustment;
+	    if (start < m_offsetEnd && end > m_offsetStart) {
+		return;
+	    }
+	    m_next += ByteTagList.HEADER + ByteTagList.GetInt(m_bytes, m_next + 4);
+	}
+    }
+
+    /**
+     * @return true if Next() can be called
+     */
+    public boolean HasNext() {
+	return m_next < m_used;
+    }
+
+    /**
+     * @return the next tag, valid until the next call
+     */
+    public Item Next() {
+	assert HasNext() : "ByteTagIterator::Next(): no more tags";
+	Item item = m_item;
+	item.m_typeId = ByteTagList.GetInt(m_bytes, m_next);
+	item.m_size = ByteTagList.GetInt(m_bytes, m_next + 4);
+	item.m_start = Math.max(ByteTagList.GetInt(m_bytes, m_next + 8) + m_adjustment, m_offsetStart)
+		- m_offsetStart;
+	item.m_end = Math.min(ByteTagList.GetInt(m_bytes, m_next + 12) + m_adjustment, m_offsetEnd) - m_offsetStart;
+	item.m_value = m_next + ByteTagList.HEADER;
+	m_next = item.m_value + item.m_size;
+	Skip();
+	return item;
+    }
 }
@@ -16,19 +16,277 @@
 package osak.ext.ns3.network;
 
 /**
- * TODO ByteTagList
+ * The byte tags of a packet, each covering a range of its bytes, as in ns-3.
+ * <p>
+ * The tags are packed one after the other in a single byte array: the id of
+ * the class of the tag, the size of its value, the start and end of its range,
+ * then the value itself. Tags are never removed one by one, so the array only
+ * grows at its end and copies of the list share it: a copy appends in place
+ * when it owns the end of the used area of the array, and otherwise copies the
+ * array first, as the Buffer does with its dirty area.
+ * <p>
+ * The ranges are stored relative to an adjustment which adding or removing
+ * bytes at the start of the packet changes, so the records are left untouched
+ * by headers. They are only rewritten when bytes added to the packet would be
+ * covered by a tag and the range has to be trimmed, which is rare.
  * 
  * @author zhangrui
  * @since   1.0
  */
 public class ByteTagList {
+    /** Size of the record of a tag before its value. */
+    static final int HEADER = 16;
 
     /**
-     * @return
+     * The array of the tags, shared by copies of a list.
      */
-    public int GetSerializedSize() {
-	// TODO Auto-generated method stub
-	return 0;
+    static final class Data {
+	final byte[] m_bytes; // !< the packed tags
+	private int m_dirty = 0; // !< end of the area used by any list
+
+	Data(int capacity) {
+	    m_bytes = new byte[capacity];
+	}
+
+	/**
+	 * Claim size bytes after used, which succeeds when no other list used them.
+	 * 
+	 * @param used the end of the area used by the claiming list
+	 * @param size the number of bytes to claim
+	 * @return true if the bytes were claimed
+	 */
+	synchronized boolean Claim(int used, int size) {
+	    if (used != m_dirty || used + size > m_bytes.length) {
+		return false;
+	    }
+	    m_dirty = used + size;
+	    return true;
+	}
+    }
+
+    private Data m_data = null; // !< the tags, or null when there are none
+    private int m_used = 0; // !< end of the area used by this list
+    private int m_adjustment = 0; // !< offset added to the stored ranges
+    private int m_minStart = Integer.MAX_VALUE; // !< lowest stored start
+    private int m_maxEnd = Integer.MIN_VALUE; // !< highest stored end
+    private final TagBuffer m_cursor = new TagBuffer(); // !< the cursor writing values
+
+    /**
+     * Create an empty list.
+     */
+    public ByteTagList() {
+    }
+
+    /**
+     * Copy constructor: shares the tags of o.
+     * 
+     * @param o the list to copy
+     */
+    public ByteTagList(final ByteTagList o) {
+	ShareFrom(o);
+    }
+
+    /**
+     * Replace the tags of this list by those of o, sharing them.
+     * 
+     * @param o the list to copy
+     */
+    void ShareFrom(final ByteTagList o) {
+	m_data = o.m_data;
+	m_used = o.m_used;
+	m_adjustment = o.m_adjustment;
+	m_minStart = o.m_minStart;
+	m_maxEnd = o.m_maxEnd;
+    }
+
+    static void PutInt(byte[] bytes, int offset, int v) {
+	bytes[offset] = (byte) v;
+	bytes[offset + 1] = (byte) (v >> 8);
+	bytes[offset + 2] = (byte) (v >> 16);
+	bytes[offset + 3] = (byte) (v >> 24);
+    }
+
+    static int GetInt(byte[] bytes, int offset) {
+	return (bytes[offset] & 0xff) | (bytes[offset + 1] & 0xff) << 8 | (bytes[offset + 2] & 0xff) << 16
+		| (bytes[offset + 3] & 0xff) << 24;
+    }
+
+    /**
+     * Reserve the record of a new tag at the end of the used area.
+     * 
+     * @return the offset of the record
+     */
+    private int Allocate(int size) {
+	if (m_data == null || !m_data.Claim(m_used, size)) {
+	    int capacity = m_data == null ? 0 : m_data.m_bytes.length;
+	    Data data = new Data(Math.max(Math.max(64, capacity * 2), m_used + size));
+	    if (m_used > 0) {
+		System.arraycopy(m_data.m_bytes, 0, data.m_bytes, 0, m_used);
+	    }
+	    data.Claim(m_used, size);
+	    m_data = data;
+	}
+	int offset = m_used;
+	m_used += size;
+	return offset;
+    }
+
+    /**
+     * Append a record, with a range in the coordinates of the packet.
+     * 
+     * @return the offset of the value of the tag
+     */
+    private int Append(int typeId, int size, int start, int end) {
+	int offset = Allocate(HEADER + size);
+	byte[] bytes = m_data.m_bytes;
+	start -= m_adjustment;
+	end -= m_adjustment;
+	PutInt(bytes, offset, typeId);
+	PutInt(bytes, offset + 4, size);
+	PutInt(bytes, offset + 8, start);
+	PutInt(bytes, offset + 12, end);
+	m_minStart = Math.min(m_minStart, start);
+	m_maxEnd = Math.max(m_maxEnd, end);
+	return offset + HEADER;
+    }
+
+    /**
+     * Add a tag covering the bytes [start, end) of the packet.
+     * 
+     * @param tag   the tag to add
+     * @param start offset of the first byte covered
+     * @param end   offset after the last byte covered
+     */
+    public void Add(final Tag tag, int start, int end) {
+	int size = tag.GetSerializedSize();
+	int offset = Append(ClassId.Of(tag), size, start, end);
+	tag.Serialize(m_cursor.Reset(m_data.m_bytes, offset, offset + size));
+    }
+
+    /**
+     * Add the tags of o, trimmed to the bytes from 0 on and moved by shift.
+     * 
+     * @param o     the list whose tags are added
+     * @param shift the offset added to the ranges of the tags of o
+     */
+    public void Add(final ByteTagList o, int shift) {
+	if (o.m_data == null) {
+	    return;
+	}
+	// o may be this list, so its state is read before appending.
+	byte[] bytes = o.m_data.m_bytes;
+	int used = o.m_used;
+	int adjustment = o.m_adjustment;
+	for (int offset = 0; offset < used;) {
+	    int size = GetInt(bytes, offset + 4);
+	    int start = Math.max(GetInt(bytes, offset + 8) + adjustment, 0);
+	    int end = GetInt(bytes, offset + 12) + adjustment;
+	    if (end > 0) {
+		int value = Append(GetInt(bytes, offset), size, start + shift, end + shift);
+		System.arraycopy(bytes, offset + HEADER, m_data.m_bytes, value, size);
+	    }
+	    offset += HEADER + size;
+	}
+    }
+
+    /**
+     * Remove all the tags.
+     */
+    public void RemoveAll() {
+	m_data = null;
+	m_used = 0;
+	m_adjustment = 0;
+	m_minStart = Integer.MAX_VALUE;
+	m_maxEnd = Integer.MIN_VALUE;
+	m_cursor.Clear();
+    }
+
+    /**
+     * Move all the ranges by adjustment bytes, in constant time.
+     * 
+     * @param adjustment the number of bytes added (or, if negative, removed) at
+     *                   the start of the packet
+     */
+    public void Adjust(int adjustment) {
+	m_adjustment += adjustment;
+    }
+
+    /**
+     * Trim the ranges so that no tag covers the bytes from appendOffset on, which
+     * are about to be added to the packet.
+     * 
+     * @param appendOffset the current size of the packet
+     */
+    public void AddAtEnd(int appendOffset) {
+	if (m_maxEnd <= appendOffset - m_adjustment) {
+	    return;
+	}
+	Trim(Integer.MIN_VALUE, appendOffset);
+    }
+
+    /**
+     * Trim the ranges so that no tag covers the bytes before prependOffset, which
+     * have just been added to the packet.
+     * 
+     * @param prependOffset the number of bytes added at the start of the packet
+     */
+    public void AddAtStart(int prependOffset) {
+	if (m_minStart >= prependOffset - m_adjustment) {
+	    return;
+	}
+	Trim(prependOffset, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Rewrite the list with the ranges clamped to [low, high), dropping the tags
+     * left empty.
+     */
+    private void Trim(int low, int high) {
+	byte[] bytes = m_data.m_bytes;
+	int used = m_used;
+	int adjustment = m_adjustment;
+	RemoveAll();
+	for (int offset = 0; offset < used;) {
+	    int size = GetInt(bytes, offset + 4);
+	    int start = Math.max(GetInt(bytes, offset + 8) + adjustment, low);
+	    int end = Math.min(GetInt(bytes, offset + 12) + adjustment, high);
+	    if (start < end) {
+		int value = Append(GetInt(bytes, offset), size, start, end);
+		System.arraycopy(bytes, offset + HEADER, m_data.m_bytes, value, size);
+	    }
+	    offset += HEADER + size;
+	}
+    }
+
+    /**
+     * @param offsetStart offset of the first byte of the range
+     * @param offsetEnd   offset after the last byte of the range
+     * @return an iterator over the tags covering bytes of the range, with their
+     *         ranges clamped to it and relative to its start
+     */
+    public ByteTagIterator Begin(int offsetStart, int offsetEnd) {
+	byte[] bytes = m_data == null ? null : m_data.m_bytes;
+	return new ByteTagIterator(bytes, m_used, m_adjustment, offsetStart, offsetEnd);
     }
 
+    /**
+     * @return true if the list holds no tag
+     */
+    public boolean IsEmpty() {
+	return m_used == 0;
+    }
+
+    /**
+     * @return the number of bytes needed to serialize the list: the number of
+     *         tags, then the record of each tag, 4-byte aligned
+     */
+    public int GetSerializedSize() {
+	int size = 4;
+	for (int offset = 0; offset < m_used;) {
+	    int length = GetInt(m_data.m_bytes, offset + 4);
+	    size += HEADER + ((length + 3) & (~3));
+	    offset += HEADER + length;
+	}
+	return size;
+    }
 }
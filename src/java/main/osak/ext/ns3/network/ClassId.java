@@ -0,0 +1,62 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.network;
+
+import java.util.Arrays;
+
+/**
+ * Small integer ids of classes, allocated on first use. Tag lists use the ids of
+ * tag classes as indexes instead of comparing classes, and packet metadata
+ * records the ids of header and trailer classes instead of the classes.
+ * 
+ * @author zhangrui
+ * @since 1.0
+ */
+final class ClassId {
+    private static Class<?>[] s_types = new Class<?>[16]; // !< the class of each id
+    private static int s_next = 0; // !< the next free id
+    private static final ClassValue<Integer> s_ids = new ClassValue<Integer>() {
+	@Override
+	protected Integer computeValue(Class<?> type) {
+	    synchronized (ClassId.class) {
+		if (s_next == s_types.length) {
+		    s_types = Arrays.copyOf(s_types, s_next * 2);
+		}
+		s_types[s_next] = type;
+		return s_next++;
+	    }
+	}
+    };
+
+    private ClassId() {
+    }
+
+    /**
+     * @param o an object
+     * @return the id of the class of the object
+     */
+    static int Of(final Object o) {
+	return s_ids.get(o.getClass());
+    }
+
+    /**
+     * @param id the id of a class
+     * @return the class
+     */
+    static synchronized Class<?> TypeOf(int id) {
+	return s_types[id];
+    }
+}
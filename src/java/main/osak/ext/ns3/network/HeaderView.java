@@ -0,0 +1,103 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.network;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A read-only view of a header at the start of a packet, reading its fields in
+ * place from the bytes of the packet instead of deserializing a Header.
+ * <p>
+ * Packet.PeekHeader(HeaderView) points the view to the bytes of the packet when
+ * they lie in a single segment, as they do unless packets were joined by
+ * AddAtEnd(), and otherwise copies them into an array the view keeps for the
+ * next time, so that a view used on each received packet allocates nothing.
+ * The view is only valid until the packet changes. Header classes remain the
+ * way to build packets.
+ * 
+ * @author zhangrui
+ * @since   1.0
+ */
+public abstract class HeaderView {
+    private ByteBuffer m_bytes; // !< the bytes of the header
+    private int m_offset; // !< offset of the header in m_bytes
+    private ByteBuffer m_scratch; // !< the copy of headers spanning several segments
+
+    /**
+     * @return the number of bytes of the header read by the view
+     */
+    public abstract int GetSerializedSize();
+
+    /**
+     * Point the view to a header.
+     * 
+     * @param bytes  the bytes of the header
+     * @param offset offset of the header in bytes
+     */
+    void Wrap(ByteBuffer bytes, int offset) {
+	m_bytes = bytes;
+	m_offset = offset;
+    }
+
+    /**
+     * Point the view to its own array, to copy a header into.
+     * 
+     * @param size the size of the header
+     * @return the array to copy the header into
+     */
+    byte[] WrapScratch(int size) {
+	if (m_scratch == null || m_scratch.capacity() < size) {
+	    m_scratch = ByteBuffer.allocate(Math.max(size, 32));
+	}
+	Wrap(m_scratch, 0);
+	return m_scratch.array();
+    }
+
+    /**
+     * Deserialize the viewed header into a Header object, to modify it or send it
+     * again.
+     * 
+     * @param header the header to deserialize
+     * @return the number of bytes read
+     */
+    public int Deserialize(Header header) {
+	return header.Deserialize(m_bytes.duplicate().position(m_offset));
+    }
+
+    /**
+     * @param index offset of the field in the header
+     * @return the 8-bit field
+     */
+    protected final byte GetU8(int index) {
+	return m_bytes.get(m_offset + index);
+    }
+
+    /**
+     * @param index offset of the field in the header
+     * @return the 16-bit field, in network byte order
+     */
+    protected final short GetU16(int index) {
+	return m_bytes.getShort(m_offset + index);
+    }
+
+    /**
+     * @param index offset of the field in the header
+     * @return the 32-bit field, in network byte order
+     */
+    protected final int GetU32(int index) {
+	return m_bytes.getInt(m_offset + index);
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.network;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * The Internet checksum of RFC 1071, shared by the IPv4 and UDP headers.
+ * <p>
+ * Sums are 16-bit one's complement sums, returned folded in [0, 0xffff] and not
+ * complemented, so that the sums of several regions (a pseudo-header, a header,
+ * a payload) can be added with Add() before taking the checksum. Since the one's
+ * complement sum of 16-bit words equals the folded sum of wider words, Sum()
+ * adds the bytes 64 bits at a time, as two 32-bit halves whose carries collect
+ * in a long and are folded once at the end.
+ * <p>
+ * Update() adjusts a checksum after one 16-bit word of the data changed, as in
+ * RFC 1624, so that a router decrementing the TTL of a header does not sum the
+ * header again.
+ * 
+ * @author zhangrui
+ * @since   1.0
+ */
+public final class InternetChecksum {
+    private InternetChecksum() {
+    }
+
+    private static int Fold(long sum) {
+	while ((sum >>> 16) != 0) {
+	    sum = (sum & 0xffff) + (sum >>> 16);
+	}
+	return (int) sum;
+    }
+
+    /**
+     * @param buffer  the bytes to sum, read in network byte order whatever the
+     *                order of the buffer
+     * @param offset  absolute offset of the first byte
+     * @param length  number of bytes; an odd last byte is padded with a zero
+     * @param initial the sum to add the bytes to
+     * @return the one's complement sum
+     */
+    public static int Sum(ByteBuffer buffer, int offset, int length, int initial) {
+	if (buffer.order() != ByteOrder.BIG_ENDIAN) {
+	    buffer = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+	}
+	long sum = initial & 0xffff;
+	int i = offset;
+	int end = offset + length;
+	for (; i + 8 <= end; i += 8) {
+	    long w = buffer.getLong(i);
+	    sum += (w >>> 32) + (w & 0xffffffffL);
+	}
+	if (i + 4 <= end) {
+	    sum += buffer.getInt(i) & 0xffffffffL;
+	    i += 4;
+	}
+	if (i + 2 <= end) {
+	    sum += buffer.getShort(i) & 0xffff;
+	    i += 2;
+	}
+	if (i < end) {
+	    sum += (buffer.get(i) & 0xff) << 8;
+	}
+	return Fold(sum);
+    }
+
+    /**
+     * @param packet  the packet whose bytes to sum
+     * @param initial the sum to add the bytes to
+     * @return the one's complement sum
+     */
+    public static int Sum(Packet packet, int initial) {
+	int size = packet.GetSize();
+	return Sum(packet.Read(0, size), 0, size, initial);
+    }
+
+    /**
+     * @param sum  a one's complement sum
+     * @param word a 16-bit word, or any 32-bit value summed as two words
+     * @return the one's complement sum of both
+     */
+    public static int Add(int sum, int word) {
+	return Fold((sum & 0xffffL) + (word >>> 16) + (word & 0xffff));
+    }
+
+    /**
+     * @param sum a one's complement sum
+     * @return the checksum of the data summed
+     */
+    public static short Checksum(int sum) {
+	return (short) ~sum;
+    }
+
+    /**
+     * @param buffer the bytes to check
+     * @param offset absolute offset of the first byte
+     * @param length number of bytes
+     * @return the checksum of the bytes
+     */
+    public static short Checksum(ByteBuffer buffer, int offset, int length) {
+	return Checksum(Sum(buffer, offset, length, 0));
+    }
+
+    /**
+     * Update a checksum after a 16-bit word of the data changed, as in equation 3
+     * of RFC 1624: HC' = ~(~HC + ~m + m').
+     * 
+     * @param checksum the checksum of the data
+     * @param oldWord  the old value of the word
+     * @param newWord  the new value of the word
+     * @return the checksum of the changed data
+     */
+    public static short Update(short checksum, short oldWord, short newWord) {
+	long sum = (~checksum & 0xffff) + (~oldWord & 0xffff) + (newWord & 0xffff);
+	return (short) ~Fold(sum);
+    }
+}
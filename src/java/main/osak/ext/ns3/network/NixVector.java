@@ -15,28 +15,121 @@
  */
 package osak.ext.ns3.network;
 
+import java.util.Arrays;
+
 /**
- * TODO NixVector
+ * The route of a packet as a vector of neighbor indices, as in ns-3.
+ * <p>
+ * A node numbers its neighbors from 0; the source of a packet appends the
+ * index of the neighbor taken at each hop, with just enough bits to number the
+ * neighbors of that hop, and each node along the route extracts the bits of its
+ * own hop. A route across a static topology thus fits in a few words, and is
+ * followed without any table lookup.
  * 
  * @author zhangrui
  * @since   1.0
  */
 public class NixVector {
+    private int[] m_nixVector = new int[1]; // !< the bits, from the most significant bit of word 0
+    private int m_totalBitSize = 0; // !< number of bits appended
+    private int m_used = 0; // !< number of bits extracted
 
     /**
-     * @return
+     * Create an empty vector.
+     */
+    public NixVector() {
+    }
+
+    /**
+     * Copy constructor.
+     * 
+     * @param o the vector to copy
+     */
+    public NixVector(final NixVector o) {
+	m_nixVector = o.m_nixVector.clone();
+	m_totalBitSize = o.m_totalBitSize;
+	m_used = o.m_used;
+    }
+
+    /**
+     * @return a copy of this vector
      */
     public NixVector Copy() {
-	// TODO Auto-generated method stub
-	return null;
+	return new NixVector(this);
+    }
+
+    /**
+     * Append the index of the neighbor taken at the next hop.
+     * 
+     * @param newBits      the neighbor index
+     * @param numberOfBits the number of bits of the index, as returned by
+     *                     BitCount()
+     */
+    public void AddNeighborIndex(int newBits, int numberOfBits) {
+	assert (numberOfBits > 0 && numberOfBits < 32) : "NixVector::AddNeighborIndex(): invalid number of bits";
+	assert ((newBits >>> numberOfBits) == 0) : "NixVector::AddNeighborIndex(): index does not fit";
+	int words = (m_totalBitSize + numberOfBits + 31) >>> 5;
+	if (words > m_nixVector.length) {
+	    m_nixVector = Arrays.copyOf(m_nixVector, Math.max(words, m_nixVector.length * 2));
+	}
+	for (int i = numberOfBits - 1; i >= 0; i--) {
+	    if (((newBits >>> i) & 1) != 0) {
+		m_nixVector[m_totalBitSize >>> 5] |= 0x80000000 >>> (m_totalBitSize & 31);
+	    }
+	    m_totalBitSize++;
+	}
     }
 
     /**
-     * @return
+     * Extract the index of the neighbor to take at this hop.
+     * 
+     * @param numberOfBits the number of bits of the index, as returned by
+     *                     BitCount()
+     * @return the neighbor index
+     */
+    public int ExtractNeighborIndex(int numberOfBits) {
+	assert (numberOfBits <= GetRemainingBits()) : "NixVector::ExtractNeighborIndex(): not enough bits left";
+	int index = 0;
+	for (int i = 0; i < numberOfBits; i++) {
+	    int bit = (m_nixVector[m_used >>> 5] >>> (31 - (m_used & 31))) & 1;
+	    index = (index << 1) | bit;
+	    m_used++;
+	}
+	return index;
+    }
+
+    /**
+     * @return the number of bits not extracted yet
+     */
+    public int GetRemainingBits() {
+	return m_totalBitSize - m_used;
+    }
+
+    /**
+     * @param numberOfNeighbors the number of neighbors of a node
+     * @return the number of bits needed to number the neighbors, at least 1
+     */
+    public static int BitCount(int numberOfNeighbors) {
+	if (numberOfNeighbors < 2) {
+	    return 1;
+	}
+	return 32 - Integer.numberOfLeadingZeros(numberOfNeighbors - 1);
+    }
+
+    /**
+     * @return the number of bytes needed to serialize the vector: its size in
+     *         bits, then its words
      */
     public int GetSerializedSize() {
-	// TODO Auto-generated method stub
-	return 0;
+	return 4 + 4 * ((m_totalBitSize + 31) >>> 5);
     }
 
+    @Override
+    public String toString() {
+	StringBuilder sb = new StringBuilder();
+	for (int i = m_used; i < m_totalBitSize; i++) {
+	    sb.append((m_nixVector[i >>> 5] >>> (31 - (i & 31))) & 1);
+	}
+	return sb.toString();
+    }
 }
@@ -20,6 +20,7 @@ import java.util.List;
 import java.util.Objects;
 
 import osak.ext.communication.MyLog;
+import osak.ext.ns3.core.Simulator;
 import osak.ext.ns3.core.Time;
 
 /**
@@ -86,7 +87,7 @@ public class Node {
      * @return The time as seen by this node
      */
     public Time GetLocalTime() {
-	return Time.Now();
+	return Simulator.Now();
     }
 
     /**
@@ -386,7 +387,7 @@ public class Node {
      * @brief Finish node's construction by setting the correct node ID.
      */
     private void Construct() {
-	// m_id = NodeList::Add(this);
+	m_id = NodeList.Add(this);
     }
 
     /**
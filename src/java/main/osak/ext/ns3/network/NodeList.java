@@ -0,0 +1,71 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.network;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The list of simulation nodes.
+ * <p>
+ * Every Node created is automatically added to this list, and its index in the
+ * list is its node id. The node id is also the context of the events run on
+ * behalf of the node, see Simulator::ScheduleWithContext.
+ * 
+ * @author zhangrui
+ * @since 1.0
+ */
+public final class NodeList {
+    private static final List<Node> s_nodes = new ArrayList<>(); // !< the nodes, indexed by id
+
+    private NodeList() {
+    }
+
+    /**
+     * @param node the node to add
+     * @return the index of the node in the list, used as its node id
+     */
+    public static synchronized int Add(Node node) {
+	s_nodes.add(node);
+	return s_nodes.size() - 1;
+    }
+
+    /**
+     * @param n the index of the requested node
+     * @return the node, or null if there is no node with this index
+     */
+    public static synchronized Node GetNode(int n) {
+	if (n < 0 || n >= s_nodes.size()) {
+	    return null;
+	}
+	return s_nodes.get(n);
+    }
+
+    /**
+     * @return the number of nodes currently in the list
+     */
+    public static synchronized int GetNNodes() {
+	return s_nodes.size();
+    }
+
+    /**
+     * Forget every node, so that the node ids of the next simulation start at 0
+     * again.
+     */
+    public static synchronized void Clear() {
+	s_nodes.clear();
+    }
+}
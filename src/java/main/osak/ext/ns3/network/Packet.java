@@ -18,8 +18,7 @@ package osak.ext.ns3.network;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
-import java.util.LinkedList;
-import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Packet
@@ -39,7 +38,7 @@ public class Packet {
      * @param metadata      the packet's metadata
      */
     @SuppressWarnings("unused")
-    private Packet(ByteBuffer buffer, final ByteTagList byteTagList, final PacketTagList packetTagList,
+    private Packet(Buffer buffer, final ByteTagList byteTagList, final PacketTagList packetTagList,
 	    final PacketMetadata metadata) {
 	m_buffer = buffer;
 	m_byteTagList = byteTagList;
@@ -56,27 +55,46 @@ public class Packet {
      * @returns the number of deserialized bytes.
      */
     private int Deserialize(final byte[] buffer, int size) {
-	// TODO: no need to do;
-	m_bufferList.clear();
-	m_size = 0;
-	m_bufferList.add(buffer);
-	m_size += buffer.length;
-	return 0;
-
+	// TODO: only the bytes are serialized, not the tags and metadata;
+	m_buffer.Release();
+	m_buffer.Init(buffer, size);
+	return size;
     }
 
-    private ByteBuffer m_buffer = ByteBuffer.allocate(128);// !< the packet buffer (it's actual contents)
-    private LinkedList<byte[]> m_bufferList = new LinkedList<>();
+    private Buffer m_buffer = new Buffer();// !< the packet buffer (it's actual contents)
     private ByteTagList m_byteTagList = new ByteTagList(); // !< the ByteTag list
     private PacketTagList m_packetTagList = new PacketTagList(); // !< the packet's Tag list
     private PacketMetadata m_metadata = new PacketMetadata(); // !< the packet's metadata
-    private int m_size = 0;
 
     /* Please see comments above about nix-vector */
     private NixVector m_nixVector; // !< the packet's Nix vector
 
-    private UUID m_id;
-    private static int m_globalUid; // !< Global counter of packets Uid
+    private long m_id; // !< the packet's uid
+
+    /** Number of uids a thread takes at once from the global counter. */
+    private static final int UID_BLOCK = 1024;
+    private static final AtomicLong s_nextUidBlock = new AtomicLong(); // !< first uid of the next free block
+    private static final ThreadLocal<long[]> s_uids = ThreadLocal.withInitial(() -> new long[2]); // !< next and limit uids of the block of each thread
+
+    /**
+     * Allocate a new uid. Each thread draws the uids from a block of consecutive
+     * ones it took from a global counter, so uids are unique across all the
+     * threads and logical processes, and increasing within each thread, without
+     * contention.
+     * 
+     * @return the new uid
+     */
+    private static long AllocateUid() {
+	long[] block = s_uids.get();
+	if (block[0] == block[1]) {
+	    block[0] = s_nextUidBlock.getAndAdd(UID_BLOCK);
+	    block[1] = block[0] + UID_BLOCK;
+	}
+	return block[0]++;
+    }
+
+    private boolean m_free = false; // !< whether the packet has been released
+    PacketPool.Tracker m_tracker; // !< leak detection state, if enabled when the packet was obtained
 
     /**
      * Returns the packet's Uid.
@@ -95,7 +113,7 @@ public class Packet {
      *
      * @returns an integer identifier which uniquely identifies this packet.
      */
-    public UUID GetUid() {
+    public long GetUid() {
 	return m_id;
     }
 
@@ -103,28 +121,91 @@ public class Packet {
      * Create an empty packet with a new uid (as returned by getUid).
      */
     public Packet() {
-	m_id = UUID.nameUUIDFromBytes(m_buffer.array());
-	m_nixVector = null;
-	m_globalUid++;
+	Init();
     }
 
     /**
-     * Copy constructor
+     * Create a packet for the PacketPool, without a uid: it is initialized by one
+     * of the Init() methods when it is obtained.
+     * 
+     * @param tracker leak detection state, null if disabled
+     */
+    Packet(PacketPool.Tracker tracker) {
+	m_tracker = tracker;
+    }
+
+    /**
+     * Copy constructor: the copy shares the bytes of o until either of them
+     * writes into them.
      * 
      * @param o object to copy
      */
     public Packet(final Packet o) {
-	m_size = 0;
-	for (byte[] buffer : o.m_bufferList) {
-	    byte[] newBuffer = new byte[buffer.length];
-	    System.arraycopy(buffer, 0, newBuffer, 0, buffer.length);
-	    m_size += buffer.length;
-	    m_bufferList.addFirst(newBuffer);
-	}
-	m_buffer = o.m_buffer;
-	m_byteTagList = o.m_byteTagList;
-	m_packetTagList = o.m_packetTagList;
-	m_metadata = o.m_metadata;
+	Init(o);
+    }
+
+    /**
+     * Reinitialize a packet taken from the PacketPool as an empty packet with a new
+     * uid.
+     */
+    void Init() {
+	m_free = false;
+	m_id = AllocateUid();
+	m_metadata.Init();
+	m_nixVector = null;
+    }
+
+    /**
+     * Reinitialize a packet taken from the PacketPool with a zero-filled payload.
+     * 
+     * @param size the size of the zero-filled payload
+     */
+    void Init(int size) {
+	Init();
+	m_buffer.Init(size);
+	m_metadata.AddPayload(size);
+    }
+
+    /**
+     * Reinitialize a packet taken from the PacketPool with a copy of some data.
+     * 
+     * @param buffer the data to store in the packet
+     * @param size   the size of the input buffer
+     */
+    void Init(final byte[] buffer, int size) {
+	Init();
+	m_buffer.Init(buffer, size);
+	m_metadata.AddPayload(size);
+    }
+
+    /**
+     * Reinitialize a packet taken from the PacketPool as a COW copy of o.
+     * 
+     * @param o the packet to copy
+     */
+    void Init(final Packet o) {
+	Init(o, 0, o.GetSize());
+    }
+
+    /**
+     * Reinitialize a packet taken from the PacketPool as a COW copy of some of
+     * the bytes of o, along with its tags and metadata.
+     * 
+     * @param o      the packet to copy
+     * @param start  the offset of the first byte to copy
+     * @param length the number of bytes to copy
+     */
+    void Init(final Packet o, int start, int length) {
+	m_free = false;
+	m_buffer.Release();
+	m_buffer.AddAtEnd(o.m_buffer, start, length);
+	m_id = o.m_id;
+	m_byteTagList.ShareFrom(o.m_byteTagList);
+	m_byteTagList.Adjust(-start);
+	m_packetTagList.ShareFrom(o.m_packetTagList);
+	m_metadata.ShareFrom(o.m_metadata);
+	m_metadata.RemoveAtEnd(o.GetSize() - start - length);
+	m_metadata.RemoveAtStart(start);
 	if (o.m_nixVector != null) {
 	    m_nixVector = o.m_nixVector.Copy();
 	} else {
@@ -132,6 +213,28 @@ public class Packet {
 	}
     }
 
+    /**
+     * Give the packet back to the PacketPool of the calling thread, along with
+     * the bytes no copy of it shares. The packet must not be used afterwards.
+     * <p>
+     * Releasing a packet is optional: a packet which is not released is garbage
+     * collected as usual.
+     * 
+     * @throws IllegalStateException if the packet has already been released
+     */
+    public void Release() {
+	if (m_free) {
+	    throw new IllegalStateException("Packet::Release(): packet " + m_id + " released twice");
+	}
+	m_free = true;
+	m_buffer.Release();
+	m_byteTagList.RemoveAll();
+	m_packetTagList.RemoveAll();
+	m_metadata.RemoveAll();
+	m_nixVector = null;
+	PacketPool.Recycle(this);
+    }
+
     /**
      * Create a packet with a zero-filled payload.
      *
@@ -143,12 +246,7 @@ public class Packet {
      * @param size the size of the zero-filled payload
      */
     public Packet(int size) {
-	byte[] buffer = new byte[size];
-	Arrays.fill(buffer, (byte) 0);
-	m_bufferList.addFirst(buffer);
-	m_size += size;
-	m_nixVector = null;
-	m_globalUid++;
+	Init(size);
     }
 
     /**
@@ -182,11 +280,7 @@ public class Packet {
      * @param size the size of the input buffer.
      */
     public Packet(final byte[] buffer, int size) {
-	m_globalUid++;
-	m_bufferList.clear();
-	m_size = 0;
-	m_bufferList.addFirst(buffer);
-	m_size += buffer.length;
+	Init(buffer, size);
     }
 
     /**
@@ -199,9 +293,9 @@ public class Packet {
      * @param length length of fragment to create
      * @returns a fragment of the original packet
      */
-    // TODO:
     public Packet CreateFragment(int start, int length) {
-	return null;
+	assert (start + length <= GetSize()) : "Packet::CreateFragment(): fragment beyond the end of the packet";
+	return PacketPool.Obtain(this, start, length);
     }
 
     /**
@@ -211,7 +305,7 @@ public class Packet {
      * @returns the size in bytes of the packet
      */
     public int GetSize() {
-	return m_size;
+	return m_buffer.GetSize();
     }
 
     /**
@@ -223,31 +317,28 @@ public class Packet {
      *
      * @param header a reference to the header to add to this packet.
      */
-    // TODO: check
     public void AddHeader(Header header) {
-	// put data to m_buffer
 	int size = header.GetSerializedSize();
-	ByteBuffer buffer = ByteBuffer.allocate(size);
-	header.Serialize(buffer);
-	buffer.flip();
-	m_bufferList.addFirst(buffer.array());
-	m_size += size;
-
+	header.Serialize(m_buffer.AddAtStart(size));
+	m_metadata.AddHeader(header, size);
+	m_byteTagList.Adjust(size);
+	m_byteTagList.AddAtStart(size);
     }
 
-    private void mergeList() {
-	if(m_bufferList.size()>1) {
-	    byte[] nb = new byte[m_size];
-	    int start = 0;
-	    for(byte[] buffer:m_bufferList) {
-		System.arraycopy(buffer, 0, nb, start, buffer.length);
-		start += buffer.length;
-	    }
-	    m_bufferList.clear();
-	    m_bufferList.add(nb);
-	} else {
-	    return;
+    /**
+     * Deserialize a header from the start of the packet, in place when its
+     * serialized size lies in the first segment of the buffer, as it does unless
+     * packets were joined by AddAtEnd(), and otherwise from a copy of only that
+     * many bytes. A variable-length header spanning several segments must be
+     * read with RemoveHeader(header, size) or PeekHeader(header, size).
+     */
+    private int DeserializeHeader(Header header) {
+	ByteBuffer first = m_buffer.ReadFirstSegment();
+	int size = header.GetSerializedSize();
+	if (first.remaining() >= size || m_buffer.GetSegmentCount() <= 1) {
+	    return header.Deserialize(first);
 	}
+	return header.Deserialize(m_buffer.Read(0, Math.min(size, GetSize())));
     }
 
     /**
@@ -261,13 +352,10 @@ public class Packet {
      */
     // TODO:涉及到元数据、Tag等元素的添加和删除
     public int RemoveHeader(Header header) {
-	mergeList();
-	ByteBuffer buffer = ByteBuffer.wrap(m_bufferList.get(0));
-	int deserialized = header.Deserialize(buffer);
-	m_size -= deserialized;
-	byte[] nb = new byte[m_size];
-	System.arraycopy(m_bufferList.getFirst(), deserialized, nb, 0, m_size);
-	m_bufferList.set(0, nb);
+	int deserialized = DeserializeHeader(header);
+	m_metadata.RemoveHeader(header, deserialized);
+	m_buffer.RemoveAtStart(deserialized);
+	m_byteTagList.Adjust(-deserialized);
 	return deserialized;
     }
 
@@ -282,9 +370,11 @@ public class Packet {
      * @param size number of bytes to deserialize
      * @returns the number of bytes removed from the packet.
      */
-    // TODO: 没有这个用法
     public int RemoveHeader(Header header, int size) {
-	int deserialized = header.Deserialize(m_buffer);
+	int deserialized = header.Deserialize(m_buffer.Read(0, size));
+	m_metadata.RemoveHeader(header, deserialized);
+	m_buffer.RemoveAtStart(deserialized);
+	m_byteTagList.Adjust(-deserialized);
 	return deserialized;
     }
 
@@ -297,18 +387,34 @@ public class Packet {
      * @returns the number of bytes read from the packet.
      */
     public int PeekHeader(Header header) {
-	ByteBuffer buffer = ByteBuffer.allocate(m_size);
-	if (m_bufferList.size() > 1) {
-	    for (int i = 0; i < m_bufferList.size(); i++) {
-		buffer.put(m_bufferList.get(i));
-	    }
-	} else {
-	    buffer.put(m_bufferList.get(0));
-	}
-	buffer.flip();
+	return DeserializeHeader(header);
+    }
 
-	int deserialized = header.Deserialize(m_buffer);
-	return deserialized;
+    /**
+     * Point a view to the header at the start of the packet, without
+     * deserializing it. The view is valid until the packet changes.
+     *
+     * @param view the view of the header
+     * @returns false if the packet is shorter than the header
+     */
+    public boolean PeekHeader(HeaderView view) {
+	return PeekHeader(view, view.GetSerializedSize());
+    }
+
+    /**
+     * Point a view to the first size bytes of the packet, for variable-length
+     * headers.
+     *
+     * @param view the view of the header
+     * @param size the number of bytes of the header
+     * @returns false if the packet is shorter than size
+     */
+    public boolean PeekHeader(HeaderView view, int size) {
+	if (size > GetSize()) {
+	    return false;
+	}
+	m_buffer.View(view, size);
+	return true;
     }
 
     /**
@@ -323,7 +429,7 @@ public class Packet {
      * @returns the number of bytes read from the packet.
      */
     public int PeekHeader(Header header, int size) {
-	return PeekHeader(header);
+	return header.Deserialize(m_buffer.Read(0, size));
     }
 
     /**
@@ -337,9 +443,10 @@ public class Packet {
      * @param trailer a reference to the trailer to add to this packet.
      */
     public void AddTrailer(final Trailer trailer) {
-	@SuppressWarnings("unused")
 	int size = trailer.GetSerializedSize();
-	trailer.Serialize(m_buffer);
+	m_byteTagList.AddAtEnd(GetSize());
+	trailer.Serialize(m_buffer.AddAtEnd(size));
+	m_metadata.AddTrailer(trailer, size);
     }
 
     /**
@@ -351,8 +458,9 @@ public class Packet {
      * @returns the number of bytes removed from the end of the packet.
      */
     public int RemoveTrailer(Trailer trailer) {
-	int size = trailer.GetSerializedSize();
-	trailer.Serialize(m_buffer);
+	int size = PeekTrailer(trailer);
+	m_metadata.RemoveTrailer(trailer, size);
+	m_buffer.RemoveAtEnd(size);
 	return size;
     }
 
@@ -366,8 +474,7 @@ public class Packet {
      */
     public int PeekTrailer(Trailer trailer) {
 	int size = trailer.GetSerializedSize();
-	trailer.Serialize(m_buffer);
-	return size;
+	return trailer.Deserialize(m_buffer.Read(m_buffer.GetSize() - size, size));
     }
 
     /**
@@ -378,9 +485,11 @@ public class Packet {
      *
      * @param packet packet to concatenate
      */
-    // TODO:not used
     public void AddAtEnd(final Packet packet) {
-
+	m_byteTagList.AddAtEnd(GetSize());
+	m_byteTagList.Add(packet.m_byteTagList, GetSize());
+	m_buffer.AddAtEnd(packet.m_buffer);
+	m_metadata.AddAtEnd(packet.m_metadata);
     }
 
     /**
@@ -389,11 +498,9 @@ public class Packet {
      * @param size number of padding bytes to add.
      */
     public void AddPaddingAtEnd(int size) {
-	byte padding[] = new byte[size];
-	for (int i = 0; i < size; i++) {
-	    padding[i] = 0;
-	}
-	m_buffer.put(padding);
+	m_byteTagList.AddAtEnd(GetSize());
+	m_buffer.AddAtEnd(size);
+	m_metadata.AddPayload(size);
     }
 
     /**
@@ -404,8 +511,8 @@ public class Packet {
      * @param size number of bytes from remove
      */
     public void RemoveAtEnd(int size) {
-	byte end[] = new byte[size];
-	m_buffer.get(end, 0, size);
+	m_metadata.RemoveAtEnd(Math.min(size, GetSize()));
+	m_buffer.RemoveAtEnd(size);
     }
 
     /**
@@ -416,7 +523,19 @@ public class Packet {
      * @param size number of bytes from remove
      */
     public void RemoveAtStart(int size) {
-	// TODO:
+	m_byteTagList.Adjust(-Math.min(size, GetSize()));
+	m_metadata.RemoveAtStart(Math.min(size, GetSize()));
+	m_buffer.RemoveAtStart(size);
+    }
+
+    /**
+     * @param offset offset of the first byte to read
+     * @param size   the number of bytes to read
+     * @return a read-only view of the bytes, or a copy when they span several
+     *         segments
+     */
+    ByteBuffer Read(int offset, int size) {
+	return m_buffer.Read(offset, size);
     }
 
     /**
@@ -430,11 +549,7 @@ public class Packet {
      * No more than \b size bytes will be copied by this function.
      */
     public int CopyData(byte[] buffer, int size) {
-	m_bufferList.clear();
-	m_size = 0;
-	m_bufferList.add(buffer);
-	m_size += buffer.length;
-	return buffer.length;
+	return m_buffer.CopyData(buffer, size);
     }
 
     /**
@@ -460,11 +575,7 @@ public class Packet {
      * same datasets internally.
      */
     public Packet Copy() {
-	// we need to invoke the copy constructor directly
-	// rather than calling Create because the copy constructor
-	// is private.
-	// TODO: 明明是public，而且构造得不一样
-	return new Packet(this);
+	return PacketPool.Obtain(this);
     }
 
     /**
@@ -479,8 +590,9 @@ public class Packet {
      */
     // TODO:std::ostream
     public void Print() {
-	mergeList();
-	System.out.println(Arrays.toString(m_bufferList.getFirst()));
+	byte[] bytes = new byte[GetSize()];
+	CopyData(bytes, bytes.length);
+	System.out.println(Arrays.toString(bytes));
     }
 
     /**
@@ -490,9 +602,16 @@ public class Packet {
      *
      * @return String representation
      */
-    // TODO:
     public String ToString() {
-	return "";
+	StringBuilder sb = new StringBuilder();
+	PacketMetadata.ItemIterator i = BeginItem();
+	while (i.HasNext()) {
+	    if (sb.length() > 0) {
+		sb.append(' ');
+	    }
+	    sb.append(i.Next());
+	}
+	return sb.toString();
     }
 
     /**
@@ -508,8 +627,7 @@ public class Packet {
      * \sa EnablePrinting EnableChecking
      */
     public PacketMetadata.ItemIterator BeginItem() {
-	// TODO:
-	return null;
+	return m_metadata.BeginItem();
     }
 
     /**
@@ -521,7 +639,7 @@ public class Packet {
      * simulation setup and before any packet is created.
      */
     public static void EnablePrinting() {
-	// TODO:PacketMetadata::Enable();
+	PacketMetadata.Enable();
     }
 
     /**
@@ -534,7 +652,7 @@ public class Packet {
      * detected and will abort the program.
      */
     public static void EnableChecking() {
-	// TODO: PacketMetadata::EnableChecking();
+	PacketMetadata.EnableChecking();
     }
 
     /**
@@ -587,8 +705,7 @@ public class Packet {
 
 	// increment total size by size of buffer
 	// ensuring 4-byte boundary
-	// TODO:need to check;
-	size += ((m_buffer.remaining() + 3) & (~3));
+	size += ((m_buffer.GetSize() + 3) & (~3));
 
 	// add 4-bytes for entry of total length of buffer
 	size += 4;
@@ -604,11 +721,13 @@ public class Packet {
      *
      * @returns one if all data were serialized, zero if buffer size was too small.
      */
+    // TODO: only the bytes are serialized, not the tags and metadata
     public int Serialize(byte[] buffer, int maxSize) {
-	mergeList();
-	System.arraycopy(m_bufferList.getFirst(), 0, buffer, 0, m_size);
-	return 0;
-
+	if (maxSize < GetSize()) {
+	    return 0;
+	}
+	CopyData(buffer, maxSize);
+	return 1;
     }
 
     /**
@@ -628,8 +747,7 @@ public class Packet {
      * packet).
      */
     public void AddByteTag(final Tag tag) {
-	// TODO:
-
+	m_byteTagList.Add(tag, 0, GetSize());
     }
 
     /**
@@ -642,9 +760,9 @@ public class Packet {
      * the method in this way:
      *
      * @code{.cpp}
-         Ptr<Packet> p = ... ;
-         SomeTag tag;
-         p->AddByteTag (tag, 1, 10);
+	 Ptr<Packet> p = ... ;
+	 SomeTag tag;
+	 p->AddByteTag (tag, 1, 10);
        @endcode
      *
      * @param tag the new tag to add to this packet
@@ -652,8 +770,8 @@ public class Packet {
      * @param end the position of the last byte tagged by this tag
      */
     public void AddByteTag(final Tag tag, int start, int end) {
-	// TODO:
-
+	assert (start <= end) : "Packet::AddByteTag(): invalid byte range";
+	m_byteTagList.Add(tag, start, end);
     }
 
     /**
@@ -662,8 +780,7 @@ public class Packet {
      * @returns an iterator over the set of byte tags included in this packet.
      */
     public ByteTagIterator GetByteTagIterator() {
-	// TODO:
-	return null;
+	return m_byteTagList.Begin(0, GetSize());
     }
 
     /**
@@ -676,7 +793,15 @@ public class Packet {
      * provided tag instance.
      */
     public boolean FindFirstMatchingByteTag(Tag tag) {
-	// TODO:
+	int id = ClassId.Of(tag);
+	ByteTagIterator i = GetByteTagIterator();
+	while (i.HasNext()) {
+	    ByteTagIterator.Item item = i.Next();
+	    if (item.GetTypeIndex() == id) {
+		item.GetTag(tag);
+		return true;
+	    }
+	}
 	return false;
     }
 
@@ -684,8 +809,7 @@ public class Packet {
      * Remove all byte tags stored in this packet.
      */
     public void RemoveAllByteTags() {
-	// TODO:
-
+	m_byteTagList.RemoveAll();
     }
 
     /**
@@ -710,8 +834,7 @@ public class Packet {
      * un-intuitive.  See AddByteTag"()" discussion.
      */
     public void AddPacketTag(final Tag tag) {
-	// TODO:
-	
+	m_packetTagList.Add(tag);
     }
 
     /**
@@ -723,8 +846,7 @@ public class Packet {
      *          otherwise.
      */
     public boolean RemovePacketTag(Tag tag) {
-	// TODO:
-	return false;
+	return m_packetTagList.Remove(tag);
     }
 
     /**
@@ -738,8 +860,7 @@ public class Packet {
      *        either way).
      */
     public boolean ReplacePacketTag(Tag tag) {
-	// TODO:
-	return false;
+	return m_packetTagList.Replace(tag);
     }
 
     /**
@@ -750,16 +871,14 @@ public class Packet {
      *          otherwise.
      */
     public boolean PeekPacketTag(Tag tag) {
-	// TODO:
-	return false;
+	return m_packetTagList.Peek(tag);
     }
 
     /**
      *  Remove all packet tags.
      */
     public void RemoveAllPacketTags() {
-	// TODO:
-	
+	m_packetTagList.RemoveAll();
     }
 
     /**
@@ -784,8 +903,7 @@ public class Packet {
      *  packet tags.
      */
     public PacketTagIterator GetPacketTagIterator() {
-	// TODO:
-	return null;
+	return new PacketTagIterator(m_packetTagList.Snapshot());
     }
 
     /**
@@ -844,8 +962,8 @@ public class Packet {
     
     /*
     typedef void (*TwoAddressTracedCallback)(const Ptr<const Packet> packet,
-                                             const Address& srcAddress,
-                                             const Address& destAddress);
+					     const Address& srcAddress,
+					     const Address& destAddress);
      */
     
     /**
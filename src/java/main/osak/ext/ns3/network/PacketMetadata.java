@@ -15,30 +15,475 @@
  */
 package osak.ext.ns3.network;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
- * TODO PacketMetadata
+ * The history of the headers, trailers and payload of a packet, kept to print
+ * the packet and to check that removed headers and trailers were present.
+ * <p>
+ * Metadata is off by default, and then every operation returns after testing a
+ * flag set when the packet was created. Once enabled by Enable() or
+ * EnableChecking(), each operation on the packet appends a record of a few
+ * varint-encoded integers to a byte array: the operation, then the class id and
+ * size of the header or trailer, or the number of bytes. Copies of a packet
+ * share the array and append in place when they own the end of its used area,
+ * as the ByteTagList does. BeginItem() replays the records into the current
+ * list of items, so only printing and checking pay for the replay.
  * 
  * @author zhangrui
  * @since   1.0
  */
 public class PacketMetadata {
+    /**
+     * The type of an item.
+     */
+    public enum ItemType {
+	/** Payload bytes. */
+	PAYLOAD,
+	/** A header. */
+	HEADER,
+	/** A trailer. */
+	TRAILER
+    }
+
+    /**
+     * A header, trailer or payload of a packet, possibly trimmed.
+     */
+    public static final class Item {
+	private final ItemType m_type; // !< the type of the item
+	private final Class<?> m_typeId; // !< the class of the header or trailer
+	private final int m_size; // !< the size of the whole item
+	private int m_trimmedFromStart = 0; // !< bytes removed from the start
+	private int m_trimmedFromEnd = 0; // !< bytes removed from the end
+
+	Item(ItemType type, Class<?> typeId, int size) {
+	    m_type = type;
+	    m_typeId = typeId;
+	    m_size = size;
+	}
+
+	/**
+	 * @return the type of the item
+	 */
+	public ItemType GetType() {
+	    return m_type;
+	}
+
+	/**
+	 * @return the class of the header or trailer, or null for payload
+	 */
+	public Class<?> GetTypeId() {
+	    return m_typeId;
+	}
+
+	/**
+	 * @return true if only part of the item is left in the packet
+	 */
+	public boolean IsFragment() {
+	    return m_trimmedFromStart != 0 || m_trimmedFromEnd != 0;
+	}
+
+	/**
+	 * @return the number of bytes of the item left in the packet
+	 */
+	public int GetCurrentSize() {
+	    return m_size - m_trimmedFromStart - m_trimmedFromEnd;
+	}
+
+	/**
+	 * @return the number of bytes removed from the start of the item
+	 */
+	public int GetCurrentTrimmedFromStart() {
+	    return m_trimmedFromStart;
+	}
+
+	/**
+	 * @return the number of bytes removed from the end of the item
+	 */
+	public int GetCurrentTrimmedFromEnd() {
+	    return m_trimmedFromEnd;
+	}
+
+	@Override
+	public String toString() {
+	    String name = m_type == ItemType.PAYLOAD ? "Payload" : m_typeId.getSimpleName();
+	    if (IsFragment()) {
+		return name + " Fragment [" + m_trimmedFromStart + ":" + (m_size - m_trimmedFromEnd) + "]";
+	    }
+	    return name + " (size=" + m_size + ")";
+	}
+    }
+
+    /**
+     * An iterator over the items of a packet, from the first header to the last
+     * trailer.
+     */
+    public static final class ItemIterator {
+	private final List<Item> m_items; // !< the items
+	private int m_next = 0; // !< index of the next item
+
+	ItemIterator(List<Item> items) {
+	    m_items = items;
+	}
+
+	/**
+	 * @return true if Next() can be called
+	 */
+	public boolean HasNext() {
+	    return m_next < m_items.size();
+	}
+
+	/**
+	 * @return the next item
+	 */
+	public Item Next() {
+	    return m_items.get(m_next++);
+	}
+    }
+
+    /**
+     * The records, shared by copies of the metadata.
+     */
+    private static final class Data {
+	final byte[] m_bytes; // !< the records
+	private int m_dirty = 0; // !< end of the area used by any metadata
+
+	Data(int capacity) {
+	    m_bytes = new byte[capacity];
+	}
+
+	synchronized boolean Claim(int used, int size) {
+	    if (used != m_dirty || used + size > m_bytes.length) {
+		return false;
+	    }
+	    m_dirty = used + size;
+	    return true;
+	}
+    }
+
+    /** The record of payload bytes added at the end: size. */
+    private static final int PAYLOAD = 0;
+    /** The record of a header added: class id, size. */
+    private static final int HEADER = 1;
+    /** The record of a trailer added: class id, size. */
+    private static final int TRAILER = 2;
+    /** The record of bytes removed from the start: size. */
+    private static final int REMOVE_AT_START = 3;
+    /** The record of bytes removed from the end: size. */
+    private static final int REMOVE_AT_END = 4;
+    /** The record of a packet added at the end: length, then its records. */
+    private static final int APPEND = 5;
+
+    private static volatile boolean s_enable = false;
+    private static volatile boolean s_enableChecking = false;
+
+    private boolean m_enabled = false; // !< whether metadata was enabled when the packet was created
+    private Data m_data = null; // !< the records, or null when there are none
+    private int m_used = 0; // !< end of the records of this metadata
+
+    /**
+     * Enable the metadata of the packets created from now on.
+     */
+    public static void Enable() {
+	s_enable = true;
+    }
+
+    /**
+     * Enable the metadata, and check that removed headers and trailers are the
+     * ones at the start and end of the packet.
+     */
+    public static void EnableChecking() {
+	Enable();
+	s_enableChecking = true;
+    }
+
+    /**
+     * Disable the metadata of the packets created from now on.
+     */
+    static void Disable() {
+	s_enable = false;
+	s_enableChecking = false;
+    }
 
     /**
-     * TODO ItemIterator
+     * Reset the metadata of a new packet.
+     */
+    void Init() {
+	RemoveAll();
+	m_enabled = s_enable;
+    }
+
+    /**
+     * Replace the records of this metadata by those of o, sharing them.
      * 
-     * @author zhangrui
-     * @since   1.0
+     * @param o the metadata to copy
+     */
+    void ShareFrom(final PacketMetadata o) {
+	m_enabled = o.m_enabled;
+	m_data = o.m_data;
+	m_used = o.m_used;
+    }
+
+    /**
+     * Drop the records.
      */
-    public class ItemIterator {
+    void RemoveAll() {
+	m_data = null;
+	m_used = 0;
+    }
 
+    private static int VarintSize(int v) {
+	int size = 1;
+	while ((v >>>= 7) != 0) {
+	    size++;
+	}
+	return size;
     }
 
     /**
-     * @return
+     * Reserve size bytes at the end of the records.
+     * 
+     * @return the offset of the reserved bytes
      */
-    public int GetSerializedSize() {
-	// TODO Auto-generated method stub
-	return 0;
+    private int Allocate(int size) {
+	if (m_data == null || !m_data.Claim(m_used, size)) {
+	    int capacity = m_data == null ? 0 : m_data.m_bytes.length;
+	    Data data = new Data(Math.max(Math.max(32, capacity * 2), m_used + size));
+	    if (m_used > 0) {
+		System.arraycopy(m_data.m_bytes, 0, data.m_bytes, 0, m_used);
+	    }
+	    data.Claim(m_used, size);
+	    m_data = data;
+	}
+	int offset = m_used;
+	m_used += size;
+	return offset;
     }
 
+    private static int PutVarint(byte[] bytes, int offset, int v) {
+	while ((v & ~0x7f) != 0) {
+	    bytes[offset++] = (byte) ((v & 0x7f) | 0x80);
+	    v >>>= 7;
+	}
+	bytes[offset++] = (byte) v;
+	return offset;
+    }
+
+    private void Record(int op, int v) {
+	int offset = Allocate(1 + VarintSize(v));
+	m_data.m_bytes[offset] = (byte) op;
+	PutVarint(m_data.m_bytes, offset + 1, v);
+    }
+
+    private void Record(int op, Object chunk, int size) {
+	int id = ClassId.Of(chunk);
+	int offset = Allocate(1 + VarintSize(id) + VarintSize(size));
+	m_data.m_bytes[offset] = (byte) op;
+	PutVarint(m_data.m_bytes, PutVarint(m_data.m_bytes, offset + 1, id), size);
+    }
+
+    /**
+     * @param size the number of payload bytes added at the end of the packet
+     */
+    void AddPayload(int size) {
+	if (m_enabled && size > 0) {
+	    Record(PAYLOAD, size);
+	}
+    }
+
+    /**
+     * @param header the header added at the start of the packet
+     * @param size   the size of the header
+     */
+    void AddHeader(final Header header, int size) {
+	if (m_enabled) {
+	    Record(HEADER, header, size);
+	}
+    }
+
+    /**
+     * @param header the header removed from the start of the packet
+     * @param size   the size of the header
+     */
+    void RemoveHeader(final Header header, int size) {
+	if (!m_enabled) {
+	    return;
+	}
+	if (s_enableChecking) {
+	    List<Item> items = GetItems();
+	    if (items.isEmpty() || !Matches(items.get(0), ItemType.HEADER, header, size)) {
+		throw new IllegalStateException("PacketMetadata::RemoveHeader(): " + header.getClass().getSimpleName()
+			+ " (size=" + size + ") is not the first item of " + items);
+	    }
+	}
+	Record(REMOVE_AT_START, size);
+    }
+
+    /**
+     * @param trailer the trailer added at the end of the packet
+     * @param size    the size of the trailer
+     */
+    void AddTrailer(final Trailer trailer, int size) {
+	if (m_enabled) {
+	    Record(TRAILER, trailer, size);
+	}
+    }
+
+    /**
+     * @param trailer the trailer removed from the end of the packet
+     * @param size    the size of the trailer
+     */
+    void RemoveTrailer(final Trailer trailer, int size) {
+	if (!m_enabled) {
+	    return;
+	}
+	if (s_enableChecking) {
+	    List<Item> items = GetItems();
+	    if (items.isEmpty() || !Matches(items.get(items.size() - 1), ItemType.TRAILER, trailer, size)) {
+		throw new IllegalStateException("PacketMetadata::RemoveTrailer(): "
+			+ trailer.getClass().getSimpleName() + " (size=" + size + ") is not the last item of " + items);
+	    }
+	}
+	Record(REMOVE_AT_END, size);
+    }
+
+    private static boolean Matches(Item item, ItemType type, Object chunk, int size) {
+	return item.m_type == type && item.m_typeId == chunk.getClass() && item.m_size == size && !item.IsFragment();
+    }
+
+    /**
+     * @param size the number of bytes removed from the start of the packet
+     */
+    void RemoveAtStart(int size) {
+	if (m_enabled && size > 0) {
+	    Record(REMOVE_AT_START, size);
+	}
+    }
+
+    /**
+     * @param size the number of bytes removed from the end of the packet
+     */
+    void RemoveAtEnd(int size) {
+	if (m_enabled && size > 0) {
+	    Record(REMOVE_AT_END, size);
+	}
+    }
+
+    /**
+     * @param o the metadata of the packet added at the end of the packet
+     */
+    void AddAtEnd(final PacketMetadata o) {
+	if (!m_enabled || o.m_used == 0) {
+	    return;
+	}
+	// o may be this metadata, so its records are read before appending.
+	byte[] bytes = o.m_data.m_bytes;
+	int used = o.m_used;
+	int offset = Allocate(1 + VarintSize(used) + used);
+	m_data.m_bytes[offset] = (byte) APPEND;
+	offset = PutVarint(m_data.m_bytes, offset + 1, used);
+	System.arraycopy(bytes, 0, m_data.m_bytes, offset, used);
+    }
+
+    /**
+     * @return an iterator over the items of the packet, empty if the metadata was
+     *         not enabled when the packet was created
+     */
+    public ItemIterator BeginItem() {
+	return new ItemIterator(GetItems());
+    }
+
+    private List<Item> GetItems() {
+	List<Item> items = new ArrayList<>();
+	if (m_data != null) {
+	    Replay(m_data.m_bytes, 0, m_used, items);
+	}
+	return items;
+    }
+
+    /**
+     * Apply the records in bytes[from, to) to items.
+     */
+    private static void Replay(byte[] bytes, int from, int to, List<Item> items) {
+	int[] cursor = { from };
+	while (cursor[0] < to) {
+	    int op = bytes[cursor[0]++];
+	    switch (op) {
+	    case PAYLOAD:
+		items.add(new Item(ItemType.PAYLOAD, null, GetVarint(bytes, cursor)));
+		break;
+	    case HEADER:
+		Class<?> header = ClassId.TypeOf(GetVarint(bytes, cursor));
+		items.add(0, new Item(ItemType.HEADER, header, GetVarint(bytes, cursor)));
+		break;
+	    case TRAILER:
+		Class<?> trailer = ClassId.TypeOf(GetVarint(bytes, cursor));
+		items.add(new Item(ItemType.TRAILER, trailer, GetVarint(bytes, cursor)));
+		break;
+	    case REMOVE_AT_START:
+		TrimStart(items, GetVarint(bytes, cursor));
+		break;
+	    case REMOVE_AT_END:
+		TrimEnd(items, GetVarint(bytes, cursor));
+		break;
+	    case APPEND:
+		int length = GetVarint(bytes, cursor);
+		List<Item> appended = new ArrayList<>();
+		Replay(bytes, cursor[0], cursor[0] + length, appended);
+		items.addAll(appended);
+		cursor[0] += length;
+		break;
+	    default:
+		throw new IllegalStateException("PacketMetadata::Replay(): corrupted record " + op);
+	    }
+	}
+    }
+
+    private static int GetVarint(byte[] bytes, int[] cursor) {
+	int v = 0;
+	int shift = 0;
+	byte b;
+	do {
+	    b = bytes[cursor[0]++];
+	    v |= (b & 0x7f) << shift;
+	    shift += 7;
+	} while (b < 0);
+	return v;
+    }
+
+    private static void TrimStart(List<Item> items, int size) {
+	while (size > 0 && !items.isEmpty()) {
+	    Item item = items.get(0);
+	    int current = item.GetCurrentSize();
+	    if (current <= size) {
+		items.remove(0);
+		size -= current;
+	    } else {
+		item.m_trimmedFromStart += size;
+		size = 0;
+	    }
+	}
+    }
+
+    private static void TrimEnd(List<Item> items, int size) {
+	while (size > 0 && !items.isEmpty()) {
+	    Item item = items.get(items.size() - 1);
+	    int current = item.GetCurrentSize();
+	    if (current <= size) {
+		items.remove(items.size() - 1);
+		size -= current;
+	    } else {
+		item.m_trimmedFromEnd += size;
+		size = 0;
+	    }
+	}
+    }
+
+    /**
+     * @return the number of bytes of the records
+     */
+    public int GetSerializedSize() {
+	return m_used;
+    }
 }
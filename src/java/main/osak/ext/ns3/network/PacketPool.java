@@ -0,0 +1,324 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.network;
+
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+import osak.ext.communication.MyLog;
+
+/**
+ * Free lists of packets and of the blocks holding their bytes, local to each
+ * thread.
+ * <p>
+ * Obtain() takes a packet released by the calling thread, if any, instead of
+ * allocating one; Packet.Release() gives it back, along with the blocks of its
+ * bytes that no copy shares any more. Blocks are kept in power of two size
+ * classes, from 128 bytes to 64 KiB; longer ones are left to the garbage
+ * collector, as are packets never released.
+ * <p>
+ * In the DIRECT storage mode new blocks are direct byte buffers, outside of the
+ * Java heap: the garbage collector then neither copies nor scans the bytes of
+ * packets in flight. Each thread carves them out of 1 MiB slabs of direct
+ * memory, its arena, which are never freed: their blocks are recycled instead.
+ * The mode can be switched at any time; blocks already allocated keep their
+ * storage.
+ * <p>
+ * A released packet must not be used any more. With leak detection enabled,
+ * packets garbage collected without having been released are counted and
+ * logged, with the stack trace of the Obtain() call that returned them.
+ * 
+ * @author zhangrui
+ * @since 1.0
+ */
+public final class PacketPool {
+    /** Set this system property to true to enable leak detection from start-up. */
+    public static final String LEAK_DETECTION_PROPERTY = "osak.ext.ns3.PacketPool.LeakDetection";
+    /** Set this system property to HEAP or DIRECT to choose the initial storage mode. */
+    public static final String STORAGE_PROPERTY = "osak.ext.ns3.PacketPool.Storage";
+
+    /**
+     * Where the bytes of packets are stored.
+     */
+    public enum Storage {
+	/** in arrays on the Java heap */
+	HEAP,
+	/** in direct byte buffers, outside of the Java heap */
+	DIRECT
+    }
+
+    /** Maximum number of free packets kept by each thread. */
+    static final int POOL_SIZE = 1024;
+    /** Maximum number of free blocks kept by each thread in each size class. */
+    static final int BLOCKS_PER_CLASS = 256;
+    /** log2 of the length of the smallest size class. */
+    static final int MIN_CLASS_SHIFT = 7;
+    /** Number of size classes. */
+    static final int CLASSES = 10;
+    /** Size of the slabs of direct memory blocks are carved from. */
+    static final int SLAB_SIZE = 1 << 20;
+
+    /**
+     * The free lists of one thread.
+     */
+    private static final class FreeLists {
+	final ArrayDeque<Packet> m_packets = new ArrayDeque<>(); // !< free packets
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	final ArrayDeque<ByteBuffer>[] m_heap = new ArrayDeque[CLASSES]; // !< free heap blocks of each size class
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	final ArrayDeque<ByteBuffer>[] m_direct = new ArrayDeque[CLASSES]; // !< free direct blocks of each size class
+	ByteBuffer m_slab; // !< the slab new direct blocks are carved from, up to its position
+
+	FreeLists() {
+	    for (int i = 0; i < CLASSES; i++) {
+		m_heap[i] = new ArrayDeque<>();
+		m_direct[i] = new ArrayDeque<>();
+	    }
+	}
+    }
+
+    /**
+     * The state of a packet watched for leaks. It must not reference the packet,
+     * or the packet would never become unreachable.
+     */
+    static final class Tracker implements Runnable {
+	volatile boolean m_inUse; // !< whether the packet was obtained and not released yet
+	volatile Throwable m_origin; // !< where the packet was obtained
+
+	@Override
+	public void run() {
+	    if (m_inUse) {
+		s_leaks.incrementAndGet();
+		MyLog.logOut("PacketPool: packet garbage collected without being released, obtained at "
+			+ StackTrace(m_origin), MyLog.WARNING);
+	    }
+	}
+    }
+
+    private static final ThreadLocal<FreeLists> s_free = ThreadLocal.withInitial(FreeLists::new);
+    private static final AtomicLong s_leaks = new AtomicLong();
+    private static final AtomicLong s_directCapacity = new AtomicLong();
+    private static volatile Storage s_storage = Storage.valueOf(System.getProperty(STORAGE_PROPERTY, "HEAP"));
+    private static volatile Cleaner s_cleaner;
+    private static volatile boolean s_leakDetection = Boolean.getBoolean(LEAK_DETECTION_PROPERTY);
+
+    private PacketPool() {
+    }
+
+    /**
+     * @return an empty packet with a new uid
+     */
+    public static Packet Obtain() {
+	Packet p = Take();
+	p.Init();
+	return p;
+    }
+
+    /**
+     * @param size the size of the zero-filled payload
+     * @return a packet with a zero-filled payload and a new uid
+     */
+    public static Packet Obtain(int size) {
+	Packet p = Take();
+	p.Init(size);
+	return p;
+    }
+
+    /**
+     * @param buffer the data to store in the packet
+     * @param size   the size of the input buffer
+     * @return a packet holding a copy of the data, with a new uid
+     */
+    public static Packet Obtain(final byte[] buffer, int size) {
+	Packet p = Take();
+	p.Init(buffer, size);
+	return p;
+    }
+
+    /**
+     * @param o the packet to copy
+     * @return a COW copy of o
+     */
+    static Packet Obtain(final Packet o) {
+	Packet p = Take();
+	p.Init(o);
+	return p;
+    }
+
+    /**
+     * @param o      the packet to copy
+     * @param start  the offset of the first byte of the fragment
+     * @param length the number of bytes of the fragment
+     * @return a COW copy of the fragment of o, with the uid of o
+     */
+    static Packet Obtain(final Packet o, int start, int length) {
+	Packet p = Take();
+	p.Init(o, start, length);
+	return p;
+    }
+
+    /**
+     * Set where the bytes of the packets created from now on are stored.
+     * 
+     * @param storage the storage mode
+     */
+    public static void SetStorage(Storage storage) {
+	s_storage = storage;
+    }
+
+    /**
+     * @return the storage mode
+     */
+    public static Storage GetStorage() {
+	return s_storage;
+    }
+
+    /**
+     * @return the number of bytes of direct memory allocated by all the threads
+     */
+    public static long GetDirectCapacity() {
+	return s_directCapacity.get();
+    }
+
+    /**
+     * Enable leak detection for the packets obtained from now on.
+     */
+    public static void EnableLeakDetection() {
+	s_leakDetection = true;
+    }
+
+    /**
+     * @return the number of packets found garbage collected without having been
+     *         released, since leak detection was enabled
+     */
+    public static long GetLeakCount() {
+	return s_leaks.get();
+    }
+
+    /**
+     * @return the number of free packets of the calling thread
+     */
+    public static int GetFreeCount() {
+	return s_free.get().m_packets.size();
+    }
+
+    private static Packet Take() {
+	Packet p = s_free.get().m_packets.pollLast();
+	if (p == null) {
+	    p = new Packet((Tracker) null);
+	}
+	if (s_leakDetection) {
+	    if (p.m_tracker == null) {
+		p.m_tracker = new Tracker();
+		GetCleaner().register(p, p.m_tracker);
+	    }
+	    p.m_tracker.m_origin = new Throwable("Obtain");
+	    p.m_tracker.m_inUse = true;
+	}
+	return p;
+    }
+
+    private static Cleaner GetCleaner() {
+	if (s_cleaner == null) {
+	    synchronized (PacketPool.class) {
+		if (s_cleaner == null) {
+		    s_cleaner = Cleaner.create();
+		}
+	    }
+	}
+	return s_cleaner;
+    }
+
+    /**
+     * Give a released packet back to the pool of the calling thread.
+     * 
+     * @param p the packet
+     */
+    static void Recycle(Packet p) {
+	if (p.m_tracker != null) {
+	    p.m_tracker.m_inUse = false;
+	    p.m_tracker.m_origin = null;
+	}
+	ArrayDeque<Packet> packets = s_free.get().m_packets;
+	if (packets.size() < POOL_SIZE) {
+	    packets.addLast(p);
+	}
+    }
+
+    /**
+     * @param length the minimum length
+     * @return a block of at least length bytes, rounded up to its size class,
+     *         stored as set by SetStorage(); its content is undefined
+     */
+    static ByteBuffer ObtainBlock(int length) {
+	boolean direct = s_storage == Storage.DIRECT;
+	int c = Math.max(0, 32 - Integer.numberOfLeadingZeros(length - 1) - MIN_CLASS_SHIFT);
+	if (c >= CLASSES) {
+	    if (direct) {
+		s_directCapacity.addAndGet(length);
+		return ByteBuffer.allocateDirect(length);
+	    }
+	    return ByteBuffer.allocate(length);
+	}
+	FreeLists free = s_free.get();
+	ByteBuffer block = (direct ? free.m_direct : free.m_heap)[c].pollLast();
+	if (block != null) {
+	    return block;
+	}
+	length = 1 << (c + MIN_CLASS_SHIFT);
+	if (!direct) {
+	    return ByteBuffer.allocate(length);
+	}
+	if (free.m_slab == null || free.m_slab.remaining() < length) {
+	    free.m_slab = ByteBuffer.allocateDirect(SLAB_SIZE);
+	    s_directCapacity.addAndGet(SLAB_SIZE);
+	}
+	block = free.m_slab.slice(free.m_slab.position(), length);
+	free.m_slab.position(free.m_slab.position() + length);
+	return block;
+    }
+
+    /**
+     * Give a block no buffer references any more back to the pool of the calling
+     * thread.
+     * 
+     * @param block the block
+     */
+    static void RecycleBlock(ByteBuffer block) {
+	int length = block.capacity();
+	int c = 31 - Integer.numberOfLeadingZeros(length) - MIN_CLASS_SHIFT;
+	if (Integer.bitCount(length) != 1 || c < 0 || c >= CLASSES) {
+	    return;
+	}
+	FreeLists free = s_free.get();
+	ArrayDeque<ByteBuffer> blocks = (block.isDirect() ? free.m_direct : free.m_heap)[c];
+	if (blocks.size() < BLOCKS_PER_CLASS) {
+	    blocks.addLast(block);
+	}
+    }
+
+    private static String StackTrace(Throwable t) {
+	StringBuilder sb = new StringBuilder();
+	if (t != null) {
+	    for (StackTraceElement e : t.getStackTrace()) {
+		sb.append("\n\tat ").append(e);
+	    }
+	}
+	return sb.toString();
+    }
+}
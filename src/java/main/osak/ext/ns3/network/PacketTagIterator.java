@@ -16,11 +16,69 @@
 package osak.ext.ns3.network;
 
 /**
- * TODO PacketTagIterator
+ * An iterator over the packet tags of a packet.
  * 
  * @author zhangrui
  * @since   1.0
  */
 public class PacketTagIterator {
+    /**
+     * A packet tag.
+     */
+    public static class Item {
+	private PacketTagList.TagData m_data; // !< the tag
+	private final TagBuffer m_cursor = new TagBuffer(); // !< the cursor reading the value
 
+	/**
+	 * @return the class of the tag
+	 */
+	public Class<? extends Tag> GetTypeId() {
+	    return m_data.m_type;
+	}
+
+	/**
+	 * Read the value of the tag. The class of tag must be the one returned by
+	 * GetTypeId().
+	 * 
+	 * @param tag the tag to read the value into
+	 */
+	public void GetTag(Tag tag) {
+	    assert (tag.getClass() == m_data.m_type) : "PacketTagIterator::Item::GetTag(): wrong tag type";
+	    tag.Deserialize(m_cursor.Reset(m_data.m_data, 0, m_data.m_data.length));
+	}
+    }
+
+    private final Item m_item = new Item(); // !< the item returned by Next()
+    private final PacketTagList.TagData[] m_tags; // !< the tags, with null entries
+    private int m_next = 0; // !< index of the next tag
+
+    /**
+     * @param tags the tags to iterate over, with null entries
+     */
+    PacketTagIterator(PacketTagList.TagData[] tags) {
+	m_tags = tags;
+	Skip();
+    }
+
+    private void Skip() {
+	while (m_next < m_tags.length && m_tags[m_next] == null) {
+	    m_next++;
+	}
+    }
+
+    /**
+     * @return true if Next() can be called
+     */
+    public boolean HasNext() {
+	return m_next < m_tags.length;
+    }
+
+    /**
+     * @return the next tag, valid until the next call
+     */
+    public Item Next() {
+	m_item.m_data = m_tags[m_next++];
+	Skip();
+	return m_item;
+    }
 }
@@ -15,20 +15,190 @@
  */
 package osak.ext.ns3.network;
 
+import java.util.Arrays;
+
 /**
- * TODO PacketTagList
+ * The packet tags of a packet: at most one tag of each class, stored as the
+ * bytes its Serialize() wrote, as in ns-3.
+ * <p>
+ * Tags are indexed by the small integer id of their class, so Peek(), Add()
+ * and Remove() cost one array access whatever the number of tags. A copy of
+ * the list shares the array with the original until either of them changes,
+ * which then makes a private copy of it: copy-on-write. Since the tag values
+ * are never modified in place, a copy of the array only copies references.
  * 
  * @author zhangrui
  * @since   1.0
  */
 public class PacketTagList {
+    /**
+     * A tag in the list.
+     */
+    static final class TagData {
+	final Class<? extends Tag> m_type; // !< the class of the tag
+	final byte[] m_data; // !< the serialized value of the tag
+
+	TagData(Class<? extends Tag> type, byte[] data) {
+	    m_type = type;
+	    m_data = data;
+	}
+    }
+
+    private static final TagData[] EMPTY = new TagData[0];
+
+    private TagData[] m_tags = EMPTY; // !< the tags, indexed by the id of their class
+    private boolean m_shared = false; // !< whether m_tags may be shared with another list
+    private int m_count = 0; // !< number of tags
+    private final TagBuffer m_cursor = new TagBuffer(); // !< the cursor reading and writing values
+
+    /**
+     * Create an empty list.
+     */
+    public PacketTagList() {
+    }
+
+    /**
+     * Copy constructor: shares the tags of o until either list changes.
+     * 
+     * @param o the list to copy
+     */
+    public PacketTagList(final PacketTagList o) {
+	ShareFrom(o);
+    }
+
+    /**
+     * Replace the tags of this list by those of o, sharing them.
+     * 
+     * @param o the list to copy
+     */
+    void ShareFrom(final PacketTagList o) {
+	m_tags = o.m_tags;
+	m_count = o.m_count;
+	m_shared = true;
+	o.m_shared = true;
+    }
+
+    /**
+     * Make m_tags private to this list and long enough to hold a tag of the given
+     * class id.
+     */
+    private void Own(int id) {
+	if (m_shared || id >= m_tags.length) {
+	    m_tags = Arrays.copyOf(m_tags, Math.max(m_tags.length, id + 1));
+	    m_shared = false;
+	}
+    }
+
+    private TagData Find(int id) {
+	return id < m_tags.length ? m_tags[id] : null;
+    }
+
+    private void Put(int id, final Tag tag) {
+	byte[] data = new byte[tag.GetSerializedSize()];
+	tag.Serialize(m_cursor.Reset(data, 0, data.length));
+	Own(id);
+	if (m_tags[id] == null) {
+	    m_count++;
+	}
+	m_tags[id] = new TagData(tag.getClass(), data);
+    }
+
+    /**
+     * Add a tag. The list must not hold a tag of the same class yet.
+     * 
+     * @param tag the tag to add
+     */
+    public void Add(final Tag tag) {
+	int id = ClassId.Of(tag);
+	assert (Find(id) == null) : "PacketTagList::Add(): a tag of the same type is already present";
+	Put(id, tag);
+    }
+
+    /**
+     * Remove the tag of the class of tag, if any, and copy its value into tag.
+     * 
+     * @param tag the tag to remove
+     * @return true if the tag was found
+     */
+    public boolean Remove(Tag tag) {
+	int id = ClassId.Of(tag);
+	TagData data = Find(id);
+	if (data == null) {
+	    return false;
+	}
+	tag.Deserialize(m_cursor.Reset(data.m_data, 0, data.m_data.length));
+	Own(id);
+	m_tags[id] = null;
+	m_count--;
+	return true;
+    }
+
+    /**
+     * Replace the value of the tag of the class of tag, or add it.
+     * 
+     * @param tag the new value of the tag
+     * @return true if the tag was found
+     */
+    public boolean Replace(final Tag tag) {
+	int id = ClassId.Of(tag);
+	boolean found = Find(id) != null;
+	Put(id, tag);
+	return found;
+    }
+
+    /**
+     * Copy the value of the tag of the class of tag into tag.
+     * 
+     * @param tag the tag to read
+     * @return true if the tag was found
+     */
+    public boolean Peek(Tag tag) {
+	TagData data = Find(ClassId.Of(tag));
+	if (data == null) {
+	    return false;
+	}
+	tag.Deserialize(m_cursor.Reset(data.m_data, 0, data.m_data.length));
+	return true;
+    }
+
+    /**
+     * Remove all the tags.
+     */
+    public void RemoveAll() {
+	m_tags = EMPTY;
+	m_shared = false;
+	m_count = 0;
+	m_cursor.Clear();
+    }
+
+    /**
+     * @return the number of tags
+     */
+    public int GetSize() {
+	return m_count;
+    }
+
+    /**
+     * @return the tags, indexed by the id of their class, with null entries; the
+     *         array is left unchanged by later changes to the list
+     */
+    TagData[] Snapshot() {
+	m_shared = true;
+	return m_tags;
+    }
 
     /**
-     * @return
+     * @return the number of bytes needed to serialize the list: the number of
+     *         tags, then the size and the value of each tag, 4-byte aligned
      */
     public int GetSerializedSize() {
-	// TODO Auto-generated method stub
-	return 0;
+	int size = 4;
+	for (TagData data : m_tags) {
+	    if (data != null) {
+		size += 4 + ((data.m_data.length + 3) & (~3));
+	    }
+	}
+	return size;
     }
 
 }
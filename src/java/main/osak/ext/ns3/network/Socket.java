@@ -394,6 +394,9 @@ public abstract class Socket {
      * </pre>
      * 
      * These flags are _unsupported_ as of ns-3.1.
+     * <p>
+     * The caller keeps the ownership of p: implementations must send copies of
+     * it, so that the caller may release it once this method returns.
      *
      * @param p     osak.ext.ns3::Packet to send
      * @param flags Socket control flags
@@ -539,12 +542,15 @@ public abstract class Socket {
      */
     public int Send(final byte[] buf, int size, int flags) {
 	Packet p;
-	if (buf == null) {
-	    p = new Packet(buf, size);
+	if (buf != null) {
+	    p = PacketPool.Obtain(buf, size);
 	} else {
-	    p = new Packet(size);
+	    p = PacketPool.Obtain(size);
 	}
-	return Send(p, flags);
+	// the socket sends copies of the packet, so it can be recycled right away.
+	int sent = Send(p, flags);
+	p.Release();
+	return sent;
     }
     
     /**
@@ -565,12 +571,15 @@ public abstract class Socket {
      */
     public int SendTo(final byte[] buf, int size, int flags, final Address toAddress) {
 	Packet p;
-	if (buf == null) {
-	    p = new Packet(buf, size);
+	if (buf != null) {
+	    p = PacketPool.Obtain(buf, size);
 	} else {
-	    p = new Packet(size);
+	    p = PacketPool.Obtain(size);
 	}
-	return SendTo(p, flags, toAddress);
+	// the socket sends copies of the packet, so it can be recycled right away.
+	int sent = SendTo(p, flags, toAddress);
+	p.Release();
+	return sent;
     }
     
     /**
@@ -50,20 +50,17 @@ public class SocketIpTosTag implements Tag {
 
     @Override
     public int GetSerializedSize() {
-	// TODO Auto-generated method stub
-	return 0;
+	return 1;
     }
 
     @Override
     public void Serialize(TagBuffer i) {
-	// TODO Auto-generated method stub
-
+	i.WriteU8(m_ipTos);
     }
 
     @Override
     public void Deserialize(TagBuffer i) {
-	// TODO Auto-generated method stub
-
+	m_ipTos = i.ReadU8();
     }
 
     @Override
@@ -49,20 +49,17 @@ public class SocketIpTtlTag implements Tag {
 
     @Override
     public int GetSerializedSize() {
-	// TODO Auto-generated method stub
-	return 0;
+	return 1;
     }
 
     @Override
     public void Serialize(TagBuffer i) {
-	// TODO Auto-generated method stub
-
+	i.WriteU8(m_ttl);
     }
 
     @Override
     public void Deserialize(TagBuffer i) {
-	// TODO Auto-generated method stub
-
+	m_ttl = i.ReadU8();
     }
 
     @Override
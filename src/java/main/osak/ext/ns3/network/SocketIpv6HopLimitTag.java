@@ -49,20 +49,17 @@ public class SocketIpv6HopLimitTag implements Tag {
 
     @Override
     public int GetSerializedSize() {
-	// TODO Auto-generated method stub
-	return 0;
+	return 1;
     }
 
     @Override
     public void Serialize(TagBuffer i) {
-	// TODO Auto-generated method stub
-
+	i.WriteU8(m_hopLimit);
     }
 
     @Override
     public void Deserialize(TagBuffer i) {
-	// TODO Auto-generated method stub
-
+	m_hopLimit = i.ReadU8();
     }
 
     @Override
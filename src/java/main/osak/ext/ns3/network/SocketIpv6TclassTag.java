@@ -51,20 +51,17 @@ public class SocketIpv6TclassTag implements Tag {
 
     @Override
     public int GetSerializedSize() {
-	// TODO Auto-generated method stub
-	return 0;
+	return 1;
     }
 
     @Override
     public void Serialize(TagBuffer i) {
-	// TODO Auto-generated method stub
-
+	i.WriteU8(m_ipv6Tclass);
     }
 
     @Override
     public void Deserialize(TagBuffer i) {
-	// TODO Auto-generated method stub
-
+	m_ipv6Tclass = i.ReadU8();
     }
 
     @Override
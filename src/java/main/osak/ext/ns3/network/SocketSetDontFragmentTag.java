@@ -54,20 +54,17 @@ public class SocketSetDontFragmentTag implements Tag {
 
     @Override
     public int GetSerializedSize() {
-	// TODO Auto-generated method stub
-	return 0;
+	return 1;
     }
 
     @Override
     public void Serialize(TagBuffer i) {
-	// TODO Auto-generated method stub
-
+	i.WriteU8((byte) (m_dontFragment ? 1 : 0));
     }
 
     @Override
     public void Deserialize(TagBuffer i) {
-	// TODO Auto-generated method stub
-
+	m_dontFragment = i.ReadU8() != 0;
     }
 
     @Override
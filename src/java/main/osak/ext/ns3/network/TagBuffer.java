@@ -16,11 +16,174 @@
 package osak.ext.ns3.network;
 
 /**
- * TODO TagBuffer
+ * A cursor reading or writing the value of a tag in a region of a byte array.
+ * <p>
+ * As in ns-3, multi-byte values are stored in little-endian order. Reading or
+ * writing beyond the end of the region is an error, caught by the assertions.
+ * <p>
+ * A TagBuffer is a cursor over an array it does not own: Reset() points it to
+ * another region, so the tag lists keep one cursor each and reading or writing
+ * a tag allocates nothing.
  * 
  * @author zhangrui
  * @since   1.0
  */
 public class TagBuffer {
+    private byte[] m_data; // !< the backing array
+    private int m_current; // !< offset of the next byte to read or write
+    private int m_end; // !< offset after the last byte of the region
 
+    /**
+     * @param data  the backing array
+     * @param start offset of the first byte of the region
+     * @param end   offset after the last byte of the region
+     */
+    public TagBuffer(byte[] data, int start, int end) {
+	Reset(data, start, end);
+    }
+
+    /**
+     * Create a cursor over no region, to be Reset() before use.
+     */
+    public TagBuffer() {
+	this(null, 0, 0);
+    }
+
+    /**
+     * Point the cursor to another region.
+     * 
+     * @param data  the backing array
+     * @param start offset of the first byte of the region
+     * @param end   offset after the last byte of the region
+     * @return this cursor
+     */
+    public TagBuffer Reset(byte[] data, int start, int end) {
+	m_data = data;
+	m_current = start;
+	m_end = end;
+	return this;
+    }
+
+    /**
+     * Forget the region, so that the cursor does not keep its array alive.
+     */
+    public void Clear() {
+	m_data = null;
+	m_current = 0;
+	m_end = 0;
+    }
+
+    /**
+     * @param v the value to write
+     */
+    public void WriteU8(byte v) {
+	assert (m_current + 1 <= m_end) : "TagBuffer::WriteU8(): write beyond the end of the tag";
+	m_data[m_current++] = v;
+    }
+
+    /**
+     * @param v the value to write
+     */
+    public void WriteU16(short v) {
+	WriteU8((byte) v);
+	WriteU8((byte) (v >> 8));
+    }
+
+    /**
+     * @param v the value to write
+     */
+    public void WriteU32(int v) {
+	WriteU16((short) v);
+	WriteU16((short) (v >> 16));
+    }
+
+    /**
+     * @param v the value to write
+     */
+    public void WriteU64(long v) {
+	WriteU32((int) v);
+	WriteU32((int) (v >> 32));
+    }
+
+    /**
+     * @param v the value to write
+     */
+    public void WriteDouble(double v) {
+	WriteU64(Double.doubleToRawLongBits(v));
+    }
+
+    /**
+     * @return the value read
+     */
+    public byte ReadU8() {
+	assert (m_current + 1 <= m_end) : "TagBuffer::ReadU8(): read beyond the end of the tag";
+	return m_data[m_current++];
+    }
+
+    /**
+     * @return the value read
+     */
+    public short ReadU16() {
+	int lo = ReadU8() & 0xff;
+	int hi = ReadU8() & 0xff;
+	return (short) (lo | (hi << 8));
+    }
+
+    /**
+     * @return the value read
+     */
+    public int ReadU32() {
+	int lo = ReadU16() & 0xffff;
+	int hi = ReadU16() & 0xffff;
+	return lo | (hi << 16);
+    }
+
+    /**
+     * @return the value read
+     */
+    public long ReadU64() {
+	long lo = ReadU32() & 0xffffffffL;
+	long hi = ReadU32() & 0xffffffffL;
+	return lo | (hi << 32);
+    }
+
+    /**
+     * @return the value read
+     */
+    public double ReadDouble() {
+	return Double.longBitsToDouble(ReadU64());
+    }
+
+    /**
+     * @param buffer the bytes to write
+     * @param size   the number of bytes to write
+     */
+    public void Write(final byte[] buffer, int size) {
+	assert (m_current + size <= m_end) : "TagBuffer::Write(): write beyond the end of the tag";
+	System.arraycopy(buffer, 0, m_data, m_current, size);
+	m_current += size;
+    }
+
+    /**
+     * @param buffer the array to read the bytes into
+     * @param size   the number of bytes to read
+     */
+    public void Read(byte[] buffer, int size) {
+	assert (m_current + size <= m_end) : "TagBuffer::Read(): read beyond the end of the tag";
+	System.arraycopy(m_data, m_current, buffer, 0, size);
+	m_current += size;
+    }
+
+    /**
+     * Copy the unread bytes of o into this buffer.
+     * 
+     * @param o the buffer to copy from
+     */
+    public void CopyFrom(TagBuffer o) {
+	int size = o.m_end - o.m_current;
+	assert (m_current + size <= m_end) : "TagBuffer::CopyFrom(): write beyond the end of the tag";
+	System.arraycopy(o.m_data, o.m_current, m_data, m_current, size);
+	m_current += size;
+	o.m_current = o.m_end;
+    }
 }
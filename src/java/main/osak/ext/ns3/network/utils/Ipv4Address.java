@@ -25,20 +25,32 @@ import osak.ext.ns3.internet.Ipv4Mask;
 import osak.ext.ns3.network.Address;
 
 /**
- * TODO Ipv4Address
+ * An immutable IPv4 address.
+ * <p>
+ * Addresses are compared by value, never with ==. Code that builds addresses
+ * from the int read in a packet should use {@link #Intern(int)}, which returns
+ * a shared instance from a bounded table instead of allocating a new one.
  * 
  * @author zhangrui
  * @since   1.0
  */
-public class Ipv4Address {
+public final class Ipv4Address {
     private static byte GetType() {
 	return type;
     }
 
     private static final int UNINITIALIZED = 0x66666666;
     private static byte type = Address.Register();
-    int m_address; // !< IPv4 address
-    boolean m_initialized; // !< IPv4 address has been explicitly initialized to a valid value.
+    /** Size of the intern table, a power of two. */
+    private static final int INTERN_SIZE = 4096;
+    /**
+     * The interned addresses, indexed by a hash of the address. A slot holds the
+     * last address interned there, so the table never grows; the fields being
+     * final, the instances are safely shared without locking.
+     */
+    private static final Ipv4Address[] s_interned = new Ipv4Address[INTERN_SIZE];
+    private final int m_address; // !< IPv4 address
+    private final boolean m_initialized; // !< IPv4 address has been explicitly initialized to a valid value.
 
     // convert Inet4Address to Ipv4Address
     public Ipv4Address(InetAddress address) {
@@ -72,17 +84,19 @@ public class Ipv4Address {
      * @param address C-string containing the address as described above
      */
     public Ipv4Address(String address) {
+	int value = 0;
+	boolean initialized = false;
 	try {
 	    InetAddress addr = Inet4Address.getByName(address);
 	    byte[] addrB = addr.getAddress();
-	    m_address = Helper.byte2int(addrB);
-	    m_initialized = true;
+	    value = Helper.byte2int(addrB);
+	    initialized = true;
 	} catch (Exception e) {
 	    MyLog.logOut("Ipv4Address::Ipv4Address",
 		    "Error, can not build an IPv4 address from an invalid string: " + address, 4);
-	    m_initialized = false;
-	    m_address = 0;
 	}
+	m_address = value;
+	m_initialized = initialized;
     }
 
     /**
@@ -111,39 +125,6 @@ public class Ipv4Address {
 	return m_address;
     }
 
-    /**
-     * input address is in host order.
-     * 
-     * @param address The host order 32-bit address
-     */
-    public void Set(int address) {
-	m_address = address;
-	m_initialized = true;
-    }
-
-    /**
-     * @brief Sets an Ipv4Address by parsing a the input C-string
-     *
-     * Input address is in format:
-     * \c hhh.xxx.xxx.lll
-     * where \c h is the high byte and \c l the
-     * low byte
-     * @param address C-string containing the address as described above
-     */
-    public void Set(String address) {
-	try {
-	    InetAddress addr = Inet4Address.getByName(address);
-	    byte[] addrB = addr.getAddress();
-	    m_address = Helper.byte2int(addrB);
-	    m_initialized = true;
-	} catch (Exception e) {
-	    MyLog.logOut("Ipv4Address::Set",
-		    "Error, can not build an IPv4 address from an invalid string: " + address, 4);
-	    m_initialized = false;
-	    m_address = 0;
-	}
-    }
-
     /**
      * Serialize this address to a 4-byte buffer
      *
@@ -171,18 +152,29 @@ public class Ipv4Address {
      * The input address is expected to be in network byte order format.
      */
     public static Ipv4Address Deserialize(final byte[] buf) {
-	Ipv4Address ipv4 = new Ipv4Address();
-	ipv4.m_address = 0;
-	ipv4.m_address |= buf[0];
-	ipv4.m_address <<= 8;
-	ipv4.m_address |= buf[1];
-	ipv4.m_address <<= 8;
-	ipv4.m_address |= buf[2];
-	ipv4.m_address <<= 8;
-	ipv4.m_address |= buf[3];
-	ipv4.m_initialized = true;
+	return Intern(((buf[0] & 0xff) << 24) | ((buf[1] & 0xff) << 16) | ((buf[2] & 0xff) << 8) | (buf[3] & 0xff));
+    }
 
-	return ipv4;
+    /**
+     * Get the shared instance of an address.
+     * <p>
+     * The instance is looked up in a fixed-size table: a hit allocates nothing,
+     * a miss allocates the address and replaces the previous one of the slot.
+     * Two calls with the same value may thus return different, though equal,
+     * instances.
+     * 
+     * @param address The host order 32-bit address
+     * @return the address
+     */
+    public static Ipv4Address Intern(int address) {
+	int h = address * 0x9e3779b9;
+	int index = (h ^ (h >>> 16)) & (INTERN_SIZE - 1);
+	Ipv4Address interned = s_interned[index];
+	if (interned == null || interned.m_address != address) {
+	    interned = new Ipv4Address(address);
+	    s_interned[index] = interned;
+	}
+	return interned;
     }
 
     /**
@@ -247,7 +239,7 @@ public class Ipv4Address {
      * @returns the address combined with the mask
      */
     public Ipv4Address CombineMask(final Ipv4Mask mask) {
-	return new Ipv4Address(Get() & mask.Get());
+	return Intern(Get() & mask.Get());
     }
 
     /**
@@ -267,7 +259,7 @@ public class Ipv4Address {
 		    "Trying to get subnet-directed broadcast address with an all-ones netmask", 4);
 	    assert (false);
 	}
-	return new Ipv4Address(Get() | mask.GetInverse());
+	return Intern(Get() | mask.GetInverse());
     }
 
     /**
@@ -288,7 +280,7 @@ public class Ipv4Address {
 	    // broadcast for this address.
 	    return false;
 	}
-	return ((Get() | mask.Get()) == Ipv4Address.GetBroadcast().Get());
+	return ((Get() | mask.Get()) == 0xffffffff);
     }
 
     /**
@@ -336,7 +328,7 @@ public class Ipv4Address {
     /**
      * @return the 0.0.0.0 address
      */
-    private static Ipv4Address zero = new Ipv4Address("0.0.0.0");
+    private static final Ipv4Address zero = new Ipv4Address("0.0.0.0");
     public static Ipv4Address GetZero() {
 	return zero;
     }
@@ -344,7 +336,7 @@ public class Ipv4Address {
     /**
      * @return the 0.0.0.0 address
      */
-    private static Ipv4Address any = new Ipv4Address("0.0.0.0");
+    private static final Ipv4Address any = new Ipv4Address("0.0.0.0");
     public static Ipv4Address GetAny() {
 	return any;
     }
@@ -352,7 +344,7 @@ public class Ipv4Address {
     /**
      * @return the 255.255.255.255 address
      */
-    private static Ipv4Address broadcast = new Ipv4Address("255.255.255.255");
+    private static final Ipv4Address broadcast = new Ipv4Address("255.255.255.255");
     public static Ipv4Address GetBroadcast() {
 	return broadcast;
     }
@@ -360,7 +352,7 @@ public class Ipv4Address {
     /**
      * @return the 127.0.0.1 address
      */
-    private static Ipv4Address loopback = new Ipv4Address("127.0.0.1");
+    private static final Ipv4Address loopback = new Ipv4Address("127.0.0.1");
     public static Ipv4Address GetLoopback() {
 	return loopback;
     }
@@ -0,0 +1,413 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.nixvector;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import osak.ext.communication.MyLog;
+import osak.ext.ns3.callback.ErrorCallback;
+import osak.ext.ns3.callback.LocalDeliverCallback;
+import osak.ext.ns3.callback.MulticastForwardCallback;
+import osak.ext.ns3.callback.UnicastForwardCallback;
+import osak.ext.ns3.internet.Ipv4;
+import osak.ext.ns3.internet.Ipv4Header;
+import osak.ext.ns3.internet.Ipv4InterfaceAddress;
+import osak.ext.ns3.internet.Ipv4Route;
+import osak.ext.ns3.internet.Ipv4RoutingProtocol;
+import osak.ext.ns3.network.Channel;
+import osak.ext.ns3.network.NetDevice;
+import osak.ext.ns3.network.NixVector;
+import osak.ext.ns3.network.Node;
+import osak.ext.ns3.network.NodeList;
+import osak.ext.ns3.network.Packet;
+import osak.ext.ns3.network.SocketErrno;
+import osak.ext.ns3.network.utils.Ipv4Address;
+
+/**
+ * Nix-vector routing, as in ns-3: the source of a packet finds the shortest
+ * path to its destination by a breadth-first search over the node graph, and
+ * attaches it to the packet as a NixVector of neighbor indices. Every node
+ * forwards the packet to the neighbor whose index it extracts from the vector,
+ * with no routing table.
+ * <p>
+ * Every node must run this protocol, and be given its node by SetNode(). The
+ * search runs over an immutable snapshot of the node graph, built once under
+ * the class lock and shared by all the nodes, so that nodes run by different
+ * threads never touch each other's state. Any change to the interfaces or
+ * addresses of any node drops the snapshot, since it may change the topology;
+ * each node then drops its vectors, cached by destination, and its routes to
+ * its neighbors when it sees the next snapshot.
+ * 
+ * @author zhangrui
+ * @since   1.0
+ */
+public class NixVectorRouting implements Ipv4RoutingProtocol {
+    /**
+     * A neighbor of a node: a device of another node on the channel of one of its
+     * devices.
+     */
+    private static final class Neighbor {
+	final NetDevice m_device; // !< the local device
+	final Node m_node; // !< the neighbor
+	final Ipv4Address m_source; // !< the address of the local interface, or null if it is down
+	final Ipv4Address m_gateway; // !< the address of the remote interface, or null if it is unreachable
+
+	Neighbor(NetDevice device, Node node, Ipv4Address source, Ipv4Address gateway) {
+	    m_device = device;
+	    m_node = node;
+	    m_source = source;
+	    m_gateway = gateway;
+	}
+
+	/**
+	 * @return true if packets can be forwarded to this neighbor
+	 */
+	boolean IsUsable() {
+	    return m_source != null && m_gateway != null;
+	}
+    }
+
+    /**
+     * The node graph at one point in time. It is built under the class lock from
+     * the protocols of all the nodes, and never modified afterwards.
+     */
+    private static final class Topology {
+	final Neighbor[][] m_neighbors; // !< the neighbors of each node by node id, null without this protocol
+	final int[] m_bits; // !< the number of bits of a neighbor index of each node
+	final Map<Ipv4Address, Node> m_addressToNode = new HashMap<>(); // !< the node of each address
+
+	/** Must be called with the class lock held. */
+	Topology() {
+	    int n = NodeList.GetNNodes();
+	    m_neighbors = new Neighbor[n][];
+	    m_bits = new int[n];
+	    for (NixVectorRouting routing : s_routings.values()) {
+		Ipv4 ipv4 = routing.m_ipv4;
+		if (ipv4 == null || routing.m_node.GetId() >= n) {
+		    continue;
+		}
+		for (int i = 0; i < ipv4.GetNInterfaces(); i++) {
+		    for (int j = 0; j < ipv4.GetNAddresses(i); j++) {
+			m_addressToNode.put(ipv4.GetAddress(i, j).GetLocal(), routing.m_node);
+		    }
+		}
+		List<Neighbor> neighbors = new ArrayList<>();
+		Node node = routing.m_node;
+		for (int i = 0; i < node.GetNDevices(); i++) {
+		    NetDevice device = node.GetDevice(i);
+		    Channel channel = device.GetChannel();
+		    int iface = ipv4.GetInterfaceForDevice(device);
+		    if (channel == null || iface < 0) {
+			continue;
+		    }
+		    Ipv4Address source = GetFirstAddress(ipv4, iface);
+		    for (long j = 0; j < channel.GetNDevices(); j++) {
+			NetDevice remote = channel.GetDevice(j);
+			if (remote == device) {
+			    continue;
+			}
+			NixVectorRouting remoteRouting = s_routings.get(remote.GetNode().GetId());
+			Ipv4Address gateway = null;
+			if (remoteRouting != null && remoteRouting.m_ipv4 != null) {
+			    gateway = GetFirstAddress(remoteRouting.m_ipv4, remoteRouting.m_ipv4.GetInterfaceForDevice(remote));
+			}
+			neighbors.add(new Neighbor(device, remote.GetNode(), source, gateway));
+		    }
+		}
+		m_neighbors[node.GetId()] = neighbors.toArray(new Neighbor[0]);
+		m_bits[node.GetId()] = NixVector.BitCount(neighbors.size());
+	    }
+	}
+
+	/**
+	 * @return the first address of the interface, or null if it does not exist,
+	 *         is down or has no address
+	 */
+	private static Ipv4Address GetFirstAddress(Ipv4 ipv4, int iface) {
+	    if (iface < 0 || !ipv4.IsUp(iface) || ipv4.GetNAddresses(iface) == 0) {
+		return null;
+	    }
+	    return ipv4.GetAddress(iface, 0).GetLocal();
+	}
+    }
+
+    private static final Map<Integer, NixVectorRouting> s_routings = new HashMap<>(); // !< the protocols, by node id
+    private static volatile Topology s_topology = null; // !< the current snapshot, or null once flushed
+
+    private Ipv4 m_ipv4; // !< IPv4 object
+    private Node m_node; // !< the node of this protocol
+    private Topology m_topology = null; // !< the snapshot the caches were built from
+    private final Map<Ipv4Address, NixVector> m_nixCache = new HashMap<>(); // !< the vector to each destination
+    private final Map<Ipv4Address, Ipv4Route> m_routeCache = new HashMap<>(); // !< the first hop to each destination
+    private Ipv4Route[] m_routes; // !< the route to each neighbor, built when first used
+
+    /**
+     * Set the node of this protocol, which must be done before routing.
+     * 
+     * @param node the node
+     */
+    public void SetNode(Node node) {
+	m_node = node;
+	synchronized (NixVectorRouting.class) {
+	    s_routings.put(node.GetId(), this);
+	}
+	FlushGlobalNixRoutingCache();
+    }
+
+    @Override
+    public void SetIpv4(Ipv4 ipv4) {
+	assert (ipv4 != null);
+	assert (m_ipv4 == null);
+	m_ipv4 = ipv4;
+	FlushGlobalNixRoutingCache();
+    }
+
+    /**
+     * Flush the caches of all the nodes, after a change of the topology.
+     */
+    public static synchronized void FlushGlobalNixRoutingCache() {
+	s_topology = null;
+    }
+
+    /**
+     * @return the current snapshot of the node graph, built if needed
+     */
+    private static Topology GetTopology() {
+	Topology topology = s_topology;
+	if (topology == null) {
+	    synchronized (NixVectorRouting.class) {
+		topology = s_topology;
+		if (topology == null) {
+		    topology = new Topology();
+		    s_topology = topology;
+		}
+	    }
+	}
+	return topology;
+    }
+
+    /**
+     * Drop the caches of this node if the topology changed since they were built.
+     * 
+     * @return the current snapshot
+     */
+    private Topology CheckCache() {
+	Topology topology = GetTopology();
+	if (m_topology != topology) {
+	    m_nixCache.clear();
+	    m_routeCache.clear();
+	    Neighbor[] neighbors = GetNeighbors(topology);
+	    m_routes = new Ipv4Route[neighbors.length];
+	    m_topology = topology;
+	}
+	return topology;
+    }
+
+    /**
+     * @return the neighbors of this node in the snapshot, in the order of their
+     *         indices
+     */
+    private Neighbor[] GetNeighbors(Topology topology) {
+	int id = m_node.GetId();
+	if (id >= topology.m_neighbors.length || topology.m_neighbors[id] == null) {
+	    return new Neighbor[0];
+	}
+	return topology.m_neighbors[id];
+    }
+
+    /**
+     * @return the number of bits of a neighbor index of this node in the snapshot
+     */
+    private int GetBits(Topology topology) {
+	int id = m_node.GetId();
+	return id < topology.m_bits.length ? topology.m_bits[id] : NixVector.BitCount(0);
+    }
+
+    /**
+     * Find the shortest path from this node to the node with address dest.
+     * 
+     * @param topology the snapshot to search
+     * @param dest     the destination
+     * @return the vector of the path, or null if there is none
+     */
+    private NixVector BuildNixVector(Topology topology, Ipv4Address dest) {
+	Node destNode = topology.m_addressToNode.get(dest);
+	if (destNode == null || destNode == m_node) {
+	    return null;
+	}
+	int n = topology.m_neighbors.length;
+	if (m_node.GetId() >= n || destNode.GetId() >= n) {
+	    return null;
+	}
+	int[] parent = new int[n]; // the node each node was reached from
+	int[] hop = new int[n]; // the neighbor index of each node in its parent
+	boolean[] visited = new boolean[n];
+	ArrayDeque<Integer> queue = new ArrayDeque<>();
+	queue.add(m_node.GetId());
+	visited[m_node.GetId()] = true;
+	while (!queue.isEmpty() && !visited[destNode.GetId()]) {
+	    int node = queue.poll();
+	    Neighbor[] neighbors = topology.m_neighbors[node];
+	    if (neighbors == null) {
+		continue;
+	    }
+	    for (int i = 0; i < neighbors.length; i++) {
+		int id = neighbors[i].m_node.GetId();
+		if (neighbors[i].IsUsable() && id < n && !visited[id]) {
+		    visited[id] = true;
+		    parent[id] = node;
+		    hop[id] = i;
+		    queue.add(id);
+		}
+	    }
+	}
+	if (!visited[destNode.GetId()]) {
+	    return null;
+	}
+	// the path is found backwards, from the destination.
+	List<Integer> path = new ArrayList<>();
+	for (int id = destNode.GetId(); id != m_node.GetId(); id = parent[id]) {
+	    path.add(id);
+	}
+	NixVector nixVector = new NixVector();
+	for (int i = path.size() - 1; i >= 0; i--) {
+	    int id = path.get(i);
+	    nixVector.AddNeighborIndex(hop[id], topology.m_bits[parent[id]]);
+	}
+	return nixVector;
+    }
+
+    /**
+     * @param topology the snapshot the caches were built from
+     * @param index    a neighbor index
+     * @return the route to the neighbor, or null if there is no such neighbor or
+     *         it cannot be reached
+     */
+    private Ipv4Route GetRouteToNeighbor(Topology topology, int index) {
+	Neighbor[] neighbors = GetNeighbors(topology);
+	if (index >= neighbors.length || !neighbors[index].IsUsable()) {
+	    return null;
+	}
+	if (m_routes[index] == null) {
+	    Neighbor neighbor = neighbors[index];
+	    Ipv4Route route = new Ipv4Route();
+	    // the destination of a route to a neighbor is the neighbor itself; the
+	    // destination of the packet is in its header.
+	    route.SetDestination(neighbor.m_gateway);
+	    route.SetGateway(neighbor.m_gateway);
+	    route.SetSource(neighbor.m_source);
+	    route.SetOutputDevice(neighbor.m_device);
+	    m_routes[index] = route;
+	}
+	return m_routes[index];
+    }
+
+    @Override
+    public Ipv4Route RouteOutput(Packet p, Ipv4Header header, NetDevice oif, SocketErrno sockerr) {
+	assert (m_ipv4 != null && m_node != null) : "NixVectorRouting::RouteOutput(): SetIpv4() and SetNode() first";
+	Topology topology = CheckCache();
+	Ipv4Address dst = header.GetDestination();
+	NixVector nixVector = m_nixCache.get(dst);
+	if (nixVector == null) {
+	    nixVector = BuildNixVector(topology, dst);
+	    if (nixVector == null) {
+		MyLog.logOut("NixVectorRouting: no route to " + dst, MyLog.DEBUG);
+		sockerr = SocketErrno.ERROR_NOROUTETOHOST;
+		return null;
+	    }
+	    m_nixCache.put(dst, nixVector);
+	}
+	NixVector nixVectorForPacket = nixVector.Copy();
+	int index = nixVectorForPacket.ExtractNeighborIndex(GetBits(topology));
+	Ipv4Route route = m_routeCache.get(dst);
+	if (route == null) {
+	    Ipv4Route hop = GetRouteToNeighbor(topology, index);
+	    route = new Ipv4Route();
+	    route.SetDestination(dst);
+	    route.SetGateway(hop.GetGateway());
+	    route.SetSource(hop.GetSource());
+	    route.SetOutputDevice(hop.GetOutputDevice());
+	    m_routeCache.put(dst, route);
+	}
+	if (oif != null && route.GetOutputDevice() != oif) {
+	    MyLog.logOut("NixVectorRouting: output device doesn't match", MyLog.DEBUG);
+	    sockerr = SocketErrno.ERROR_NOROUTETOHOST;
+	    return null;
+	}
+	if (p != null) {
+	    p.SetNixVector(nixVectorForPacket);
+	}
+	sockerr = SocketErrno.ERROR_NOTERROR;
+	return route;
+    }
+
+    @Override
+    public boolean RouteInput(final Packet p, final Ipv4Header header, final NetDevice idev, UnicastForwardCallback ucb,
+	    MulticastForwardCallback mcb, LocalDeliverCallback lcb, ErrorCallback ecb) {
+	assert (m_ipv4 != null && m_node != null) : "NixVectorRouting::RouteInput(): SetIpv4() and SetNode() first";
+	Topology topology = CheckCache();
+	int iif = m_ipv4.GetInterfaceForDevice(idev);
+	Ipv4Address dst = header.GetDestination();
+	if (m_ipv4.IsDestinationAddress(dst, iif)) {
+	    if (lcb != null) {
+		lcb.callback(p, header, iif);
+		return true;
+	    }
+	    return false;
+	}
+	// nix-vector routing is not a multicast routing protocol
+	if (dst.IsMulticast()) {
+	    return false;
+	}
+	int bits = GetBits(topology);
+	NixVector nixVector = p.GetNixVector();
+	if (nixVector == null || nixVector.GetRemainingBits() < bits) {
+	    MyLog.logOut("NixVectorRouting: packet to " + dst + " without a nix-vector", MyLog.WARNING);
+	    return false;
+	}
+	Ipv4Route route = GetRouteToNeighbor(topology, nixVector.ExtractNeighborIndex(bits));
+	if (route == null) {
+	    MyLog.logOut("NixVectorRouting: invalid neighbor index for " + dst, MyLog.WARNING);
+	    return false;
+	}
+	ucb.callback(route, p, header);
+	return true;
+    }
+
+    @Override
+    public void NotifyInterfaceUp(int iface) {
+	FlushGlobalNixRoutingCache();
+    }
+
+    @Override
+    public void NotifyInterfaceDown(int iface) {
+	FlushGlobalNixRoutingCache();
+    }
+
+    @Override
+    public void NotifyAddAddress(int iface, Ipv4InterfaceAddress address) {
+	FlushGlobalNixRoutingCache();
+    }
+
+    @Override
+    public void NotifyRemoveAddress(int iface, Ipv4InterfaceAddress address) {
+	FlushGlobalNixRoutingCache();
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.parallel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import osak.ext.ns3.core.EventId;
+import osak.ext.ns3.core.EventImpl;
+import osak.ext.ns3.core.EventQueue;
+import osak.ext.ns3.core.Time;
+
+/**
+ * A logical process: the event list and clock of one partition of a parallel
+ * simulation.
+ * <p>
+ * A logical process is only ever run by one thread at a time. Events sent by
+ * other logical processes are posted to its mailbox, a lock-free ring buffer,
+ * and merged into the event list between two windows, in an order that does not depend on thread
+ * scheduling: by time stamp, then by sender, then by the order they were sent.
+ * 
+ * @author zhangrui
+ * @since 1.0
+ */
+final class LogicalProcess extends Partition {
+    /** Number of slots of the mailbox, beyond which messages spill to a linked queue. */
+    static final int MAILBOX_SIZE = 1024;
+
+    /**
+     * An event sent by another logical process.
+     */
+    private static final class Message implements Comparable<Message> {
+	final long m_ts; // !< absolute time stamp, in ns
+	final int m_context; // !< event context
+	final EventImpl m_event; // !< the event
+	final int m_sender; // !< id of the sending logical process
+	final long m_seq; // !< send order in the sending logical process
+
+	Message(long ts, int context, EventImpl event, int sender, long seq) {
+	    m_ts = ts;
+	    m_context = context;
+	    m_event = event;
+	    m_sender = sender;
+	    m_seq = seq;
+	}
+
+	@Override
+	public int compareTo(Message o) {
+	    if (m_ts != o.m_ts) {
+		return Long.compare(m_ts, o.m_ts);
+	    }
+	    if (m_sender != o.m_sender) {
+		return Integer.compare(m_sender, o.m_sender);
+	    }
+	    return Long.compare(m_seq, o.m_seq);
+	}
+    }
+
+    private final MpscRingBuffer<Message> m_mailbox = new MpscRingBuffer<>(MAILBOX_SIZE); // !< events from other LPs
+    private final ConcurrentLinkedQueue<Message> m_overflow = new ConcurrentLinkedQueue<>(); // !< when m_mailbox is full
+    private final List<Message> m_inbox = new ArrayList<>(); // !< scratch list to sort the mailbox
+    private long m_uid = 4; // !< next event unique id
+    private long m_sendSeq = 0; // !< number of messages sent
+
+    LogicalProcess(int id, EventQueue events) {
+	super(id, events, 4);
+    }
+
+    /**
+     * Insert a new event in the event list of this logical process, rounding its
+     * time stamp up to the resolution of the event list. Must be called by the
+     * thread running it.
+     */
+    @Override
+    EventId Insert(long ts, int context, EventImpl event) {
+	long resolution = m_events.GetResolution();
+	if (resolution > 1 && ts % resolution != 0) {
+	    ts = Time.Add(ts - ts % resolution, resolution);
+	}
+	EventId ev = new EventId(event, ts, context, m_uid++);
+	m_events.Insert(ev);
+	return ev;
+    }
+
+    /**
+     * Post an event to another logical process. Must be called by the thread
+     * running this one.
+     */
+    void Send(LogicalProcess to, long ts, int context, EventImpl event) {
+	Message m = new Message(ts, context, event, m_id, m_sendSeq++);
+	if (!to.m_mailbox.Offer(m)) {
+	    to.m_overflow.add(m);
+	}
+    }
+
+    /**
+     * Move the events posted by other logical processes to the event list.
+     */
+    void ReceiveMessages() {
+	Message m;
+	while ((m = m_mailbox.Poll()) != null) {
+	    m_inbox.add(m);
+	}
+	while ((m = m_overflow.poll()) != null) {
+	    m_inbox.add(m);
+	}
+	if (m_inbox.isEmpty()) {
+	    return;
+	}
+	m_inbox.sort(null);
+	for (Message i : m_inbox) {
+	    Insert(i.m_ts, i.m_context, i.m_event);
+	}
+	m_inbox.clear();
+    }
+
+    /**
+     * Execute the events with a time stamp up to last, included.
+     * 
+     * @param last the end of the window, in ns
+     */
+    void ProcessUntil(long last) {
+	while (!m_events.IsEmpty() && m_events.PeekNext().GetTs() <= last) {
+	    EventId next = m_events.RemoveNext();
+	    m_eventCount++;
+	    m_currentTs = next.GetTs();
+	    m_currentContext = next.GetContext();
+	    m_currentUid = next.GetUid();
+	    next.PeekEventImpl().Invoke();
+	    next.PeekEventImpl().Release();
+	}
+    }
+
+    /**
+     * @return true if the event was scheduled by this logical process and has
+     *         already run, or has been cancelled
+     */
+    @Override
+    boolean IsExpired(EventId id) {
+	return id.PeekEventImpl() == null || id.GetTs() < m_currentTs
+		|| (id.GetTs() == m_currentTs && id.GetUid() <= m_currentUid) || id.PeekEventImpl().IsCancelled();
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.parallel;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free, multi-producer single-consumer ring buffer.
+ * <p>
+ * Each slot carries a sequence number telling whether it is free for the
+ * producer of a given round or filled for the consumer, so producers only
+ * contend on one compare-and-set of the tail and the consumer never writes
+ * shared counters but the slot it frees. Elements are preallocated slots: no
+ * node is allocated per element as with ConcurrentLinkedQueue.
+ * 
+ * @author zhangrui
+ * @since 1.0
+ */
+final class MpscRingBuffer<E> {
+    private final int m_mask; // !< capacity - 1
+    private final AtomicReferenceArray<E> m_slots; // !< the elements
+    private final AtomicLongArray m_sequence; // !< round of each slot
+    private final AtomicLong m_tail = new AtomicLong(); // !< next position to fill, shared by the producers
+    private long m_head = 0; // !< next position to read, owned by the consumer
+
+    /**
+     * @param capacity the number of slots, rounded up to a power of two
+     */
+    MpscRingBuffer(int capacity) {
+	if (capacity <= 0 || capacity > (1 << 30)) {
+	    throw new IllegalArgumentException("MpscRingBuffer: invalid capacity " + capacity);
+	}
+	int size = Integer.highestOneBit(capacity);
+	if (size < capacity) {
+	    size <<= 1;
+	}
+	m_mask = size - 1;
+	m_slots = new AtomicReferenceArray<>(size);
+	m_sequence = new AtomicLongArray(size);
+	for (int i = 0; i < size; i++) {
+	    m_sequence.set(i, i);
+	}
+    }
+
+    /**
+     * @return the number of slots
+     */
+    int Capacity() {
+	return m_mask + 1;
+    }
+
+    /**
+     * Add an element. May be called by any thread.
+     * 
+     * @param e the element, not null
+     * @return false if the buffer is full
+     */
+    boolean Offer(E e) {
+	long pos = m_tail.get();
+	while (true) {
+	    int index = (int) pos & m_mask;
+	    long dif = m_sequence.get(index) - pos;
+	    if (dif == 0) {
+		if (m_tail.compareAndSet(pos, pos + 1)) {
+		    m_slots.lazySet(index, e);
+		    m_sequence.set(index, pos + 1);
+		    return true;
+		}
+		pos = m_tail.get();
+	    } else if (dif < 0) {
+		return false;
+	    } else {
+		pos = m_tail.get();
+	    }
+	}
+    }
+
+    /**
+     * Remove the oldest element. Must only be called by the consumer thread.
+     * 
+     * @return the element, null if the buffer is empty
+     */
+    E Poll() {
+	long pos = m_head;
+	int index = (int) pos & m_mask;
+	if (m_sequence.get(index) != pos + 1) {
+	    return null;
+	}
+	E e = m_slots.get(index);
+	m_slots.lazySet(index, null);
+	m_sequence.set(index, pos + m_mask + 1);
+	m_head = pos + 1;
+	return e;
+    }
+}
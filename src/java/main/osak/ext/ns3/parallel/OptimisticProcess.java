@@ -0,0 +1,352 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.parallel;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import osak.ext.ns3.core.EventId;
+import osak.ext.ns3.core.EventImpl;
+import osak.ext.ns3.core.EventQueue;
+import osak.ext.ns3.core.Rollbackable;
+import osak.ext.ns3.core.Time;
+
+/**
+ * A logical process of the Time Warp simulator: an event list run ahead of the
+ * other partitions, with enough history to roll back.
+ * <p>
+ * Every executed event leaves a record holding what is needed to undo it: the
+ * state of the Rollbackable objects it modified (saved on first touch), the
+ * events it scheduled or removed, and the messages it sent to other logical
+ * processes. A message arriving in the past of the logical process (a
+ * straggler) rolls back every record after it; undoing a sent message posts an
+ * anti-message that annihilates it, rolling back its receiver in turn if it
+ * already ran.
+ * <p>
+ * Events are ordered by time stamp, then by unique id. Messages get a unique id
+ * built from their sender and send order, below the ids of local events, so the
+ * order does not depend on when a message arrives. The unique id counter and the
+ * send order are restored on rollback, so re-executing an event produces the
+ * same ids.
+ * 
+ * @author zhangrui
+ * @since 1.0
+ */
+final class OptimisticProcess extends Partition {
+    /** First unique id of local events; ids of messages are below it. */
+    static final long LOCAL_UID = 1L << 62;
+    /** Bit set in the unique id of every message. */
+    private static final long REMOTE_UID = 1L << 61;
+
+    /**
+     * An event sent by another logical process, or the anti-message of one.
+     */
+    static final class Message {
+	final long m_ts; // !< absolute time stamp, in ns
+	final int m_context; // !< event context
+	final EventImpl m_event; // !< the event
+	final long m_uid; // !< unique id, from the sender and the send order
+	final Message m_positive; // !< the message to annihilate, for an anti-message
+	OptimisticProcess m_to = null; // !< the receiver, for a positive message
+	EventId m_id = null; // !< the event once received
+
+	Message(long ts, int context, EventImpl event, long uid, Message positive) {
+	    m_ts = ts;
+	    m_context = context;
+	    m_event = event;
+	    m_uid = uid;
+	    m_positive = positive;
+	}
+    }
+
+    /**
+     * What is needed to undo one executed event.
+     */
+    private static final class Record {
+	final EventId m_event; // !< the executed event
+	final long m_prevTs; // !< clock before the event
+	final long m_prevUid; // !< unique id of the previous event
+	final int m_prevContext; // !< context of the previous event
+	final long m_uidBefore; // !< unique id counter before the event
+	final long m_seqBefore; // !< send counter before the event
+	List<Object> m_saved = null; // !< modified objects, each followed by its saved state
+	List<EventId> m_scheduled = null; // !< local events scheduled
+	List<EventId> m_removed = null; // !< local events removed
+	List<Message> m_sent = null; // !< messages sent to other logical processes
+	boolean m_stop = false; // !< the event called Simulator::Stop()
+	Throwable m_failure = null; // !< exception thrown by the event
+
+	Record(EventId event, long prevTs, long prevUid, int prevContext, long uidBefore, long seqBefore) {
+	    m_event = event;
+	    m_prevTs = prevTs;
+	    m_prevUid = prevUid;
+	    m_prevContext = prevContext;
+	    m_uidBefore = uidBefore;
+	    m_seqBefore = seqBefore;
+	}
+    }
+
+    private final AtomicLong m_posted; // !< messages posted by every logical process
+    private final ConcurrentLinkedQueue<Message> m_mailbox = new ConcurrentLinkedQueue<>(); // !< incoming messages
+    private final ArrayDeque<Record> m_processed = new ArrayDeque<>(); // !< executed, uncommitted events
+    private final Set<EventId> m_removedIds = Collections.newSetFromMap(new IdentityHashMap<>()); // !< removed events
+    private Record m_record = null; // !< record of the running event
+    private long m_uid = LOCAL_UID; // !< next event unique id
+    private long m_sendSeq = 0; // !< number of messages sent
+    long m_rolledBack = 0; // !< number of events rolled back
+    long m_committed = 0; // !< number of events committed
+
+    OptimisticProcess(int id, EventQueue events, AtomicLong posted) {
+	super(id, events, 0);
+	m_posted = posted;
+    }
+
+    /**
+     * Insert a new local event, rounding its time stamp up to the resolution of
+     * the event list. Must be called by the thread running this logical process.
+     */
+    @Override
+    EventId Insert(long ts, int context, EventImpl event) {
+	long resolution = m_events.GetResolution();
+	if (resolution > 1 && ts % resolution != 0) {
+	    ts = Time.Add(ts - ts % resolution, resolution);
+	}
+	EventId ev = new EventId(event, ts, context, m_uid++);
+	m_events.Insert(ev);
+	if (m_record != null) {
+	    if (m_record.m_scheduled == null) {
+		m_record.m_scheduled = new ArrayList<>(2);
+	    }
+	    m_record.m_scheduled.add(ev);
+	}
+	return ev;
+    }
+
+    /**
+     * Post an event to another logical process. Must be called by the thread
+     * running this one, from an event.
+     */
+    void Send(OptimisticProcess to, long ts, int context, EventImpl event) {
+	long uid = REMOTE_UID | ((long) m_id << 40) | m_sendSeq++;
+	Message m = new Message(ts, context, event, uid, null);
+	if (m_record.m_sent == null) {
+	    m_record.m_sent = new ArrayList<>(2);
+	}
+	m_record.m_sent.add(m);
+	m.m_to = to;
+	Post(to, m);
+    }
+
+    private void Post(OptimisticProcess to, Message m) {
+	m_posted.incrementAndGet();
+	to.m_mailbox.add(m);
+    }
+
+    /**
+     * Remove a pending local event, so that the removal can be undone.
+     */
+    void Remove(EventId id) {
+	m_events.Remove(id);
+	m_removedIds.add(id);
+	if (m_record != null) {
+	    if (m_record.m_removed == null) {
+		m_record.m_removed = new ArrayList<>(2);
+	    }
+	    m_record.m_removed.add(id);
+	}
+    }
+
+    /**
+     * Save the state of an object before the running event first modifies it.
+     * 
+     * @return the state saved for the running event, null if no event is running
+     */
+    Object SaveState(Rollbackable obj) {
+	Record r = m_record;
+	if (r == null) {
+	    return null;
+	}
+	if (r.m_saved == null) {
+	    r.m_saved = new ArrayList<>(4);
+	} else {
+	    for (int i = 0; i < r.m_saved.size(); i += 2) {
+		if (r.m_saved.get(i) == obj) {
+		    return r.m_saved.get(i + 1);
+		}
+	    }
+	}
+	Object state = obj.SaveState();
+	r.m_saved.add(obj);
+	r.m_saved.add(state);
+	return state;
+    }
+
+    /** Record that the running event stopped the simulation. */
+    void Stop() {
+	m_record.m_stop = true;
+    }
+
+    /**
+     * Handle the messages posted to this logical process, rolling back where
+     * they land in its past.
+     */
+    void ReceiveMessages() {
+	Message m;
+	while ((m = m_mailbox.poll()) != null) {
+	    if (m.m_positive == null) {
+		EventId id = new EventId(m.m_event, m.m_ts, m.m_context, m.m_uid);
+		m.m_id = id;
+		RollbackAfter(m.m_ts, m.m_uid);
+		m_events.Insert(id);
+	    } else {
+		EventId id = m.m_positive.m_id;
+		RollbackAfter(id.GetTs(), id.GetUid() - 1);
+		m_events.Remove(id);
+	    }
+	}
+    }
+
+    /**
+     * Undo every executed event ordered after (ts, uid).
+     */
+    void RollbackAfter(long ts, long uid) {
+	while (m_currentTs > ts || (m_currentTs == ts && m_currentUid > uid)) {
+	    Undo(m_processed.removeLast());
+	}
+    }
+
+    private void Undo(Record r) {
+	if (r.m_saved != null) {
+	    for (int i = r.m_saved.size() - 2; i >= 0; i -= 2) {
+		((Rollbackable) r.m_saved.get(i)).RestoreState(r.m_saved.get(i + 1));
+	    }
+	}
+	if (r.m_removed != null) {
+	    for (EventId id : r.m_removed) {
+		m_removedIds.remove(id);
+		m_events.Insert(id);
+	    }
+	}
+	if (r.m_scheduled != null) {
+	    for (EventId id : r.m_scheduled) {
+		m_events.Remove(id);
+	    }
+	}
+	if (r.m_sent != null) {
+	    for (int i = r.m_sent.size() - 1; i >= 0; i--) {
+		Message m = r.m_sent.get(i);
+		Post(m.m_to, new Message(m.m_ts, m.m_context, null, m.m_uid, m));
+	    }
+	}
+	m_uid = r.m_uidBefore;
+	m_sendSeq = r.m_seqBefore;
+	m_currentTs = r.m_prevTs;
+	m_currentUid = r.m_prevUid;
+	m_currentContext = r.m_prevContext;
+	m_events.Insert(r.m_event);
+	m_rolledBack++;
+    }
+
+    /**
+     * @return true if an executed event threw, in which case nothing more is run
+     *         until it is rolled back or committed
+     */
+    boolean IsBlocked() {
+	Record last = m_processed.peekLast();
+	return last != null && last.m_failure != null;
+    }
+
+    /**
+     * Execute up to count pending events optimistically.
+     * 
+     * @param count the maximum number of events to run
+     * @param limit the time stamp after which nothing is run, in ns
+     */
+    void Process(int count, long limit) {
+	while (count-- > 0 && !m_events.IsEmpty() && !IsBlocked() && m_events.PeekNext().GetTs() <= limit) {
+	    EventId next = m_events.RemoveNext();
+	    Record r = new Record(next, m_currentTs, m_currentUid, m_currentContext, m_uid, m_sendSeq);
+	    m_processed.addLast(r);
+	    m_eventCount++;
+	    m_currentTs = next.GetTs();
+	    m_currentUid = next.GetUid();
+	    m_currentContext = next.GetContext();
+	    m_record = r;
+	    try {
+		next.PeekEventImpl().Invoke();
+	    } catch (Throwable e) {
+		r.m_failure = e;
+	    } finally {
+		m_record = null;
+	    }
+	}
+    }
+
+    /**
+     * @return the time stamp of the earliest executed event that stopped the
+     *         simulation, Long.MAX_VALUE if there is none
+     */
+    long StopTs() {
+	for (Record r : m_processed) {
+	    if (r.m_stop) {
+		return r.m_event.GetTs();
+	    }
+	}
+	return Long.MAX_VALUE;
+    }
+
+    /**
+     * @return the exception thrown by an executed event with a time stamp before
+     *         gvt, null if there is none
+     */
+    Throwable FailureBefore(long gvt) {
+	Record last = m_processed.peekLast();
+	return last != null && last.m_failure != null && last.m_event.GetTs() < gvt ? last.m_failure : null;
+    }
+
+    /**
+     * Commit the executed events with a time stamp before the global virtual
+     * time: nothing can roll them back any more, so their history is released.
+     * 
+     * @param gvt the global virtual time, in ns
+     */
+    void FossilCollect(long gvt) {
+	while (!m_processed.isEmpty() && m_processed.peekFirst().m_event.GetTs() < gvt) {
+	    m_processed.removeFirst().m_event.PeekEventImpl().Release();
+	    m_committed++;
+	}
+	if (!m_removedIds.isEmpty()) {
+	    m_removedIds.removeIf(id -> id.GetTs() < gvt);
+	}
+    }
+
+    /**
+     * @return true if the event was scheduled by this logical process and has
+     *         already run, or has been removed
+     */
+    @Override
+    boolean IsExpired(EventId id) {
+	return id.PeekEventImpl() == null || id.GetTs() < m_currentTs
+		|| (id.GetTs() == m_currentTs && id.GetUid() <= m_currentUid) || m_removedIds.contains(id)
+		|| id.PeekEventImpl().IsCancelled();
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.parallel;
+
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+
+import osak.ext.ns3.core.EventId;
+import osak.ext.ns3.core.EventImpl;
+import osak.ext.ns3.core.EventQueue;
+import osak.ext.ns3.core.Time;
+import osak.ext.ns3.network.Node;
+
+/**
+ * A conservative parallel simulator implementation.
+ * <p>
+ * Nodes are partitioned into logical processes by Node::GetSystemId(), each
+ * logical process with its own event list and clock, and the logical processes
+ * are spread over a pool of threads. They are synchronized with YAWNS windows:
+ * between two barriers every logical process runs its events up to the lower
+ * bound on time stamp of the whole simulation (the earliest pending event) plus
+ * the lookahead. The lookahead is the smallest delay of the links between
+ * partitions, so an event sent to another partition during a window always
+ * lands after its end and no logical process ever receives an event in its past.
+ * <p>
+ * The event context selects the logical process: an event scheduled with
+ * Simulator::ScheduleWithContext(nodeId, ...) runs in the partition of that
+ * node, and Simulator::Schedule keeps the context of the caller. Events without
+ * context run in partition 0. Channels between partitions must therefore use
+ * ScheduleWithContext with a delay of at least the lookahead, and set-up code
+ * should schedule per node events with the node id as context.
+ * <p>
+ * The results do not depend on the number of threads or on thread scheduling:
+ * windows only depend on time stamps, and events received from other partitions
+ * are merged in a fixed order. Simultaneous events that the sequential simulator
+ * orders by global scheduling order are ordered within each partition instead,
+ * events from other partitions coming after the local ones.
+ * <p>
+ * With SetNodePartitions(true) every node is a partition of its own instead:
+ * each node and its protocol stack run as a single threaded event loop, the
+ * event loops being spread over the threads, and everything sent between nodes
+ * goes through the mailboxes. Protocol objects are then never shared between
+ * threads and need no locking, but every link between nodes must respect the
+ * lookahead.
+ * <p>
+ * Simulator::Stop() takes effect at the end of the current window. Remove,
+ * Cancel and IsExpired must be called from the partition owning the event.
+ * 
+ * @author zhangrui
+ * @since 1.0
+ */
+public final class ParallelSimulatorImpl extends PartitionedSimulatorImpl<LogicalProcess> {
+    private final long m_lookahead; // !< lookahead between partitions, in ns
+    private boolean m_nodePartitions = false; // !< one partition per node instead of per system id
+
+    /* state shared by the workers, guarded by the barriers. */
+    private long[] m_threadMin; // !< earliest pending event of each worker
+    private boolean m_done; // !< set when the run is over
+    private long m_windowLast; // !< last time stamp of the current window, in ns
+    private long m_windowCount = 0; // !< number of windows run
+
+    /**
+     * @param threads   the maximum number of worker threads
+     * @param lookahead the minimum delay of the events sent between partitions,
+     *                  typically the smallest delay of the links between them
+     */
+    public ParallelSimulatorImpl(int threads, Time lookahead) {
+	super(threads);
+	if (lookahead.IsNegative()) {
+	    throw new IllegalArgumentException("ParallelSimulatorImpl: negative lookahead " + lookahead);
+	}
+	m_lookahead = lookahead.getNanoSeconds();
+    }
+
+    /**
+     * @param lookahead the minimum delay of the events sent between partitions
+     */
+    public ParallelSimulatorImpl(Time lookahead) {
+	this(Runtime.getRuntime().availableProcessors(), lookahead);
+    }
+
+    /**
+     * Choose how nodes are partitioned, before the first event is scheduled.
+     * 
+     * @param perNode true to run every node in a partition of its own, false to
+     *                partition nodes by Node::GetSystemId()
+     */
+    public void SetNodePartitions(boolean perNode) {
+	if (m_lps.size() > 1 || (!m_lps.isEmpty() && !m_lps.get(0).m_events.IsEmpty())) {
+	    throw new IllegalStateException("ParallelSimulatorImpl: partitions must be chosen before scheduling");
+	}
+	m_nodePartitions = perNode;
+    }
+
+    /**
+     * @return the lookahead, in nanoseconds
+     */
+    public long GetLookahead() {
+	return m_lookahead;
+    }
+
+    /**
+     * @return the number of synchronization windows run so far
+     */
+    public long GetWindowCount() {
+	return m_windowCount;
+    }
+
+    @Override
+    LogicalProcess NewPartition(int id, EventQueue events) {
+	return new LogicalProcess(id, events);
+    }
+
+    @Override
+    int PartitionOf(Node node) {
+	return m_nodePartitions ? node.GetId() : node.GetSystemId();
+    }
+
+    @Override
+    void Send(LogicalProcess from, LogicalProcess to, long delay, int context, EventImpl event) {
+	if (delay < m_lookahead) {
+	    throw new IllegalStateException("ParallelSimulatorImpl: event sent from system " + from.m_id + " to system "
+		    + to.m_id + " with delay " + delay + " ns, less than the lookahead " + m_lookahead + " ns");
+	}
+	from.Send(to, Time.Add(from.m_currentTs, delay), context, event);
+    }
+
+    @Override
+    void RemovePending(LogicalProcess lp, EventId id) {
+	lp.m_events.Remove(id);
+	id.PeekEventImpl().Cancel();
+    }
+
+    @Override
+    public void Stop() {
+	m_stop = true;
+    }
+
+    @Override
+    public void Cancel(EventId id) {
+	if (!IsExpired(id)) {
+	    id.PeekEventImpl().Cancel();
+	}
+    }
+
+    @Override
+    Runnable[] CreateWorkers(int nThreads) {
+	m_done = false;
+	m_threadMin = new long[nThreads];
+	CyclicBarrier sent = new CyclicBarrier(nThreads);
+	CyclicBarrier window = new CyclicBarrier(nThreads, this::NextWindow);
+	Runnable[] workers = new Runnable[nThreads];
+	for (int t = 0; t < nThreads; t++) {
+	    List<LogicalProcess> mine = PartitionsOf(t, nThreads);
+	    final int index = t;
+	    workers[t] = () -> Work(index, mine, sent, window);
+	}
+	return workers;
+    }
+
+    /**
+     * The loop of one worker thread.
+     * 
+     * @param index  the index of the worker
+     * @param mine   the logical processes run by the worker
+     * @param sent   barrier reached when every event of the window has been sent
+     * @param window barrier computing the next window
+     */
+    private void Work(int index, List<LogicalProcess> mine, CyclicBarrier sent, CyclicBarrier window) {
+	try {
+	    while (true) {
+		long min = Long.MAX_VALUE;
+		for (LogicalProcess lp : mine) {
+		    lp.ReceiveMessages();
+		    if (!lp.m_events.IsEmpty()) {
+			min = Math.min(min, lp.NextTs());
+		    }
+		}
+		m_threadMin[index] = min;
+		window.await();
+		if (m_done) {
+		    return;
+		}
+		for (LogicalProcess lp : mine) {
+		    m_current.set(lp);
+		    try {
+			lp.ProcessUntil(m_windowLast);
+		    } catch (Throwable e) {
+			if (m_failure == null) {
+			    m_failure = e;
+			}
+			m_stop = true;
+		    }
+		}
+		m_current.remove();
+		sent.await();
+	    }
+	} catch (InterruptedException | BrokenBarrierException e) {
+	    if (m_failure == null) {
+		m_failure = e;
+	    }
+	    sent.reset();
+	    window.reset();
+	}
+    }
+
+    /**
+     * Compute the next window from the earliest pending event, or end the run.
+     * Called by the last worker reaching the window barrier.
+     */
+    private void NextWindow() {
+	long lbts = Long.MAX_VALUE;
+	for (long min : m_threadMin) {
+	    lbts = Math.min(lbts, min);
+	}
+	boolean empty = true;
+	for (LogicalProcess lp : m_lps) {
+	    empty &= lp.m_events.IsEmpty();
+	}
+	if (m_stop || empty) {
+	    m_done = true;
+	    return;
+	}
+	m_windowLast = m_lookahead > 0 ? Math.max(lbts, Time.Add(lbts, m_lookahead) - 1) : lbts;
+	m_windowCount++;
+    }
+
+    @Override
+    public long GetEventCount() {
+	long count = 0;
+	for (LogicalProcess lp : m_lps) {
+	    count += lp.m_eventCount;
+	}
+	return count;
+    }
+}
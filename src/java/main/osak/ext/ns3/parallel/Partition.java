@@ -0,0 +1,66 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.parallel;
+
+import osak.ext.ns3.core.EventId;
+import osak.ext.ns3.core.EventImpl;
+import osak.ext.ns3.core.EventQueue;
+import osak.ext.ns3.core.Simulator;
+
+/**
+ * The part of a logical process seen by PartitionedSimulatorImpl: the event
+ * list and clock of one partition. How the events are run and how the
+ * partitions synchronize is up to the subclasses.
+ *
+ * @author zhangrui
+ * @since 1.0
+ */
+abstract class Partition {
+    final int m_id; // !< the system id of this partition
+    EventQueue m_events; // !< the pending events
+    long m_currentUid; // !< unique id of the current event
+    long m_currentTs = 0; // !< time stamp of the current event, in ns
+    int m_currentContext = Simulator.NO_CONTEXT; // !< context of the current event
+    long m_eventCount = 0; // !< number of events executed, rolled back or not
+
+    Partition(int id, EventQueue events, long firstUid) {
+	m_id = id;
+	m_events = events;
+	m_currentUid = firstUid;
+    }
+
+    /**
+     * Insert a new local event, rounding its time stamp up to the resolution of
+     * the event list. Must be called by the thread running this partition.
+     *
+     * @return the id of the new event
+     */
+    abstract EventId Insert(long ts, int context, EventImpl event);
+
+    /**
+     * @return true if the event was scheduled by this partition and has already
+     *         run, or has been cancelled
+     */
+    abstract boolean IsExpired(EventId id);
+
+    /**
+     * @return the time stamp of the next pending event, Long.MAX_VALUE if there
+     *         is none
+     */
+    long NextTs() {
+	return m_events.IsEmpty() ? Long.MAX_VALUE : m_events.PeekNext().GetTs();
+    }
+}
@@ -0,0 +1,347 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.parallel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import osak.ext.ns3.core.EventId;
+import osak.ext.ns3.core.EventImpl;
+import osak.ext.ns3.core.EventQueue;
+import osak.ext.ns3.core.Simulator;
+import osak.ext.ns3.core.SimulatorImpl;
+import osak.ext.ns3.core.Time;
+import osak.ext.ns3.network.Node;
+import osak.ext.ns3.network.NodeList;
+
+/**
+ * The partitioning shared by the parallel simulator implementations.
+ * <p>
+ * Nodes are mapped to partitions by PartitionOf(), Node::GetSystemId() by
+ * default, and events to partitions by their context, events without context
+ * running in partition 0. Partitions are created on demand until Run() freezes
+ * the mapping, and are spread round robin over at most the given number of
+ * worker threads. Scheduling, the clock and the event lists are handled here;
+ * how the workers run their partitions and synchronize is left to the
+ * subclasses.
+ *
+ * @param <P> the type of the partitions
+ * @author zhangrui
+ * @since 1.0
+ */
+abstract class PartitionedSimulatorImpl<P extends Partition> implements SimulatorImpl {
+    final int m_threads; // !< maximum number of worker threads
+    private Supplier<EventQueue> m_queueFactory = EventQueue::CreateDefault; // !< event list of new partitions
+    final List<P> m_lps = new ArrayList<>(); // !< partitions, indexed by system id
+    final ThreadLocal<P> m_current = new ThreadLocal<>(); // !< partition run by the calling thread
+    private final List<EventId> m_destroyEvents = Collections.synchronizedList(new LinkedList<>());
+    private int[] m_contextToLp = null; // !< partition of each node, while running
+    volatile boolean m_stop = false; // !< flag calling for the end of the simulation
+    long m_mainTs = 0; // !< clock seen outside of Run(), in ns
+    volatile Throwable m_failure = null; // !< first exception raised during the run
+
+    /**
+     * @param threads the maximum number of worker threads
+     */
+    PartitionedSimulatorImpl(int threads) {
+	if (threads <= 0) {
+	    throw new IllegalArgumentException(getClass().getSimpleName() + ": threads must be positive, got " + threads);
+	}
+	m_threads = threads;
+    }
+
+    /**
+     * Create an empty partition.
+     *
+     * @param id     the system id of the partition
+     * @param events its event list
+     * @return the new partition
+     */
+    abstract P NewPartition(int id, EventQueue events);
+
+    /**
+     * Hand an event over to another partition, while running.
+     *
+     * @param from    the partition of the calling thread
+     * @param to      the partition owning the context of the event
+     * @param delay   the delay of the event, in ns
+     * @param context the context of the event
+     * @param event   the event
+     */
+    abstract void Send(P from, P to, long delay, int context, EventImpl event);
+
+    /**
+     * Remove a pending event from its partition.
+     *
+     * @param lp the partition owning the event
+     * @param id the event, not expired
+     */
+    abstract void RemovePending(P lp, EventId id);
+
+    /**
+     * Create the loops of the worker threads, once the partitioning is frozen.
+     *
+     * @param nThreads the number of worker threads
+     * @return one loop per worker thread
+     */
+    abstract Runnable[] CreateWorkers(int nThreads);
+
+    /**
+     * @return the partition of the node
+     */
+    int PartitionOf(Node node) {
+	return node.GetSystemId();
+    }
+
+    /**
+     * @return the number of logical processes
+     */
+    public int GetSystemCount() {
+	return m_lps.size();
+    }
+
+    /**
+     * @return the partition with the given system id, created if needed
+     */
+    P GetLp(int systemId) {
+	if (systemId < 0) {
+	    throw new IllegalArgumentException(getClass().getSimpleName() + ": negative system id " + systemId);
+	}
+	while (m_lps.size() <= systemId) {
+	    if (m_contextToLp != null) {
+		throw new IllegalStateException(getClass().getSimpleName() + ": system id " + systemId
+			+ " appeared while running, create every node before Simulator::Run");
+	    }
+	    m_lps.add(NewPartition(m_lps.size(), m_queueFactory.get()));
+	}
+	return m_lps.get(systemId);
+    }
+
+    /**
+     * @return the partition running the events of the given context
+     */
+    P LpOf(int context) {
+	if (context == Simulator.NO_CONTEXT || context < 0) {
+	    return GetLp(0);
+	}
+	int[] map = m_contextToLp;
+	if (map != null) {
+	    return m_lps.get(context < map.length ? map[context] : 0);
+	}
+	Node node = NodeList.GetNode(context);
+	return GetLp(node == null ? 0 : PartitionOf(node));
+    }
+
+    /**
+     * @param worker   the index of a worker thread
+     * @param nThreads the number of worker threads
+     * @return the partitions run by that worker
+     */
+    List<P> PartitionsOf(int worker, int nThreads) {
+	List<P> mine = new ArrayList<>();
+	for (int i = worker; i < m_lps.size(); i += nThreads) {
+	    mine.add(m_lps.get(i));
+	}
+	return mine;
+    }
+
+    @Override
+    public void Run() {
+	m_stop = false;
+	m_failure = null;
+	// freeze the partitioning for the run.
+	int nNodes = NodeList.GetNNodes();
+	int[] map = new int[nNodes];
+	GetLp(0);
+	for (int i = 0; i < nNodes; i++) {
+	    map[i] = GetLp(PartitionOf(NodeList.GetNode(i))).m_id;
+	}
+	m_contextToLp = map;
+
+	Runnable[] loops = CreateWorkers(Math.min(m_threads, m_lps.size()));
+	Thread[] workers = new Thread[loops.length];
+	for (int t = 0; t < loops.length; t++) {
+	    workers[t] = new Thread(loops[t], getClass().getSimpleName() + "-" + t);
+	    workers[t].start();
+	}
+	try {
+	    for (Thread worker : workers) {
+		worker.join();
+	    }
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    for (Thread worker : workers) {
+		worker.interrupt();
+	    }
+	} finally {
+	    m_contextToLp = null;
+	}
+	for (P lp : m_lps) {
+	    m_mainTs = Math.max(m_mainTs, lp.m_currentTs);
+	}
+	Throwable failure = m_failure;
+	if (failure instanceof RuntimeException) {
+	    throw (RuntimeException) failure;
+	} else if (failure instanceof Error) {
+	    throw (Error) failure;
+	} else if (failure != null) {
+	    throw new IllegalStateException(getClass().getSimpleName() + ": worker failed", failure);
+	}
+    }
+
+    @Override
+    public void Destroy() {
+	while (!m_destroyEvents.isEmpty()) {
+	    EventId id = m_destroyEvents.remove(0);
+	    EventImpl ev = id.PeekEventImpl();
+	    if (!ev.IsCancelled()) {
+		ev.Invoke();
+	    }
+	}
+    }
+
+    @Override
+    public boolean IsFinished() {
+	if (m_stop) {
+	    return true;
+	}
+	for (P lp : m_lps) {
+	    if (!lp.m_events.IsEmpty()) {
+		return false;
+	    }
+	}
+	return true;
+    }
+
+    @Override
+    public EventId Stop(long delay) {
+	return Schedule(delay, EventImpl.MakeEvent(() -> Simulator.Stop()));
+    }
+
+    @Override
+    public EventId Schedule(long delay, EventImpl event) {
+	assert (delay >= 0) : getClass().getSimpleName() + "::Schedule(): Negative delay";
+	P lp = m_current.get();
+	if (lp == null) {
+	    return GetLp(0).Insert(Time.Add(m_mainTs, delay), Simulator.NO_CONTEXT, event);
+	}
+	return lp.Insert(Time.Add(lp.m_currentTs, delay), lp.m_currentContext, event);
+    }
+
+    @Override
+    public void ScheduleWithContext(int context, long delay, EventImpl event) {
+	assert (delay >= 0) : getClass().getSimpleName() + "::ScheduleWithContext(): Negative delay";
+	P target = LpOf(context);
+	P lp = m_current.get();
+	if (lp == null) {
+	    target.Insert(Time.Add(m_mainTs, delay), context, event);
+	} else if (lp == target) {
+	    lp.Insert(Time.Add(lp.m_currentTs, delay), context, event);
+	} else {
+	    Send(lp, target, delay, context, event);
+	}
+    }
+
+    @Override
+    public EventId ScheduleNow(EventImpl event) {
+	return Schedule(0, event);
+    }
+
+    @Override
+    public EventId ScheduleDestroy(EventImpl event) {
+	EventId id = new EventId(event, Now(), Simulator.NO_CONTEXT, 2);
+	m_destroyEvents.add(id);
+	return id;
+    }
+
+    @Override
+    public void Remove(EventId id) {
+	if (id.GetUid() == 2) {
+	    // destroy events.
+	    m_destroyEvents.remove(id);
+	    return;
+	}
+	if (IsExpired(id)) {
+	    return;
+	}
+	RemovePending(LpOf(id.GetContext()), id);
+    }
+
+    @Override
+    public boolean IsExpired(EventId id) {
+	if (id.GetUid() == 2) {
+	    if (id.PeekEventImpl() == null || id.PeekEventImpl().IsCancelled()) {
+		return true;
+	    }
+	    // destroy events.
+	    return !m_destroyEvents.contains(id);
+	}
+	return LpOf(id.GetContext()).IsExpired(id);
+    }
+
+    @Override
+    public long Now() {
+	P lp = m_current.get();
+	return lp == null ? m_mainTs : lp.m_currentTs;
+    }
+
+    @Override
+    public long GetDelayLeft(EventId id) {
+	if (IsExpired(id)) {
+	    return 0;
+	}
+	return id.GetTs() - Now();
+    }
+
+    @Override
+    public long GetMaximumSimulationTime() {
+	return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int GetContext() {
+	P lp = m_current.get();
+	return lp == null ? Simulator.NO_CONTEXT : lp.m_currentContext;
+    }
+
+    /**
+     * Each partition gets its own event list: the given queue for system 0 and
+     * EventQueue::NewInstance() of it for the others, so that every partition
+     * rounds time stamps the same way.
+     */
+    @Override
+    public void SetScheduler(EventQueue queue) {
+	m_queueFactory = queue::NewInstance;
+	for (P lp : m_lps) {
+	    EventQueue events = lp.m_id == 0 ? queue : m_queueFactory.get();
+	    while (!lp.m_events.IsEmpty()) {
+		events.Insert(lp.m_events.RemoveNext());
+	    }
+	    lp.m_events = events;
+	}
+	if (m_lps.isEmpty()) {
+	    m_lps.add(NewPartition(0, queue));
+	}
+    }
+
+    @Override
+    public long GetResolution() {
+	return GetLp(0).m_events.GetResolution();
+    }
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.parallel;
+
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicLong;
+
+import osak.ext.ns3.core.EventId;
+import osak.ext.ns3.core.EventImpl;
+import osak.ext.ns3.core.EventQueue;
+import osak.ext.ns3.core.Rollbackable;
+import osak.ext.ns3.core.Time;
+
+/**
+ * An optimistic parallel simulator implementation, based on Time Warp.
+ * <p>
+ * Nodes are partitioned into logical processes by Node::GetSystemId() as with
+ * ParallelSimulatorImpl, but the logical processes do not wait for each other:
+ * each one runs its events as far ahead as it can and rolls back when an event
+ * from another partition arrives in its past. No lookahead is needed, so this
+ * mode suits partitions joined by links with a very small or zero delay, where
+ * conservative windows would hardly hold any event.
+ * <p>
+ * Rolling back restores the objects implementing {@link Rollbackable}: a model
+ * object calls Simulator::SaveState(this) before modifying itself, and the first
+ * call of each event saves a copy of its state. Timer and the AODV routing
+ * table, request queue, neighbor list and ARP cache do so. Any other state an
+ * event modifies, such as logs, traces or statistics kept outside of these
+ * objects, is not rolled back and may see events that are later undone.
+ * <p>
+ * Every BATCH events per logical process, the workers stop, drain the messages
+ * in transit and compute the global virtual time, the smallest time stamp of
+ * the pending events. Events before it can no longer be rolled back: they are
+ * committed and their history is released. Simulator::Stop() takes effect once
+ * the global virtual time passes the stopping event; the events after it are
+ * rolled back. An exception thrown by an event is only raised once the event is
+ * committed, the logical process waiting meanwhile, since it may come from a
+ * state that is later rolled back.
+ * <p>
+ * Remove, Cancel and IsExpired must be called from the partition owning the
+ * event; Cancel removes the event so that it can be undone.
+ * 
+ * @author zhangrui
+ * @since 1.0
+ */
+public final class TimeWarpSimulatorImpl extends PartitionedSimulatorImpl<OptimisticProcess> {
+    /** Number of events each logical process runs between two GVT computations. */
+    public static final int BATCH = 256;
+
+    private final AtomicLong m_posted = new AtomicLong(); // !< messages posted, anti-messages included
+    private long m_runNanos = 0; // !< wall clock duration of the runs, in ns
+
+    /* state shared by the workers, guarded by the barriers. */
+    private long[] m_threadMin; // !< earliest pending event of each worker
+    private long[] m_threadStop; // !< earliest stopping event of each worker
+    private long m_postedSnapshot; // !< m_posted when draining started
+    private boolean m_quiet; // !< no message was posted while draining
+    private long m_gvt; // !< global virtual time, in ns
+    private long m_stopTs; // !< time stamp the run stops at, Long.MAX_VALUE if none
+    private boolean m_done; // !< set when the run is over
+    private long m_gvtCount = 0; // !< number of GVT computations
+
+    /**
+     * @param threads the maximum number of worker threads
+     */
+    public TimeWarpSimulatorImpl(int threads) {
+	super(threads);
+    }
+
+    public TimeWarpSimulatorImpl() {
+	this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @return the number of GVT computations run so far
+     */
+    public long GetGvtCount() {
+	return m_gvtCount;
+    }
+
+    /**
+     * @return the number of events committed
+     */
+    public long GetCommittedEvents() {
+	long count = 0;
+	for (OptimisticProcess lp : m_lps) {
+	    count += lp.m_committed;
+	}
+	return count;
+    }
+
+    /**
+     * @return the number of event executions rolled back
+     */
+    public long GetRolledBackEvents() {
+	long count = 0;
+	for (OptimisticProcess lp : m_lps) {
+	    count += lp.m_rolledBack;
+	}
+	return count;
+    }
+
+    /**
+     * @return the share of the event executions that were rolled back, between 0
+     *         and 1
+     */
+    public double GetRollbackRatio() {
+	long executed = 0;
+	for (OptimisticProcess lp : m_lps) {
+	    executed += lp.m_eventCount;
+	}
+	return executed == 0 ? 0 : (double) GetRolledBackEvents() / executed;
+    }
+
+    /**
+     * @return the number of events committed per second of wall clock time spent
+     *         in Run()
+     */
+    public double GetCommittedEventRate() {
+	return m_runNanos == 0 ? 0 : GetCommittedEvents() * 1e9 / m_runNanos;
+    }
+
+    @Override
+    OptimisticProcess NewPartition(int id, EventQueue events) {
+	return new OptimisticProcess(id, events, m_posted);
+    }
+
+    @Override
+    void Send(OptimisticProcess from, OptimisticProcess to, long delay, int context, EventImpl event) {
+	from.Send(to, Time.Add(from.m_currentTs, delay), context, event);
+    }
+
+    @Override
+    void RemovePending(OptimisticProcess lp, EventId id) {
+	lp.Remove(id);
+    }
+
+    @Override
+    public void Stop() {
+	OptimisticProcess lp = m_current.get();
+	if (lp == null) {
+	    m_stop = true;
+	} else {
+	    lp.Stop();
+	}
+    }
+
+    @Override
+    public void Cancel(EventId id) {
+	Remove(id);
+    }
+
+    @Override
+    public Object SaveState(Rollbackable obj) {
+	OptimisticProcess lp = m_current.get();
+	return lp == null ? null : lp.SaveState(obj);
+    }
+
+    @Override
+    public void Run() {
+	long start = System.nanoTime();
+	try {
+	    super.Run();
+	} finally {
+	    m_runNanos += System.nanoTime() - start;
+	}
+    }
+
+    @Override
+    Runnable[] CreateWorkers(int nThreads) {
+	m_done = false;
+	m_threadMin = new long[nThreads];
+	m_threadStop = new long[nThreads];
+	CyclicBarrier drain = new CyclicBarrier(nThreads, () -> m_postedSnapshot = m_posted.get());
+	CyclicBarrier drained = new CyclicBarrier(nThreads, () -> m_quiet = m_posted.get() == m_postedSnapshot);
+	CyclicBarrier gvt = new CyclicBarrier(nThreads, this::ComputeGvt);
+	Runnable[] workers = new Runnable[nThreads];
+	for (int t = 0; t < nThreads; t++) {
+	    List<OptimisticProcess> mine = PartitionsOf(t, nThreads);
+	    final int index = t;
+	    workers[t] = () -> Work(index, mine, drain, drained, gvt);
+	}
+	return workers;
+    }
+
+    /**
+     * The loop of one worker thread.
+     * 
+     * @param index   the index of the worker
+     * @param mine    the logical processes run by the worker
+     * @param drain   barrier starting to drain the messages in transit
+     * @param drained barrier checking that no message was posted while draining
+     * @param gvt     barrier computing the global virtual time
+     */
+    private void Work(int index, List<OptimisticProcess> mine, CyclicBarrier drain, CyclicBarrier drained,
+	    CyclicBarrier gvt) {
+	try {
+	    long limit = Long.MAX_VALUE;
+	    while (true) {
+		for (OptimisticProcess lp : mine) {
+		    m_current.set(lp);
+		    lp.ReceiveMessages();
+		    lp.Process(BATCH, limit);
+		}
+		m_current.remove();
+		Quiesce(mine, drain, drained);
+		long min = Long.MAX_VALUE;
+		long stop = Long.MAX_VALUE;
+		for (OptimisticProcess lp : mine) {
+		    min = Math.min(min, lp.NextTs());
+		    stop = Math.min(stop, lp.StopTs());
+		}
+		m_threadMin[index] = min;
+		m_threadStop[index] = stop;
+		gvt.await();
+		if (m_stopTs != Long.MAX_VALUE) {
+		    // drop the events run after the stop, then the messages they sent.
+		    for (OptimisticProcess lp : mine) {
+			lp.RollbackAfter(m_stopTs, Long.MAX_VALUE);
+		    }
+		    Quiesce(mine, drain, drained);
+		}
+		for (OptimisticProcess lp : mine) {
+		    lp.FossilCollect(m_done ? Long.MAX_VALUE : m_gvt);
+		}
+		if (m_done) {
+		    return;
+		}
+		limit = m_threadStop[index];
+	    }
+	} catch (InterruptedException | BrokenBarrierException e) {
+	    if (m_failure == null) {
+		m_failure = e;
+	    }
+	    drain.reset();
+	    drained.reset();
+	    gvt.reset();
+	}
+    }
+
+    /**
+     * Receive messages until none is in transit any more, which happens once no
+     * worker rolls back and sends anti-messages while receiving.
+     */
+    private void Quiesce(List<OptimisticProcess> mine, CyclicBarrier drain, CyclicBarrier drained)
+	    throws InterruptedException, BrokenBarrierException {
+	do {
+	    drain.await();
+	    for (OptimisticProcess lp : mine) {
+		lp.ReceiveMessages();
+	    }
+	    drained.await();
+	} while (!m_quiet);
+    }
+
+    /**
+     * Compute the global virtual time once no message is in transit, and decide
+     * whether the run is over. Called by the last worker reaching the GVT barrier.
+     */
+    private void ComputeGvt() {
+	long gvt = Long.MAX_VALUE;
+	for (long min : m_threadMin) {
+	    gvt = Math.min(gvt, min);
+	}
+	long stopTs = Long.MAX_VALUE;
+	for (long stop : m_threadStop) {
+	    stopTs = Math.min(stopTs, stop);
+	}
+	m_gvt = gvt;
+	m_gvtCount++;
+	m_stopTs = Long.MAX_VALUE;
+	for (OptimisticProcess lp : m_lps) {
+	    Throwable failure = lp.FailureBefore(gvt);
+	    if (failure != null && m_failure == null) {
+		m_failure = failure;
+	    }
+	}
+	if (m_failure != null || m_stop) {
+	    m_done = true;
+	} else if (stopTs < gvt) {
+	    m_stopTs = stopTs;
+	    m_done = true;
+	} else if (gvt == Long.MAX_VALUE) {
+	    m_done = true;
+	}
+    }
+
+    /**
+     * @return the number of events committed
+     */
+    @Override
+    public long GetEventCount() {
+	return GetCommittedEvents();
+    }
+}
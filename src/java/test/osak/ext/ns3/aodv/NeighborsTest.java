@@ -0,0 +1,55 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.aodv;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.*;
+
+import osak.ext.ns3.core.Simulator;
+import osak.ext.ns3.core.Time;
+import osak.ext.ns3.network.utils.Ipv4Address;
+
+/**
+ * TODO NeighborsTest
+ * 
+ * @author zhangrui
+ * @since   1.0
+ */
+class NeighborsTest {
+    @AfterEach
+    void tearDown() throws Exception {
+	Simulator.Destroy();
+    }
+
+    @Test
+    void test_IsNeighbor() {
+	Neighbors nb = new Neighbors(new Time(1000));
+	nb.Update(new Ipv4Address("10.1.1.2"), 5_000_000L);
+	// equal addresses match whatever the instance
+	assertAll(
+		() -> assertTrue(nb.IsNeighbor(new Ipv4Address("10.1.1.2"))),
+		() -> assertTrue(nb.IsNeighbor(0x0a010102)),
+		() -> assertFalse(nb.IsNeighbor(0x0a010103)),
+		() -> assertEquals(5_000_000L, nb.GetExpireTimeNs(0x0a010102)));
+
+	nb.Update(0x0a010102, 8_000_000L);
+	assertEquals(8_000_000L, nb.GetExpireTimeNs(new Ipv4Address("10.1.1.2")));
+    }
+}
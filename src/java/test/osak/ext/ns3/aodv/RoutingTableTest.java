@@ -0,0 +1,118 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.aodv;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.*;
+
+import osak.ext.ns3.core.DefaultSimulatorImpl;
+import osak.ext.ns3.core.Rollbackable;
+import osak.ext.ns3.core.Simulator;
+import osak.ext.ns3.core.SimulatorImpl;
+import osak.ext.ns3.core.Time;
+import osak.ext.ns3.internet.Ipv4InterfaceAddress;
+import osak.ext.ns3.network.utils.Ipv4Address;
+
+/**
+ * TODO RoutingTableTest
+ * 
+ * @author zhangrui
+ * @since   1.0
+ */
+class RoutingTableTest {
+    private static final Ipv4Address A = new Ipv4Address("10.1.1.2");
+    private static final Ipv4Address B = new Ipv4Address("10.1.1.3");
+
+    private boolean m_inEvent; // !< whether an event that can be rolled back is running
+    private Object m_saved; // !< the state of the table saved by the running event
+
+    /**
+     * Stand for an optimistic simulator: the table is saved on the first change
+     * made while m_inEvent is set, and nothing is saved otherwise.
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+	SimulatorImpl impl = new DefaultSimulatorImpl();
+	Simulator.SetImplementation((SimulatorImpl) Proxy.newProxyInstance(SimulatorImpl.class.getClassLoader(),
+		new Class<?>[] { SimulatorImpl.class }, (proxy, method, args) -> {
+		    if (!method.getName().equals("SaveState")) {
+			return method.invoke(impl, args);
+		    }
+		    if (m_inEvent && m_saved == null) {
+			m_saved = ((Rollbackable) args[0]).SaveState();
+		    }
+		    return m_inEvent ? m_saved : null;
+		}));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+	Simulator.Destroy();
+    }
+
+    private static RoutingTableEntry Route(Ipv4Address dst, int seqNo) {
+	return new RoutingTableEntry(null, dst, true, seqNo, new Ipv4InterfaceAddress(), (short) 1, dst,
+		new Time(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void test_UndoLog() {
+	RoutingTable table = new RoutingTable(new Time(3, TimeUnit.SECONDS));
+	table.AddRoute(Route(A, 1));
+	assertNull(m_saved);
+
+	m_inEvent = true;
+	RoutingTableEntry rt = new RoutingTableEntry();
+	assertTrue(table.LookupValidRoute(A, rt));
+	assertNull(m_saved);
+	table.AddRoute(Route(B, 2));
+	table.SetEntryState(A, RouteFlags.IN_SEARCH);
+	rt.SetSeqNo(7);
+	table.Update(rt);
+	table.DeleteRoute(A);
+	assertFalse(table.LookupRoute(A, rt));
+
+	table.RestoreState(m_saved);
+	assertAll(
+		() -> assertTrue(table.LookupValidRoute(A, rt)),
+		() -> assertEquals(1, rt.GetSeqNo()),
+		() -> assertFalse(table.LookupRoute(B, new RoutingTableEntry())));
+    }
+
+    @Test
+    void test_NoLogOutsideEvents() {
+	RoutingTable table = new RoutingTable(new Time(3, TimeUnit.SECONDS));
+	m_inEvent = true;
+	table.AddRoute(Route(A, 1));
+	RoutingTable.UndoLog log = (RoutingTable.UndoLog) m_saved;
+	assertEquals(1, log.m_size);
+
+	// the event committed: later changes are not appended to its log.
+	m_inEvent = false;
+	table.AddRoute(Route(B, 2));
+	table.DeleteRoute(A);
+	assertEquals(1, log.m_size);
+	assertTrue(table.LookupRoute(B, new RoutingTableEntry()));
+    }
+}
@@ -22,10 +22,12 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertAll;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import org.junit.jupiter.api.*;
 
 import osak.ext.ns3.aodv.RreqHeader;
+import osak.ext.ns3.network.Packet;
 import osak.ext.ns3.network.utils.Ipv4Address;
 
 /**
@@ -112,4 +114,69 @@ class RreqHeaderTest {
 		() -> assertTrue(header.equals(header2)), 
 		() -> assertFalse(header == header2));
     }
+
+    @Test
+    void test_ViewInPlace() {
+	// a received AODV message: the type, then the RREQ, in a single segment.
+	byte[] message = new byte[rawdata.length + 1];
+	message[0] = 1;
+	System.arraycopy(rawdata, 0, message, 1, rawdata.length);
+	Packet packet = new Packet(message, message.length);
+	TypeView type = new TypeView();
+	assertTrue(packet.PeekHeader(type));
+	assertEquals(type.Get(), MessageType.AODVTYPE_RREQ);
+	packet.RemoveAtStart(type.GetSerializedSize());
+
+	// the view reads the RREQ where it lies, past the removed type.
+	RreqView view = new RreqView();
+	assertTrue(packet.PeekHeader(view));
+	assertAll(
+		() -> assertTrue(view.GetGratuitousRrep()),
+		() -> assertEquals(view.GetHopCount(), 0),
+		() -> assertEquals(view.GetId(), 1),
+		() -> assertEquals(view.GetDst(), new Ipv4Address("10.1.1.5").Get()),
+		() -> assertEquals(view.GetOrigin(), new Ipv4Address("10.1.1.1").Get()),
+		() -> assertEquals(view.GetDstSeqno(), 0),
+		() -> assertEquals(view.GetOriginSeqno(), 1),
+		() -> assertEquals(packet.GetSize(), rawdata.length));
+	RreqHeader header = new RreqHeader();
+	assertEquals(view.Deserialize(header), rawdata.length);
+	RreqHeader expected = new RreqHeader();
+	expected.Deserialize(ByteBuffer.wrap(rawdata));
+	assertTrue(header.equals(expected));
+
+	// the same views are reused for the next packet; an unknown type reads as null.
+	message[0] = 9;
+	assertTrue(new Packet(message, message.length).PeekHeader(type));
+	assertEquals(type.Get(), null);
+    }
+
+    @Test
+    void test_View() {
+	// the RREQ spans two buffer segments: the view gathers it.
+	Packet packet = new Packet(rawdata, 10);
+	packet.AddAtEnd(new Packet(Arrays.copyOfRange(rawdata, 10, rawdata.length), rawdata.length - 10));
+	RreqView view = new RreqView();
+	assertTrue(packet.PeekHeader(view));
+	assertAll(
+		() -> assertTrue(view.GetGratuitousRrep()),
+		() -> assertEquals(view.GetId(), 1),
+		() -> assertEquals(view.GetDst(), new Ipv4Address("10.1.1.5").Get()),
+		() -> assertEquals(view.GetOrigin(), new Ipv4Address("10.1.1.1").Get()),
+		() -> assertEquals(view.GetDstSeqno(), 0),
+		() -> assertEquals(view.GetOriginSeqno(), 1),
+		() -> assertTrue(view.GetUnknownSeqno()),
+		() -> assertFalse(view.GetDestinationOnly()),
+		() -> assertEquals(packet.GetSize(), rawdata.length));
+
+	RreqHeader header = new RreqHeader();
+	view.Deserialize(header);
+	RreqHeader expected = new RreqHeader();
+	expected.Deserialize(ByteBuffer.wrap(rawdata));
+	assertTrue(header.equals(expected));
+
+	// too short for a RREQ
+	packet.RemoveAtEnd(1);
+	assertFalse(packet.PeekHeader(view));
+    }
 }
@@ -26,7 +26,8 @@ import org.junit.platform.suite.api.Suite;
  * @since   1.0
  */
 @Suite
-@SelectClasses({ RerrHeaderTest.class, RrepHeaderTest.class, RreqHeaderTest.class })
+@SelectClasses({ NeighborsTest.class, RerrHeaderTest.class, RoutingTableTest.class, RrepHeaderTest.class,
+	RreqHeaderTest.class })
 
 public class RunAllTest {
 
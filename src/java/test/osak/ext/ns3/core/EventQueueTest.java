@@ -0,0 +1,128 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.*;
+
+/**
+ * Check every EventQueue against java.util.PriorityQueue.
+ * 
+ * @author zhangrui
+ * @since   1.0
+ */
+class EventQueueTest {
+    private static final String[] TYPES = { "heap", "calendar", "ladder", "wheel" };
+
+    private long m_uid;
+
+    private EventId NewEvent(long ts) {
+	return new EventId(EventImpl.MakeEvent(() -> {
+	}), ts, Simulator.NO_CONTEXT, m_uid++);
+    }
+
+    @Test
+    void test_Empty() {
+	for (String type : TYPES) {
+	    EventQueue queue = EventQueue.Create(type);
+	    assertTrue(queue.IsEmpty(), type);
+	    EventId ev = NewEvent(5);
+	    queue.Insert(ev);
+	    assertSame(ev, queue.PeekNext(), type);
+	    assertSame(ev, queue.RemoveNext(), type);
+	    assertTrue(queue.IsEmpty(), type);
+	    assertNull(queue.PeekNext(), type);
+	}
+    }
+
+    @Test
+    void test_HoldModel() {
+	for (String type : TYPES) {
+	    Random random = new Random(1);
+	    EventQueue queue = EventQueue.Create(type);
+	    PriorityQueue<EventId> expected = new PriorityQueue<>();
+	    List<EventId> pending = new ArrayList<>();
+	    long now = 0;
+	    for (int i = 0; i < 20000; i++) {
+		int op = random.nextInt(10);
+		if (op < 5 || expected.isEmpty()) {
+		    // mix short delays, simultaneous events and the odd far-future one.
+		    long delay = op == 0 ? random.nextInt(1000) * 1_000_000_000L : random.nextInt(3) * random.nextInt(100000);
+		    EventId ev = NewEvent(now + delay);
+		    queue.Insert(ev);
+		    expected.add(ev);
+		    pending.add(ev);
+		} else if (op < 9) {
+		    assertSame(expected.peek(), queue.PeekNext(), type);
+		    EventId ev = queue.RemoveNext();
+		    assertSame(expected.poll(), ev, type);
+		    pending.remove(ev);
+		    now = ev.GetTs();
+		} else {
+		    EventId ev = pending.remove(random.nextInt(pending.size()));
+		    queue.Remove(ev);
+		    expected.remove(ev);
+		}
+		assertEquals(expected.isEmpty(), queue.IsEmpty(), type);
+	    }
+	    while (!expected.isEmpty()) {
+		assertSame(expected.poll(), queue.RemoveNext(), type);
+	    }
+	    assertTrue(queue.IsEmpty(), type);
+	}
+    }
+
+    @Test
+    void test_WheelResolution() {
+	Simulator.SetScheduler(new TimingWheelEventQueue(1_000_000));
+	List<Long> fired = new ArrayList<>();
+	Simulator.Schedule(new Time(2500, TimeUnit.MICROSECONDS), () -> fired.add(Simulator.Now().getNanoSeconds()));
+	Simulator.Schedule(new Time(3, TimeUnit.MILLISECONDS), () -> fired.add(Simulator.Now().getNanoSeconds()));
+	Simulator.Schedule(new Time(40, TimeUnit.SECONDS), () -> fired.add(Simulator.Now().getNanoSeconds()));
+	Simulator.Run();
+	assertEquals(1_000_000L, Simulator.GetResolution().getNanoSeconds());
+	assertEquals(3, fired.size());
+	assertEquals(3_000_000L, fired.get(0).longValue());
+	assertEquals(3_000_000L, fired.get(1).longValue());
+	assertEquals(40_000_000_000L, fired.get(2).longValue());
+	Simulator.Destroy();
+    }
+
+    @Test
+    void test_SetScheduler() {
+	List<Integer> fired = new ArrayList<>();
+	for (int i = 0; i < 100; i++) {
+	    final int n = i;
+	    Simulator.Schedule(new Time(100 - i), () -> fired.add(n));
+	}
+	Simulator.SetScheduler(EventQueue.Create("ladder"));
+	Simulator.Run();
+	assertEquals(100, fired.size());
+	assertEquals(99, fired.get(0).intValue());
+	assertEquals(0, fired.get(99).intValue());
+	Simulator.Destroy();
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.core;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.*;
+
+/**
+ * TODO IntObjectMapTest
+ * 
+ * @author zhangrui
+ * @since   1.0
+ */
+class IntObjectMapTest {
+    @Test
+    void test_IntObjectMap() {
+	IntObjectMap<String> map = new IntObjectMap<>();
+	Map<Integer, String> expected = new HashMap<>();
+	Random random = new Random(1);
+	for (int n = 0; n < 20000; n++) {
+	    // few distinct keys, so that removals hit and clusters form
+	    int key = random.nextInt(512) - 256;
+	    switch (random.nextInt(3)) {
+	    case 0:
+		assertEquals(expected.put(key, "v" + n), map.Put(key, "v" + n));
+		break;
+	    case 1:
+		assertEquals(expected.remove(key), map.Remove(key));
+		break;
+	    default:
+		assertEquals(expected.get(key), map.Get(key));
+	    }
+	    assertEquals(expected.size(), map.GetSize());
+	}
+	IntObjectMap<String> copy = new IntObjectMap<>(map);
+	assertTrue(map.RemoveIf((k, v) -> k % 3 == 0));
+	expected.keySet().removeIf(k -> k % 3 == 0);
+	Map<Integer, String> visited = new HashMap<>();
+	map.ForEach((k, v) -> visited.put(k, v));
+	assertAll(
+		() -> assertEquals(expected, visited),
+		() -> assertEquals(expected.size(), map.GetSize()),
+		() -> assertFalse(map.RemoveIf((k, v) -> k % 3 == 0)),
+		() -> assertTrue(copy.GetSize() > map.GetSize()));
+	map.Clear();
+	assertAll(
+		() -> assertTrue(map.IsEmpty()),
+		() -> assertNull(map.Get(1)),
+		() -> assertFalse(copy.IsEmpty()));
+    }
+
+    @Test
+    void test_IntSet() {
+	IntSet set = new IntSet();
+	Set<Integer> expected = new HashSet<>();
+	Random random = new Random(2);
+	for (int n = 0; n < 20000; n++) {
+	    int value = random.nextInt(256) - 128;
+	    if (random.nextBoolean()) {
+		assertEquals(expected.add(value), set.Add(value));
+	    } else {
+		assertEquals(expected.remove(value), set.Remove(value));
+	    }
+	    assertEquals(expected.contains(0), set.Contains(0));
+	    assertEquals(expected.size(), set.GetSize());
+	}
+	Set<Integer> visited = new HashSet<>();
+	set.ForEach(v -> visited.add(v));
+	assertEquals(expected, visited);
+	IntSet copy = new IntSet(set);
+	set.Clear();
+	assertAll(
+		() -> assertTrue(set.IsEmpty()),
+		() -> assertFalse(set.Contains(0)),
+		() -> assertEquals(expected.size(), copy.GetSize()));
+    }
+
+    @Test
+    void test_LongLongMap() {
+	LongLongMap map = new LongLongMap();
+	Map<Long, Long> expected = new HashMap<>();
+	Random random = new Random(3);
+	for (int n = 0; n < 20000; n++) {
+	    long key = (random.nextInt(256) - 128) * 0x100000001L;
+	    if (random.nextBoolean()) {
+		map.Put(key, n);
+		expected.put(key, (long) n);
+	    } else {
+		assertEquals(expected.remove(key) != null, map.Remove(key));
+	    }
+	    assertEquals(expected.getOrDefault(0L, -1L).longValue(), map.Get(0, -1));
+	    assertEquals(expected.size(), map.GetSize());
+	}
+	map.RemoveIf((k, v) -> v % 2 == 0);
+	expected.values().removeIf(v -> v % 2 == 0);
+	assertEquals(expected.size(), map.GetSize());
+	for (Map.Entry<Long, Long> i : expected.entrySet()) {
+	    assertEquals(i.getValue().longValue(), map.Get(i.getKey(), -1));
+	}
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.*;
+
+/**
+ * TODO RealtimeSimulatorTest
+ * 
+ * @author zhangrui
+ * @since   1.0
+ */
+class RealtimeSimulatorTest {
+    @AfterEach
+    void tearDown() throws Exception {
+	Simulator.Destroy();
+    }
+
+    @Test
+    void test_WallClock() {
+	RealtimeSimulatorImpl impl = new RealtimeSimulatorImpl();
+	Simulator.SetImplementation(impl);
+	List<Long> fired = new ArrayList<>();
+	Timer timer = new Timer();
+	timer.Schedule(new Time(30), () -> fired.add(Simulator.NowNs()));
+	Simulator.Schedule(new Time(10), () -> fired.add(Simulator.NowNs()));
+	long start = System.nanoTime();
+	Simulator.Run();
+	long elapsed = System.nanoTime() - start;
+	assertEquals(List.of(10_000_000L, 30_000_000L), fired);
+	assertTrue(elapsed >= 30_000_000L, "ran faster than the wall clock: " + elapsed);
+	assertEquals(2, impl.GetEventCount());
+	assertTrue(impl.GetMaxLateness().getNanoSeconds() >= 0);
+    }
+
+    @Test
+    void test_OtherThread() throws InterruptedException {
+	RealtimeSimulatorImpl impl = new RealtimeSimulatorImpl();
+	Simulator.SetImplementation(impl);
+	List<Long> fired = new ArrayList<>();
+	// keeps the simulation running while the other thread injects an event.
+	Simulator.Schedule(new Time(10, TimeUnit.SECONDS), () -> fired.add(-1L));
+	Thread input = new Thread(() -> {
+	    while (impl.RealtimeNow() < Time.ToNs(20, TimeUnit.MILLISECONDS)) {
+		Thread.yield();
+	    }
+	    Simulator.ScheduleWithContext(0, new Time(0), () -> {
+		fired.add(Simulator.NowNs());
+		Simulator.Stop();
+	    });
+	});
+	input.start();
+	long start = System.nanoTime();
+	Simulator.Run();
+	input.join();
+	assertTrue(System.nanoTime() - start < Time.ToNs(5, TimeUnit.SECONDS));
+	assertEquals(1, fired.size());
+	assertTrue(fired.get(0) >= Time.ToNs(20, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void test_HardLimit() {
+	RealtimeSimulatorImpl impl = new RealtimeSimulatorImpl();
+	impl.SetSynchronizationMode(RealtimeSimulatorImpl.SynchronizationMode.SYNC_HARD_LIMIT);
+	impl.SetHardLimit(new Time(5));
+	Simulator.SetImplementation(impl);
+	Simulator.Schedule(new Time(1), () -> {
+	    long end = System.nanoTime() + Time.ToNs(30, TimeUnit.MILLISECONDS);
+	    while (System.nanoTime() < end) {
+		Thread.onSpinWait();
+	    }
+	});
+	Simulator.Schedule(new Time(2), () -> {
+	});
+	assertThrows(IllegalStateException.class, () -> Simulator.Run());
+	assertTrue(impl.GetLateEventCount() > 0);
+    }
+}
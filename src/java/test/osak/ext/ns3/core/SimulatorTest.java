@@ -0,0 +1,123 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.core;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.*;
+
+/**
+ * TODO SimulatorTest
+ * 
+ * @author zhangrui
+ * @since   1.0
+ */
+class SimulatorTest {
+    /**
+     * @throws java.lang.Exception
+     */
+    @AfterEach
+    void tearDown() throws Exception {
+	Simulator.Destroy();
+    }
+
+    @Test
+    void test_VirtualTime() {
+	List<Long> fired = new ArrayList<>();
+	Simulator.Schedule(new Time(30, TimeUnit.SECONDS), () -> fired.add(Simulator.Now().getNanoSeconds()));
+	Simulator.Schedule(new Time(10), () -> fired.add(Time.Now().getNanoSeconds()));
+	long start = System.currentTimeMillis();
+	Simulator.Run();
+	long elapsed = System.currentTimeMillis() - start;
+	assertAll(
+		() -> assertEquals(2, fired.size()),
+		() -> assertEquals(10_000_000L, fired.get(0).longValue()),
+		() -> assertEquals(30_000_000_000L, fired.get(1).longValue()),
+		() -> assertTrue(elapsed < 30_000));
+    }
+
+    @Test
+    void test_SameTimeIsFifo() {
+	StringBuilder order = new StringBuilder();
+	Simulator.Schedule(new Time(1), () -> order.append('a'));
+	Simulator.Schedule(new Time(1), () -> order.append('b'));
+	Simulator.ScheduleNow(() -> order.append('c'));
+	Simulator.Run();
+	assertEquals("cab", order.toString());
+    }
+
+    @Test
+    void test_CancelAndStop() {
+	StringBuilder order = new StringBuilder();
+	EventId cancelled = Simulator.Schedule(new Time(5), () -> order.append('x'));
+	Simulator.Schedule(new Time(1), () -> {
+	    order.append('a');
+	    cancelled.Cancel();
+	});
+	Simulator.Schedule(new Time(20), () -> order.append('z'));
+	Simulator.Stop(new Time(10));
+	Simulator.Run();
+	assertAll(
+		() -> assertEquals("a", order.toString()),
+		() -> assertTrue(cancelled.IsExpired()),
+		() -> assertEquals(10_000_000L, Simulator.Now().getNanoSeconds()));
+    }
+
+    @Test
+    void test_Timer() {
+	Timer timer = new Timer();
+	timer.Schedule(new Time(100), () -> {
+	});
+	Simulator.Schedule(new Time(40), () -> {
+	    assertTrue(timer.IsRunning());
+	    assertEquals(60_000_000L, timer.GetDelayLeft().getNanoSeconds());
+	});
+	Simulator.Run();
+	assertAll(
+		() -> assertFalse(timer.IsRunning()),
+		() -> assertTrue(timer.IsExpired()),
+		() -> assertEquals(0L, timer.GetDelayLeft().getNanoSeconds()));
+    }
+
+    @Test
+    void test_BoundEvents() {
+	List<String> fired = new ArrayList<>();
+	Simulator.Schedule(30, (String a, Integer b, Long c) -> fired.add(a + b + c), "c", 3, 30L);
+	Simulator.Schedule(10, (String a) -> fired.add(a), "a");
+	Simulator.Schedule(20, (String a, Integer b) -> fired.add(a + b), "b", 2);
+	EventId cancelled = Simulator.Schedule(15, (String a) -> fired.add(a), "x");
+	Simulator.Cancel(cancelled);
+	Simulator.Run();
+	assertEquals(List.of("a", "b2", "c330"), fired);
+
+	// the events have been recycled: the next one reuses a released object.
+	EventImpl first = EventImpl.MakeEvent(() -> {
+	});
+	first.Release();
+	EventImpl second = EventImpl.MakeEvent((String a) -> fired.add(a), "y");
+	assertTrue(first == second);
+	assertFalse(second.IsCancelled());
+	second.Invoke();
+	assertEquals("y", fired.get(3));
+    }
+}
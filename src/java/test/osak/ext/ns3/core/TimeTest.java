@@ -0,0 +1,65 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.*;
+
+/**
+ * TODO TimeTest
+ * 
+ * @author zhangrui
+ * @since   1.0
+ */
+class TimeTest {
+    @Test
+    void test_Immutable() {
+	Time a = new Time(2);
+	Time b = new Time(500, TimeUnit.MICROSECONDS);
+	Time sum = Time.add(a, b);
+	Time sum2 = a.add(b);
+	assertEquals(2_000_000L, a.getNanoSeconds());
+	assertEquals(2_500_000L, sum.getNanoSeconds());
+	assertEquals(sum, sum2);
+	assertEquals(1_500_000L, Time.sub(a, b).getNanoSeconds());
+	assertEquals(2, a.getMillSeconds());
+    }
+
+    @Test
+    void test_Saturation() {
+	assertSame(Time.Max(), Time.add(Time.Max(), new Time(1, TimeUnit.SECONDS)));
+	assertEquals(Long.MAX_VALUE, new Time(Long.MAX_VALUE, TimeUnit.SECONDS).getNanoSeconds());
+	assertEquals(Long.MAX_VALUE, Time.Add(Long.MAX_VALUE - 1, 10));
+	assertEquals(Long.MIN_VALUE, Time.Sub(Long.MIN_VALUE + 1, 10));
+	assertEquals(Long.MAX_VALUE, Time.Mul(3, Long.MAX_VALUE / 2));
+	assertEquals(Long.MIN_VALUE, Time.Mul(-3, Long.MAX_VALUE / 2));
+	assertEquals(-6, Time.Mul(-3, 2));
+    }
+
+    @Test
+    void test_Compare() {
+	Time ms = new Time(1);
+	Time us = new Time(999, TimeUnit.MICROSECONDS);
+	assertSame(ms, Time.MAX(ms, us));
+	assertSame(us, Time.MIN(ms, us));
+	assertEquals(1, ms.compareTo(us));
+	assertEquals(new Time(1000, TimeUnit.MICROSECONDS), ms);
+    }
+}
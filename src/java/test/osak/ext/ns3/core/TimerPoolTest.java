@@ -0,0 +1,76 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.*;
+
+/**
+ * TODO TimerPoolTest
+ * 
+ * @author zhangrui
+ * @since   1.0
+ */
+class TimerPoolTest {
+    @Test
+    void test_ShardPerKey() throws InterruptedException {
+	int n = TimerPool.GetShardCount();
+	assertTrue(n >= 1);
+	assertSame(TimerPool.GetShard(3), TimerPool.GetShard(3 + n));
+	assertSame(TimerPool.GetShard(-1), TimerPool.GetShard(n - 1));
+
+	TimerPool.Shard shard = TimerPool.GetShard(7);
+	long dispatched = shard.GetDispatchCount();
+	List<Integer> fired = Collections.synchronizedList(new ArrayList<>());
+	List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+	CountDownLatch done = new CountDownLatch(3);
+	// hold the shard while scheduling, and give every timer a deadline taken from
+	// one common origin, so that a slow Schedule() call cannot reorder them.
+	CountDownLatch scheduled = new CountDownLatch(1);
+	shard.GetExecutor().execute(() -> {
+	    try {
+		scheduled.await();
+	    } catch (InterruptedException e) {
+		Thread.currentThread().interrupt();
+	    }
+	});
+	long origin = System.nanoTime();
+	for (int i : new int[] { 3, 1, 2 }) {
+	    long deadline = origin + Time.ToNs(i * 50, TimeUnit.MILLISECONDS);
+	    shard.Schedule(deadline - System.nanoTime(), () -> {
+		fired.add(i);
+		threads.add(Thread.currentThread());
+		done.countDown();
+	    });
+	}
+	scheduled.countDown();
+	assertTrue(done.await(5, TimeUnit.SECONDS));
+	assertEquals(List.of(1, 2, 3), fired);
+	assertTrue(threads.stream().allMatch(t -> t == threads.get(0)));
+	assertEquals(dispatched + 3, shard.GetDispatchCount());
+	assertTrue(shard.GetMaxDispatchLatency() >= shard.GetMeanDispatchLatency());
+	assertEquals(0, shard.GetQueueDepth());
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.internet;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.*;
+
+import osak.ext.ns3.network.InternetChecksum;
+import osak.ext.ns3.network.utils.Ipv4Address;
+
+/**
+ * TODO Ipv4HeaderTest
+ * 
+ * @author zhangrui
+ * @since   1.0
+ */
+class Ipv4HeaderTest {
+
+    private static Ipv4Header Create() {
+	Ipv4Header header = new Ipv4Header();
+	header.EnableChecksum();
+	header.SetSource(new Ipv4Address("192.168.0.1"));
+	header.SetDestination(new Ipv4Address("192.168.0.199"));
+	header.SetProtocol((byte) 17);
+	header.SetTtl((byte) 64);
+	header.SetDontFragment();
+	header.SetPayloadSize((short) 95);
+	return header;
+    }
+
+    @Test
+    void test_Checksum() {
+	ByteBuffer buffer = ByteBuffer.allocate(20);
+	Create().Serialize(buffer);
+	assertEquals((short) 0xb861, buffer.getShort(10));
+
+	Ipv4Header received = new Ipv4Header();
+	received.EnableChecksum();
+	buffer.rewind();
+	received.Deserialize(buffer);
+	assertTrue(received.IsChecksumOk());
+
+	buffer.put(8, (byte) 1);
+	buffer.rewind();
+	received.Deserialize(buffer);
+	assertFalse(received.IsChecksumOk());
+    }
+
+    @Test
+    void test_ForwardingUpdatesChecksum() {
+	ByteBuffer buffer = ByteBuffer.allocate(20);
+	Create().Serialize(buffer);
+	Ipv4Header forwarded = new Ipv4Header();
+	forwarded.EnableChecksum();
+	buffer.rewind();
+	forwarded.Deserialize(buffer);
+
+	// the TTL decrement adjusts the checksum read from the packet.
+	forwarded.SetTtl((byte) (forwarded.GetTtl() - 1));
+	ByteBuffer out = ByteBuffer.allocate(20);
+	forwarded.Serialize(out);
+	short written = out.getShort(10);
+	out.putShort(10, (short) 0);
+	assertAll(
+		() -> assertEquals(63, out.get(8)),
+		() -> assertEquals(InternetChecksum.Checksum(out, 0, 20), written));
+    }
+}
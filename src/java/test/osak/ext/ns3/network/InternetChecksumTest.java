@@ -0,0 +1,112 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.network;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import org.junit.jupiter.api.*;
+
+import osak.ext.ns3.internet.UdpHeader;
+import osak.ext.ns3.network.utils.Ipv4Address;
+
+/**
+ * TODO InternetChecksumTest
+ * 
+ * @author zhangrui
+ * @since   1.0
+ */
+class InternetChecksumTest {
+    /** The 16-bit loop of RFC 1071. */
+    private static short Reference(byte[] data, int offset, int length) {
+	long sum = 0;
+	for (int i = 0; i < length; i += 2) {
+	    int hi = data[offset + i] & 0xff;
+	    int lo = i + 1 < length ? data[offset + i + 1] & 0xff : 0;
+	    sum += (hi << 8) | lo;
+	}
+	while ((sum >>> 16) != 0) {
+	    sum = (sum & 0xffff) + (sum >>> 16);
+	}
+	return (short) ~sum;
+    }
+
+    @Test
+    void test_Checksum() {
+	byte[] header = { 0x45, 0x00, 0x00, 0x73, 0x00, 0x00, 0x40, 0x00, 0x40, 0x11, 0x00, 0x00, (byte) 0xc0,
+		(byte) 0xa8, 0x00, 0x01, (byte) 0xc0, (byte) 0xa8, 0x00, (byte) 0xc7 };
+	assertEquals((short) 0xb861, InternetChecksum.Checksum(ByteBuffer.wrap(header), 0, header.length));
+
+	Random random = new Random(1);
+	byte[] data = new byte[1501];
+	random.nextBytes(data);
+	ByteBuffer little = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+	for (int length = 0; length <= 40; length++) {
+	    for (int offset = 0; offset < 3; offset++) {
+		assertEquals(Reference(data, offset, length), InternetChecksum.Checksum(little, offset, length));
+	    }
+	}
+	assertEquals(Reference(data, 0, data.length), InternetChecksum.Checksum(ByteBuffer.wrap(data), 0, data.length));
+    }
+
+    @Test
+    void test_Update() {
+	byte[] header = { 0x45, 0x00, 0x00, 0x73, 0x00, 0x00, 0x40, 0x00, 0x40, 0x11, 0x00, 0x00, (byte) 0xc0,
+		(byte) 0xa8, 0x00, 0x01, (byte) 0xc0, (byte) 0xa8, 0x00, (byte) 0xc7 };
+	short checksum = InternetChecksum.Checksum(ByteBuffer.wrap(header), 0, header.length);
+	for (int ttl = 0x40; ttl > 0; ttl--) {
+	    short oldWord = (short) ((header[8] & 0xff) << 8 | (header[9] & 0xff));
+	    header[8] = (byte) (ttl - 1);
+	    short newWord = (short) ((header[8] & 0xff) << 8 | (header[9] & 0xff));
+	    checksum = InternetChecksum.Update(checksum, oldWord, newWord);
+	    assertEquals(InternetChecksum.Checksum(ByteBuffer.wrap(header), 0, header.length), checksum);
+	}
+    }
+
+    @Test
+    void test_Udp() {
+	Ipv4Address source = new Ipv4Address("10.1.1.1");
+	Ipv4Address destination = new Ipv4Address("10.1.1.2");
+	Packet packet = new Packet(new byte[] { 1, 2, 3, 4, 5 }, 5);
+	UdpHeader header = new UdpHeader();
+	header.EnableChecksums();
+	header.SetSourcePort(49153);
+	header.SetDestinationPort(654);
+	header.InitializeChecksum(source, destination, (byte) 17);
+	header.SetPayload(packet);
+	packet.AddHeader(header);
+
+	UdpHeader received = new UdpHeader();
+	received.EnableChecksums();
+	received.InitializeChecksum(source, destination, (byte) 17);
+	packet.RemoveHeader(received);
+	received.SetPayload(packet);
+	assertAll(
+		() -> assertEquals(49153, received.GetSourcePort()),
+		() -> assertEquals(654, received.GetDestinationPort()),
+		() -> assertTrue(received.IsChecksumOk()));
+
+	// the checksum covers the pseudo-header.
+	received.InitializeChecksum(source, source, (byte) 17);
+	assertFalse(received.IsChecksumOk());
+    }
+}
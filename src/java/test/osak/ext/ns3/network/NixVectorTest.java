@@ -0,0 +1,65 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.network;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.*;
+
+/**
+ * TODO NixVectorTest
+ * 
+ * @author zhangrui
+ * @since   1.0
+ */
+class NixVectorTest {
+
+    @Test
+    void test_BitCount() {
+	assertAll(
+		() -> assertEquals(1, NixVector.BitCount(0)),
+		() -> assertEquals(1, NixVector.BitCount(2)),
+		() -> assertEquals(2, NixVector.BitCount(3)),
+		() -> assertEquals(2, NixVector.BitCount(4)),
+		() -> assertEquals(3, NixVector.BitCount(5)),
+		() -> assertEquals(8, NixVector.BitCount(256)));
+    }
+
+    @Test
+    void test_NeighborIndices() {
+	NixVector nixVector = new NixVector();
+	// enough hops to span several words.
+	for (int i = 0; i < 20; i++) {
+	    nixVector.AddNeighborIndex(i % 5, 3);
+	}
+	nixVector.AddNeighborIndex(1, 1);
+	assertEquals(61, nixVector.GetRemainingBits());
+	assertEquals(4 + 8, nixVector.GetSerializedSize());
+
+	// the copy extracts independently of the original.
+	NixVector copy = nixVector.Copy();
+	assertEquals(0, copy.ExtractNeighborIndex(3));
+	assertEquals(1, copy.ExtractNeighborIndex(3));
+	assertEquals(61, nixVector.GetRemainingBits());
+	assertEquals("000", nixVector.toString().substring(0, 3));
+	for (int i = 0; i < 20; i++) {
+	    assertEquals(i % 5, nixVector.ExtractNeighborIndex(3));
+	}
+	assertEquals(1, nixVector.ExtractNeighborIndex(1));
+	assertEquals(0, nixVector.GetRemainingBits());
+    }
+}
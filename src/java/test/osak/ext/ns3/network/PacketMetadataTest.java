@@ -0,0 +1,90 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.network;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.*;
+
+import osak.ext.ns3.aodv.MessageType;
+import osak.ext.ns3.aodv.RrepAckHeader;
+import osak.ext.ns3.aodv.TypeHeader;
+
+/**
+ * TODO PacketMetadataTest
+ * 
+ * @author zhangrui
+ * @since   1.0
+ */
+class PacketMetadataTest {
+    /**
+     * @throws java.lang.Exception
+     */
+    @AfterEach
+    void tearDown() throws Exception {
+	PacketMetadata.Disable();
+    }
+
+    @Test
+    void test_Disabled() {
+	Packet packet = new Packet(10);
+	packet.AddHeader(new TypeHeader(MessageType.AODVTYPE_RREP));
+	assertAll(
+		() -> assertFalse(packet.BeginItem().HasNext()),
+		() -> assertEquals("", packet.ToString()),
+		() -> assertEquals(0, packet.GetSerializedSize() - new Packet(11).GetSerializedSize()));
+    }
+
+    @Test
+    void test_Items() {
+	Packet.EnablePrinting();
+	Packet packet = new Packet(10);
+	packet.AddHeader(new RrepAckHeader());
+	packet.AddHeader(new TypeHeader(MessageType.AODVTYPE_RREP_ACK));
+	// the copy shares the records until it changes them.
+	Packet copy = packet.Copy();
+	copy.RemoveHeader(new TypeHeader());
+	assertEquals("TypeHeader (size=1) RrepAckHeader (size=1) Payload (size=10)", packet.ToString());
+	assertEquals("RrepAckHeader (size=1) Payload (size=10)", copy.ToString());
+
+	packet.AddAtEnd(copy);
+	Packet fragment = packet.CreateFragment(5, 10);
+	PacketMetadata.ItemIterator i = fragment.BeginItem();
+	PacketMetadata.Item first = i.Next();
+	assertAll(
+		() -> assertEquals(PacketMetadata.ItemType.PAYLOAD, first.GetType()),
+		() -> assertTrue(first.IsFragment()),
+		() -> assertEquals(3, first.GetCurrentTrimmedFromStart()),
+		() -> assertEquals(7, first.GetCurrentSize()));
+	assertEquals(RrepAckHeader.class, i.Next().GetTypeId());
+	assertEquals(2, i.Next().GetCurrentSize());
+	assertFalse(i.HasNext());
+    }
+
+    @Test
+    void test_Checking() {
+	Packet.EnableChecking();
+	Packet packet = new Packet(10);
+	packet.AddHeader(new RrepAckHeader());
+	assertThrows(IllegalStateException.class, () -> packet.RemoveHeader(new TypeHeader()));
+	packet.RemoveHeader(new RrepAckHeader());
+	assertEquals("Payload (size=10)", packet.ToString());
+    }
+}
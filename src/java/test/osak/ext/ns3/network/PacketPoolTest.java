@@ -0,0 +1,127 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.network;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.*;
+
+import osak.ext.ns3.aodv.MessageType;
+import osak.ext.ns3.aodv.TypeHeader;
+
+/**
+ * TODO PacketPoolTest
+ * 
+ * @author zhangrui
+ * @since   1.0
+ */
+class PacketPoolTest {
+
+    @Test
+    void test_Recycle() {
+	Packet packet = PacketPool.Obtain(new byte[] { 1, 2, 3 }, 3);
+	Packet copy = packet.Copy();
+	packet.Release();
+	Packet reused = PacketPool.Obtain(2);
+	byte[] data = new byte[3];
+	copy.CopyData(data, 3);
+	byte[] zeros = new byte[2];
+	reused.CopyData(zeros, 2);
+	assertAll(
+		() -> assertSame(packet, reused),
+		// the copy still holds the bytes: they were not recycled.
+		() -> assertArrayEquals(new byte[] { 1, 2, 3 }, data),
+		() -> assertArrayEquals(new byte[2], zeros),
+		() -> assertEquals(2, reused.GetSize()));
+	copy.Release();
+	reused.Release();
+	assertNotSame(PacketPool.Obtain(), PacketPool.Obtain());
+    }
+
+    @Test
+    void test_ReleaseTwice() {
+	Packet packet = PacketPool.Obtain(4);
+	packet.Release();
+	assertThrows(IllegalStateException.class, () -> packet.Release());
+	int free = PacketPool.GetFreeCount();
+	Packet first = PacketPool.Obtain();
+	assertEquals(free - 1, PacketPool.GetFreeCount());
+	assertNotSame(first, PacketPool.Obtain());
+    }
+
+    @Test
+    void test_Blocks() {
+	ByteBuffer block = PacketPool.ObtainBlock(100);
+	assertEquals(128, block.capacity());
+	PacketPool.RecycleBlock(block);
+	assertAll(
+		() -> assertSame(block, PacketPool.ObtainBlock(128)),
+		() -> assertEquals(256, PacketPool.ObtainBlock(129).capacity()),
+		() -> assertEquals(100_000, PacketPool.ObtainBlock(100_000).capacity()));
+    }
+
+    @Test
+    void test_DirectStorage() {
+	PacketPool.SetStorage(PacketPool.Storage.DIRECT);
+	try {
+	    Packet packet = PacketPool.Obtain(new byte[] { 1, 2, 3 }, 3);
+	    TypeHeader type = new TypeHeader(MessageType.AODVTYPE_RERR);
+	    packet.AddHeader(type);
+	    Packet copy = packet.Copy();
+	    TypeHeader received = new TypeHeader();
+	    copy.RemoveHeader(received);
+	    byte[] data = new byte[3];
+	    copy.CopyData(data, 3);
+	    assertAll(
+		    () -> assertTrue(PacketPool.GetDirectCapacity() > 0),
+		    () -> assertEquals(MessageType.AODVTYPE_RERR, received.Get()),
+		    () -> assertArrayEquals(new byte[] { 1, 2, 3 }, data),
+		    () -> assertEquals(4, packet.GetSize()));
+	    packet.Release();
+	    copy.Release();
+	    ByteBuffer block = PacketPool.ObtainBlock(128);
+	    assertTrue(block.isDirect());
+	    PacketPool.RecycleBlock(block);
+	} finally {
+	    PacketPool.SetStorage(PacketPool.Storage.HEAP);
+	}
+	assertTrue(!PacketPool.ObtainBlock(128).isDirect());
+    }
+
+    @Test
+    void test_LeakDetection() throws InterruptedException {
+	PacketPool.EnableLeakDetection();
+	long leaks = PacketPool.GetLeakCount();
+	PacketPool.Obtain(10).Release();
+	PacketPool.Obtain(10).Release();
+	for (int i = 0; i < 4; i++) {
+	    PacketPool.Obtain(10);
+	}
+	for (int i = 0; i < 50 && PacketPool.GetLeakCount() == leaks; i++) {
+	    System.gc();
+	    Thread.sleep(20);
+	}
+	assertTrue(PacketPool.GetLeakCount() > leaks);
+    }
+}
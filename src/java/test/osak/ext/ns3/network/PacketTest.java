@@ -0,0 +1,297 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.network;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.*;
+
+import osak.ext.ns3.aodv.DeferredRouteOutputTag;
+import osak.ext.ns3.aodv.MessageType;
+import osak.ext.ns3.aodv.RrepHeader;
+import osak.ext.ns3.aodv.TypeHeader;
+import osak.ext.ns3.network.utils.Ipv4Address;
+
+/**
+ * TODO PacketTest
+ * 
+ * @author zhangrui
+ * @since   1.0
+ */
+class PacketTest {
+
+    @Test
+    void test_Headers() {
+	Packet packet = new Packet(new byte[] { 1, 2, 3 }, 3);
+	RrepHeader rrep = new RrepHeader();
+	rrep.SetDst(new Ipv4Address("10.1.1.255"));
+	rrep.SetDstSeqno(100);
+	packet.AddHeader(rrep);
+	packet.AddHeader(new TypeHeader(MessageType.AODVTYPE_RREP));
+	assertEquals(3 + rrep.GetSerializedSize() + 1, packet.GetSize());
+
+	TypeHeader type = new TypeHeader();
+	packet.PeekHeader(type);
+	assertEquals(MessageType.AODVTYPE_RREP, type.Get());
+	packet.RemoveHeader(type);
+	RrepHeader received = new RrepHeader();
+	packet.RemoveHeader(received);
+	byte[] payload = new byte[3];
+	assertAll(
+		() -> assertEquals(new Ipv4Address("10.1.1.255"), received.GetDst()),
+		() -> assertEquals(100, received.GetDstSeqno()),
+		() -> assertEquals(3, packet.CopyData(payload, 3)),
+		() -> assertArrayEquals(new byte[] { 1, 2, 3 }, payload));
+    }
+
+    @Test
+    void test_CopyOnWrite() {
+	Buffer buffer = new Buffer(new byte[] { 1, 2, 3, 4 }, 4);
+	buffer.AddAtStart(2).put((byte) 9).put((byte) 8);
+	Buffer copy = buffer.Copy();
+	// the copy shares the bytes.
+	assertEquals(buffer.Read(0, 6), copy.Read(0, 6));
+	assertEquals(1, copy.GetSegmentCount());
+
+	copy.Write(1, new byte[] { 7, 6 }, 0, 2);
+	copy.RemoveAtEnd(1);
+	byte[] original = new byte[6];
+	byte[] written = new byte[5];
+	buffer.CopyData(original, 6);
+	copy.CopyData(written, 5);
+	assertAll(
+		() -> assertArrayEquals(new byte[] { 9, 8, 1, 2, 3, 4 }, original),
+		() -> assertArrayEquals(new byte[] { 9, 7, 6, 2, 3 }, written),
+		() -> assertEquals(4, buffer.Read(2, 4).remaining()));
+    }
+
+    @Test
+    void test_Headroom() {
+	Buffer buffer = new Buffer(new byte[] { 1, 2 }, 2);
+	buffer.AddAtStart(1).put((byte) 3);
+	Buffer copy = buffer.Copy();
+	// the first one grows into the free room, the second one moves to a new
+	// array since the room before its bytes is now in use.
+	buffer.AddAtStart(1).put((byte) 4);
+	copy.AddAtStart(1).put((byte) 5);
+	buffer.AddAtEnd(1).put((byte) 6);
+	byte[] a = new byte[5];
+	byte[] b = new byte[4];
+	buffer.CopyData(a, 5);
+	copy.CopyData(b, 4);
+	assertAll(
+		() -> assertArrayEquals(new byte[] { 4, 3, 1, 2, 6 }, a),
+		() -> assertArrayEquals(new byte[] { 5, 3, 1, 2 }, b),
+		() -> assertEquals(1, buffer.GetSegmentCount()),
+		() -> assertEquals(1, copy.GetSegmentCount()),
+		() -> assertEquals(5, buffer.GetSize()));
+    }
+
+    @Test
+    void test_Uid() throws InterruptedException {
+	Packet a = new Packet();
+	Packet b = new Packet(new byte[] { 1 }, 1);
+	assertAll(
+		() -> assertTrue(b.GetUid() > a.GetUid()),
+		() -> assertEquals(b.GetUid(), b.Copy().GetUid()));
+
+	// uids drawn by several threads at once are unique.
+	Set<Long> uids = ConcurrentHashMap.newKeySet();
+	Thread[] threads = new Thread[4];
+	for (int i = 0; i < threads.length; i++) {
+	    threads[i] = new Thread(() -> {
+		for (int j = 0; j < 5000; j++) {
+		    uids.add(new Packet().GetUid());
+		}
+	    });
+	    threads[i].start();
+	}
+	for (Thread t : threads) {
+	    t.join();
+	}
+	assertEquals(4 * 5000, uids.size());
+    }
+
+    @Test
+    void test_Fragments() {
+	byte[] payload = new byte[100];
+	for (int i = 0; i < payload.length; i++) {
+	    payload[i] = (byte) i;
+	}
+	Packet packet = new Packet(payload, payload.length);
+	RrepHeader rrep = new RrepHeader();
+	rrep.SetDstSeqno(7);
+	packet.AddHeader(rrep);
+	int headerSize = rrep.GetSerializedSize();
+
+	// split in the middle of the header, then join the fragments again.
+	Packet first = packet.CreateFragment(0, 5);
+	Packet second = packet.CreateFragment(5, 60);
+	Packet third = packet.CreateFragment(65, packet.GetSize() - 65);
+	byte[] thirdData = new byte[1];
+	third.CopyData(thirdData, 1);
+	assertAll(
+		() -> assertEquals(packet.GetUid(), second.GetUid()),
+		() -> assertEquals(60, second.GetSize()),
+		() -> assertEquals(payload[65 - headerSize], thirdData[0]));
+	first.AddAtEnd(second);
+	first.AddAtEnd(third);
+	assertEquals(packet.GetSize(), first.GetSize());
+	RrepHeader received = new RrepHeader();
+	first.RemoveHeader(received);
+	byte[] data = new byte[payload.length];
+	first.CopyData(data, data.length);
+	assertAll(
+		() -> assertEquals(7, received.GetDstSeqno()),
+		() -> assertArrayEquals(payload, data));
+    }
+
+    @Test
+    void test_BufferFragment() {
+	Buffer buffer = new Buffer(new byte[] { 1, 2, 3, 4, 5 }, 5);
+	buffer.AddAtEnd(new Buffer(new byte[] { 6, 7 }, 2));
+	Buffer fragment = buffer.CreateFragment(3, 3);
+	buffer.Write(3, new byte[] { 9 }, 0, 1);
+	byte[] data = new byte[3];
+	fragment.CopyData(data, 3);
+	assertAll(
+		() -> assertEquals(2, fragment.GetSegmentCount()),
+		() -> assertArrayEquals(new byte[] { 4, 5, 6 }, data),
+		() -> assertEquals(9, buffer.Read(3, 1).get()));
+    }
+
+    @Test
+    void test_PacketTags() {
+	Packet packet = new Packet(10);
+	SocketIpTtlTag ttl = new SocketIpTtlTag();
+	ttl.SetTtl((byte) 64);
+	packet.AddPacketTag(ttl);
+	packet.AddPacketTag(new DeferredRouteOutputTag(3));
+
+	// the copy shares the tags until it changes them.
+	Packet copy = packet.Copy();
+	ttl.SetTtl((byte) 1);
+	assertTrue(copy.ReplacePacketTag(ttl));
+	SocketIpTtlTag peeked = new SocketIpTtlTag();
+	DeferredRouteOutputTag deferred = new DeferredRouteOutputTag();
+	assertAll(
+		() -> assertTrue(packet.PeekPacketTag(peeked)),
+		() -> assertEquals(64, peeked.GetTtl()),
+		() -> assertTrue(copy.RemovePacketTag(deferred)),
+		() -> assertEquals(3, deferred.GetInterface()),
+		() -> assertFalse(copy.PeekPacketTag(new DeferredRouteOutputTag())),
+		() -> assertTrue(packet.PeekPacketTag(new DeferredRouteOutputTag())),
+		() -> assertTrue(copy.PeekPacketTag(peeked)),
+		() -> assertEquals(1, peeked.GetTtl()),
+		() -> assertFalse(copy.PeekPacketTag(new SocketPriorityTag())));
+
+	PacketTagIterator i = packet.GetPacketTagIterator();
+	int count = 0;
+	while (i.HasNext()) {
+	    PacketTagIterator.Item item = i.Next();
+	    if (item.GetTypeId() == SocketIpTtlTag.class) {
+		item.GetTag(peeked);
+	    }
+	    count++;
+	}
+	assertEquals(2, count);
+	assertEquals(64, peeked.GetTtl());
+	packet.RemoveAllPacketTags();
+	assertFalse(packet.PeekPacketTag(peeked));
+    }
+
+    @Test
+    void test_ByteTags() {
+	Packet packet = new Packet(10);
+	SocketIpTtlTag ttl = new SocketIpTtlTag();
+	ttl.SetTtl((byte) 64);
+	packet.AddByteTag(ttl);
+
+	// a header shifts the range of the tag and is not covered by it.
+	packet.AddHeader(new TypeHeader(MessageType.AODVTYPE_RREP));
+	ByteTagIterator i = packet.GetByteTagIterator();
+	assertTrue(i.HasNext());
+	ByteTagIterator.Item item = i.Next();
+	assertAll(
+		() -> assertEquals(SocketIpTtlTag.class, item.GetTypeId()),
+		() -> assertEquals(1, item.GetStart()),
+		() -> assertEquals(11, item.GetEnd()),
+		() -> assertFalse(i.HasNext()));
+
+	// neither is a header added after removing one.
+	packet.RemoveHeader(new TypeHeader());
+	packet.RemoveAtStart(2);
+	packet.AddHeader(new TypeHeader(MessageType.AODVTYPE_RREP));
+	packet.AddHeader(new TypeHeader(MessageType.AODVTYPE_RREP));
+	ByteTagIterator j = packet.GetByteTagIterator();
+	ByteTagIterator.Item first = j.Next();
+	assertEquals(2, first.GetStart());
+	assertEquals(10, first.GetEnd());
+
+	// the tags of a concatenated packet follow the bytes they cover.
+	Packet other = new Packet(4);
+	SocketIpTtlTag otherTtl = new SocketIpTtlTag();
+	otherTtl.SetTtl((byte) 3);
+	other.AddByteTag(otherTtl, 1, 3);
+	packet.AddPaddingAtEnd(2);
+	packet.AddAtEnd(other);
+	ByteTagIterator k = packet.GetByteTagIterator();
+	int[] ranges = new int[4];
+	SocketIpTtlTag read = new SocketIpTtlTag();
+	for (int n = 0; n < 2; n++) {
+	    ByteTagIterator.Item it = k.Next();
+	    ranges[n * 2] = it.GetStart();
+	    ranges[n * 2 + 1] = it.GetEnd();
+	    it.GetTag(read);
+	}
+	assertFalse(k.HasNext());
+	assertArrayEquals(new int[] { 2, 10, 13, 15 }, ranges);
+	assertEquals(3, read.GetTtl());
+
+	// a fragment only sees the tags of its bytes.
+	Packet fragment = packet.CreateFragment(11, 5);
+	ByteTagIterator f = fragment.GetByteTagIterator();
+	ByteTagIterator.Item fi = f.Next();
+	assertAll(
+		() -> assertEquals(2, fi.GetStart()),
+		() -> assertEquals(4, fi.GetEnd()),
+		() -> assertFalse(f.HasNext()),
+		() -> assertTrue(fragment.FindFirstMatchingByteTag(read)),
+		() -> assertEquals(3, read.GetTtl()));
+	packet.RemoveAllByteTags();
+	assertFalse(packet.FindFirstMatchingByteTag(read));
+	assertTrue(fragment.FindFirstMatchingByteTag(read));
+    }
+
+    @Test
+    void test_AddAtEnd() {
+	Packet a = new Packet(new byte[] { 1, 2 }, 2);
+	Packet b = new Packet(new byte[] { 3 }, 1);
+	a.AddAtEnd(b);
+	a.AddPaddingAtEnd(1);
+	a.RemoveAtStart(1);
+	byte[] data = new byte[3];
+	a.CopyData(data, 3);
+	assertArrayEquals(new byte[] { 2, 3, 0 }, data);
+    }
+}
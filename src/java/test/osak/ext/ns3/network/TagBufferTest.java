@@ -0,0 +1,71 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.network;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.*;
+
+/**
+ * TODO TagBufferTest
+ * 
+ * @author zhangrui
+ * @since   1.0
+ */
+class TagBufferTest {
+
+    @Test
+    void test_ReadWrite() {
+	byte[] data = new byte[32];
+	TagBuffer cursor = new TagBuffer();
+	cursor.Reset(data, 2, 2 + 23);
+	cursor.WriteU8((byte) 0xfe);
+	cursor.WriteU16((short) 0x1234);
+	cursor.WriteU32(0xdeadbeef);
+	cursor.WriteU64(0x0102030405060708L);
+	cursor.WriteDouble(-1.5);
+	// little-endian, from the start of the region.
+	assertArrayEquals(new byte[] { 0, 0, (byte) 0xfe, 0x34, 0x12 }, Arrays.copyOf(data, 5));
+
+	TagBuffer reader = cursor.Reset(data, 2, 2 + 23);
+	assertAll(
+		() -> assertEquals((byte) 0xfe, reader.ReadU8()),
+		() -> assertEquals((short) 0x1234, reader.ReadU16()),
+		() -> assertEquals(0xdeadbeef, reader.ReadU32()),
+		() -> assertEquals(0x0102030405060708L, reader.ReadU64()),
+		() -> assertEquals(-1.5, reader.ReadDouble()));
+    }
+
+    @Test
+    void test_Address() {
+	Address address = new Address((byte) 3, new byte[] { 10, 0, 0, 1 }, (byte) 4);
+	byte[] data = new byte[address.GetSerializedSize()];
+	address.Serialize(new TagBuffer(data, 0, data.length));
+	Address read = new Address();
+	read.Deserialize(new TagBuffer(data, 0, data.length));
+	byte[] bytes = new byte[4];
+	read.CopyTo(bytes);
+	assertAll(
+		() -> assertEquals(4, read.GetLength()),
+		() -> assertTrue(read.IsMatchingType((byte) 3)),
+		() -> assertArrayEquals(new byte[] { 10, 0, 0, 1 }, bytes));
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.network.utils;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.*;
+
+/**
+ * TODO Ipv4AddressTest
+ * 
+ * @author zhangrui
+ * @since   1.0
+ */
+class Ipv4AddressTest {
+    @Test
+    void test_Intern() {
+	Ipv4Address a = Ipv4Address.Intern(0x0a010105);
+	assertAll(
+		() -> assertSame(a, Ipv4Address.Intern(0x0a010105)),
+		() -> assertEquals(new Ipv4Address("10.1.1.5"), a),
+		() -> assertEquals(new Ipv4Address("10.1.1.5").hashCode(), a.hashCode()),
+		() -> assertFalse(a.equals(Ipv4Address.Intern(0x0a010106))));
+
+	// an evicted address stays valid and equal to the new instance
+	for (int i = 0; i < 100000; i++) {
+	    Ipv4Address.Intern(i);
+	}
+	assertEquals(a, Ipv4Address.Intern(0x0a010105));
+	assertEquals(0x0a010105, a.Get());
+    }
+
+    @Test
+    void test_Deserialize() {
+	byte[] buf = { (byte) 0xc0, (byte) 0xa8, (byte) 0x80, (byte) 0xff };
+	Ipv4Address a = Ipv4Address.Deserialize(buf);
+	byte[] out = new byte[4];
+	a.Serialize(out);
+	assertAll(
+		() -> assertEquals(new Ipv4Address("192.168.128.255"), a),
+		() -> assertTrue(a.IsInitialized()),
+		() -> assertEquals(buf[3], out[3]),
+		() -> assertEquals(buf[0], out[0]));
+    }
+}
@@ -0,0 +1,458 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.nixvector;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.Inet6Address;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.*;
+
+import osak.ext.ns3.callback.Callback0;
+import osak.ext.ns3.callback.CallbackR4;
+import osak.ext.ns3.callback.CallbackR6;
+import osak.ext.ns3.internet.Ipv4Header;
+import osak.ext.ns3.internet.Ipv4InterfaceAddress;
+import osak.ext.ns3.internet.Ipv4L3Protocol;
+import osak.ext.ns3.internet.Ipv4Mask;
+import osak.ext.ns3.internet.Ipv4Route;
+import osak.ext.ns3.internet.Ipv4RoutingProtocol;
+import osak.ext.ns3.network.Address;
+import osak.ext.ns3.network.Channel;
+import osak.ext.ns3.network.NetDevice;
+import osak.ext.ns3.network.Node;
+import osak.ext.ns3.network.Packet;
+import osak.ext.ns3.network.PacketType;
+import osak.ext.ns3.network.SocketErrno;
+import osak.ext.ns3.network.utils.Ipv4Address;
+
+/**
+ * TODO NixVectorRoutingTest
+ *
+ * @author zhangrui
+ * @since   1.0
+ */
+class NixVectorRoutingTest {
+    /** A channel between any number of devices. */
+    private static final class TestChannel implements Channel {
+	final List<NetDevice> m_devices = new ArrayList<>();
+
+	@Override
+	public long GetNDevices() {
+	    return m_devices.size();
+	}
+
+	@Override
+	public NetDevice GetDevice(long i) {
+	    return m_devices.get((int) i);
+	}
+    }
+
+    /** A device that only knows its node and its channel. */
+    private static final class TestDevice implements NetDevice {
+	final TestChannel m_channel;
+	Node m_node;
+	int m_ifIndex;
+
+	TestDevice(TestChannel channel) {
+	    m_channel = channel;
+	    if (channel != null) {
+		channel.m_devices.add(this);
+	    }
+	}
+
+	@Override
+	public void SetIfIndex(int index) {
+	    m_ifIndex = index;
+	}
+
+	@Override
+	public int GetIfIndex() {
+	    return m_ifIndex;
+	}
+
+	@Override
+	public Channel GetChannel() {
+	    return m_channel;
+	}
+
+	@Override
+	public void SetAddress(Address address) {
+	}
+
+	@Override
+	public Address GetAddress() {
+	    return null;
+	}
+
+	@Override
+	public boolean SetMtu(short mtu) {
+	    return false;
+	}
+
+	@Override
+	public short GetMtu() {
+	    return 1500;
+	}
+
+	@Override
+	public boolean IsLinkUp() {
+	    return true;
+	}
+
+	@Override
+	public void AddLinkChangeCallback(Callback0 callback) {
+	}
+
+	@Override
+	public boolean IsBroadcast() {
+	    return false;
+	}
+
+	@Override
+	public Address GetBroadcast() {
+	    return null;
+	}
+
+	@Override
+	public boolean IsMulticast() {
+	    return false;
+	}
+
+	@Override
+	public Address GetMulticast(Ipv4Address multicastGroup) {
+	    return null;
+	}
+
+	@Override
+	public Address GetMulticast(Inet6Address addr) {
+	    return null;
+	}
+
+	@Override
+	public boolean IsBridge() {
+	    return false;
+	}
+
+	@Override
+	public boolean IsPointToPoint() {
+	    return true;
+	}
+
+	@Override
+	public boolean Send(Packet packet, Address dest, short protocolNumber) {
+	    return false;
+	}
+
+	@Override
+	public boolean SendFrom(Packet packet, Address source, Address dest, short protocolNumber) {
+	    return false;
+	}
+
+	@Override
+	public Node GetNode() {
+	    return m_node;
+	}
+
+	@Override
+	public void SetNode(Node node) {
+	    m_node = node;
+	}
+
+	@Override
+	public boolean NeedsArp() {
+	    return false;
+	}
+
+	@Override
+	public void SetReceiveCallback(CallbackR4<Boolean, NetDevice, Packet, Short, Address> cb) {
+	}
+
+	@Override
+	public void SetPromiscReceiveCallback(
+		CallbackR6<Boolean, NetDevice, Packet, Short, Address, Address, PacketType> cb) {
+	}
+
+	@Override
+	public boolean SupportsSendFrom() {
+	    return false;
+	}
+    }
+
+    /** IPv4 with one address per interface, notifying its routing protocol. */
+    private static final class TestIpv4 extends Ipv4L3Protocol {
+	final List<NetDevice> m_devices = new ArrayList<>();
+	final List<Ipv4InterfaceAddress> m_addresses = new ArrayList<>();
+	final List<Boolean> m_up = new ArrayList<>();
+	Ipv4RoutingProtocol m_routing;
+
+	@Override
+	public void SetRoutingProtocol(Ipv4RoutingProtocol routingProtocol) {
+	    m_routing = routingProtocol;
+	    routingProtocol.SetIpv4(this);
+	}
+
+	@Override
+	public Ipv4RoutingProtocol GetRoutingProtocol() {
+	    return m_routing;
+	}
+
+	@Override
+	public int AddInterface(NetDevice device) {
+	    m_devices.add(device);
+	    m_addresses.add(null);
+	    m_up.add(true);
+	    return m_devices.size() - 1;
+	}
+
+	@Override
+	public int GetNInterfaces() {
+	    return m_devices.size();
+	}
+
+	@Override
+	public NetDevice GetNetDevice(int iface) {
+	    return m_devices.get(iface);
+	}
+
+	@Override
+	public int GetInterfaceForDevice(NetDevice device) {
+	    return m_devices.indexOf(device);
+	}
+
+	@Override
+	public boolean AddAddress(int iface, Ipv4InterfaceAddress address) {
+	    m_addresses.set(iface, address);
+	    m_routing.NotifyAddAddress(iface, address);
+	    return true;
+	}
+
+	@Override
+	public int GetNAddresses(int iface) {
+	    return m_addresses.get(iface) == null ? 0 : 1;
+	}
+
+	@Override
+	public Ipv4InterfaceAddress GetAddress(int iface, int addressIndex) {
+	    return m_addresses.get(iface);
+	}
+
+	@Override
+	public boolean IsDestinationAddress(Ipv4Address address, int iif) {
+	    for (Ipv4InterfaceAddress a : m_addresses) {
+		if (a != null && a.GetLocal().equals(address)) {
+		    return true;
+		}
+	    }
+	    return false;
+	}
+
+	@Override
+	public boolean IsUp(int iface) {
+	    return m_up.get(iface);
+	}
+
+	@Override
+	public void SetUp(int iface) {
+	    m_up.set(iface, true);
+	    m_routing.NotifyInterfaceUp(iface);
+	}
+
+	@Override
+	public void SetDown(int iface) {
+	    m_up.set(iface, false);
+	    m_routing.NotifyInterfaceDown(iface);
+	}
+    }
+
+    private static int s_subnet = 0; // !< the routing protocols outlive the tests, so each test gets its own addresses
+
+    private Node[] m_nodes;
+    private TestIpv4[] m_ipv4;
+    private NixVectorRouting[] m_routing;
+    private int m_base;
+
+    /**
+     * Build a ring of four nodes, 0-1-2-3-0, each link being its own channel, and a
+     * fifth node with an interface on no channel.
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+	m_base = ++s_subnet;
+	m_nodes = new Node[5];
+	m_ipv4 = new TestIpv4[5];
+	m_routing = new NixVectorRouting[5];
+	for (int i = 0; i < 5; i++) {
+	    m_nodes[i] = new Node();
+	    m_ipv4[i] = new TestIpv4();
+	    m_routing[i] = new NixVectorRouting();
+	    m_routing[i].SetNode(m_nodes[i]);
+	    m_ipv4[i].SetRoutingProtocol(m_routing[i]);
+	}
+	for (int i = 0; i < 4; i++) {
+	    Link(i, (i + 1) % 4);
+	}
+	AddInterface(4, new TestDevice(null), Address(99, 1));
+    }
+
+    private Ipv4Address Address(int link, int host) {
+	return new Ipv4Address("10." + m_base + "." + link + "." + host);
+    }
+
+    private void AddInterface(int node, NetDevice device, Ipv4Address address) {
+	m_nodes[node].AddDevice(device);
+	int iface = m_ipv4[node].AddInterface(device);
+	m_ipv4[node].AddAddress(iface, new Ipv4InterfaceAddress(address, new Ipv4Mask("255.255.255.0")));
+    }
+
+    /** Link node a, at address 10.base.a.1, to node b, at 10.base.a.2. */
+    private void Link(int a, int b) {
+	TestChannel channel = new TestChannel();
+	AddInterface(a, new TestDevice(channel), Address(a, 1));
+	AddInterface(b, new TestDevice(channel), Address(a, 2));
+    }
+
+    /** @return the device of node on the link to node peer */
+    private NetDevice DeviceTo(int node, int peer) {
+	for (int i = 0; i < m_nodes[node].GetNDevices(); i++) {
+	    NetDevice device = m_nodes[node].GetDevice(i);
+	    Channel channel = device.GetChannel();
+	    for (long j = 0; channel != null && j < channel.GetNDevices(); j++) {
+		if (channel.GetDevice(j).GetNode() == m_nodes[peer]) {
+		    return device;
+		}
+	    }
+	}
+	return null;
+    }
+
+    private Ipv4Route RouteOutput(int node, Packet p, Ipv4Address dst) {
+	Ipv4Header header = new Ipv4Header();
+	header.SetDestination(dst);
+	return m_routing[node].RouteOutput(p, header, null, SocketErrno.ERROR_NOTERROR);
+    }
+
+    /** @return the node the route forwards to */
+    private int NextHop(Ipv4Route route) {
+	Channel channel = route.GetOutputDevice().GetChannel();
+	for (long j = 0; j < channel.GetNDevices(); j++) {
+	    NetDevice remote = channel.GetDevice(j);
+	    if (remote != route.GetOutputDevice()) {
+		for (int n = 0; n < m_nodes.length; n++) {
+		    if (m_nodes[n] == remote.GetNode()) {
+			return n;
+		    }
+		}
+	    }
+	}
+	return -1;
+    }
+
+    @Test
+    void test_RouteOutput() {
+	// 0 reaches 1 over link 0, at 10.base.0.2.
+	Packet p = new Packet(10);
+	Ipv4Route route = RouteOutput(0, p, Address(1, 2));
+	assertNotNull(route);
+	assertAll(
+		() -> assertSame(DeviceTo(0, 1), route.GetOutputDevice()),
+		() -> assertEquals(Address(0, 2), route.GetGateway()),
+		() -> assertEquals(Address(0, 1), route.GetSource()),
+		() -> assertEquals(Address(1, 2), route.GetDestination()),
+		() -> assertNotNull(p.GetNixVector()));
+
+	// 3 is the neighbor of 0 over link 3, at 10.base.3.1.
+	Ipv4Route back = RouteOutput(0, null, Address(2, 2));
+	assertAll(
+		() -> assertSame(DeviceTo(0, 3), back.GetOutputDevice()),
+		() -> assertEquals(Address(3, 1), back.GetGateway()),
+		() -> assertEquals(Address(3, 2), back.GetSource()));
+    }
+
+    @Test
+    void test_RouteInput() {
+	// 2 is two hops away from 0, over 1 first since it is its first neighbor.
+	Ipv4Address dst = Address(2, 1);
+	Packet p = new Packet(10);
+	Ipv4Route route = RouteOutput(0, p, dst);
+	Ipv4Header header = new Ipv4Header();
+	header.SetDestination(dst);
+
+	List<Integer> path = new ArrayList<>();
+	int[] delivered = { -1 };
+	int node = 0;
+	while (route != null && path.size() < 4) {
+	    NetDevice idev = null;
+	    int next = NextHop(route);
+	    Channel channel = route.GetOutputDevice().GetChannel();
+	    for (long j = 0; j < channel.GetNDevices(); j++) {
+		if (channel.GetDevice(j) != route.GetOutputDevice()) {
+		    idev = channel.GetDevice(j);
+		}
+	    }
+	    assertEquals(m_ipv4[node].m_addresses.get(m_ipv4[node].GetInterfaceForDevice(route.GetOutputDevice()))
+		    .GetLocal(), route.GetSource());
+	    path.add(next);
+	    node = next;
+	    Ipv4Route[] forwarded = { null };
+	    final int at = next;
+	    assertTrue(m_routing[next].RouteInput(p, header, idev, (r, q, h) -> forwarded[0] = r, null,
+		    (q, h, iif) -> delivered[0] = at, null));
+	    route = forwarded[0];
+	}
+	assertEquals(List.of(1, 2), path);
+	assertEquals(2, delivered[0]);
+    }
+
+    @Test
+    void test_InterfaceDown() {
+	Ipv4Address dst = Address(2, 1);
+	Ipv4Route route = RouteOutput(0, null, dst);
+	assertEquals(1, NextHop(route));
+	// the cached route stays until the topology changes.
+	assertSame(route, RouteOutput(0, null, dst));
+
+	// cutting link 1 between 1 and 2 leaves the path over 3.
+	m_ipv4[1].SetDown(m_ipv4[1].GetInterfaceForDevice(DeviceTo(1, 2)));
+	Ipv4Route reroute = RouteOutput(0, null, dst);
+	assertNotNull(reroute);
+	assertEquals(3, NextHop(reroute));
+
+	// with both links of 2 cut, it cannot be reached at all.
+	m_ipv4[3].SetDown(m_ipv4[3].GetInterfaceForDevice(DeviceTo(3, 2)));
+	assertNull(RouteOutput(0, null, dst));
+
+	m_ipv4[1].SetUp(m_ipv4[1].GetInterfaceForDevice(DeviceTo(1, 2)));
+	assertEquals(1, NextHop(RouteOutput(0, null, dst)));
+    }
+
+    @Test
+    void test_Unreachable() {
+	// node 4 has an address but no link, and nobody has 10.base.200.1.
+	assertNull(RouteOutput(0, new Packet(10), Address(99, 1)));
+	assertNull(RouteOutput(0, null, Address(200, 1)));
+	assertNull(RouteOutput(4, null, Address(0, 1)));
+	// routing to itself needs no nix-vector.
+	assertNull(RouteOutput(0, null, Address(0, 1)));
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.parallel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.*;
+
+/**
+ * TODO MpscRingBufferTest
+ * 
+ * @author zhangrui
+ * @since   1.0
+ */
+class MpscRingBufferTest {
+    private static final int PRODUCERS = 4;
+    private static final int COUNT = 100_000;
+
+    @Test
+    void test_Full() {
+	MpscRingBuffer<Integer> ring = new MpscRingBuffer<>(3);
+	assertEquals(4, ring.Capacity());
+	for (int i = 0; i < 4; i++) {
+	    assertTrue(ring.Offer(i));
+	}
+	assertFalse(ring.Offer(4));
+	assertEquals(0, ring.Poll().intValue());
+	assertTrue(ring.Offer(4));
+	for (int i = 1; i <= 4; i++) {
+	    assertEquals(i, ring.Poll().intValue());
+	}
+	assertNull(ring.Poll());
+    }
+
+    @Test
+    void test_Producers() throws InterruptedException {
+	MpscRingBuffer<long[]> ring = new MpscRingBuffer<>(64);
+	Thread[] producers = new Thread[PRODUCERS];
+	for (int p = 0; p < PRODUCERS; p++) {
+	    final int id = p;
+	    producers[p] = new Thread(() -> {
+		for (int i = 0; i < COUNT; i++) {
+		    long[] e = new long[] { id, i };
+		    while (!ring.Offer(e)) {
+			Thread.yield();
+		    }
+		}
+	    });
+	    producers[p].start();
+	}
+	long[] next = new long[PRODUCERS];
+	int received = 0;
+	while (received < PRODUCERS * COUNT) {
+	    long[] e = ring.Poll();
+	    if (e == null) {
+		Thread.yield();
+		continue;
+	    }
+	    // every producer's elements come out in the order they went in.
+	    assertEquals(next[(int) e[0]]++, e[1]);
+	    received++;
+	}
+	for (Thread producer : producers) {
+	    producer.join();
+	}
+	assertNull(ring.Poll());
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.parallel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.*;
+
+import osak.ext.ns3.core.DefaultSimulatorImpl;
+import osak.ext.ns3.core.EventQueue;
+import osak.ext.ns3.core.Simulator;
+import osak.ext.ns3.core.SimulatorImpl;
+import osak.ext.ns3.core.Time;
+import osak.ext.ns3.core.TimingWheelEventQueue;
+import osak.ext.ns3.network.Node;
+import osak.ext.ns3.network.NodeList;
+
+/**
+ * TODO ParallelSimulatorTest
+ * 
+ * @author zhangrui
+ * @since   1.0
+ */
+class ParallelSimulatorTest {
+    private static final int NODES = 16;
+    private static final int SYSTEMS = 4;
+    private static final int HOPS = 2000;
+    private static final Time LOOKAHEAD = new Time(1);
+
+    private List<List<Long>> m_trace;
+
+    @AfterEach
+    void tearDown() throws Exception {
+	Simulator.Destroy();
+	NodeList.Clear();
+    }
+
+    /**
+     * Each node forwards a token to a pseudo random node, over a link at least
+     * as slow as the lookahead, and also schedules a local event.
+     */
+    private void Hop(int node, int n) {
+	m_trace.get(node).add(Simulator.NowNs() * 31 + n);
+	if (n == HOPS) {
+	    return;
+	}
+	int next = (int) ((node * 7919L + n * 104729L) % NODES);
+	long jitter = (node * 31L + n * 17L) % 1000;
+	Simulator.ScheduleWithContext(next, Time.add(LOOKAHEAD, new Time(jitter, TimeUnit.MICROSECONDS)),
+		() -> Hop(next, n + 1));
+	Simulator.Schedule(new Time(jitter, TimeUnit.NANOSECONDS), () -> m_trace.get(node).add(-Simulator.NowNs()));
+    }
+
+    private List<List<Long>> RunRing(SimulatorImpl impl) {
+	return RunRing(impl, null);
+    }
+
+    private List<List<Long>> RunRing(SimulatorImpl impl, EventQueue queue) {
+	Simulator.Destroy();
+	NodeList.Clear();
+	Simulator.SetImplementation(impl);
+	if (queue != null) {
+	    Simulator.SetScheduler(queue);
+	}
+	m_trace = new ArrayList<>();
+	for (int i = 0; i < NODES; i++) {
+	    new Node(i % SYSTEMS);
+	    m_trace.add(Collections.synchronizedList(new ArrayList<>()));
+	}
+	for (int i = 0; i < NODES; i++) {
+	    final int node = i;
+	    Simulator.ScheduleWithContext(node, new Time(0), () -> Hop(node, 0));
+	}
+	Simulator.Run();
+	for (List<Long> trace : m_trace) {
+	    Collections.sort(trace);
+	}
+	return m_trace;
+    }
+
+    @Test
+    void test_SameAsSequential() {
+	List<List<Long>> sequential = RunRing(new DefaultSimulatorImpl());
+	long events = Simulator.GetEventCount();
+
+	ParallelSimulatorImpl parallel = new ParallelSimulatorImpl(SYSTEMS, LOOKAHEAD);
+	assertEquals(sequential, RunRing(parallel));
+	assertEquals(events, Simulator.GetEventCount());
+	assertEquals(SYSTEMS, parallel.GetSystemCount());
+	assertTrue(parallel.GetWindowCount() > 0);
+
+	assertEquals(sequential, RunRing(new ParallelSimulatorImpl(1, LOOKAHEAD)));
+    }
+
+    @Test
+    void test_SameAsSequentialCoarseWheel() {
+	long resolution = 100_000;
+	List<List<Long>> sequential = RunRing(new DefaultSimulatorImpl(), new TimingWheelEventQueue(resolution));
+	for (List<Long> trace : sequential) {
+	    for (long v : trace) {
+		if (v <= 0) {
+		    assertEquals(0, -v % resolution);
+		}
+	    }
+	}
+
+	ParallelSimulatorImpl parallel = new ParallelSimulatorImpl(SYSTEMS, LOOKAHEAD);
+	assertEquals(sequential, RunRing(parallel, new TimingWheelEventQueue(resolution)));
+	assertEquals(SYSTEMS, parallel.GetSystemCount());
+    }
+
+    @Test
+    void test_NodePartitions() {
+	List<List<Long>> sequential = RunRing(new DefaultSimulatorImpl());
+
+	ParallelSimulatorImpl parallel = new ParallelSimulatorImpl(SYSTEMS, LOOKAHEAD);
+	parallel.SetNodePartitions(true);
+	assertEquals(sequential, RunRing(parallel));
+	assertEquals(NODES, parallel.GetSystemCount());
+    }
+
+    @Test
+    void test_LookaheadViolation() {
+	NodeList.Clear();
+	Simulator.SetImplementation(new ParallelSimulatorImpl(2, LOOKAHEAD));
+	new Node(0);
+	new Node(1);
+	Simulator.ScheduleWithContext(0, new Time(0),
+		() -> Simulator.ScheduleWithContext(1, new Time(10, TimeUnit.MICROSECONDS), () -> {
+		}));
+	assertThrows(IllegalStateException.class, () -> Simulator.Run());
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2024 OSPLAB (Optical Signal Processing Lab Of UESTC)
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package osak.ext.ns3.parallel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.*;
+
+import osak.ext.ns3.core.DefaultSimulatorImpl;
+import osak.ext.ns3.core.Rollbackable;
+import osak.ext.ns3.core.Simulator;
+import osak.ext.ns3.core.SimulatorImpl;
+import osak.ext.ns3.core.Time;
+import osak.ext.ns3.network.Node;
+import osak.ext.ns3.network.NodeList;
+
+/**
+ * TODO TimeWarpSimulatorTest
+ * 
+ * @author zhangrui
+ * @since   1.0
+ */
+class TimeWarpSimulatorTest {
+    private static final int NODES = 16;
+    private static final int SYSTEMS = 4;
+    private static final int HOPS = 2000;
+
+    /**
+     * The events seen by a node, rolled back with it.
+     */
+    private static final class Trace implements Rollbackable {
+	private List<Long> m_events = new ArrayList<>();
+
+	void Add(long v) {
+	    Simulator.SaveState(this);
+	    m_events.add(v);
+	}
+
+	@Override
+	public Object SaveState() {
+	    return new ArrayList<>(m_events);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public void RestoreState(Object state) {
+	    m_events = (List<Long>) state;
+	}
+    }
+
+    private List<Trace> m_trace;
+
+    @AfterEach
+    void tearDown() throws Exception {
+	Simulator.Destroy();
+	NodeList.Clear();
+    }
+
+    /**
+     * Each node forwards a token to a pseudo random node over a link of at most
+     * one microsecond, so conservative windows would be nearly empty, and also
+     * schedules a local event.
+     */
+    private void Hop(int node, int n) {
+	m_trace.get(node).Add(Simulator.NowNs() * 31 + n);
+	if (n == HOPS) {
+	    return;
+	}
+	int next = (int) ((node * 7919L + n * 104729L) % NODES);
+	long jitter = (node * 31L + n * 17L) % 1000;
+	Simulator.ScheduleWithContext(next, Time.FromNs(jitter), () -> Hop(next, n + 1));
+	Simulator.Schedule(Time.FromNs(jitter / 2), () -> m_trace.get(node).Add(-Simulator.NowNs()));
+    }
+
+    private List<List<Long>> RunRing(SimulatorImpl impl, Time stop) {
+	Simulator.Destroy();
+	NodeList.Clear();
+	Simulator.SetImplementation(impl);
+	m_trace = new ArrayList<>();
+	for (int i = 0; i < NODES; i++) {
+	    new Node(i % SYSTEMS);
+	    m_trace.add(new Trace());
+	}
+	for (int i = 0; i < NODES; i++) {
+	    final int node = i;
+	    Simulator.ScheduleWithContext(node, new Time(0), () -> Hop(node, 0));
+	}
+	if (stop != null) {
+	    Simulator.Stop(stop);
+	}
+	Simulator.Run();
+	List<List<Long>> result = new ArrayList<>();
+	for (Trace trace : m_trace) {
+	    Collections.sort(trace.m_events);
+	    result.add(trace.m_events);
+	}
+	return result;
+    }
+
+    @Test
+    void test_SameAsSequential() {
+	List<List<Long>> sequential = RunRing(new DefaultSimulatorImpl(), null);
+	long events = Simulator.GetEventCount();
+
+	TimeWarpSimulatorImpl timeWarp = new TimeWarpSimulatorImpl(SYSTEMS);
+	assertEquals(sequential, RunRing(timeWarp, null));
+	assertEquals(events, timeWarp.GetCommittedEvents());
+	assertEquals(SYSTEMS, timeWarp.GetSystemCount());
+	assertTrue(timeWarp.GetGvtCount() > 0);
+	assertTrue(timeWarp.GetRollbackRatio() >= 0 && timeWarp.GetRollbackRatio() < 1);
+	assertTrue(timeWarp.GetCommittedEventRate() > 0);
+
+	assertEquals(sequential, RunRing(new TimeWarpSimulatorImpl(1), null));
+    }
+
+    @Test
+    void test_Stop() {
+	Time stop = Time.FromNs(123457);
+	List<List<Long>> sequential = RunRing(new DefaultSimulatorImpl(), stop);
+	assertEquals(sequential, RunRing(new TimeWarpSimulatorImpl(SYSTEMS), stop));
+	assertTrue(Simulator.NowNs() <= stop.getNanoSeconds());
+    }
+}